@@ -15,7 +15,7 @@ import java.util.Scanner;
  */
 public class Environments {
 
-	private static Environment currentEnvironment;
+	private static volatile Environment currentEnvironment;
 
 	private Environments() {
 		// use factoryMethods instead
@@ -27,10 +27,17 @@ public class Environments {
 	 * @return the current environment
 	 */
 	public static Environment getCurrent() {
-		if (currentEnvironment == null) {
-			currentEnvironment = new ServiceBindingEnvironment();
+		Environment environment = currentEnvironment;
+		if (environment == null) {
+			synchronized (Environments.class) {
+				environment = currentEnvironment;
+				if (environment == null) {
+					environment = new ServiceBindingEnvironment();
+					currentEnvironment = environment;
+				}
+			}
 		}
-		return currentEnvironment;
+		return environment;
 	}
 
 	/**
@@ -12,10 +12,7 @@ import com.sap.cloud.security.json.DefaultJsonObject;
 
 import javax.annotation.Nullable;
 import java.util.*;
-import java.util.function.Function;
 import java.util.function.UnaryOperator;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import static com.sap.cloud.security.config.Service.IAS;
 import static com.sap.cloud.security.config.Service.XSUAA;
@@ -28,9 +25,11 @@ import static com.sap.cloud.security.config.ServiceConstants.VCAP_APPLICATION;
  * environment and supplies accessor methods for service-specific configuration objects parsed from these bindings. *
  */
 public class ServiceBindingEnvironment implements Environment {
+	private static final List<ServiceConstants.Plan> XSUAA_PLAN_PRIORITY = List.of(ServiceConstants.Plan.APPLICATION,
+			ServiceConstants.Plan.BROKER, ServiceConstants.Plan.SPACE, ServiceConstants.Plan.DEFAULT);
 	private final ServiceBindingAccessor serviceBindingAccessor;
-	private UnaryOperator<String> environmentVariableReader = System::getenv;
-	private Map<Service, List<OAuth2ServiceConfiguration>> serviceConfigurations;
+	private volatile UnaryOperator<String> environmentVariableReader = System::getenv;
+	private volatile ServiceConfigurations serviceConfigurations;
 
 	/**
 	 * Uses the {@link com.sap.cloud.environment.servicebinding.api.DefaultServiceBindingAccessor} singleton to read
@@ -73,21 +72,12 @@ public class ServiceBindingEnvironment implements Environment {
 	@Nullable
 	@Override
 	public OAuth2ServiceConfiguration getXsuaaConfiguration() {
-		List<ServiceConstants.Plan> orderedServicePlans = List.of(ServiceConstants.Plan.APPLICATION,
-				ServiceConstants.Plan.BROKER,
-				ServiceConstants.Plan.SPACE, ServiceConstants.Plan.DEFAULT);
-		List<OAuth2ServiceConfiguration> xsuaaConfigurations = getServiceConfigurationsAsList().get(XSUAA);
-
-		return xsuaaConfigurations.stream()
-				.filter(config -> getServicePlan(config) != null)
-				.filter(config -> orderedServicePlans.contains(getServicePlan(config)))
-				.min(Comparator.comparingInt(config -> orderedServicePlans.indexOf(getServicePlan(config))))
-				.orElse(null);
+		return getOrReadServiceConfigurations().primaryXsuaaConfiguration;
 	}
 
 	@Override
 	public int getNumberOfXsuaaConfigurations() {
-		return getServiceConfigurationsAsList().get(XSUAA).size();
+		return getOrReadServiceConfigurations().byService.get(XSUAA).size();
 	}
 
 	/**
@@ -115,15 +105,11 @@ public class ServiceBindingEnvironment implements Environment {
 	 * Gives access to all service configurations parsed from the environment. The service configurations are parsed on
 	 * the first access, then cached.
 	 *
-	 * @return the service configurations grouped by service
+	 * @return the service configurations grouped by service, unmodifiable
 	 */
 	@Override
 	public Map<Service, List<OAuth2ServiceConfiguration>> getServiceConfigurationsAsList() {
-		if (serviceConfigurations == null) {
-			this.readServiceConfigurations();
-		}
-
-		return this.serviceConfigurations;
+		return getOrReadServiceConfigurations().byService;
 	}
 
 	/**
@@ -134,45 +120,57 @@ public class ServiceBindingEnvironment implements Environment {
 	 * with a service plan other than those from {@link ServiceConstants}#Plan. Use
 	 * {@link ServiceBindingEnvironment#getServiceConfigurationsAsList()} to get a complete list of configurations.
 	 *
-	 * @return the service configurations grouped first by service, then by service plan.
+	 * @return the service configurations grouped first by service, then by service plan, unmodifiable
 	 */
 	@Override
 	public Map<Service, Map<ServiceConstants.Plan, OAuth2ServiceConfiguration>> getServiceConfigurations() {
-		if (serviceConfigurations == null) {
-			this.readServiceConfigurations();
-		}
-
-		Map<Service, Map<ServiceConstants.Plan, OAuth2ServiceConfiguration>> result = new EnumMap<>(Service.class);
-
-		for (Map.Entry<Service, List<OAuth2ServiceConfiguration>> entry : serviceConfigurations.entrySet()) {
-			Service service = entry.getKey();
-			List<OAuth2ServiceConfiguration> configurations = entry.getValue();
+		return getOrReadServiceConfigurations().byServiceAndPlan;
+	}
 
-			Map<ServiceConstants.Plan, OAuth2ServiceConfiguration> planConfigurations = configurations.stream()
-					.filter(config -> getServicePlan(config) != null)
-					.collect(Collectors.toMap(
-							config -> ServiceConstants.Plan.from(config.getProperty(SERVICE_PLAN)),
-							Function.identity(),
-							(a, b) -> a));
+	private ServiceConfigurations getOrReadServiceConfigurations() {
+		ServiceConfigurations configurations = serviceConfigurations;
+		if (configurations == null) {
+			synchronized (this) {
+				configurations = serviceConfigurations;
+				if (configurations == null) {
+					configurations = readServiceConfigurations();
+					serviceConfigurations = configurations;
+				}
+			}
+		}
+		return configurations;
+	}
 
-			result.put(service, planConfigurations);
+	/** Parses the service configurations from the environment in a single pass over the service bindings. */
+	private ServiceConfigurations readServiceConfigurations() {
+		boolean legacyMode = runInLegacyMode();
+		Map<Service, List<OAuth2ServiceConfiguration>> byService = new EnumMap<>(Service.class);
+		Map<Service, Map<ServiceConstants.Plan, OAuth2ServiceConfiguration>> byServiceAndPlan = new EnumMap<>(
+				Service.class);
+		for (Service service : Service.values()) {
+			byService.put(service, new ArrayList<>());
+			byServiceAndPlan.put(service, new EnumMap<>(ServiceConstants.Plan.class));
 		}
 
-		return result;
-	}
+		for (ServiceBinding serviceBinding : serviceBindingAccessor.getServiceBindings()) {
+			Service service = Service.from(serviceBinding.getServiceName().orElse(""));
+			if (service == null) {
+				continue;
+			}
+			OAuth2ServiceConfigurationBuilder builder = ServiceBindingMapper
+					.mapToOAuth2ServiceConfigurationBuilder(serviceBinding);
+			if (builder == null) {
+				continue;
+			}
+			OAuth2ServiceConfiguration configuration = builder.runInLegacyMode(legacyMode).build();
+			byService.get(service).add(configuration);
+			ServiceConstants.Plan plan = getServicePlan(configuration);
+			if (plan != null) {
+				byServiceAndPlan.get(service).putIfAbsent(plan, configuration);
+			}
+		}
 
-	/** Parses the service configurations from the environment. */
-	private void readServiceConfigurations() {
-		List<ServiceBinding> serviceBindings = serviceBindingAccessor.getServiceBindings();
-
-		serviceConfigurations = Stream.of(Service.values())
-				.collect(Collectors.toMap(Function.identity(), service -> serviceBindings.stream()
-						.filter(b -> service.equals(Service.from(b.getServiceName().orElse(""))))
-						.map(ServiceBindingMapper::mapToOAuth2ServiceConfigurationBuilder)
-						.filter(Objects::nonNull)
-						.map(builder -> builder.runInLegacyMode(runInLegacyMode()))
-						.map(OAuth2ServiceConfigurationBuilder::build)
-						.toList()));
+		return new ServiceConfigurations(byService, byServiceAndPlan);
 	}
 
 	/**
@@ -184,7 +182,7 @@ public class ServiceBindingEnvironment implements Environment {
 	}
 
 	@Nullable
-	private ServiceConstants.Plan getServicePlan(OAuth2ServiceConfiguration config) {
+	private static ServiceConstants.Plan getServicePlan(OAuth2ServiceConfiguration config) {
 		try {
 			return ServiceConstants.Plan.from(config.getProperty(SERVICE_PLAN));
 		} catch (IllegalArgumentException e) {
@@ -201,4 +199,25 @@ public class ServiceBindingEnvironment implements Environment {
 
 		return false;
 	}
+
+	/**
+	 * Immutable snapshot of the service configurations, which is safely published to concurrent callers.
+	 */
+	private static class ServiceConfigurations {
+		final Map<Service, List<OAuth2ServiceConfiguration>> byService;
+		final Map<Service, Map<ServiceConstants.Plan, OAuth2ServiceConfiguration>> byServiceAndPlan;
+		final OAuth2ServiceConfiguration primaryXsuaaConfiguration;
+
+		ServiceConfigurations(Map<Service, List<OAuth2ServiceConfiguration>> byService,
+				Map<Service, Map<ServiceConstants.Plan, OAuth2ServiceConfiguration>> byServiceAndPlan) {
+			byService.replaceAll((service, configurations) -> List.copyOf(configurations));
+			byServiceAndPlan.replaceAll((service, configurations) -> Collections.unmodifiableMap(configurations));
+			this.byService = Collections.unmodifiableMap(byService);
+			this.byServiceAndPlan = Collections.unmodifiableMap(byServiceAndPlan);
+			this.primaryXsuaaConfiguration = XSUAA_PLAN_PRIORITY.stream()
+					.map(byServiceAndPlan.get(XSUAA)::get)
+					.filter(Objects::nonNull)
+					.findFirst().orElse(null);
+		}
+	}
 }
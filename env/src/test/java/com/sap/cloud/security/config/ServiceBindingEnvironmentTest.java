@@ -2,12 +2,20 @@ package com.sap.cloud.security.config;
 
 import com.sap.cloud.environment.servicebinding.SapVcapServicesServiceBindingAccessor;
 import org.apache.commons.io.IOUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -150,6 +158,56 @@ class ServiceBindingEnvironmentTest {
 		assertThat(configs.get(Service.XSUAA).entrySet(), hasSize(0));
 	}
 
+	@Test
+	void getServiceConfigurations_isCachedAndUnmodifiable() {
+		assertThat(cutMultipleXsuaa.getServiceConfigurations(), sameInstance(cutMultipleXsuaa.getServiceConfigurations()));
+		assertThrows(UnsupportedOperationException.class,
+				() -> cutMultipleXsuaa.getServiceConfigurations().get(Service.XSUAA).clear());
+		assertThrows(UnsupportedOperationException.class,
+				() -> cutMultipleXsuaa.getServiceConfigurationsAsList().get(Service.XSUAA).clear());
+	}
+
+	@Test
+	void manyBindings_areReadOnceForConcurrentCallers() throws Exception {
+		JSONObject binding = new JSONObject(IOUtils.resourceToString("/vcapXsuaaServiceSingleBinding.json", UTF_8))
+				.getJSONArray("xsuaa").getJSONObject(0);
+		JSONArray xsuaaBindings = new JSONArray();
+		for (int i = 0; i < 60; i++) {
+			JSONObject xsuaaBinding = new JSONObject(binding.toString()).put("plan", i == 0 ? "broker" : "application");
+			xsuaaBinding.getJSONObject("credentials").put("clientid", "clientId-" + i);
+			xsuaaBindings.put(xsuaaBinding);
+		}
+		String vcapServices = new JSONObject().put("xsuaa", xsuaaBindings).toString();
+		AtomicInteger reads = new AtomicInteger();
+		ServiceBindingEnvironment cut = new ServiceBindingEnvironment(() -> {
+			reads.incrementAndGet();
+			return new SapVcapServicesServiceBindingAccessor(any -> vcapServices).getServiceBindings();
+		});
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<Map<Service, Map<ServiceConstants.Plan, OAuth2ServiceConfiguration>>>> results = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				results.add(executor.submit(() -> {
+					start.await();
+					return cut.getServiceConfigurations();
+				}));
+			}
+			start.countDown();
+			for (Future<Map<Service, Map<ServiceConstants.Plan, OAuth2ServiceConfiguration>>> result : results) {
+				assertThat(result.get(), sameInstance(cut.getServiceConfigurations()));
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		assertEquals(1, reads.get());
+		assertEquals(60, cut.getNumberOfXsuaaConfigurations());
+		assertEquals("clientId-1", cut.getXsuaaConfiguration().getClientId());
+		assertEquals("clientId-0", cut.getXsuaaConfigurationForTokenExchange().getClientId());
+	}
+
 	@Test
 	void getConfigurationOfXsuaaInstanceInXsaSystem() {
 		ServiceBindingEnvironment cut = new ServiceBindingEnvironment(
@@ -5,11 +5,17 @@
  */
 package com.sap.cloud.security.servlet;
 
+import com.sap.cloud.security.token.SecurityContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 
+import javax.annotation.Nullable;
+import java.security.SecureRandom;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * The Mapped Diagnostic Context helper class.
@@ -19,24 +25,85 @@ public final class MDCHelper {
 	public static final String CORRELATION_ID = "correlation_id";
 	public static final String CORRELATION_HEADER = "X-CorrelationID";
 	private static final Logger LOGGER = LoggerFactory.getLogger(MDCHelper.class);
+	private static final Supplier<String> DEFAULT_GENERATOR = new CorrelationIdGenerator();
+	private static final AtomicBoolean generationLogged = new AtomicBoolean();
+	private static volatile Supplier<String> correlationIdGenerator = DEFAULT_GENERATOR;
 
 	private MDCHelper() {
 	}
 
 	/**
-	 * Gets correlation_id from MDC, if it is missing, new correlation_id will be created.
+	 * Gets correlation_id from MDC. If it is missing, the correlation id of the current request is used, see
+	 * {@link SecurityContext#getCorrelationId()}, and if there is none, a new correlation_id will be created.
 	 *
 	 * @return the string of correlation_id
 	 */
 	public static String getOrCreateCorrelationId() {
 		String correlationId = MDC.get(CORRELATION_ID);
-		if (correlationId == null || correlationId.isEmpty()) {
-			correlationId = String.valueOf(UUID.randomUUID());
-			LOGGER.info("Correlation id (key={}) was not found in the MDC, generating a new one: {}", CORRELATION_ID,
-					correlationId);
-		} else {
+		if (hasValue(correlationId)) {
 			LOGGER.debug("Correlation id (key={}) from MDC: {}", CORRELATION_ID, correlationId);
+			return correlationId;
+		}
+		correlationId = SecurityContext.getCorrelationId();
+		if (hasValue(correlationId)) {
+			LOGGER.debug("Correlation id (key={}) was not found in the MDC, using the one of the request: {}",
+					CORRELATION_ID, correlationId);
+			return correlationId;
+		}
+		correlationId = correlationIdGenerator.get();
+		if (generationLogged.compareAndSet(false, true)) {
+			LOGGER.info("Correlation id (key={}) was not found in the MDC, generating new ones, e.g. {}. "
+					+ "Further generated correlation ids are logged on debug level.", CORRELATION_ID, correlationId);
+		} else {
+			LOGGER.debug("Correlation id (key={}) was not found in the MDC, generated a new one: {}",
+					CORRELATION_ID, correlationId);
 		}
 		return correlationId;
 	}
+
+	/**
+	 * Overwrites how new correlation ids are generated, e.g. to match the format of the correlation ids of the
+	 * application. By default, correlation ids are formatted as UUID, whose first half is chosen randomly at startup
+	 * and whose second half is a counter, so that they are unique without a {@link SecureRandom} call per id.
+	 *
+	 * @param generator
+	 * 		supplies new correlation ids, null to restore the default
+	 */
+	public static void setCorrelationIdGenerator(@Nullable Supplier<String> generator) {
+		correlationIdGenerator = generator != null ? generator : DEFAULT_GENERATOR;
+	}
+
+	/**
+	 * Used for testing purposes only: logs the next generated correlation id on info level again.
+	 */
+	static void resetGenerationLogged() {
+		generationLogged.set(false);
+	}
+
+	private static boolean hasValue(String correlationId) {
+		return correlationId != null && !correlationId.isEmpty();
+	}
+
+	/**
+	 * Generates version 4 UUIDs of a random per process prefix and an atomic counter.
+	 */
+	private static class CorrelationIdGenerator implements Supplier<String> {
+		private static final long VERSION_4 = 0x4000L;
+		private static final long VARIANT = 0x8000000000000000L;
+		private static final long COUNTER_BITS = 0x3fffffffffffffffL;
+
+		private final long mostSignificantBits;
+		private final AtomicLong counter;
+
+		CorrelationIdGenerator() {
+			SecureRandom random = new SecureRandom();
+			mostSignificantBits = random.nextLong() & ~0xf000L | VERSION_4;
+			counter = new AtomicLong(random.nextLong() & COUNTER_BITS);
+		}
+
+		@Override
+		public String get() {
+			return new UUID(mostSignificantBits, VARIANT | counter.getAndIncrement() & COUNTER_BITS).toString();
+		}
+	}
 }
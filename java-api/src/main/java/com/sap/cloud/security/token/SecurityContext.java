@@ -26,6 +26,7 @@ public class SecurityContext {
 	private static final ThreadLocal<Token> tokenStorage = new ThreadLocal<>();
 	private static final ThreadLocal<List<String>> servicePlanStorage = new ThreadLocal<List<String>>();
 	private static final ThreadLocal<Certificate> certificateStorage = new ThreadLocal<>();
+	private static final ThreadLocal<String> correlationIdStorage = new ThreadLocal<>();
 
 	/**
 	 * Returns the certificate that is saved in thread wide storage.
@@ -94,7 +95,7 @@ public class SecurityContext {
 	}
 
 	/**
-	 * Clears the current Token from thread wide storage.
+	 * Clears the current Token and the correlation id of its request from thread wide storage.
 	 */
 	public static void clearToken() {
 		final Token token = tokenStorage.get();
@@ -102,6 +103,7 @@ public class SecurityContext {
 			LOGGER.debug("Token of service {} removed from SecurityContext (thread-locally).", token.getService());
 			tokenStorage.remove();
 		}
+		correlationIdStorage.remove();
 	}
 
 	/**
@@ -151,7 +153,34 @@ public class SecurityContext {
 	}
 
 	/**
-	 * Clears the current token, certificate and Identity service broker plans from thread wide storage.
+	 * Returns the correlation id of the current request that is saved in thread wide storage.
+	 *
+	 * @return the correlation id or null if the storage is empty.
+	 */
+	@Nullable
+	public static String getCorrelationId() {
+		return correlationIdStorage.get();
+	}
+
+	/**
+	 * Saves the correlation id of the current authenticated request thread wide, so that the requests to the identity
+	 * service made on behalf of the request can be correlated with it. It is removed together with the token of the
+	 * request, see {@link #clearToken()} and {@link #clear()}, which should be called when the request has finished.
+	 *
+	 * @param correlationId
+	 * 		correlation id to be saved, null to clear it.
+	 */
+	public static void setCorrelationId(@Nullable String correlationId) {
+		if (correlationId == null) {
+			correlationIdStorage.remove();
+		} else {
+			correlationIdStorage.set(correlationId);
+		}
+	}
+
+	/**
+	 * Clears the current token, certificate, Identity service broker plans and correlation id from thread wide
+	 * storage.
 	 */
 	public static void clear() {
 		clearCertificate();
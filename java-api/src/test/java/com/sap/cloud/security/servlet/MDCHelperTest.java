@@ -0,0 +1,66 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.servlet;
+
+import com.sap.cloud.security.token.SecurityContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MDCHelperTest {
+
+	@Before
+	public void setUp() {
+		MDCHelper.resetGenerationLogged();
+	}
+
+	@After
+	public void tearDown() {
+		MDCHelper.setCorrelationIdGenerator(null);
+		SecurityContext.clear();
+	}
+
+	@Test
+	public void getOrCreateCorrelationId_generatesUniqueUuids() {
+		Set<String> correlationIds = new HashSet<>();
+		for (int i = 0; i < 1000; i++) {
+			correlationIds.add(MDCHelper.getOrCreateCorrelationId());
+		}
+
+		assertThat(correlationIds).hasSize(1000);
+		UUID uuid = UUID.fromString(correlationIds.iterator().next());
+		assertThat(uuid.version()).isEqualTo(4);
+		assertThat(uuid.variant()).isEqualTo(2);
+	}
+
+	@Test
+	public void getOrCreateCorrelationId_usesCorrelationIdOfRequest() {
+		SecurityContext.setCorrelationId("request-correlation-id");
+
+		assertThat(MDCHelper.getOrCreateCorrelationId()).isEqualTo("request-correlation-id");
+
+		SecurityContext.setCorrelationId(null);
+
+		assertThat(MDCHelper.getOrCreateCorrelationId()).isNotEqualTo("request-correlation-id");
+	}
+
+	@Test
+	public void setCorrelationIdGenerator() {
+		MDCHelper.setCorrelationIdGenerator(() -> "custom-correlation-id");
+
+		assertThat(MDCHelper.getOrCreateCorrelationId()).isEqualTo("custom-correlation-id");
+
+		MDCHelper.setCorrelationIdGenerator(null);
+
+		assertThat(MDCHelper.getOrCreateCorrelationId()).isNotEqualTo("custom-correlation-id");
+	}
+}
@@ -0,0 +1,92 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.test.integration;
+
+import com.sap.cloud.security.config.OAuth2ServiceConfiguration;
+import com.sap.cloud.security.config.OAuth2ServiceConfigurationBuilder;
+import com.sap.cloud.security.config.ServiceConstants;
+import com.sap.cloud.security.test.SecurityTest;
+import com.sap.cloud.security.token.Token;
+import com.sap.cloud.security.token.TokenClaims;
+import com.sap.cloud.security.token.TokenHeader;
+import com.sap.cloud.security.token.validation.validators.JwtValidatorBuilder;
+import com.sap.cloud.security.xsuaa.XsuaaCredentials;
+import com.sap.cloud.security.xsuaa.XsuaaServiceConfigurationCustom;
+import com.sap.cloud.security.xsuaa.client.TokenKeyStore;
+import com.sap.cloud.security.xsuaa.token.authentication.XsuaaJwtDecoderBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.sap.cloud.security.config.Service.XSUAA;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Validates the same token with java-security and spring-xsuaa, which share the token keys via the process-wide
+ * {@link TokenKeyStore}.
+ */
+class TokenKeyStoreIntegrationTest {
+
+	private static final String ZONE_ID = "the-zone-id";
+
+	private SecurityTest securityTest;
+	private TokenKeyStore tokenKeyStore;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		securityTest = new SecurityTest(XSUAA).setKeys("/publicKey.txt", "/privateKey.txt");
+		securityTest.setup();
+		tokenKeyStore = TokenKeyStore.getInstance();
+		tokenKeyStore.clearCache();
+	}
+
+	@AfterEach
+	void tearDown() {
+		tokenKeyStore.clearCache();
+		securityTest.tearDown();
+	}
+
+	@Test
+	void javaSecurityAndSpringXsuaa_requestTokenKeysOnce() {
+		// java-security-test registers a JKU factory that returns the jku header, which is composed as in production
+		Token token = securityTest.getPreconfiguredJwtGenerator()
+				.withHeaderParameter(TokenHeader.JWKS_URL,
+						securityTest.getWireMockServer().baseUrl() + "/token_keys?zid=" + ZONE_ID)
+				.withClaimValue(TokenClaims.XSUAA.ZONE_ID, ZONE_ID)
+				.createToken();
+
+		assertThat(JwtValidatorBuilder.getInstance(createConfiguration())
+				.withTokenKeyStore(tokenKeyStore)
+				.build()
+				.validate(token).isValid()).isTrue();
+		assertThat(createJwtDecoder().decode(token.getTokenValue()).getClaimAsString(TokenClaims.XSUAA.ZONE_ID))
+				.isEqualTo(ZONE_ID);
+
+		assertThat(securityTest.getWireMockServer().findAll(getRequestedFor(urlPathEqualTo("/token_keys"))))
+				.hasSize(1);
+	}
+
+	private OAuth2ServiceConfiguration createConfiguration() {
+		return OAuth2ServiceConfigurationBuilder.forService(XSUAA)
+				.withClientId(SecurityTest.DEFAULT_CLIENT_ID)
+				.withProperty(ServiceConstants.XSUAA.APP_ID, SecurityTest.DEFAULT_APP_ID)
+				.withProperty(ServiceConstants.XSUAA.UAA_DOMAIN, securityTest.getWireMockServer().baseUrl())
+				.build();
+	}
+
+	private JwtDecoder createJwtDecoder() {
+		XsuaaCredentials xsuaaCredentials = new XsuaaCredentials();
+		xsuaaCredentials.setUaaDomain(securityTest.getWireMockServer().baseUrl());
+		xsuaaCredentials.setClientId(SecurityTest.DEFAULT_CLIENT_ID);
+		xsuaaCredentials.setXsAppName(SecurityTest.DEFAULT_APP_ID);
+		return new XsuaaJwtDecoderBuilder(new XsuaaServiceConfigurationCustom(xsuaaCredentials))
+				.withTokenKeyStore(tokenKeyStore)
+				.build();
+	}
+}
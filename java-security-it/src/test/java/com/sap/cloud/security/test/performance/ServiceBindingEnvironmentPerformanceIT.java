@@ -0,0 +1,101 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.test.performance;
+
+import com.sap.cloud.environment.servicebinding.SapVcapServicesServiceBindingAccessor;
+import com.sap.cloud.security.config.ServiceBindingEnvironment;
+import com.sap.cloud.security.test.performance.util.BenchmarkUtil;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Performance test for parsing the service bindings of an application with many bindings.
+ */
+class ServiceBindingEnvironmentPerformanceIT {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ServiceBindingEnvironmentPerformanceIT.class);
+	private static final String[] XSUAA_PLANS = { "application", "broker", "space", "apiaccess" };
+	private static String vcapServices;
+	private static String vcapApplication;
+
+	@BeforeAll
+	static void setUp() {
+		JSONArray xsuaaBindings = new JSONArray();
+		for (int i = 0; i < 50; i++) {
+			xsuaaBindings.put(binding("xsuaa", i, XSUAA_PLANS[i % XSUAA_PLANS.length], new JSONObject()
+					.put("clientid", "sb-clientId-" + i)
+					.put("clientsecret", "secret")
+					.put("url", "https://paastenant.auth.com")
+					.put("uaadomain", "auth.com")
+					.put("xsappname", "app-" + i)));
+		}
+		JSONArray identityBindings = new JSONArray();
+		for (int i = 0; i < 10; i++) {
+			identityBindings.put(binding("identity", i, "application", new JSONObject()
+					.put("clientid", "clientId-" + i)
+					.put("clientsecret", "secret")
+					.put("url", "https://tenant.accounts.ondemand.com")
+					.put("domains", new JSONArray().put("accounts.ondemand.com"))));
+		}
+		JSONArray otherBindings = new JSONArray();
+		for (int i = 0; i < 10; i++) {
+			otherBindings.put(binding("destination", i, "lite", new JSONObject().put("uri", "https://destination")));
+		}
+		vcapServices = new JSONObject()
+				.put("xsuaa", xsuaaBindings)
+				.put("identity", identityBindings)
+				.put("destination", otherBindings)
+				.toString();
+		vcapApplication = new JSONObject()
+				.put("application_name", "my-app")
+				.put("application_uris", new JSONArray().put("my-app.cfapps.eu10.hana.ondemand.com"))
+				.put("cf_api", "https://api.cf.eu10.hana.ondemand.com")
+				.put("limits", new JSONObject().put("disk", 1024).put("mem", 1024))
+				.put("space_name", "dev")
+				.toString();
+		LOGGER.debug(BenchmarkUtil.getSystemInfo());
+	}
+
+	@Test
+	void readServiceConfigurations() {
+		ServiceBindingEnvironment environment = createEnvironment();
+		assertThat(environment.getNumberOfXsuaaConfigurations()).isEqualTo(50);
+		assertThat(environment.getIasConfiguration()).isNotNull();
+
+		BenchmarkUtil.Result result = BenchmarkUtil.execute(100, 1_000,
+				() -> createEnvironment().getXsuaaConfiguration());
+		LOGGER.info("Read service configurations of 70 bindings result: {}", result);
+	}
+
+	@Test
+	void getXsuaaConfiguration() {
+		ServiceBindingEnvironment environment = createEnvironment();
+		assertThat(environment.getXsuaaConfiguration()).isNotNull();
+
+		BenchmarkUtil.Result result = BenchmarkUtil.execute(environment::getXsuaaConfiguration);
+		LOGGER.info("Get xsuaa configuration of 70 bindings result: {}", result);
+	}
+
+	private static ServiceBindingEnvironment createEnvironment() {
+		return new ServiceBindingEnvironment(new SapVcapServicesServiceBindingAccessor(any -> vcapServices))
+				.withEnvironmentVariableReader(name -> "VCAP_APPLICATION".equals(name) ? vcapApplication : null);
+	}
+
+	private static JSONObject binding(String label, int index, String plan, JSONObject credentials) {
+		return new JSONObject()
+				.put("name", label + "-" + index)
+				.put("label", label)
+				.put("plan", plan)
+				.put("tags", new JSONArray().put(label))
+				.put("credentials", credentials);
+	}
+}
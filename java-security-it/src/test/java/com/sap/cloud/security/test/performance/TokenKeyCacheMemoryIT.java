@@ -0,0 +1,192 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.test.performance;
+
+import com.sap.cloud.security.config.CacheConfiguration;
+import com.sap.cloud.security.config.OAuth2ServiceConfiguration;
+import com.sap.cloud.security.config.OAuth2ServiceConfigurationBuilder;
+import com.sap.cloud.security.config.ServiceConstants;
+import com.sap.cloud.security.test.JwtGenerator;
+import com.sap.cloud.security.test.performance.util.BenchmarkUtil;
+import com.sap.cloud.security.token.Token;
+import com.sap.cloud.security.token.TokenClaims;
+import com.sap.cloud.security.token.TokenHeader;
+import com.sap.cloud.security.token.validation.CombiningValidator;
+import com.sap.cloud.security.token.validation.validators.JwtValidatorBuilder;
+import com.sap.cloud.security.xsuaa.client.OAuth2TokenKeyService;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.sap.cloud.security.config.Service.XSUAA;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measures the heap that is used by the token key cache when the keys of 10.000 XSUAA subscriber tenants (zones) are
+ * cached. The keys are cached per zone id, but all zones share the same key material. The heap used per tenant must
+ * stay below the heap that a copy of the key material alone would use, which is what every tenant would hold if the
+ * keys were not shared.
+ */
+class TokenKeyCacheMemoryIT {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TokenKeyCacheMemoryIT.class);
+	private static final int TENANTS = 10_000;
+	private static final int BASELINE_TENANTS = 1_000;
+	private static final int KEYS_PER_TENANT = 2;
+	private static final String CLIENT_ID = "sb-clientId!t1";
+	private static final String APP_ID = "xsapp!t1";
+	private static final List<RSAPublicKey> publicKeys = new ArrayList<>();
+	private static PrivateKey privateKey;
+	private static String jwks;
+
+	@BeforeAll
+	static void setUp() throws Exception {
+		jwks = createJwks();
+		LOGGER.debug(BenchmarkUtil.getSystemInfo());
+	}
+
+	@Test
+	void heapUsageOfTenantKeys() throws Exception {
+		long keyMaterialBytesPerTenant = heapUsageOfKeyMaterialPerTenant();
+
+		OAuth2TokenKeyService tokenKeyServiceMock = Mockito.mock(OAuth2TokenKeyService.class);
+		when(tokenKeyServiceMock.retrieveTokenKeys(any(), (Map<String, String>) any())).thenReturn(jwks);
+		CombiningValidator<Token> validator = JwtValidatorBuilder.getInstance(createConfiguration())
+				.withOAuth2TokenKeyService(tokenKeyServiceMock)
+				.withCacheConfiguration(new TenantCacheConfiguration(TENANTS * KEYS_PER_TENANT))
+				.withCacheSizeCountingKeys()
+				.build();
+		JwtGenerator jwtGenerator = JwtGenerator.getInstance(XSUAA, CLIENT_ID)
+				.withPrivateKey(privateKey)
+				.withAppId(APP_ID);
+		// java-security-test registers a JKU factory that takes the token keys URI from the jku header
+		List<String> tokens = IntStream.range(0, TENANTS)
+				.mapToObj(i -> UUID.nameUUIDFromBytes(("zone-" + i).getBytes(StandardCharsets.UTF_8)).toString())
+				.map(zoneId -> jwtGenerator
+						.withHeaderParameter(TokenHeader.JWKS_URL, "http://localhost/token_keys?zid=" + zoneId)
+						.withClaimValue(TokenClaims.XSUAA.ZONE_ID, zoneId)
+						.createToken().getTokenValue())
+				.collect(Collectors.toList());
+
+		long heapBefore = usedHeap();
+		for (String token : tokens) {
+			assertThat(validator.validate(Token.create(token)).isValid()).isTrue();
+		}
+		long heapAfter = usedHeap();
+
+		verify(tokenKeyServiceMock, times(TENANTS)).retrieveTokenKeys(any(), (Map<String, String>) any());
+		long bytesPerTenant = (heapAfter - heapBefore) / TENANTS;
+		LOGGER.info("Token key cache for {} tenants with {} keys each uses {} KB heap ({} bytes per tenant, "
+				+ "the key material alone uses {} bytes per tenant)", TENANTS, KEYS_PER_TENANT,
+				(heapAfter - heapBefore) / 1024, bytesPerTenant, keyMaterialBytesPerTenant);
+		assertThat(bytesPerTenant).isLessThan(keyMaterialBytesPerTenant);
+	}
+
+	/**
+	 * Returns the heap a tenant would use for its own copy of the public keys, i.e. without sharing them.
+	 */
+	private static long heapUsageOfKeyMaterialPerTenant() throws Exception {
+		KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+		List<PublicKey> copies = new ArrayList<>(BASELINE_TENANTS * KEYS_PER_TENANT);
+
+		long heapBefore = usedHeap();
+		for (int i = 0; i < BASELINE_TENANTS; i++) {
+			for (RSAPublicKey publicKey : publicKeys) {
+				copies.add(keyFactory.generatePublic(new RSAPublicKeySpec(
+						new BigInteger(publicKey.getModulus().toByteArray()),
+						new BigInteger(publicKey.getPublicExponent().toByteArray()))));
+			}
+		}
+		long heapAfter = usedHeap();
+
+		assertThat(copies).hasSize(BASELINE_TENANTS * KEYS_PER_TENANT);
+		return (heapAfter - heapBefore) / BASELINE_TENANTS;
+	}
+
+	private static long usedHeap() throws InterruptedException {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(100);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static String createJwks() throws NoSuchAlgorithmException {
+		KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+		keyPairGenerator.initialize(2048);
+		Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+		JSONArray keys = new JSONArray();
+		for (int i = 0; i < KEYS_PER_TENANT; i++) {
+			KeyPair keyPair = keyPairGenerator.generateKeyPair();
+			RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+			publicKeys.add(publicKey);
+			if (i == 0) {
+				privateKey = keyPair.getPrivate();
+			}
+			keys.put(new JSONObject()
+					.put("kty", "RSA")
+					.put("alg", "RS256")
+					.put("kid", i == 0 ? JwtGenerator.DEFAULT_KEY_ID : "key-id-" + i)
+					.put("n", encoder.encodeToString(publicKey.getModulus().toByteArray()))
+					.put("e", encoder.encodeToString(publicKey.getPublicExponent().toByteArray())));
+		}
+		return new JSONObject().put("keys", keys).toString();
+	}
+
+	private OAuth2ServiceConfiguration createConfiguration() {
+		return OAuth2ServiceConfigurationBuilder.forService(XSUAA)
+				.withClientId(CLIENT_ID)
+				.withProperty(ServiceConstants.XSUAA.APP_ID, APP_ID)
+				.withProperty(ServiceConstants.XSUAA.UAA_DOMAIN, "auth.com")
+				.build();
+	}
+
+	private static class TenantCacheConfiguration implements CacheConfiguration {
+		private final int cacheSize;
+
+		TenantCacheConfiguration(int cacheSize) {
+			this.cacheSize = cacheSize;
+		}
+
+		@Override
+		public Duration getCacheDuration() {
+			return Duration.ofMinutes(10);
+		}
+
+		@Override
+		public int getCacheSize() {
+			return cacheSize;
+		}
+	}
+}
@@ -44,11 +44,12 @@ public abstract class AbstractTokenAuthenticator implements TokenAuthenticator {
 	@Override
 	public TokenAuthenticationResult validateRequest(ServletRequest request, ServletResponse response) {
 		if (request instanceof HttpServletRequest httpRequest && response instanceof HttpServletResponse) {
+			SecurityContext.setCorrelationId(null);
 			String authorizationHeader = httpRequest.getHeader(HttpHeaders.AUTHORIZATION);
 			if (headerIsAvailable(authorizationHeader)) {
 				try {
 					Token token = Token.create(authorizationHeader);
-					return tokenValidationResult(token);
+					return tokenValidationResult(token, httpRequest);
 				} catch (Exception e) {
 					return unauthenticated("Unexpected error occurred: " + e.getMessage());
 				}
@@ -166,17 +167,31 @@ public abstract class AbstractTokenAuthenticator implements TokenAuthenticator {
 		return authorizationHeader != null && !authorizationHeader.isEmpty();
 	}
 
-	TokenAuthenticationResult tokenValidationResult(Token token) {
+	TokenAuthenticationResult tokenValidationResult(Token token, HttpServletRequest request) {
 		Validator<Token> validator = getOrCreateTokenValidator();
 		ValidationResult result = validator.validate(token);
 		if (result.isValid()) {
 			SecurityContext.setToken(token);
+			propagateCorrelationId(request);
 			return authenticated(token);
 		} else {
 			return unauthenticated("Error during token validation: " + result.getErrorDescription());
 		}
 	}
 
+	/**
+	 * Saves the correlation id of the authenticated request in the {@link SecurityContext}, so that token requests on
+	 * behalf of the request, e.g. token exchanges, pass it on, see {@link MDCHelper#getOrCreateCorrelationId()}. It is
+	 * removed together with the token of the request, see {@link SecurityContext#clearToken()}, and by the next
+	 * request that is validated on the same thread.
+	 *
+	 * @param request
+	 * 		the HttpServletRequest
+	 */
+	void propagateCorrelationId(HttpServletRequest request) {
+		SecurityContext.setCorrelationId(request.getHeader(MDCHelper.CORRELATION_HEADER));
+	}
+
 	/**
 	 * Extracts the forwarded client certificate from 'x-forwarded-client-cert' header.
 	 *
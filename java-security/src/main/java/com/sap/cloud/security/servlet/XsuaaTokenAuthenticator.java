@@ -75,6 +75,7 @@ public class XsuaaTokenAuthenticator extends AbstractTokenAuthenticator {
 	@Override
 	public TokenAuthenticationResult validateRequest(ServletRequest request, ServletResponse response) {
 		if (request instanceof HttpServletRequest httpRequest && response instanceof HttpServletResponse) {
+			SecurityContext.setCorrelationId(null);
 			String authorizationHeader = httpRequest.getHeader(HttpHeaders.AUTHORIZATION);
 			if (headerIsAvailable(authorizationHeader)) {
 				try {
@@ -82,7 +83,7 @@ public class XsuaaTokenAuthenticator extends AbstractTokenAuthenticator {
 							.newCertificate(getClientCertificate(httpRequest)));
 					Token token = Token.create(authorizationHeader);
 
-					return tokenValidationResult(token);
+					return tokenValidationResult(token, httpRequest);
 				} catch (Exception e) {
 					return createUnauthenticated("Unexpected error occurred: " + e.getMessage());
 				}
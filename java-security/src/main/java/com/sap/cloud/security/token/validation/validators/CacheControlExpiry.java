@@ -0,0 +1,62 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.token.validation.validators;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+
+/**
+ * Expires cache entries after the configured cache duration, unless a shorter {@code Cache-Control: max-age} has been
+ * announced for them. The max-age is applied with
+ * {@link com.github.benmanes.caffeine.cache.Policy.VarExpiration#setExpiresAfter(Object, Duration)} after the entry
+ * has been retrieved and is never shorter than {@link #MIN_TIME_TO_LIVE}, so that a misconfigured identity service
+ * can not force a request per token validation.
+ *
+ * @param <K>
+ * 		the type of the cache keys
+ * @param <V>
+ * 		the type of the cache values
+ */
+class CacheControlExpiry<K, V> implements Expiry<K, V> {
+	static final Duration MIN_TIME_TO_LIVE = Duration.ofSeconds(60);
+
+	private final Duration cacheDuration;
+
+	CacheControlExpiry(Duration cacheDuration) {
+		this.cacheDuration = cacheDuration;
+	}
+
+	/**
+	 * Returns the time to live of an entry with the given max-age.
+	 *
+	 * @param maxAge
+	 * 		the announced max-age or null
+	 * @return the max-age, bounded by {@link #MIN_TIME_TO_LIVE} and the cache duration
+	 */
+	Duration getTimeToLive(@Nullable Duration maxAge) {
+		if (maxAge == null || maxAge.compareTo(cacheDuration) > 0) {
+			return cacheDuration;
+		}
+		return maxAge.compareTo(MIN_TIME_TO_LIVE) < 0 ? MIN_TIME_TO_LIVE : maxAge;
+	}
+
+	@Override
+	public long expireAfterCreate(K key, V value, long currentTime) {
+		return cacheDuration.toNanos();
+	}
+
+	@Override
+	public long expireAfterUpdate(K key, V value, long currentTime, long currentDuration) {
+		return cacheDuration.toNanos();
+	}
+
+	@Override
+	public long expireAfterRead(K key, V value, long currentTime, long currentDuration) {
+		return currentDuration;
+	}
+}
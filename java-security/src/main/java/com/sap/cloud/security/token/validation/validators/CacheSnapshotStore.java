@@ -0,0 +1,57 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.token.validation.validators;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Persists the entries of the token key (JWKS) and OIDC configuration caches, so that they survive an application
+ * restart. Entries that are restored from a snapshot are treated as stale but usable and are refreshed in the
+ * background.
+ * <p>
+ * Keys and values are opaque strings that are created by the caches. {@link FileCacheSnapshotStore} is the default
+ * implementation.
+ */
+public interface CacheSnapshotStore {
+
+	/**
+	 * Loads all entries that have been stored for the given cache.
+	 *
+	 * @param cacheName
+	 * 		the name of the cache, e.g. {@code token-keys}
+	 * @return the stored entries, never null
+	 * @throws IOException
+	 * 		in case the snapshot could not be read
+	 */
+	@Nonnull
+	Map<String, String> load(@Nonnull String cacheName) throws IOException;
+
+	/**
+	 * Stores or overwrites a single cache entry.
+	 *
+	 * @param cacheName
+	 * 		the name of the cache, e.g. {@code token-keys}
+	 * @param key
+	 * 		the key of the cache entry
+	 * @param value
+	 * 		the serialized value of the cache entry
+	 * @throws IOException
+	 * 		in case the entry could not be written
+	 */
+	void store(@Nonnull String cacheName, @Nonnull String key, @Nonnull String value) throws IOException;
+
+	/**
+	 * Removes all entries that have been stored for the given cache.
+	 *
+	 * @param cacheName
+	 * 		the name of the cache, e.g. {@code token-keys}
+	 * @throws IOException
+	 * 		in case the entries could not be removed
+	 */
+	void clear(@Nonnull String cacheName) throws IOException;
+}
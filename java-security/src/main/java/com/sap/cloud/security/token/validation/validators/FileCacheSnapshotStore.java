@@ -0,0 +1,138 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.token.validation.validators;
+
+import com.sap.cloud.security.xsuaa.Assertions;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * {@link CacheSnapshotStore} that writes every cache entry into its own file below
+ * {@code <directory>/<cacheName>/}. Files are replaced atomically, so that a crash during a write never leaves a
+ * corrupted snapshot behind. Entries older than the configured maximum age (default: 24 hours) are ignored and
+ * removed when the snapshot is loaded.
+ */
+public class FileCacheSnapshotStore implements CacheSnapshotStore {
+	private static final Logger LOGGER = LoggerFactory.getLogger(FileCacheSnapshotStore.class);
+	private static final Duration DEFAULT_MAX_AGE = Duration.ofHours(24);
+	private static final String FILE_SUFFIX = ".json";
+	private static final String KEY = "key";
+	private static final String VALUE = "value";
+
+	private final Path directory;
+	private final Duration maxAge;
+
+	/**
+	 * Creates a new instance that keeps snapshot entries for at most 24 hours.
+	 *
+	 * @param directory
+	 * 		the directory the snapshot is written to. Is created if it does not exist.
+	 */
+	public FileCacheSnapshotStore(@Nonnull Path directory) {
+		this(directory, DEFAULT_MAX_AGE);
+	}
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param directory
+	 * 		the directory the snapshot is written to. Is created if it does not exist.
+	 * @param maxAge
+	 * 		entries that have not been written within this duration are not restored anymore.
+	 */
+	public FileCacheSnapshotStore(@Nonnull Path directory, @Nonnull Duration maxAge) {
+		Assertions.assertNotNull(directory, "directory must not be null");
+		Assertions.assertNotNull(maxAge, "maxAge must not be null");
+		this.directory = directory;
+		this.maxAge = maxAge;
+	}
+
+	@Nonnull
+	@Override
+	public Map<String, String> load(@Nonnull String cacheName) throws IOException {
+		Path cacheDirectory = directory.resolve(cacheName);
+		Map<String, String> entries = new HashMap<>();
+		if (!Files.isDirectory(cacheDirectory)) {
+			return entries;
+		}
+		FileTime oldestAccepted = FileTime.from(Instant.now().minus(maxAge));
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(cacheDirectory, "*" + FILE_SUFFIX)) {
+			for (Path file : files) {
+				if (Files.getLastModifiedTime(file).compareTo(oldestAccepted) < 0) {
+					LOGGER.debug("Removing outdated snapshot entry {}", file);
+					Files.deleteIfExists(file);
+					continue;
+				}
+				try {
+					JSONObject entry = new JSONObject(Files.readString(file, UTF_8));
+					entries.put(entry.getString(KEY), entry.getString(VALUE));
+				} catch (JSONException e) {
+					LOGGER.warn("Ignoring unreadable snapshot entry {}: {}", file, e.getMessage());
+				}
+			}
+		}
+		return entries;
+	}
+
+	@Override
+	public void store(@Nonnull String cacheName, @Nonnull String key, @Nonnull String value) throws IOException {
+		Path cacheDirectory = Files.createDirectories(directory.resolve(cacheName));
+		Path file = cacheDirectory.resolve(fileNameOf(key));
+		Path tempFile = Files.createTempFile(cacheDirectory, null, ".tmp");
+		try {
+			Files.writeString(tempFile, new JSONObject().put(KEY, key).put(VALUE, value).toString(), UTF_8);
+			try {
+				Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	@Override
+	public void clear(@Nonnull String cacheName) throws IOException {
+		Path cacheDirectory = directory.resolve(cacheName);
+		if (!Files.isDirectory(cacheDirectory)) {
+			return;
+		}
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(cacheDirectory, "*" + FILE_SUFFIX)) {
+			for (Path file : files) {
+				Files.deleteIfExists(file);
+			}
+		}
+	}
+
+	private static String fileNameOf(String key) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(UTF_8));
+			return HexFormat.of().formatHex(digest) + FILE_SUFFIX;
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+		}
+	}
+}
@@ -28,7 +28,8 @@ class JsonWebKeyImpl implements JsonWebKey {
 	private final String pemEncodedPublicKey;
 	private final String modulus;
 	private final String publicExponent;
-	private PublicKey publicKey;
+	private volatile PublicKey publicKey;
+	private volatile Exception publicKeyError;
 
 	JsonWebKeyImpl(JwtSignatureAlgorithm keyAlgorithm, @Nullable String keyId, String modulus,
 			String publicExponent, @Nullable String pemEncodedPublicKey) {
@@ -52,19 +53,39 @@ class JsonWebKeyImpl implements JsonWebKey {
 		return keyId;
 	}
 
+	/**
+	 * Returns the public key. It is created only once, a failure to create it is remembered and thrown again.
+	 */
 	@Override
 	public PublicKey getPublicKey() throws NoSuchAlgorithmException, InvalidKeySpecException {
 		if (publicKey != null) {
 			return publicKey;
 		}
+		Exception error = publicKeyError;
+		if (error instanceof NoSuchAlgorithmException e) {
+			throw e;
+		} else if (error instanceof InvalidKeySpecException e) {
+			throw e;
+		} else if (error != null) {
+			throw (RuntimeException) error;
+		}
+		try {
+			publicKey = createPublicKey();
+		} catch (NoSuchAlgorithmException | InvalidKeySpecException | IllegalArgumentException
+				| IllegalStateException e) {
+			publicKeyError = e;
+			throw e;
+		}
+		return publicKey;
+	}
+
+	private PublicKey createPublicKey() throws NoSuchAlgorithmException, InvalidKeySpecException {
 		if (pemEncodedPublicKey != null) {
-			publicKey = createPublicKeyFromPemEncodedPublicKey(keyAlgorithm, pemEncodedPublicKey);
+			return createPublicKeyFromPemEncodedPublicKey(keyAlgorithm, pemEncodedPublicKey);
 		} else if (keyAlgorithm.type().equalsIgnoreCase("RSA")) {
-			publicKey = createRSAPublicKey(publicExponent, modulus);
-		} else {
-			throw new IllegalStateException("JWT token with web key type " + keyAlgorithm + " can not be verified.");
+			return createRSAPublicKey(publicExponent, modulus);
 		}
-		return publicKey;
+		throw new IllegalStateException("JWT token with web key type " + keyAlgorithm + " can not be verified.");
 	}
 
 	static PublicKey createRSAPublicKey(String publicExponent, String modulus)
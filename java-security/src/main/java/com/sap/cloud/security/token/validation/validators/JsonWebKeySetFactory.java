@@ -5,29 +5,81 @@
  */
 package com.sap.cloud.security.token.validation.validators;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.InvalidKeySpecException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Parses JSON Web Key Sets and creates the public keys of all keys right away, in parallel for large key sets.
+ * <p>
+ * Parsing happens in the thread that loads the key set into the token key cache. On a cache miss this is the request
+ * thread that validates the token, as the token keys are not refreshed ahead of their expiry. Key sets are loaded
+ * outside of request threads only when they are prefetched, see {@link JwtValidatorBuilder#prefetchKeys}, or when
+ * entries restored from a {@link CacheSnapshotStore} are refreshed.
+ */
 class JsonWebKeySetFactory {
+	private static final Logger LOGGER = LoggerFactory.getLogger(JsonWebKeySetFactory.class);
+	private static final int PARALLEL_KEY_CREATION_THRESHOLD = 8;
+
+	/**
+	 * Keys with identical key material are shared across all key sets, e.g. the key sets of all XSUAA tenants, so that
+	 * their public key is created and kept in memory only once. Keys are released once no key set refers to them.
+	 */
+	private static final Cache<KeyMaterial, JsonWebKey> internedKeys = Caffeine.newBuilder().weakValues().build();
+
+	/**
+	 * Key sets by the identity of their JSON. The token key services return the same JSON instance as long as the key
+	 * set is not modified, e.g. when it has been revalidated with a conditional request, so that it is parsed only
+	 * once.
+	 */
+	private static final Cache<String, JsonWebKeySet> parsedKeySets = Caffeine.newBuilder().weakKeys().build();
 
 	private JsonWebKeySetFactory() {
 	}
 
 	static JsonWebKeySet createFromJson(String json) {
-		JsonWebKeySet keySet = new JsonWebKeySet();
-		if (json != null) {
-			JSONArray keys = new JSONObject(json).getJSONArray(JsonWebKeyConstants.KEYS_PARAMETER_NAME);
+		if (json == null) {
+			return new JsonWebKeySet();
+		}
+		return parsedKeySets.get(json, JsonWebKeySetFactory::parse);
+	}
 
-			for (Object key : keys) {
-				if (key instanceof JSONObject) {
-					keySet.put(createJsonWebKey((JSONObject) key));
+	private static JsonWebKeySet parse(String json) {
+		JSONArray keys = new JSONObject(json).getJSONArray(JsonWebKeyConstants.KEYS_PARAMETER_NAME);
+		List<KeyMaterial> keyMaterials = new ArrayList<>(keys.length());
+		for (Object key : keys) {
+			if (key instanceof JSONObject) {
+				try {
+					keyMaterials.add(toKeyMaterial((JSONObject) key));
+				} catch (JSONException | IllegalArgumentException e) {
+					LOGGER.warn("Ignoring malformed token key {}: {}",
+							((JSONObject) key).opt(JsonWebKeyConstants.KID_PARAMETER_NAME), e.getMessage());
 				}
 			}
 		}
+
+		Stream<KeyMaterial> keyMaterialStream = keyMaterials.stream();
+		if (keyMaterials.size() >= PARALLEL_KEY_CREATION_THRESHOLD) {
+			keyMaterialStream = keyMaterialStream.parallel();
+		}
+		JsonWebKeySet keySet = new JsonWebKeySet();
+		keyMaterialStream.map(keyMaterial -> internedKeys.get(keyMaterial, JsonWebKeySetFactory::createJsonWebKey))
+				.toList()
+				.forEach(keySet::put);
 		return keySet;
 	}
 
-	private static JsonWebKey createJsonWebKey(JSONObject key) {
+	private static KeyMaterial toKeyMaterial(JSONObject key) {
 		String keyAlgorithm = null;
 		String pemEncodedPublicKey = null;
 		String keyId = null;
@@ -52,9 +104,31 @@ class JsonWebKeySetFactory {
 		}
 		JwtSignatureAlgorithm algorithm = keyAlgorithm != null ? JwtSignatureAlgorithm.fromValue(keyAlgorithm)
 				: JwtSignatureAlgorithm.fromType(keyType);
+		if (algorithm == null) {
+			throw new IllegalArgumentException("unsupported key algorithm " + (keyAlgorithm != null ? keyAlgorithm
+					: keyType));
+		}
+		return new KeyMaterial(algorithm, keyId, modulus, publicExponent, pemEncodedPublicKey);
+	}
+
+	/**
+	 * Creates the key together with its public key, so that the public key does not need to be created on the first
+	 * validation of a token that is signed with it. As keys are interned, this happens once per key material.
+	 */
+	private static JsonWebKey createJsonWebKey(KeyMaterial keyMaterial) {
+		JsonWebKey key = new JsonWebKeyImpl(keyMaterial.algorithm(), keyMaterial.keyId(), keyMaterial.modulus(),
+				keyMaterial.publicExponent(), keyMaterial.pemEncodedPublicKey());
+		try {
+			key.getPublicKey();
+		} catch (NoSuchAlgorithmException | InvalidKeySpecException | IllegalArgumentException
+				| IllegalStateException e) {
+			LOGGER.warn("Public key of token key {} can not be created: {}", key, e.getMessage());
+		}
+		return key;
+	}
 
-		return new JsonWebKeyImpl(algorithm, keyId, modulus, publicExponent,
-				pemEncodedPublicKey);
+	private record KeyMaterial(JwtSignatureAlgorithm algorithm, String keyId, String modulus, String publicExponent,
+			String pemEncodedPublicKey) {
 	}
 
 }
@@ -84,6 +84,12 @@ abstract class JwtSignatureValidator implements Validator<Token> {
 	protected abstract PublicKey getPublicKey(Token token, JwtSignatureAlgorithm algorithm)
 			throws OAuth2ServiceException, InvalidKeySpecException, NoSuchAlgorithmException;
 
+	/**
+	 * Service-specific implementation that fills the token key cache with the JWKS of the given tenant, so that the
+	 * first token of this tenant can be validated without requesting the identity service.
+	 */
+	protected abstract void prefetchTokenKeys(String tenantId) throws OAuth2ServiceException;
+
 	protected ValidationResult validateSignature(Token token, PublicKey publicKey, JwtSignatureAlgorithm algorithm) {
 		Signature publicSignature;
 		try {
@@ -5,6 +5,7 @@
  */
 package com.sap.cloud.security.token.validation.validators;
 
+import com.github.benmanes.caffeine.cache.Ticker;
 import com.sap.cloud.security.config.CacheConfiguration;
 import com.sap.cloud.security.config.OAuth2ServiceConfiguration;
 import com.sap.cloud.security.config.ServiceConstants;
@@ -17,13 +18,19 @@ import com.sap.cloud.security.xsuaa.client.DefaultOAuth2TokenKeyService;
 import com.sap.cloud.security.xsuaa.client.DefaultOidcConfigurationService;
 import com.sap.cloud.security.xsuaa.client.OAuth2TokenKeyService;
 import com.sap.cloud.security.xsuaa.client.OidcConfigurationService;
+import com.sap.cloud.security.xsuaa.client.TokenKeyStore;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.sap.cloud.security.config.Service.IAS;
 import static com.sap.cloud.security.config.Service.XSUAA;
@@ -33,6 +40,7 @@ import static com.sap.cloud.security.config.Service.XSUAA;
  * Custom validators can be added via {@link #with(Validator)} method.
  */
 public class JwtValidatorBuilder {
+	private static final int DEFAULT_PREFETCH_PARALLELISM = 4;
 	private static final Map<OAuth2ServiceConfiguration, JwtValidatorBuilder> instances = new ConcurrentHashMap<>();
 	private final Set<Validator<Token>> validators = new HashSet<>();
 	private final Set<ValidationListener> validationListeners = Collections.synchronizedSet(new HashSet<>());
@@ -42,8 +50,15 @@ public class JwtValidatorBuilder {
 	private OAuth2TokenKeyService tokenKeyService = null;
 	private Validator<Token> customAudienceValidator;
 	private CacheConfiguration tokenKeyCacheConfiguration;
+	private CacheSnapshotStore cacheSnapshotStore;
+	private TokenKeyStore tokenKeyStore;
+	private boolean isCacheSizeCountingKeys;
+	private boolean isCacheControlMaxAgeEnabled;
 	private boolean isTenantIdCheckDisabled;
 	private boolean isProofTokenCheckEnabled;
+	private Duration offlineFallbackDuration;
+	private OAuth2TokenKeyServiceWithCache tokenKeyServiceWithCache;
+	private OidcConfigurationServiceWithCache oidcConfigurationServiceWithCache;
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(JwtValidatorBuilder.class);
 
@@ -90,6 +105,64 @@ public class JwtValidatorBuilder {
 	 */
 	public JwtValidatorBuilder withCacheConfiguration(CacheConfiguration tokenKeyCacheConfiguration) {
 		this.tokenKeyCacheConfiguration = tokenKeyCacheConfiguration;
+		resetCaches();
+		return this;
+	}
+
+	/**
+	 * Use to interpret the cache size of the token key cache as the maximum number of cached keys instead of the
+	 * maximum number of cached key sets. XSUAA caches one key set per tenant, so the cache size must then cover the
+	 * number of tenants times the number of keys per tenant.
+	 *
+	 * @return this builder
+	 */
+	public JwtValidatorBuilder withCacheSizeCountingKeys() {
+		this.isCacheSizeCountingKeys = true;
+		resetCaches();
+		return this;
+	}
+
+	/**
+	 * Use to expire cached token keys and OIDC configurations after the {@code Cache-Control: max-age} the identity
+	 * service announces, in case it is shorter than the configured cache duration. The max-age is at least 60
+	 * seconds. As token keys and OIDC configurations are revalidated with conditional requests, a refresh of an
+	 * unchanged entry is cheap.
+	 *
+	 * @return this builder
+	 */
+	public JwtValidatorBuilder withCacheControlMaxAge() {
+		this.isCacheControlMaxAgeEnabled = true;
+		resetCaches();
+		return this;
+	}
+
+	/**
+	 * Use to persist the token key and OIDC configuration caches, e.g. with a {@link FileCacheSnapshotStore}. The
+	 * persisted entries are restored on startup and refreshed in the background, so that tokens can be validated
+	 * without requesting the identity service first.
+	 *
+	 * @param cacheSnapshotStore
+	 * 		the snapshot store
+	 * @return this builder
+	 */
+	public JwtValidatorBuilder withCacheSnapshotStore(CacheSnapshotStore cacheSnapshotStore) {
+		this.cacheSnapshotStore = cacheSnapshotStore;
+		resetCaches();
+		return this;
+	}
+
+	/**
+	 * Use to share the token keys with all validators and decoders of this process that are configured with the same
+	 * store, so that every JSON web key set is requested and cached only once. The cache configuration of the store
+	 * applies instead of {@link #withCacheConfiguration(CacheConfiguration)}.
+	 *
+	 * @param tokenKeyStore
+	 * 		the token key store, typically {@link TokenKeyStore#getInstance()}
+	 * @return this builder
+	 */
+	public JwtValidatorBuilder withTokenKeyStore(TokenKeyStore tokenKeyStore) {
+		this.tokenKeyStore = tokenKeyStore;
+		resetCaches();
 		return this;
 	}
 
@@ -117,6 +190,7 @@ public class JwtValidatorBuilder {
 	@Deprecated
 	public JwtValidatorBuilder withOAuth2TokenKeyService(OAuth2TokenKeyService tokenKeyService) {
 		this.tokenKeyService = tokenKeyService;
+		resetCaches();
 		return this;
 	}
 
@@ -131,6 +205,7 @@ public class JwtValidatorBuilder {
 	@Deprecated
 	public JwtValidatorBuilder withOidcConfigurationService(OidcConfigurationService oidcConfigurationService) {
 		this.oidcConfigurationService = oidcConfigurationService;
+		resetCaches();
 		return this;
 	}
 
@@ -146,6 +221,7 @@ public class JwtValidatorBuilder {
 		if (httpClient != null) {
 			this.oidcConfigurationService = new DefaultOidcConfigurationService(httpClient);
 			this.tokenKeyService = new DefaultOAuth2TokenKeyService(httpClient);
+			resetCaches();
 		}
 		return this;
 	}
@@ -201,6 +277,23 @@ public class JwtValidatorBuilder {
 		return this;
 	}
 
+	/**
+	 * Enables the offline-first mode of the XSUAA signature validation, in case the service configuration provides a
+	 * {@code verificationkey}. Once the token keys could not be retrieved because the XSUAA service could not be
+	 * reached or responded with a server error (5xx), the XSUAA service is considered down for the given duration
+	 * and tokens are validated with the {@code verificationkey} right away, instead of waiting for the connect timeout
+	 * of each request.
+	 *
+	 * @param offlineDuration
+	 * 		how long the XSUAA service is considered down after a failed request
+	 * @return this builder
+	 */
+	public JwtValidatorBuilder withOfflineFallback(Duration offlineDuration) {
+		Assertions.assertNotNull(offlineDuration, "offlineDuration must not be null");
+		this.offlineFallbackDuration = offlineDuration;
+		return this;
+	}
+
 	/**
 	 * Builds the validators with the applied parameters.
 	 *
@@ -215,22 +308,102 @@ public class JwtValidatorBuilder {
 		return combiningValidator;
 	}
 
+	/**
+	 * Fills the token key cache of the validators built by this builder with the keys of the given tenants, e.g. to
+	 * avoid the latency of the first request per tenant. For Identity service the OIDC configuration is resolved as
+	 * well. Up to 4 tenants are requested in parallel.
+	 *
+	 * @param tenantIds
+	 * 		the tenant ids (zid / app_tid) the keys are requested for
+	 * @return the result per tenant
+	 */
+	public KeyPrefetchResult prefetchKeys(Collection<String> tenantIds) {
+		return prefetchKeys(tenantIds, DEFAULT_PREFETCH_PARALLELISM);
+	}
+
+	/**
+	 * Fills the token key cache of the validators built by this builder with the keys of the given tenants, e.g. to
+	 * avoid the latency of the first request per tenant. For Identity service the OIDC configuration is resolved as
+	 * well. Blocks until the keys of all tenants have been requested. Tenants whose keys can not be prefetched, e.g.
+	 * because a custom {@link com.sap.cloud.security.token.validation.XsuaaJkuFactory} is used, are reported as failed.
+	 *
+	 * @param tenantIds
+	 * 		the tenant ids (zid / app_tid) the keys are requested for
+	 * @param parallelism
+	 * 		the maximum number of concurrent requests to the identity service
+	 * @return the result per tenant
+	 */
+	public KeyPrefetchResult prefetchKeys(Collection<String> tenantIds, int parallelism) {
+		Assertions.assertNotNull(tenantIds, "tenantIds must not be null");
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be at least 1");
+		}
+		Set<String> succeededTenants = ConcurrentHashMap.newKeySet();
+		Map<String, Exception> failedTenants = new ConcurrentHashMap<>();
+		Set<String> distinctTenantIds = new LinkedHashSet<>(tenantIds);
+		distinctTenantIds.remove(null);
+		if (distinctTenantIds.isEmpty()) {
+			return new KeyPrefetchResult(succeededTenants, failedTenants);
+		}
+
+		JwtSignatureValidator signatureValidator = createSignatureValidator();
+		List<Callable<Void>> tasks = distinctTenantIds.stream().map(tenantId -> (Callable<Void>) () -> {
+			try {
+				signatureValidator.prefetchTokenKeys(tenantId);
+				succeededTenants.add(tenantId);
+			} catch (Exception e) {
+				LOGGER.warn("Token keys for tenant {} could not be prefetched: {}", tenantId, e.getMessage());
+				failedTenants.put(tenantId, e);
+			}
+			return null;
+		}).toList();
+
+		AtomicInteger threadCount = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, tasks.size()), runnable -> {
+			Thread thread = new Thread(runnable, "token-key-prefetch-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			executor.invokeAll(tasks);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			distinctTenantIds.stream()
+					.filter(tenantId -> !succeededTenants.contains(tenantId))
+					.forEach(tenantId -> failedTenants.putIfAbsent(tenantId, e));
+		} finally {
+			executor.shutdownNow();
+		}
+		LOGGER.debug("Prefetched token keys for {} of {} tenants", succeededTenants.size(), distinctTenantIds.size());
+		return new KeyPrefetchResult(succeededTenants, failedTenants);
+	}
+
 	private List<Validator<Token>> createDefaultValidators() {
 		List<Validator<Token>> defaultValidators = new ArrayList<>();
 		defaultValidators.add(new JwtTimestampValidator());
 
+		if (configuration.getService() == IAS && configuration.getDomains() != null
+				&& !configuration.getDomains().isEmpty()) {
+			defaultValidators.add(new JwtIssuerValidator(configuration.getDomains()));
+		}
+
+		defaultValidators.add(createSignatureValidator());
+		defaultValidators.add(Objects.requireNonNullElseGet(customAudienceValidator, this::createAudienceValidator));
+
+		return defaultValidators;
+	}
+
+	private JwtSignatureValidator createSignatureValidator() {
 		JwtSignatureValidator signatureValidator = null;
-		OAuth2TokenKeyServiceWithCache tokenKeyServiceWithCache = getTokenKeyServiceWithCache();
-		Optional.ofNullable(tokenKeyCacheConfiguration).ifPresent(tokenKeyServiceWithCache::withCacheConfiguration);
 		if (configuration.getService() == XSUAA) {
-			signatureValidator = new XsuaaJwtSignatureValidator(configuration, tokenKeyServiceWithCache,
+			signatureValidator = new XsuaaJwtSignatureValidator(configuration, getTokenKeyServiceWithCache(),
 					getOidcConfigurationServiceWithCache());
-		} else if (configuration.getService() == IAS) {
-			if (configuration.getDomains() != null && !configuration.getDomains().isEmpty()) {
-				defaultValidators.add(new JwtIssuerValidator(configuration.getDomains()));
+			if (offlineFallbackDuration != null) {
+				((XsuaaJwtSignatureValidator) signatureValidator).enableOfflineFallback(offlineFallbackDuration,
+						Ticker.systemTicker());
 			}
-
-			signatureValidator = new SapIdJwtSignatureValidator(configuration, tokenKeyServiceWithCache,
+		} else if (configuration.getService() == IAS) {
+			signatureValidator = new SapIdJwtSignatureValidator(configuration, getTokenKeyServiceWithCache(),
 					getOidcConfigurationServiceWithCache());
 			if (isTenantIdCheckDisabled) {
 				((SapIdJwtSignatureValidator) signatureValidator).disableTenantIdCheck();
@@ -239,11 +412,7 @@ public class JwtValidatorBuilder {
 				((SapIdJwtSignatureValidator) signatureValidator).enableProofTokenValidationCheck();
 			}
 		}
-
-		defaultValidators.add(signatureValidator);
-		defaultValidators.add(Objects.requireNonNullElseGet(customAudienceValidator, this::createAudienceValidator));
-
-		return defaultValidators;
+		return signatureValidator;
 	}
 
 	private JwtAudienceValidator createAudienceValidator() {
@@ -261,20 +430,50 @@ public class JwtValidatorBuilder {
 		return jwtAudienceValidator;
 	}
 
-	private OAuth2TokenKeyServiceWithCache getTokenKeyServiceWithCache() {
-		if (tokenKeyService != null) {
-			return OAuth2TokenKeyServiceWithCache.getInstance()
-					.withTokenKeyService(tokenKeyService);
+	private synchronized OAuth2TokenKeyServiceWithCache getTokenKeyServiceWithCache() {
+		if (tokenKeyServiceWithCache == null) {
+			OAuth2TokenKeyServiceWithCache tokenKeyServiceWithCache = OAuth2TokenKeyServiceWithCache.getInstance();
+			if (tokenKeyService != null) {
+				tokenKeyServiceWithCache.withTokenKeyService(tokenKeyService);
+			}
+			Optional.ofNullable(tokenKeyCacheConfiguration)
+					.ifPresent(tokenKeyServiceWithCache::withCacheConfiguration);
+			if (isCacheSizeCountingKeys) {
+				tokenKeyServiceWithCache.withCacheSizeCountingKeys();
+			}
+			if (isCacheControlMaxAgeEnabled) {
+				tokenKeyServiceWithCache.withCacheControlMaxAge();
+			}
+			Optional.ofNullable(tokenKeyStore).ifPresent(tokenKeyServiceWithCache::withTokenKeyStore);
+			Optional.ofNullable(cacheSnapshotStore).ifPresent(tokenKeyServiceWithCache::withSnapshotStore);
+			this.tokenKeyServiceWithCache = tokenKeyServiceWithCache;
 		}
-		return OAuth2TokenKeyServiceWithCache.getInstance();
+		return tokenKeyServiceWithCache;
 	}
 
-	private OidcConfigurationServiceWithCache getOidcConfigurationServiceWithCache() {
-		if (oidcConfigurationService != null) {
-			return OidcConfigurationServiceWithCache.getInstance()
-					.withOidcConfigurationService(oidcConfigurationService);
+	private synchronized OidcConfigurationServiceWithCache getOidcConfigurationServiceWithCache() {
+		if (oidcConfigurationServiceWithCache == null) {
+			OidcConfigurationServiceWithCache oidcConfigurationServiceWithCache = OidcConfigurationServiceWithCache
+					.getInstance();
+			if (oidcConfigurationService != null) {
+				oidcConfigurationServiceWithCache.withOidcConfigurationService(oidcConfigurationService);
+			}
+			if (isCacheControlMaxAgeEnabled) {
+				oidcConfigurationServiceWithCache.withCacheControlMaxAge();
+			}
+			Optional.ofNullable(cacheSnapshotStore).ifPresent(oidcConfigurationServiceWithCache::withSnapshotStore);
+			this.oidcConfigurationServiceWithCache = oidcConfigurationServiceWithCache;
 		}
-		return OidcConfigurationServiceWithCache.getInstance();
+		return oidcConfigurationServiceWithCache;
+	}
+
+	/**
+	 * The caches are shared by all validators built by this builder and the prefetch. They are recreated once the
+	 * services or configurations they depend on have been changed.
+	 */
+	private synchronized void resetCaches() {
+		this.tokenKeyServiceWithCache = null;
+		this.oidcConfigurationServiceWithCache = null;
 	}
 
 }
@@ -0,0 +1,58 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.token.validation.validators;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Outcome of {@link JwtValidatorBuilder#prefetchKeys(java.util.Collection)} per tenant.
+ */
+public class KeyPrefetchResult {
+	private final Set<String> succeededTenants;
+	private final Map<String, Exception> failedTenants;
+
+	KeyPrefetchResult(Set<String> succeededTenants, Map<String, Exception> failedTenants) {
+		this.succeededTenants = Collections.unmodifiableSet(succeededTenants);
+		this.failedTenants = Collections.unmodifiableMap(failedTenants);
+	}
+
+	/**
+	 * Returns the tenants for which the token keys are cached.
+	 *
+	 * @return the tenant ids
+	 */
+	public Set<String> getSucceededTenants() {
+		return succeededTenants;
+	}
+
+	/**
+	 * Returns the tenants for which the token keys could not be retrieved together with the cause.
+	 *
+	 * @return the failures by tenant id
+	 */
+	public Map<String, Exception> getFailedTenants() {
+		return failedTenants;
+	}
+
+	/**
+	 * Returns {@code true} if the token keys of all tenants are cached.
+	 *
+	 * @return {@code true} if no tenant failed
+	 */
+	public boolean isSuccessful() {
+		return failedTenants.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "KeyPrefetchResult{" +
+				"succeededTenants=" + succeededTenants.size() +
+				", failedTenants=" + failedTenants.keySet() +
+				'}';
+	}
+}
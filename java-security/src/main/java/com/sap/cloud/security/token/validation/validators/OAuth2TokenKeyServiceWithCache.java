@@ -13,18 +13,28 @@ import com.sap.cloud.security.xsuaa.Assertions;
 import com.sap.cloud.security.xsuaa.client.DefaultOAuth2TokenKeyService;
 import com.sap.cloud.security.xsuaa.client.OAuth2ServiceException;
 import com.sap.cloud.security.xsuaa.client.OAuth2TokenKeyService;
+import com.sap.cloud.security.xsuaa.client.TokenKeyStore;
 import com.sap.cloud.security.xsuaa.http.HttpHeaders;
 import com.sap.cloud.security.xsuaa.tokenflows.Cacheable;
+import org.json.JSONException;
+import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import java.io.IOException;
 import java.net.URI;
 import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
 import java.security.spec.InvalidKeySpecException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 import static com.sap.cloud.security.xsuaa.Assertions.assertHasText;
@@ -36,11 +46,21 @@ import static com.sap.cloud.security.xsuaa.Assertions.assertNotNull;
  */
 class OAuth2TokenKeyServiceWithCache implements Cacheable {
 	private static final Logger LOGGER = LoggerFactory.getLogger(OAuth2TokenKeyServiceWithCache.class);
+	static final String SNAPSHOT_NAME = "token-keys";
+	private static final String SNAPSHOT_URI = "uri";
+	private static final String SNAPSHOT_PARAMS = "params";
+	private static final String SNAPSHOT_JWKS = "jwks";
 
 	private OAuth2TokenKeyService tokenKeyService;
 	private Cache<String, JsonWebKeySet> cache;
 	private CacheConfiguration cacheConfiguration = TokenKeyCacheConfiguration.defaultConfiguration();
 	private Ticker cacheTicker;
+	private CacheSnapshotStore snapshotStore;
+	private TokenKeyStore tokenKeyStore;
+	private final Set<CacheKey> tokenKeyStoreEntries = ConcurrentHashMap.newKeySet();
+	private boolean cacheSizeCountsKeys;
+	private boolean cacheControlMaxAgeEnabled;
+	private CacheControlExpiry<String, JsonWebKeySet> cacheControlExpiry;
 
 	private OAuth2TokenKeyServiceWithCache() {
 		// use getInstance factory method
@@ -89,6 +109,29 @@ class OAuth2TokenKeyServiceWithCache implements Cacheable {
 		return this;
 	}
 
+	/**
+	 * Interprets the configured cache size as the maximum number of cached keys instead of the maximum number of
+	 * cached key sets. This bounds the memory consumption when many tenants with differently sized key sets are
+	 * cached, e.g. during a key rotation.
+	 *
+	 * @return this tokenKeyServiceWithCache
+	 */
+	public OAuth2TokenKeyServiceWithCache withCacheSizeCountingKeys() {
+		this.cacheSizeCountsKeys = true;
+		return this;
+	}
+
+	/**
+	 * Expires the cached keys after the {@code Cache-Control: max-age} the identity service announced with the token
+	 * keys, in case it is shorter than the configured cache duration. The max-age is at least 60 seconds.
+	 *
+	 * @return this tokenKeyServiceWithCache
+	 */
+	public OAuth2TokenKeyServiceWithCache withCacheControlMaxAge() {
+		this.cacheControlMaxAgeEnabled = true;
+		return this;
+	}
+
 	/**
 	 * Overwrites the service to be used to request the Json web keys.
 	 *
@@ -101,6 +144,51 @@ class OAuth2TokenKeyServiceWithCache implements Cacheable {
 		return this;
 	}
 
+	/**
+	 * Shares the token keys with all validators and decoders that are configured with the same {@link TokenKeyStore}.
+	 * The cache configuration of the store applies instead of the one of this instance. Token keys that are requested
+	 * for a forwarded client certificate (proof token) are still cached by this instance.
+	 *
+	 * @param tokenKeyStore
+	 * 		the token key store, e.g. {@link TokenKeyStore#getInstance()}
+	 * @return this tokenKeyServiceWithCache
+	 */
+	public OAuth2TokenKeyServiceWithCache withTokenKeyStore(TokenKeyStore tokenKeyStore) {
+		assertNotNull(tokenKeyStore, "tokenKeyStore must not be null.");
+		this.tokenKeyStore = tokenKeyStore;
+		return this;
+	}
+
+	/**
+	 * Configures a store that persists the retrieved token keys. Token keys found in the store are restored into the
+	 * cache immediately. They are treated as stale but usable and are refreshed in the background. As the cache is
+	 * created with the current cache configuration, this should be configured last.
+	 *
+	 * @param snapshotStore
+	 * 		the snapshot store
+	 * @return this tokenKeyServiceWithCache
+	 */
+	public OAuth2TokenKeyServiceWithCache withSnapshotStore(CacheSnapshotStore snapshotStore) {
+		return withSnapshotStore(snapshotStore, OAuth2TokenKeyServiceWithCache::refreshInNewThread);
+	}
+
+	/**
+	 * Configures a store that persists the retrieved token keys and the executor that refreshes the restored entries.
+	 * This is used for testing.
+	 *
+	 * @param snapshotStore
+	 * 		the snapshot store
+	 * @param refreshExecutor
+	 * 		executes the background refresh of the restored entries
+	 * @return this tokenKeyServiceWithCache
+	 */
+	OAuth2TokenKeyServiceWithCache withSnapshotStore(CacheSnapshotStore snapshotStore, Executor refreshExecutor) {
+		assertNotNull(snapshotStore, "snapshotStore must not be null.");
+		this.snapshotStore = snapshotStore;
+		restoreSnapshot(refreshExecutor);
+		return this;
+	}
+
 	/**
 	 * Returns the cached key by id and type or requests the keys from the jwks URI of the identity service.
 	 *
@@ -151,10 +239,56 @@ class OAuth2TokenKeyServiceWithCache implements Cacheable {
 		assertHasText(keyParameters.keyId(), "keyId must not be null.");
 		assertNotNull(keyParameters.keyUri(), "keyUrl must not be null.");
 
+		JsonWebKeySet jwks = getOrRetrieveTokenKeys(cacheKey, requestParameters);
+
+		if (jwks.getAll().isEmpty()) {
+			LOGGER.error("Retrieved no token keys from {} for the given header parameters.", keyParameters.keyUri);
+			return null;
+		}
+
+		for (JsonWebKey jwk : jwks.getAll()) {
+			if (keyParameters.keyId.equals(jwk.getId()) && jwk.getKeyAlgorithm().equals(keyParameters.keyAlgorithm)) {
+				return jwk.getPublicKey();
+			}
+		}
+
+		LOGGER.warn("No matching key found. Cached keys: {}", jwks);
+		throw new IllegalArgumentException("Key with kid " + keyParameters.keyId + " not found in JWKS.");
+	}
+
+	/**
+	 * Requests the keys from the jwks URI of the identity service unless they are already cached. This can be used to
+	 * fill the cache before the first token is validated.
+	 *
+	 * @param keyUri
+	 * 		the jwks URI
+	 * @param requestParameters
+	 * 		additional parameters that are sent along with the request. Use constants from {@link HttpHeaders} for the
+	 * 		parameter keys.
+	 * @throws OAuth2ServiceException
+	 * 		in case the call to the jwks endpoint of the identity service failed.
+	 */
+	public void prefetchTokenKeys(URI keyUri, Map<String, String> requestParameters) throws OAuth2ServiceException {
+		assertNotNull(keyUri, "keyUri must not be null.");
+
+		getOrRetrieveTokenKeys(new CacheKey(keyUri, requestParameters), requestParameters);
+	}
+
+	private JsonWebKeySet getOrRetrieveTokenKeys(CacheKey cacheKey, Map<String, String> requestParameters)
+			throws OAuth2ServiceException {
+		if (isSharedWithTokenKeyStore(requestParameters)) {
+			tokenKeyStoreEntries.add(new CacheKey(cacheKey.keyUri(), requestParameters));
+			return tokenKeyStore
+					.getOrRetrieve(cacheKey.keyUri(), requestParameters,
+							(uri, params) -> retrieveTokenKeysJson(cacheKey, params))
+					.getParsed(JsonWebKeySet.class, JsonWebKeySetFactory::createFromJson);
+		}
 		// using an array to remember OAuth exceptions in lambda because variable needs to be effectively final
 		OAuth2ServiceException[] oAuthException = new OAuth2ServiceException[1];
+		boolean[] retrieved = new boolean[1];
 		JsonWebKeySet jwks = getCache().get(cacheKey.toString(), k -> {
 			try {
+				retrieved[0] = true;
 				return retrieveTokenKeys(cacheKey, requestParameters);
 			} catch (OAuth2ServiceException e) {
 				oAuthException[0] = e;
@@ -162,30 +296,112 @@ class OAuth2TokenKeyServiceWithCache implements Cacheable {
 			}
 		});
 
-		if(oAuthException[0] != null) {
+		if (oAuthException[0] != null) {
 			throw oAuthException[0];
 		}
-
-		if (jwks.getAll().isEmpty()) {
-			LOGGER.error("Retrieved no token keys from {} for the given header parameters.", keyParameters.keyUri);
-			return null;
+		if (retrieved[0] && jwks != null) {
+			applyCacheControlMaxAge(cacheKey);
 		}
+		return jwks;
+	}
 
-		for (JsonWebKey jwk : jwks.getAll()) {
-			if (keyParameters.keyId.equals(jwk.getId()) && jwk.getKeyAlgorithm().equals(keyParameters.keyAlgorithm)) {
-				return jwk.getPublicKey();
-			}
+	private void applyCacheControlMaxAge(CacheKey cacheKey) {
+		if (cacheControlExpiry == null) {
+			return;
 		}
+		Duration maxAge = getTokenKeyService().getCacheControlMaxAge(cacheKey.keyUri(), cacheKey.params());
+		getCache().policy().expireVariably().ifPresent(
+				expiration -> expiration.setExpiresAfter(cacheKey.toString(), cacheControlExpiry.getTimeToLive(maxAge)));
+	}
 
-		LOGGER.warn("No matching key found. Cached keys: {}", jwks);
-		throw new IllegalArgumentException("Key with kid " + keyParameters.keyId + " not found in JWKS.");
+	private boolean isSharedWithTokenKeyStore(Map<String, String> requestParameters) {
+		// keys retrieved for a forwarded client certificate (proof token) are bound to a single consumer
+		return tokenKeyStore != null && !requestParameters.containsKey(HttpHeaders.X_CLIENT_CERT);
 	}
 
 	private JsonWebKeySet retrieveTokenKeys(CacheKey cacheKey, Map<String, String> params)
 			throws OAuth2ServiceException {
+		return JsonWebKeySetFactory.createFromJson(retrieveTokenKeysJson(cacheKey, params));
+	}
+
+	private String retrieveTokenKeysJson(CacheKey cacheKey, Map<String, String> params)
+			throws OAuth2ServiceException {
 		String jwksJson = getTokenKeyService().retrieveTokenKeys(cacheKey.keyUri(), params);
+		storeSnapshotEntry(cacheKey, params, jwksJson);
 
-		return JsonWebKeySetFactory.createFromJson(jwksJson);
+		return jwksJson;
+	}
+
+	private void storeSnapshotEntry(CacheKey cacheKey, Map<String, String> params, String jwksJson) {
+		// keys retrieved for a forwarded client certificate (proof token) are bound to a single consumer
+		if (snapshotStore == null || jwksJson == null || params.containsKey(HttpHeaders.X_CLIENT_CERT)) {
+			return;
+		}
+		JSONObject entry = new JSONObject()
+				.put(SNAPSHOT_URI, cacheKey.keyUri().toString())
+				.put(SNAPSHOT_PARAMS, new JSONObject(params))
+				.put(SNAPSHOT_JWKS, jwksJson);
+		try {
+			snapshotStore.store(SNAPSHOT_NAME, cacheKey.toString(), entry.toString());
+		} catch (IOException e) {
+			LOGGER.warn("Token keys from {} could not be written to snapshot store: {}", cacheKey.keyUri(),
+					e.getMessage());
+		}
+	}
+
+	private void restoreSnapshot(Executor refreshExecutor) {
+		Map<String, String> entries;
+		try {
+			entries = snapshotStore.load(SNAPSHOT_NAME);
+		} catch (IOException e) {
+			LOGGER.warn("Token keys could not be restored from snapshot store: {}", e.getMessage());
+			return;
+		}
+		List<CacheKey> restoredEntries = new ArrayList<>();
+		entries.forEach((key, value) -> {
+			try {
+				JSONObject entry = new JSONObject(value);
+				Map<String, String> params = new HashMap<>();
+				JSONObject paramsJson = entry.getJSONObject(SNAPSHOT_PARAMS);
+				paramsJson.keySet().forEach(name -> params.put(name, paramsJson.getString(name)));
+
+				CacheKey cacheKey = new CacheKey(URI.create(entry.getString(SNAPSHOT_URI)), params);
+
+				putTokenKeys(cacheKey, entry.getString(SNAPSHOT_JWKS));
+				restoredEntries.add(cacheKey);
+			} catch (JSONException | IllegalArgumentException e) {
+				LOGGER.warn("Ignoring token keys snapshot entry {}: {}", key, e.getMessage());
+			}
+		});
+		if (restoredEntries.isEmpty()) {
+			return;
+		}
+		LOGGER.debug("Restored {} token key sets from snapshot store, refreshing them in background.",
+				restoredEntries.size());
+		refreshExecutor.execute(() -> restoredEntries.forEach(cacheKey -> {
+			try {
+				putTokenKeys(cacheKey, retrieveTokenKeysJson(cacheKey, cacheKey.params()));
+			} catch (OAuth2ServiceException | RuntimeException e) {
+				LOGGER.warn("Restored token keys from {} could not be refreshed, keeping stale keys: {}",
+						cacheKey.keyUri(), e.getMessage());
+			}
+		}));
+	}
+
+	private void putTokenKeys(CacheKey cacheKey, String jwksJson) {
+		if (isSharedWithTokenKeyStore(cacheKey.params())) {
+			tokenKeyStoreEntries.add(cacheKey);
+			tokenKeyStore.put(cacheKey.keyUri(), cacheKey.params(), jwksJson);
+		} else {
+			getCache().put(cacheKey.toString(), JsonWebKeySetFactory.createFromJson(jwksJson));
+			applyCacheControlMaxAge(cacheKey);
+		}
+	}
+
+	static void refreshInNewThread(Runnable refresh) {
+		Thread thread = new Thread(refresh, "token-key-snapshot-refresh");
+		thread.setDaemon(true);
+		thread.start();
 	}
 
 	private TokenKeyCacheConfiguration getCheckedConfiguration(CacheConfiguration cacheConfiguration) {
@@ -219,14 +435,24 @@ class OAuth2TokenKeyServiceWithCache implements Cacheable {
 
 	private Cache<String, JsonWebKeySet> getCache() {
 		if (cache == null) {
-			Caffeine<Object, Object> cacheBuilder = Caffeine.newBuilder()
-					.ticker(cacheTicker)
-					.expireAfterWrite(getCacheConfiguration().getCacheDuration())
-					.maximumSize(getCacheConfiguration().getCacheSize());
+			Caffeine<Object, Object> cacheBuilder = Caffeine.newBuilder().ticker(cacheTicker);
+			if (cacheControlMaxAgeEnabled) {
+				cacheControlExpiry = new CacheControlExpiry<>(getCacheConfiguration().getCacheDuration());
+				cacheBuilder.expireAfter(cacheControlExpiry);
+			} else {
+				cacheBuilder.expireAfterWrite(getCacheConfiguration().getCacheDuration());
+			}
 			if (getCacheConfiguration().isCacheStatisticsEnabled()) {
 				cacheBuilder.recordStats();
 			}
-			cache = cacheBuilder.build();
+			if (cacheSizeCountsKeys) {
+				cache = cacheBuilder
+						.maximumWeight(getCacheConfiguration().getCacheSize())
+						.weigher((String key, JsonWebKeySet jwks) -> Math.max(1, jwks.getAll().size()))
+						.build();
+			} else {
+				cache = cacheBuilder.maximumSize(getCacheConfiguration().getCacheSize()).build();
+			}
 		}
 		return cache;
 	}
@@ -244,15 +470,27 @@ class OAuth2TokenKeyServiceWithCache implements Cacheable {
 		return cacheConfiguration;
 	}
 
+	/**
+	 * Clears the token keys cached by this instance. In case a {@link TokenKeyStore} is configured, only the entries
+	 * this instance has requested or restored are removed from the store, the entries of other validators and decoders
+	 * sharing the store are kept.
+	 */
 	@Override
 	public void clearCache() {
 		if (cache != null) {
 			cache.invalidateAll();
 		}
+		if (tokenKeyStore != null) {
+			tokenKeyStoreEntries.forEach(cacheKey -> tokenKeyStore.invalidate(cacheKey.keyUri(), cacheKey.params()));
+			tokenKeyStoreEntries.clear();
+		}
 	}
 
 	@Override
 	public Object getCacheStatistics() {
+		if (tokenKeyStore != null) {
+			return tokenKeyStore.getCacheStatistics();
+		}
 		return getCacheConfiguration().isCacheStatisticsEnabled() ? getCache().stats() : null;
 	}
 
@@ -262,6 +500,7 @@ class OAuth2TokenKeyServiceWithCache implements Cacheable {
 			// e.g. app_tid:<app_tid>|client_id:<client_id>|azp:<azp>
 			String paramString = params.entrySet().stream()
 					.filter(e -> e.getValue() != null)
+					.sorted(Map.Entry.comparingByKey())
 					.map(e -> e.getKey() + ":" + e.getValue())
 					.collect(Collectors.joining("|"));
 
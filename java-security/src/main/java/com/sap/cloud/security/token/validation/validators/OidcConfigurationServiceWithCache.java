@@ -11,10 +11,21 @@ import com.sap.cloud.security.xsuaa.client.DefaultOidcConfigurationService;
 import com.sap.cloud.security.xsuaa.client.OAuth2ServiceEndpointsProvider;
 import com.sap.cloud.security.xsuaa.client.OAuth2ServiceException;
 import com.sap.cloud.security.xsuaa.client.OidcConfigurationService;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
 import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import static com.sap.cloud.security.xsuaa.Assertions.assertNotNull;
 
@@ -23,11 +34,20 @@ import static com.sap.cloud.security.xsuaa.Assertions.assertNotNull;
  * requested via http.
  */
 public class OidcConfigurationServiceWithCache {
+	private static final Logger LOGGER = LoggerFactory.getLogger(OidcConfigurationServiceWithCache.class);
+	static final String SNAPSHOT_NAME = "oidc-configuration";
+	private static final String TOKEN_ENDPOINT = "token_endpoint";
+	private static final String AUTHORIZATION_ENDPOINT = "authorization_endpoint";
+	private static final String JWKS_URI = "jwks_uri";
+
 	private OidcConfigurationService oidcConfigurationService; // access via getter
 	private Cache<String, OAuth2ServiceEndpointsProvider> cache;
 	private long cacheValidityInSeconds = 600; // old keys should expire after 10 minutes
 	private static final long MAX_CACHE_VALIDITY_IN_SECONDS = 900; // time-to-live shouldn't exceed 15 minutes
 	private long cacheSize = 1000;
+	private CacheSnapshotStore snapshotStore;
+	private boolean cacheControlMaxAgeEnabled;
+	private CacheControlExpiry<String, OAuth2ServiceEndpointsProvider> cacheControlExpiry;
 
 	private OidcConfigurationServiceWithCache() {
 		// use getInstance factory method
@@ -85,6 +105,47 @@ public class OidcConfigurationServiceWithCache {
 		return this;
 	}
 
+	/**
+	 * Expires the cached configurations after the {@code Cache-Control: max-age} the identity service announced with
+	 * the configuration, in case it is shorter than the cache time. The max-age is at least 60 seconds.
+	 *
+	 * @return this
+	 */
+	public OidcConfigurationServiceWithCache withCacheControlMaxAge() {
+		this.cacheControlMaxAgeEnabled = true;
+		return this;
+	}
+
+	/**
+	 * Configures a store that persists the retrieved OIDC configurations. Configurations found in the store are
+	 * restored into the cache immediately. They are treated as stale but usable and are refreshed in the background.
+	 * As the cache is created with the current cache time and size, this should be configured last.
+	 *
+	 * @param snapshotStore
+	 * 		the snapshot store
+	 * @return this
+	 */
+	public OidcConfigurationServiceWithCache withSnapshotStore(CacheSnapshotStore snapshotStore) {
+		return withSnapshotStore(snapshotStore, OAuth2TokenKeyServiceWithCache::refreshInNewThread);
+	}
+
+	/**
+	 * Configures a store that persists the retrieved OIDC configurations and the executor that refreshes the restored
+	 * entries. This is used for testing.
+	 *
+	 * @param snapshotStore
+	 * 		the snapshot store
+	 * @param refreshExecutor
+	 * 		executes the background refresh of the restored entries
+	 * @return this
+	 */
+	OidcConfigurationServiceWithCache withSnapshotStore(CacheSnapshotStore snapshotStore, Executor refreshExecutor) {
+		assertNotNull(snapshotStore, "snapshotStore must not be null.");
+		this.snapshotStore = snapshotStore;
+		restoreSnapshot(refreshExecutor);
+		return this;
+	}
+
 	/**
 	 * Returns the cached key by id and type or requests the keys from the jwks URI of the identity service.
 	 *
@@ -105,17 +166,104 @@ public class OidcConfigurationServiceWithCache {
 			if (endpointsProvider == null) {
 				return null;
 			}
-			getCache().put(cacheKey, endpointsProvider);
+			putEndpoints(discoveryEndpointUri, endpointsProvider);
+			storeSnapshotEntry(cacheKey, endpointsProvider);
 		}
 		return getCache().getIfPresent(cacheKey);
 	}
 
+	private void storeSnapshotEntry(String cacheKey, OAuth2ServiceEndpointsProvider endpointsProvider) {
+		if (snapshotStore == null) {
+			return;
+		}
+		JSONObject entry = new JSONObject()
+				.put(TOKEN_ENDPOINT, getOptionalEndpoint(endpointsProvider::getTokenEndpoint))
+				.put(AUTHORIZATION_ENDPOINT, getOptionalEndpoint(endpointsProvider::getAuthorizeEndpoint))
+				.put(JWKS_URI, getOptionalEndpoint(endpointsProvider::getJwksUri));
+		try {
+			snapshotStore.store(SNAPSHOT_NAME, cacheKey, entry.toString());
+		} catch (IOException e) {
+			LOGGER.warn("OIDC configuration from {} could not be written to snapshot store: {}", cacheKey,
+					e.getMessage());
+		}
+	}
+
+	@Nullable
+	private static String getOptionalEndpoint(Supplier<URI> endpoint) {
+		try {
+			URI uri = endpoint.get();
+			return uri != null ? uri.toString() : null;
+		} catch (RuntimeException e) {
+			return null; // endpoint is not part of the OIDC configuration
+		}
+	}
+
+	private void restoreSnapshot(Executor refreshExecutor) {
+		Map<String, String> entries;
+		try {
+			entries = snapshotStore.load(SNAPSHOT_NAME);
+		} catch (IOException e) {
+			LOGGER.warn("OIDC configurations could not be restored from snapshot store: {}", e.getMessage());
+			return;
+		}
+		List<URI> restoredEntries = new ArrayList<>();
+		entries.forEach((key, value) -> {
+			try {
+				JSONObject entry = new JSONObject(value);
+				getCache().put(key, new RestoredEndpointsProvider(
+						toUri(entry.optString(TOKEN_ENDPOINT, null)),
+						toUri(entry.optString(AUTHORIZATION_ENDPOINT, null)),
+						toUri(entry.optString(JWKS_URI, null))));
+				restoredEntries.add(URI.create(key));
+			} catch (JSONException | IllegalArgumentException e) {
+				LOGGER.warn("Ignoring OIDC configuration snapshot entry {}: {}", key, e.getMessage());
+			}
+		});
+		if (restoredEntries.isEmpty()) {
+			return;
+		}
+		LOGGER.debug("Restored {} OIDC configurations from snapshot store, refreshing them in background.",
+				restoredEntries.size());
+		refreshExecutor.execute(() -> restoredEntries.forEach(discoveryEndpointUri -> {
+			try {
+				OAuth2ServiceEndpointsProvider endpointsProvider = getOidcConfigurationService()
+						.retrieveEndpoints(discoveryEndpointUri);
+				if (endpointsProvider != null) {
+					putEndpoints(discoveryEndpointUri, endpointsProvider);
+					storeSnapshotEntry(discoveryEndpointUri.toString(), endpointsProvider);
+				}
+			} catch (OAuth2ServiceException | RuntimeException e) {
+				LOGGER.warn("Restored OIDC configuration from {} could not be refreshed, keeping stale one: {}",
+						discoveryEndpointUri, e.getMessage());
+			}
+		}));
+	}
+
+	@Nullable
+	private static URI toUri(@Nullable String uri) {
+		return uri != null ? URI.create(uri) : null;
+	}
+
+	private void putEndpoints(URI discoveryEndpointUri, OAuth2ServiceEndpointsProvider endpointsProvider) {
+		String cacheKey = discoveryEndpointUri.toString();
+		getCache().put(cacheKey, endpointsProvider);
+		if (cacheControlExpiry != null) {
+			Duration maxAge = getOidcConfigurationService().getCacheControlMaxAge(discoveryEndpointUri);
+			getCache().policy().expireVariably().ifPresent(
+					expiration -> expiration.setExpiresAfter(cacheKey, cacheControlExpiry.getTimeToLive(maxAge)));
+		}
+	}
+
 	private Cache<String, OAuth2ServiceEndpointsProvider> getCache() {
 		if (cache == null) {
-			cache = Caffeine.newBuilder()
-					.expireAfterWrite(cacheValidityInSeconds, TimeUnit.SECONDS)
-					.maximumSize(cacheSize)
-					.build();
+			Caffeine<Object, Object> cacheBuilder = Caffeine.newBuilder().maximumSize(cacheSize);
+			if (cacheControlMaxAgeEnabled) {
+				cacheControlExpiry = new CacheControlExpiry<>(Duration.ofSeconds(cacheValidityInSeconds));
+				cacheBuilder.expireAfter(cacheControlExpiry);
+			} else {
+				cacheBuilder.expireAfterWrite(cacheValidityInSeconds, TimeUnit.SECONDS);
+			}
+			cache = cacheBuilder.build();
 		}
 		return cache;
 	}
@@ -133,4 +281,22 @@ public class OidcConfigurationServiceWithCache {
 		}
 	}
 
+	record RestoredEndpointsProvider(URI tokenEndpoint, URI authorizeEndpoint, URI jwksUri)
+			implements OAuth2ServiceEndpointsProvider {
+		@Override
+		public URI getTokenEndpoint() {
+			return tokenEndpoint;
+		}
+
+		@Override
+		public URI getAuthorizeEndpoint() {
+			return authorizeEndpoint;
+		}
+
+		@Override
+		public URI getJwksUri() {
+			return jwksUri;
+		}
+	}
+
 }
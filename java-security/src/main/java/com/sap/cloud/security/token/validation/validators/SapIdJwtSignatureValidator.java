@@ -95,6 +95,24 @@ class SapIdJwtSignatureValidator extends JwtSignatureValidator {
 		}
 	}
 
+	/**
+	 * Fills the token key cache for the given tenant with the keys of the identity service instance from the service
+	 * configuration. As the authorized party of the tokens is not known in advance, the keys are requested for tokens
+	 * that have been issued to this application, i.e. the client id is used as authorized party.
+	 */
+	@Override
+	protected void prefetchTokenKeys(String tenantId) throws OAuth2ServiceException {
+		if (configuration.getUrl() == null) {
+			throw new IllegalArgumentException("Service configuration does not provide the url of the identity service.");
+		}
+		Map<String, String> requestParams = new HashMap<>(3, 1);
+		requestParams.put(HttpHeaders.X_APP_TID, tenantId);
+		requestParams.put(HttpHeaders.X_CLIENT_ID, configuration.getClientId());
+		requestParams.put(HttpHeaders.X_AZP, configuration.getClientId());
+
+		tokenKeyService.prefetchTokenKeys(getOidcJwksUri(configuration.getUrl().toString()), requestParams);
+	}
+
 	private URI getJwksUri(Token token) throws OAuth2ServiceException {
 		String domain = token.getIssuer();
 		if (domain == null) {
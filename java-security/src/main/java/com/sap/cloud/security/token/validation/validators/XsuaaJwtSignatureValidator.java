@@ -1,5 +1,6 @@
 package com.sap.cloud.security.token.validation.validators;
 
+import com.github.benmanes.caffeine.cache.Ticker;
 import com.sap.cloud.security.config.OAuth2ServiceConfiguration;
 import com.sap.cloud.security.config.ServiceConstants;
 import com.sap.cloud.security.token.Token;
@@ -9,11 +10,14 @@ import com.sap.cloud.security.xsuaa.http.HttpHeaders;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.net.URI;
 import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
 import java.security.spec.InvalidKeySpecException;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 import static com.sap.cloud.security.config.ServiceConstants.XSUAA.UAA_DOMAIN;
 import static com.sap.cloud.security.token.validation.validators.JsonWebKeyConstants.KEY_ID_VALUE_LEGACY;
@@ -45,47 +49,100 @@ class XsuaaJwtSignatureValidator extends JwtSignatureValidator {
 		}
 	};
 
+	private volatile FallbackKey fallbackKey;
+	private long offlineDurationInNanos;
+	private Ticker ticker;
+	private volatile long offlineUntil;
+
 	XsuaaJwtSignatureValidator(OAuth2ServiceConfiguration configuration, OAuth2TokenKeyServiceWithCache tokenKeyService,
 			OidcConfigurationServiceWithCache oidcConfigurationService) {
 		super(configuration, tokenKeyService, oidcConfigurationService);
 	}
 
+	/**
+	 * Enables the offline-first mode: once the XSUAA service could not be reached or responded with a server error,
+	 * the service is considered down for the given duration and tokens are validated with the fallback verification
+	 * key of the service configuration right away, without requesting the token keys again.
+	 *
+	 * @param offlineDuration
+	 * 		how long the XSUAA service is considered down after a failed request
+	 * @param ticker
+	 * 		ticker to determine time
+	 */
+	void enableOfflineFallback(Duration offlineDuration, Ticker ticker) {
+		this.offlineDurationInNanos = offlineDuration.toNanos();
+		this.ticker = ticker;
+	}
+
 	@Override
 	protected PublicKey getPublicKey(Token token, JwtSignatureAlgorithm algorithm)
 			throws OAuth2ServiceException, InvalidKeySpecException, NoSuchAlgorithmException {
-		PublicKey key = null;
-
+		if (isOffline()) {
+			LOGGER.debug("XSUAA service is considered down, using fallback verification key.");
+			return getFallbackKey().getPublicKey();
+		}
 		try {
-			key = fetchPublicKey(token, algorithm);
+			return fetchPublicKey(token, algorithm);
 		} catch (OAuth2ServiceException | InvalidKeySpecException | NoSuchAlgorithmException
 				| IllegalArgumentException e) {
-			LOGGER.error("Error fetching public key from XSUAA service: {}", e.getMessage());
 			if (!configuration.hasProperty(ServiceConstants.XSUAA.VERIFICATION_KEY)) {
+				LOGGER.error("Error fetching public key from XSUAA service: {}", e.getMessage());
 				throw e;
 			}
-
-			if (configuration.hasProperty(ServiceConstants.XSUAA.VERIFICATION_KEY)) {
-				String fallbackKey = configuration.getProperty(ServiceConstants.XSUAA.VERIFICATION_KEY);
-				try {
-					key = JsonWebKeyImpl.createPublicKeyFromPemEncodedPublicKey(JwtSignatureAlgorithm.RS256,
-							fallbackKey);
-				} catch (NoSuchAlgorithmException | InvalidKeySpecException ex) {
-					IllegalArgumentException illegalArgEx = new IllegalArgumentException(
-							"Fallback validation key supplied via " + ServiceConstants.XSUAA.VERIFICATION_KEY
-									+ " property in service credentials could not be used: " + ex.getMessage());
-					if (e instanceof OAuth2ServiceException) {
-						e.addSuppressed(illegalArgEx);
-						throw e;
-					}
-					throw illegalArgEx;
-
-				}
+			if (offlineDurationInNanos > 0 && e instanceof OAuth2ServiceException oAuth2Exception
+					&& isServiceUnavailable(oAuth2Exception)) {
+				offlineUntil = ticker.read() + offlineDurationInNanos;
+				LOGGER.error("Error fetching public key from XSUAA service, using fallback verification key for {} "
+						+ "seconds: {}", TimeUnit.NANOSECONDS.toSeconds(offlineDurationInNanos), e.getMessage());
+			} else {
+				LOGGER.error("Error fetching public key from XSUAA service: {}", e.getMessage());
+			}
+			FallbackKey key = getFallbackKey();
+			if (key.publicKey() == null && e instanceof OAuth2ServiceException) {
+				e.addSuppressed(new IllegalArgumentException(key.error()));
+				throw e;
 			}
+			return key.getPublicKey();
 		}
+	}
 
+	/**
+	 * Returns {@code true} if the XSUAA service could not be reached or responded with a server error. Client errors,
+	 * e.g. for an unknown zone, do not indicate that the service is down.
+	 */
+	private static boolean isServiceUnavailable(OAuth2ServiceException e) {
+		Integer statusCode = e.getHttpStatusCode();
+		return statusCode == null || statusCode == 0 || statusCode >= 500;
+	}
+
+	private boolean isOffline() {
+		return offlineDurationInNanos > 0 && offlineUntil - ticker.read() > 0;
+	}
+
+	/**
+	 * Returns the fallback verification key of the service configuration. It is parsed only once, as the service
+	 * configuration does not change.
+	 */
+	private FallbackKey getFallbackKey() {
+		FallbackKey key = fallbackKey;
+		if (key == null) {
+			key = fallbackKey = parseFallbackKey();
+		}
 		return key;
 	}
 
+	private FallbackKey parseFallbackKey() {
+		String verificationKey = configuration.getProperty(ServiceConstants.XSUAA.VERIFICATION_KEY);
+		try {
+			return new FallbackKey(JsonWebKeyImpl.createPublicKeyFromPemEncodedPublicKey(JwtSignatureAlgorithm.RS256,
+					verificationKey), null);
+		} catch (NoSuchAlgorithmException | InvalidKeySpecException | IllegalArgumentException ex) {
+			return new FallbackKey(null, "Fallback validation key supplied via "
+					+ ServiceConstants.XSUAA.VERIFICATION_KEY
+					+ " property in service credentials could not be used: " + ex.getMessage());
+		}
+	}
+
 	private PublicKey fetchPublicKey(Token token, JwtSignatureAlgorithm algorithm)
 			throws OAuth2ServiceException, InvalidKeySpecException, NoSuchAlgorithmException {
 		String keyId = configuration.isLegacyMode() ? KEY_ID_VALUE_LEGACY
@@ -95,30 +152,53 @@ class XsuaaJwtSignatureValidator extends JwtSignatureValidator {
 					"Token does not contain the mandatory " + KID_PARAMETER_NAME + " header.");
 		}
 
-		String zidQueryParam = composeZidQueryParameter(token);
-
 		String jwksUri;
 		if (jkuFactories.isEmpty()) {
-			jwksUri = configuration.isLegacyMode()
-					? configuration.getUrl() + "/token_keys"
-					: configuration.getProperty(UAA_DOMAIN) + "/token_keys" + zidQueryParam;
+			jwksUri = composeJwksUri(token.getAppTid());
 		} else {
 			LOGGER.info("Loaded custom JKU factory");
 			jwksUri = jkuFactories.get(0).create(token.getTokenValue());
 		}
 
-		URI uri = URI.create(jwksUri);
-		uri = uri.isAbsolute() ? uri : URI.create("https://" + jwksUri);
 		Map<String, String> params = Collections.singletonMap(HttpHeaders.X_ZID, token.getAppTid());
-		return tokenKeyService.getPublicKey(new OAuth2TokenKeyServiceWithCache.KeyParameters(algorithm, keyId, uri),
-				params);
+		return tokenKeyService.getPublicKey(
+				new OAuth2TokenKeyServiceWithCache.KeyParameters(algorithm, keyId, toAbsoluteUri(jwksUri)), params);
+	}
+
+	@Override
+	protected void prefetchTokenKeys(String tenantId) throws OAuth2ServiceException {
+		if (!jkuFactories.isEmpty()) {
+			throw new OAuth2ServiceException(
+					"Token keys can not be prefetched for tenant " + tenantId + " with a custom JKU factory.");
+		}
+		Map<String, String> params = Collections.singletonMap(HttpHeaders.X_ZID, tenantId);
+		tokenKeyService.prefetchTokenKeys(toAbsoluteUri(composeJwksUri(tenantId)), params);
 	}
 
-	private String composeZidQueryParameter(Token token) {
-		String zid = token.getAppTid();
+	private String composeJwksUri(String zid) {
+		return configuration.isLegacyMode()
+				? configuration.getUrl() + "/token_keys"
+				: configuration.getProperty(UAA_DOMAIN) + "/token_keys" + composeZidQueryParameter(zid);
+	}
+
+	private static URI toAbsoluteUri(String jwksUri) {
+		URI uri = URI.create(jwksUri);
+		return uri.isAbsolute() ? uri : URI.create("https://" + jwksUri);
+	}
+
+	private String composeZidQueryParameter(String zid) {
 		if (zid != null && !zid.isBlank()) {
 			return "?zid=" + zid;
 		}
 		return "";
 	}
+
+	private record FallbackKey(@Nullable PublicKey publicKey, @Nullable String error) {
+		PublicKey getPublicKey() {
+			if (publicKey == null) {
+				throw new IllegalArgumentException(error);
+			}
+			return publicKey;
+		}
+	}
 }
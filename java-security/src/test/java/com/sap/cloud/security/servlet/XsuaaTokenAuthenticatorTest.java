@@ -172,6 +172,38 @@ class XsuaaTokenAuthenticatorTest {
 		Mockito.verify(validationListener2, times(1)).onValidationError(any());
 	}
 
+	@Test
+	void validateRequest_correlationIdOfAuthenticatedRequestIsContainedInSecurityContext() {
+		AbstractTokenAuthenticator cut = new XsuaaTokenAuthenticator()
+				.withHttpClient(mockHttpClient)
+				.withServiceConfiguration(OAuth2ServiceConfigurationBuilder.forService(Service.XSUAA)
+						.withDomains("auth.com")
+						.withProperty(ServiceConstants.XSUAA.APP_ID, "appId")
+						.withClientId("clientId")
+						.withClientSecret("mySecret")
+						.withUrl("https://myauth.com")
+						.build());
+		HttpServletRequest httpRequest = createRequestWithToken(xsuaaToken.getTokenValue());
+		when(httpRequest.getHeader(MDCHelper.CORRELATION_HEADER)).thenReturn("my-correlation-id");
+
+		assertTrue(cut.validateRequest(httpRequest, HTTP_RESPONSE).isAuthenticated());
+
+		assertEquals("my-correlation-id", SecurityContext.getCorrelationId());
+		assertEquals("my-correlation-id", MDCHelper.getOrCreateCorrelationId());
+
+		SecurityContext.clearToken();
+
+		assertNull(SecurityContext.getCorrelationId());
+
+		cut.validateRequest(httpRequest, HTTP_RESPONSE);
+		HttpServletRequest unauthenticatedRequest = createRequestWithoutToken();
+		when(unauthenticatedRequest.getHeader(MDCHelper.CORRELATION_HEADER)).thenReturn("other-correlation-id");
+		cut.validateRequest(unauthenticatedRequest, HTTP_RESPONSE);
+
+		assertNull(SecurityContext.getCorrelationId());
+		SecurityContext.clear();
+	}
+
 	private HttpServletRequest createRequestWithoutToken() {
 		return Mockito.mock(HttpServletRequest.class);
 	}
@@ -0,0 +1,99 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.token.validation.validators;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileCacheSnapshotStoreTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private Path directory;
+	private FileCacheSnapshotStore cut;
+
+	@Before
+	public void setup() throws IOException {
+		directory = temporaryFolder.newFolder("snapshot").toPath();
+		cut = new FileCacheSnapshotStore(directory);
+	}
+
+	@Test
+	public void load_nothingStored_returnsEmptyMap() throws IOException {
+		assertThat(cut.load("token-keys")).isEmpty();
+	}
+
+	@Test
+	public void store_andLoad() throws IOException {
+		cut.store("token-keys", "url:https://auth.com|x-zid:zone", "{\"keys\":[]}");
+		cut.store("token-keys", "url:https://auth.com|x-zid:other", "{}");
+		cut.store("oidc-configuration", "https://auth.com", "{}");
+
+		assertThat(cut.load("token-keys"))
+				.hasSize(2)
+				.containsEntry("url:https://auth.com|x-zid:zone", "{\"keys\":[]}")
+				.containsEntry("url:https://auth.com|x-zid:other", "{}");
+		assertThat(new FileCacheSnapshotStore(directory).load("oidc-configuration")).hasSize(1);
+	}
+
+	@Test
+	public void store_overwritesExistingEntry() throws IOException {
+		cut.store("token-keys", "key", "old");
+		cut.store("token-keys", "key", "new");
+
+		assertThat(cut.load("token-keys")).hasSize(1).containsEntry("key", "new");
+		try (Stream<Path> files = Files.list(directory.resolve("token-keys"))) {
+			assertThat(files).hasSize(1);
+		}
+	}
+
+	@Test
+	public void load_ignoresAndRemovesOutdatedEntries() throws IOException {
+		cut = new FileCacheSnapshotStore(directory, Duration.ofHours(1));
+		cut.store("token-keys", "key", "value");
+		try (Stream<Path> files = Files.list(directory.resolve("token-keys"))) {
+			Path file = files.findFirst().orElseThrow();
+			Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+		}
+
+		assertThat(cut.load("token-keys")).isEmpty();
+		try (Stream<Path> files = Files.list(directory.resolve("token-keys"))) {
+			assertThat(files).isEmpty();
+		}
+	}
+
+	@Test
+	public void load_ignoresCorruptedEntries() throws IOException {
+		cut.store("token-keys", "key", "value");
+		Files.writeString(directory.resolve("token-keys").resolve("corrupted.json"), "{no json");
+
+		assertThat(cut.load("token-keys")).hasSize(1).containsEntry("key", "value");
+	}
+
+	@Test
+	public void clear() throws IOException {
+		cut.store("token-keys", "key", "value");
+		cut.store("oidc-configuration", "key", "value");
+
+		cut.clear("token-keys");
+
+		assertThat(cut.load("token-keys")).isEmpty();
+		assertThat(cut.load("oidc-configuration")).hasSize(1);
+	}
+}
@@ -6,6 +6,7 @@
 package com.sap.cloud.security.token.validation.validators;
 
 import org.apache.commons.io.IOUtils;
+import org.json.JSONObject;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -17,6 +18,9 @@ import java.util.Collections;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThrows;
 
 public class JsonWebKeySetFactoryTest {
 
@@ -61,4 +65,55 @@ public class JsonWebKeySetFactoryTest {
 		assertThat(jwk.getPublicKey().getAlgorithm(), equalTo(jwk.getKeyAlgorithm().type()));
 		assertThat(jwk.getId(), equalTo(JsonWebKey.DEFAULT_KEY_ID));
 	}
+
+	@Test
+	public void sharesKeysWithIdenticalKeyMaterial() throws InvalidKeySpecException, NoSuchAlgorithmException {
+		JsonWebKeySet jwks = JsonWebKeySetFactory.createFromJson(jsonWebTokenKeys);
+		JsonWebKeySet otherTenantJwks = JsonWebKeySetFactory.createFromJson(new String(jsonWebTokenKeys));
+
+		JsonWebKey jwk = jwks.getKeyByAlgorithmAndId(JwtSignatureAlgorithm.RS256, "key-id-1");
+		JsonWebKey otherTenantJwk = otherTenantJwks.getKeyByAlgorithmAndId(JwtSignatureAlgorithm.RS256, "key-id-1");
+		assertThat(otherTenantJwk, sameInstance(jwk));
+		assertThat(otherTenantJwk.getPublicKey(), sameInstance(jwk.getPublicKey()));
+	}
+
+	@Test
+	public void doesNotShareKeysWithDifferentKeyMaterial() {
+		JsonWebKeySet jwks = JsonWebKeySetFactory.createFromJson(jsonWebTokenKeys);
+		JsonWebKeySet rotatedJwks = JsonWebKeySetFactory.createFromJson(jsonWebTokenKeys.replace("\"e\": \"AQAB\"",
+				"\"e\": \"AQAC\""));
+
+		JsonWebKey jwk = jwks.getKeyByAlgorithmAndId(JwtSignatureAlgorithm.RS256, "key-id-1");
+		JsonWebKey rotatedJwk = rotatedJwks.getKeyByAlgorithmAndId(JwtSignatureAlgorithm.RS256, "key-id-1");
+		assertThat(rotatedJwk, not(sameInstance(jwk)));
+	}
+
+	@Test
+	public void reusesKeySetOfUnchangedJson() {
+		JsonWebKeySet jwks = JsonWebKeySetFactory.createFromJson(jsonWebTokenKeys);
+
+		assertThat(JsonWebKeySetFactory.createFromJson(jsonWebTokenKeys), sameInstance(jwks));
+		assertThat(JsonWebKeySetFactory.createFromJson(new String(jsonWebTokenKeys)), not(sameInstance(jwks)));
+	}
+
+	@Test
+	public void ignoresKeysWithUnsupportedAlgorithm() {
+		JSONObject json = new JSONObject(jsonWebTokenKeys);
+		json.getJSONArray("keys").put(new JSONObject().put("kty", "RSA").put("alg", "XY256").put("kid", "unsupported"));
+
+		JsonWebKeySet jwks = JsonWebKeySetFactory.createFromJson(json.toString());
+
+		assertThat(jwks.getAll(), equalTo(JsonWebKeySetFactory.createFromJson(jsonWebTokenKeys).getAll()));
+	}
+
+	@Test
+	public void keepsKeysWithMalformedKeyMaterial_andRemembersFailure() {
+		JsonWebKeySet jwks = JsonWebKeySetFactory.createFromJson("""
+				{"keys": [{"kty": "RSA", "alg": "RS256", "kid": "malformed", "value": "INVALID"}]}""");
+		JsonWebKey jwk = jwks.getKeyByAlgorithmAndId(JwtSignatureAlgorithm.RS256, "malformed");
+
+		Exception first = assertThrows(InvalidKeySpecException.class, jwk::getPublicKey);
+		Exception second = assertThrows(InvalidKeySpecException.class, jwk::getPublicKey);
+		assertThat(second, sameInstance(first));
+	}
 }
@@ -14,8 +14,10 @@ import com.sap.cloud.security.token.validation.CombiningValidator;
 import com.sap.cloud.security.token.validation.TokenTestValidator;
 import com.sap.cloud.security.token.validation.Validator;
 import com.sap.cloud.security.xsuaa.client.OAuth2ServiceEndpointsProvider;
+import com.sap.cloud.security.xsuaa.client.OAuth2ServiceException;
 import com.sap.cloud.security.xsuaa.client.OAuth2TokenKeyService;
 import com.sap.cloud.security.xsuaa.client.OidcConfigurationService;
+import com.sap.cloud.security.xsuaa.http.HttpHeaders;
 import org.apache.commons.io.IOUtils;
 import org.junit.Assert;
 import org.junit.Before;
@@ -29,6 +31,7 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import static com.sap.cloud.security.config.Service.IAS;
 import static com.sap.cloud.security.config.Service.XSUAA;
@@ -36,6 +39,9 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -184,4 +190,69 @@ public class JwtValidatorBuilderTest {
 		Assert.fail("No JwtAudienceValidator found that contains all clientIds!"); // should never be called
 	}
 
-}
\ No newline at end of file
+	@Test
+	public void prefetchKeys_xsuaa_fillsCacheOfBuiltValidators() throws IOException {
+		OAuth2ServiceConfiguration configuration = OAuth2ServiceConfigurationBuilder.forService(XSUAA)
+				.withClientId("sb-prefetch!t1")
+				.withProperty(ServiceConstants.XSUAA.UAA_DOMAIN, "auth.com")
+				.build();
+		OAuth2TokenKeyService tokenKeyServiceMock = Mockito.mock(OAuth2TokenKeyService.class);
+		URI jwksUri = URI.create("https://auth.com/token_keys?zid=tenant-1");
+		when(tokenKeyServiceMock.retrieveTokenKeys(eq(jwksUri), anyMap()))
+				.thenReturn(IOUtils.resourceToString("/jsonWebTokenKeys.json", UTF_8));
+		when(tokenKeyServiceMock.retrieveTokenKeys(eq(URI.create("https://auth.com/token_keys?zid=tenant-2")),
+				anyMap())).thenThrow(new OAuth2ServiceException("Tenant not found"));
+
+		JwtValidatorBuilder cut = JwtValidatorBuilder.getInstance(configuration)
+				.withOAuth2TokenKeyService(tokenKeyServiceMock);
+		KeyPrefetchResult result = cut.prefetchKeys(List.of("tenant-1", "tenant-2", "tenant-1"));
+
+		assertThat(result.isSuccessful()).isFalse();
+		assertThat(result.getSucceededTenants()).containsExactly("tenant-1");
+		assertThat(result.getFailedTenants()).containsOnlyKeys("tenant-2");
+		assertThat(result.getFailedTenants().get("tenant-2")).hasMessage("Tenant not found");
+		verify(tokenKeyServiceMock).retrieveTokenKeys(jwksUri, Map.of(HttpHeaders.X_ZID, "tenant-1"));
+
+		cut.prefetchKeys(List.of("tenant-1"), 1);
+		verify(tokenKeyServiceMock, times(1)).retrieveTokenKeys(eq(jwksUri), anyMap());
+	}
+
+	@Test
+	public void prefetchKeys_ias_resolvesOidcConfiguration() throws IOException {
+		OAuth2ServiceConfiguration configuration = OAuth2ServiceConfigurationBuilder.forService(IAS)
+				.withUrl("https://prefetch.myauth.com")
+				.withDomains("myauth.com")
+				.withClientId("T000311")
+				.build();
+		OAuth2TokenKeyService tokenKeyServiceMock = Mockito.mock(OAuth2TokenKeyService.class);
+		OAuth2ServiceEndpointsProvider endpointsProviderMock = Mockito.mock(OAuth2ServiceEndpointsProvider.class);
+		OidcConfigurationService oidcConfigServiceMock = Mockito.mock(OidcConfigurationService.class);
+		URI jwksUri = URI.create("https://prefetch.myauth.com/jwks_uri");
+		when(tokenKeyServiceMock.retrieveTokenKeys(any(), anyMap()))
+				.thenReturn(IOUtils.resourceToString("/iasJsonWebTokenKeys.json", UTF_8));
+		when(endpointsProviderMock.getJwksUri()).thenReturn(jwksUri);
+		when(oidcConfigServiceMock.retrieveEndpoints(any())).thenReturn(endpointsProviderMock);
+
+		KeyPrefetchResult result = JwtValidatorBuilder.getInstance(configuration)
+				.withOAuth2TokenKeyService(tokenKeyServiceMock)
+				.withOidcConfigurationService(oidcConfigServiceMock)
+				.prefetchKeys(List.of("app-tid-1", "app-tid-2"), 1);
+
+		assertThat(result.isSuccessful()).isTrue();
+		assertThat(result.getSucceededTenants()).containsExactlyInAnyOrder("app-tid-1", "app-tid-2");
+		verify(oidcConfigServiceMock, times(1))
+				.retrieveEndpoints(URI.create("https://prefetch.myauth.com/.well-known/openid-configuration"));
+		verify(tokenKeyServiceMock).retrieveTokenKeys(jwksUri, Map.of(HttpHeaders.X_APP_TID, "app-tid-1",
+				HttpHeaders.X_CLIENT_ID, "T000311", HttpHeaders.X_AZP, "T000311"));
+	}
+
+	@Test
+	public void prefetchKeys_noTenants_returnsEmptyResult() {
+		KeyPrefetchResult result = JwtValidatorBuilder.getInstance(xsuaaConfigBuilder.build())
+				.prefetchKeys(List.of());
+
+		assertThat(result.isSuccessful()).isTrue();
+		assertThat(result.getSucceededTenants()).isEmpty();
+	}
+
+}
@@ -9,10 +9,13 @@ import com.github.benmanes.caffeine.cache.Ticker;
 import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.sap.cloud.security.xsuaa.client.OAuth2ServiceException;
 import com.sap.cloud.security.xsuaa.client.OAuth2TokenKeyService;
+import com.sap.cloud.security.xsuaa.client.TokenKeyStore;
 import com.sap.cloud.security.xsuaa.http.HttpHeaders;
 import org.apache.commons.io.IOUtils;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.IOException;
 import java.net.URI;
@@ -21,6 +24,8 @@ import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
 import java.security.spec.InvalidKeySpecException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -47,6 +52,9 @@ public class OAuth2TokenKeyServiceWithCacheTest {
 			HttpHeaders.X_CLIENT_ID, CLIENT_ID,
 			HttpHeaders.X_AZP, AZP);
 
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
 	@Before
 	public void setup() throws IOException {
 		tokenKeyServiceMock = mock(OAuth2TokenKeyService.class);
@@ -213,6 +221,155 @@ public class OAuth2TokenKeyServiceWithCacheTest {
 		verify(tokenKeyServiceMock, times(2)).retrieveTokenKeys(any(), eq(PARAMS));
 	}
 
+	@Test
+	public void snapshotStore_restoresTokenKeysAfterRestart() throws IOException, InvalidKeySpecException,
+			NoSuchAlgorithmException {
+		CacheSnapshotStore snapshotStore = new FileCacheSnapshotStore(temporaryFolder.newFolder().toPath());
+		cut.withSnapshotStore(snapshotStore, Runnable::run).getPublicKey(keyParameters, PARAMS);
+		assertThat(snapshotStore.load(OAuth2TokenKeyServiceWithCache.SNAPSHOT_NAME)).hasSize(1);
+
+		OAuth2TokenKeyService unavailableTokenKeyService = mock(OAuth2TokenKeyService.class);
+		when(unavailableTokenKeyService.retrieveTokenKeys(any(), anyMap()))
+				.thenThrow(new OAuth2ServiceException("Currently unavailable"));
+		OAuth2TokenKeyServiceWithCache restarted = OAuth2TokenKeyServiceWithCache.getInstance(testCacheTicker)
+				.withTokenKeyService(unavailableTokenKeyService)
+				.withSnapshotStore(snapshotStore, Runnable::run);
+
+		assertThat(restarted.getPublicKey(keyParameters, PARAMS)).isNotNull();
+		verify(unavailableTokenKeyService, times(1)).retrieveTokenKeys(TOKEN_KEYS_URI, PARAMS);
+	}
+
+	@Test
+	public void snapshotStore_refreshesRestoredTokenKeysInBackground() throws IOException, InvalidKeySpecException,
+			NoSuchAlgorithmException {
+		CacheSnapshotStore snapshotStore = new FileCacheSnapshotStore(temporaryFolder.newFolder().toPath());
+		cut.withSnapshotStore(snapshotStore, Runnable::run).getPublicKey(keyParameters, PARAMS);
+
+		List<Runnable> backgroundTasks = new ArrayList<>();
+		OAuth2TokenKeyServiceWithCache restarted = createCut(CACHE_CONFIGURATION)
+				.withSnapshotStore(snapshotStore, backgroundTasks::add);
+		PublicKey restoredKey = restarted.getPublicKey(keyParameters, PARAMS);
+		verify(tokenKeyServiceMock, times(1)).retrieveTokenKeys(TOKEN_KEYS_URI, PARAMS);
+
+		backgroundTasks.forEach(Runnable::run);
+
+		verify(tokenKeyServiceMock, times(2)).retrieveTokenKeys(TOKEN_KEYS_URI, PARAMS);
+		// the refreshed key set has unchanged key material, which is shared with the restored one
+		assertThat(restarted.getPublicKey(keyParameters, PARAMS)).isSameAs(restoredKey);
+	}
+
+	@Test
+	public void snapshotStore_doesNotStoreProofTokenKeys() throws IOException, InvalidKeySpecException,
+			NoSuchAlgorithmException {
+		CacheSnapshotStore snapshotStore = new FileCacheSnapshotStore(temporaryFolder.newFolder().toPath());
+		Map<String, String> proofTokenParams = Map.of(HttpHeaders.X_CLIENT_ID, CLIENT_ID,
+				HttpHeaders.X_CLIENT_CERT, "-----BEGIN CERTIFICATE-----");
+
+		cut.withSnapshotStore(snapshotStore, Runnable::run).getPublicKey(keyParameters, proofTokenParams);
+
+		assertThat(snapshotStore.load(OAuth2TokenKeyServiceWithCache.SNAPSHOT_NAME)).isEmpty();
+	}
+
+	@Test
+	public void cacheSizeCountingKeys_tenantsShareKeyMaterial() throws OAuth2ServiceException,
+			InvalidKeySpecException, NoSuchAlgorithmException {
+		cut.withCacheSizeCountingKeys();
+
+		PublicKey publicKey = cut.getPublicKey(keyParameters, Map.of(HttpHeaders.X_ZID, "tenant-1"));
+		PublicKey otherTenantPublicKey = cut.getPublicKey(keyParameters, Map.of(HttpHeaders.X_ZID, "tenant-2"));
+
+		assertThat(otherTenantPublicKey).isSameAs(publicKey);
+		assertThat(cut.getPublicKey(keyParameters, Map.of(HttpHeaders.X_ZID, "tenant-1"))).isSameAs(publicKey);
+		verify(tokenKeyServiceMock, times(2)).retrieveTokenKeys(eq(TOKEN_KEYS_URI), anyMap());
+	}
+
+	@Test
+	public void tokenKeyStore_sharesTokenKeysBetweenInstances() throws OAuth2ServiceException,
+			InvalidKeySpecException, NoSuchAlgorithmException {
+		TokenKeyStore tokenKeyStore = TokenKeyStore.getInstance();
+		tokenKeyStore.clearCache();
+		try {
+			PublicKey publicKey = cut.withTokenKeyStore(tokenKeyStore).getPublicKey(keyParameters, PARAMS);
+			PublicKey otherPublicKey = createCut(CACHE_CONFIGURATION).withTokenKeyStore(tokenKeyStore)
+					.getPublicKey(keyParameters, PARAMS);
+
+			assertThat(otherPublicKey).isSameAs(publicKey);
+			verify(tokenKeyServiceMock, times(1)).retrieveTokenKeys(TOKEN_KEYS_URI, PARAMS);
+		} finally {
+			tokenKeyStore.clearCache();
+		}
+	}
+
+	@Test
+	public void tokenKeyStore_clearCache_removesOnlyOwnEntries() throws IOException, InvalidKeySpecException,
+			NoSuchAlgorithmException {
+		TokenKeyStore tokenKeyStore = TokenKeyStore.getInstance();
+		tokenKeyStore.clearCache();
+		URI otherTokenKeysUri = URI.create("https://other.auth.com/token_keys");
+		tokenKeyStore.put(otherTokenKeysUri, PARAMS, IOUtils.resourceToString("/jsonWebTokenKeys.json", StandardCharsets.UTF_8));
+		try {
+			cut.withTokenKeyStore(tokenKeyStore).getPublicKey(keyParameters, PARAMS);
+
+			cut.clearCache();
+
+			assertThat(tokenKeyStore.getIfPresent(TOKEN_KEYS_URI, PARAMS)).isNull();
+			assertThat(tokenKeyStore.getIfPresent(otherTokenKeysUri, PARAMS)).isNotNull();
+		} finally {
+			tokenKeyStore.clearCache();
+		}
+	}
+
+	@Test
+	public void tokenKeyStore_doesNotShareProofTokenKeys() throws OAuth2ServiceException,
+			InvalidKeySpecException, NoSuchAlgorithmException {
+		TokenKeyStore tokenKeyStore = TokenKeyStore.getInstance();
+		tokenKeyStore.clearCache();
+		Map<String, String> proofTokenParams = Map.of(HttpHeaders.X_CLIENT_ID, CLIENT_ID,
+				HttpHeaders.X_CLIENT_CERT, "-----BEGIN CERTIFICATE-----");
+		try {
+			cut.withTokenKeyStore(tokenKeyStore).getPublicKey(keyParameters, proofTokenParams);
+
+			assertThat(tokenKeyStore.getIfPresent(TOKEN_KEYS_URI, proofTokenParams)).isNull();
+		} finally {
+			tokenKeyStore.clearCache();
+		}
+	}
+
+	@Test
+	public void cacheControlMaxAge_expiresKeysAfterMaxAge() throws OAuth2ServiceException,
+			InvalidKeySpecException, NoSuchAlgorithmException {
+		when(tokenKeyServiceMock.getCacheControlMaxAge(TOKEN_KEYS_URI, PARAMS)).thenReturn(Duration.ofSeconds(120));
+		cut = createCut(CACHE_CONFIGURATION).withCacheControlMaxAge();
+
+		cut.getPublicKey(keyParameters, PARAMS);
+		testCacheTicker.advance(Duration.ofSeconds(119));
+		cut.getPublicKey(keyParameters, PARAMS);
+		verify(tokenKeyServiceMock, times(1)).retrieveTokenKeys(any(), eq(PARAMS));
+
+		testCacheTicker.advance(Duration.ofSeconds(1));
+		cut.getPublicKey(keyParameters, PARAMS);
+		verify(tokenKeyServiceMock, times(2)).retrieveTokenKeys(any(), eq(PARAMS));
+	}
+
+	@Test
+	public void cacheControlMaxAge_isBoundedByMinimumAndCacheDuration() throws OAuth2ServiceException,
+			InvalidKeySpecException, NoSuchAlgorithmException {
+		when(tokenKeyServiceMock.getCacheControlMaxAge(TOKEN_KEYS_URI, PARAMS)).thenReturn(Duration.ZERO);
+		cut = createCut(CACHE_CONFIGURATION).withCacheControlMaxAge();
+
+		cut.getPublicKey(keyParameters, PARAMS);
+		testCacheTicker.advance(CacheControlExpiry.MIN_TIME_TO_LIVE.minusSeconds(1));
+		cut.getPublicKey(keyParameters, PARAMS);
+		verify(tokenKeyServiceMock, times(1)).retrieveTokenKeys(any(), eq(PARAMS));
+
+		when(tokenKeyServiceMock.getCacheControlMaxAge(TOKEN_KEYS_URI, PARAMS)).thenReturn(Duration.ofDays(1));
+		testCacheTicker.advance(Duration.ofSeconds(1));
+		cut.getPublicKey(keyParameters, PARAMS);
+		testCacheTicker.advance(CACHE_CONFIGURATION.getCacheDuration());
+		cut.getPublicKey(keyParameters, PARAMS);
+		verify(tokenKeyServiceMock, times(3)).retrieveTokenKeys(any(), eq(PARAMS));
+	}
+
 	private OAuth2TokenKeyServiceWithCache createCut(TokenKeyCacheConfiguration cacheConfiguration) {
 		return OAuth2TokenKeyServiceWithCache
 				.getInstance(testCacheTicker)
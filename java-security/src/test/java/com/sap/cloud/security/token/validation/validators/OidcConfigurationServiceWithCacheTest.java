@@ -10,7 +10,9 @@ import com.sap.cloud.security.xsuaa.client.OAuth2ServiceException;
 import com.sap.cloud.security.xsuaa.client.OidcConfigurationService;
 import org.assertj.core.api.Assertions;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 
 import java.io.IOException;
@@ -29,6 +31,9 @@ public class OidcConfigurationServiceWithCacheTest {
 	OAuth2ServiceEndpointsProvider oidcEndpointsProviderMock;
 	URI DISCOVERY_URI = URI.create("https://myauth.com/.well-known/oidc-config");
 
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
 	@Before
 	public void setup() throws IOException {
 		oidcEndpointsProviderMock = Mockito.mock(OAuth2ServiceEndpointsProvider.class);
@@ -124,4 +129,25 @@ public class OidcConfigurationServiceWithCacheTest {
 				.retrieveEndpoints(any());
 	}
 
+	@Test
+	public void snapshotStore_restoresEndpointsAfterRestart() throws IOException {
+		URI jwksUri = URI.create("https://myauth.com/jwks");
+		when(oidcEndpointsProviderMock.getJwksUri()).thenReturn(jwksUri);
+		when(oidcEndpointsProviderMock.getTokenEndpoint()).thenThrow(new IllegalArgumentException("not provided"));
+		CacheSnapshotStore snapshotStore = new FileCacheSnapshotStore(temporaryFolder.newFolder().toPath());
+		cut.withSnapshotStore(snapshotStore, Runnable::run).getOrRetrieveEndpoints(DISCOVERY_URI);
+
+		OidcConfigurationService unavailableService = Mockito.mock(OidcConfigurationService.class);
+		when(unavailableService.retrieveEndpoints(any()))
+				.thenThrow(new OAuth2ServiceException("Currently unavailable"));
+		OidcConfigurationServiceWithCache restarted = OidcConfigurationServiceWithCache.getInstance()
+				.withOidcConfigurationService(unavailableService)
+				.withSnapshotStore(snapshotStore, Runnable::run);
+
+		OAuth2ServiceEndpointsProvider restoredEndpoints = restarted.getOrRetrieveEndpoints(DISCOVERY_URI);
+		Assertions.assertThat(restoredEndpoints.getJwksUri()).isEqualTo(jwksUri);
+		Assertions.assertThat(restoredEndpoints.getTokenEndpoint()).isNull();
+		Mockito.verify(unavailableService, times(1)).retrieveEndpoints(DISCOVERY_URI);
+	}
+
 }
@@ -5,6 +5,7 @@
  */
 package com.sap.cloud.security.token.validation.validators;
 
+import com.github.benmanes.caffeine.cache.Ticker;
 import com.sap.cloud.security.config.OAuth2ServiceConfiguration;
 import com.sap.cloud.security.config.Service;
 import com.sap.cloud.security.token.Token;
@@ -21,6 +22,7 @@ import org.mockito.Mockito;
 
 import java.io.IOException;
 import java.net.URI;
+import java.time.Duration;
 import java.util.Map;
 
 import static com.sap.cloud.security.config.ServiceConstants.XSUAA.UAA_DOMAIN;
@@ -28,9 +30,26 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class XsuaaJwtSignatureValidatorTest {
+	private static final String VERIFICATION_KEY = """
+			-----BEGIN PUBLIC KEY-----
+			MIIBIjANBgkqhkiG9w0BAQEFAAOCAQ8AMIIBCgKCAQEAm1QaZzMjtEfHdimrHP3/
+			2Yr+1z685eiOUlwybRVG9i8wsgOUh+PUGuQL8hgulLZWXU5MbwBLTECAEMQbcRTN
+			VTolkq4i67EP6JesHJIFADbK1Ni0KuMcPuiyOLvDKiDEMnYG1XP3X3WCNfsCVT9Y
+			oU+lWIrZr/ZsIvQri8jczr4RkynbTBsPaAOygPUlipqDrpadMO1momNCbea/o6GP
+			n38LxEw609ItfgDGhL6f/yVid5pFzZQWb+9l6mCuJww0hnhO6gt6Rv98OWDty9G0
+			frWAPyEfuIW9B+mR/2vGhyU9IbbWpvFXiy9RVbbsM538TCjd5JF2dJvxy24addC4
+			oQIDAQAB
+			-----END PUBLIC KEY-----""";
+	private static final URI JWKS_URI = URI.create(
+			"https://authentication.stagingaws.hanavlab.ondemand.com/token_keys?zid=uaa");
 	private Token xsuaaToken;
 	private Token xsuaaTokenSignedWithVerificationKey; // signed with verificationkey (from configuration)
 
@@ -149,4 +168,61 @@ public class XsuaaJwtSignatureValidatorTest {
 				containsString("(Signature: CetA62rQSNRj93S9mqaHrKJyzONKeEKcEJ9O5wObRD_"));
 	}
 
+	@Test
+	public void offlineFallback_clientError_doesNotConsiderServiceDown() throws IOException {
+		when(tokenKeyServiceMock.retrieveTokenKeys(JWKS_URI, Map.of(HttpHeaders.X_ZID, "uaa")))
+				.thenThrow(new OAuth2ServiceException("Zone not found", 404));
+		when(mockConfiguration.hasProperty("verificationkey")).thenReturn(true);
+		when(mockConfiguration.getProperty("verificationkey")).thenReturn(VERIFICATION_KEY);
+		((XsuaaJwtSignatureValidator) cut).enableOfflineFallback(Duration.ofSeconds(30), new TestTicker());
+
+		cut.validate(xsuaaToken);
+		cut.validate(xsuaaToken);
+
+		verify(tokenKeyServiceMock, times(2)).retrieveTokenKeys(JWKS_URI, Map.of(HttpHeaders.X_ZID, "uaa"));
+	}
+
+	@Test
+	public void offlineFallback_usesVerificationKeyWhileServiceIsDown() throws IOException {
+		when(tokenKeyServiceMock.retrieveTokenKeys(JWKS_URI, Map.of(HttpHeaders.X_ZID, "uaa")))
+				.thenThrow(new OAuth2ServiceException("Error retrieving token keys"));
+		when(mockConfiguration.hasProperty("verificationkey")).thenReturn(true);
+		when(mockConfiguration.getProperty("verificationkey")).thenReturn(VERIFICATION_KEY);
+		TestTicker ticker = new TestTicker();
+		((XsuaaJwtSignatureValidator) cut).enableOfflineFallback(Duration.ofSeconds(30), ticker);
+
+		cut.validate(xsuaaToken);
+		ticker.advance(Duration.ofSeconds(29));
+		cut.validate(xsuaaToken);
+		assertThat(cut.validate(xsuaaTokenSignedWithVerificationKey).isValid(), is(true));
+		verify(tokenKeyServiceMock, times(1)).retrieveTokenKeys(JWKS_URI, Map.of(HttpHeaders.X_ZID, "uaa"));
+
+		ticker.advance(Duration.ofSeconds(1));
+		cut.validate(xsuaaToken);
+		verify(tokenKeyServiceMock, times(2)).retrieveTokenKeys(JWKS_URI, Map.of(HttpHeaders.X_ZID, "uaa"));
+	}
+
+	@Test
+	public void prefetchTokenKeys_customJkuFactory_failsWithReason() throws IOException {
+		((XsuaaJwtSignatureValidator) cut).jkuFactories.add(token -> JWKS_URI.toString());
+
+		OAuth2ServiceException exception = assertThrows(OAuth2ServiceException.class,
+				() -> cut.prefetchTokenKeys("uaa"));
+
+		assertThat(exception.getMessage(), containsString("custom JKU factory"));
+		verify(tokenKeyServiceMock, times(0)).retrieveTokenKeys(any(), anyMap());
+	}
+
+	private static class TestTicker implements Ticker {
+		long elapsed = 0;
+
+		@Override
+		public long read() {
+			return elapsed;
+		}
+
+		void advance(Duration duration) {
+			elapsed += duration.toNanos();
+		}
+	}
 }
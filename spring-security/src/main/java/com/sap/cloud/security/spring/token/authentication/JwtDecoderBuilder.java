@@ -12,6 +12,7 @@ import com.sap.cloud.security.token.Token;
 import com.sap.cloud.security.token.validation.CombiningValidator;
 import com.sap.cloud.security.token.validation.ValidationListener;
 import com.sap.cloud.security.token.validation.validators.JwtValidatorBuilder;
+import com.sap.cloud.security.xsuaa.client.TokenKeyStore;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.util.Assert;
@@ -33,6 +34,7 @@ public class JwtDecoderBuilder {
 	private final List<ValidationListener> validationListeners = new ArrayList<>();
 	protected CloseableHttpClient httpClient;
 	private CacheConfiguration tokenKeyCacheConfiguration;
+	private TokenKeyStore tokenKeyStore;
 	private boolean enableProofTokenCheck;
 
 	/**
@@ -47,6 +49,19 @@ public class JwtDecoderBuilder {
 		return this;
 	}
 
+	/**
+	 * Use to share the token keys with all decoders and validators of this process that are configured with the same
+	 * store, e.g. {@link TokenKeyStore#getInstance()}.
+	 *
+	 * @param tokenKeyStore
+	 * 		the token key store
+	 * @return this jwt decoder builder
+	 */
+	public JwtDecoderBuilder withTokenKeyStore(TokenKeyStore tokenKeyStore) {
+		this.tokenKeyStore = tokenKeyStore;
+		return this;
+	}
+
 	/**
 	 * Use to configure the HttpClient that is used to retrieve token keys.
 	 *
@@ -134,6 +149,7 @@ public class JwtDecoderBuilder {
 	private JwtValidatorBuilder initializeBuilder(OAuth2ServiceConfiguration config) {
 		JwtValidatorBuilder builder = JwtValidatorBuilder.getInstance(config)
 				.withCacheConfiguration(tokenKeyCacheConfiguration)
+				.withTokenKeyStore(tokenKeyStore)
 				.withHttpClient(httpClient);
 		for (ValidationListener listener : validationListeners) {
 			builder.withValidatorListener(listener);
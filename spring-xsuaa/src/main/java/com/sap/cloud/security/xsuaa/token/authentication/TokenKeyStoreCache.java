@@ -0,0 +1,91 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.xsuaa.token.authentication;
+
+import com.sap.cloud.security.xsuaa.client.OAuth2ServiceException;
+import com.sap.cloud.security.xsuaa.client.TokenKeyStore;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.net.URI;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Spring {@link org.springframework.cache.Cache} view on a {@link TokenKeyStore}, that is used as JWK set cache of the
+ * {@link org.springframework.security.oauth2.jwt.NimbusJwtDecoder}. The cache keys are the JWK set URIs, the values
+ * the JWK sets in JSON format.
+ */
+class TokenKeyStoreCache extends AbstractValueAdaptingCache {
+	private final TokenKeyStore tokenKeyStore;
+	private final Set<URI> jwkSetUris = ConcurrentHashMap.newKeySet();
+
+	TokenKeyStoreCache(TokenKeyStore tokenKeyStore) {
+		super(false);
+		this.tokenKeyStore = tokenKeyStore;
+	}
+
+	@Override
+	public String getName() {
+		return "jwkSetCache";
+	}
+
+	@Override
+	public Object getNativeCache() {
+		return tokenKeyStore;
+	}
+
+	@Override
+	protected Object lookup(Object key) {
+		TokenKeyStore.Entry entry = tokenKeyStore.getIfPresent(toUri(key), null);
+		return entry != null ? entry.getJson() : null;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T get(Object key, Callable<T> valueLoader) {
+		try {
+			return (T) tokenKeyStore.getOrRetrieve(toJwkSetUri(key), null, (uri, params) -> {
+				try {
+					return (String) valueLoader.call();
+				} catch (Exception e) {
+					throw new OAuth2ServiceException("Error retrieving JWK set from " + uri + ": " + e.getMessage());
+				}
+			}).getJson();
+		} catch (OAuth2ServiceException e) {
+			throw new ValueRetrievalException(key, valueLoader, e);
+		}
+	}
+
+	@Override
+	public void put(Object key, Object value) {
+		if (value != null) {
+			tokenKeyStore.put(toJwkSetUri(key), null, value.toString());
+		}
+	}
+
+	@Override
+	public void evict(Object key) {
+		// entries are shared with other decoders and expire according to the cache configuration of the store
+	}
+
+	@Override
+	public void clear() {
+		// only the JWK sets of this decoder, the entries of other decoders and validators are kept
+		jwkSetUris.forEach(uri -> tokenKeyStore.invalidate(uri, null));
+		jwkSetUris.clear();
+	}
+
+	private URI toJwkSetUri(Object key) {
+		URI uri = toUri(key);
+		jwkSetUris.add(uri);
+		return uri;
+	}
+
+	private static URI toUri(Object key) {
+		return URI.create(key.toString());
+	}
+}
@@ -12,6 +12,7 @@ import com.sap.cloud.security.config.ServiceConstants;
 import com.sap.cloud.security.token.ProviderNotFoundException;
 import com.sap.cloud.security.token.validation.XsuaaJkuFactory;
 import com.sap.cloud.security.xsuaa.XsuaaServiceConfiguration;
+import com.sap.cloud.security.xsuaa.client.TokenKeyStore;
 import com.sap.cloud.security.xsuaa.token.TokenClaims;
 import org.json.JSONObject;
 import org.slf4j.Logger;
@@ -61,6 +62,7 @@ public class XsuaaJwtDecoder implements JwtDecoder {
 	private final Collection<PostValidationAction> postValidationActions;
 	private TokenInfoExtractor tokenInfoExtractor;
 	private RestOperations restOperations;
+	private TokenKeyStore tokenKeyStore;
 
 	XsuaaJwtDecoder(XsuaaServiceConfiguration xsuaaServiceConfiguration, int cacheValidityInSeconds, int cacheSize,
 			OAuth2TokenValidator<Jwt> tokenValidators, Collection<PostValidationAction> postValidationActions) {
@@ -122,6 +124,17 @@ public class XsuaaJwtDecoder implements JwtDecoder {
 		this.restOperations = restOperations;
 	}
 
+	/**
+	 * Shares the JWK sets with all decoders and validators that are configured with the same {@link TokenKeyStore}.
+	 *
+	 * @param tokenKeyStore
+	 *            the token key store, e.g. {@link TokenKeyStore#getInstance()}
+	 */
+	public void setTokenKeyStore(TokenKeyStore tokenKeyStore) {
+		this.tokenKeyStore = tokenKeyStore;
+		this.cache.invalidateAll();
+	}
+
 	private Jwt verifyToken(JWT jwt) {
 		try {
 			String kid = tokenInfoExtractor.getKid(jwt);
@@ -200,16 +213,17 @@ public class XsuaaJwtDecoder implements JwtDecoder {
 
 	@java.lang.SuppressWarnings("squid:S2259")
 	private Jwt verifyWithKey(String token, String jku, String kid) {
-		String cacheKey = jku + kid;
-		JwtDecoder decoder = cache.get(cacheKey, k -> this.getDecoder(jku));
+		// the decoder requests the JWK set again in case it does not contain the kid
+		JwtDecoder decoder = cache.get(jku, this::getDecoder);
 		return decoder.decode(token);
 	}
 
 	private JwtDecoder getDecoder(String jku) {
-		Cache jwkSetCache = new ConcurrentMapCache("jwkSetCache", Caffeine.newBuilder()
-				.expireAfterWrite(this.cacheValidityInSeconds)
-				.maximumSize(this.cacheSize)
-				.build().asMap(), false);
+		Cache jwkSetCache = tokenKeyStore != null ? new TokenKeyStoreCache(tokenKeyStore)
+				: new ConcurrentMapCache("jwkSetCache", Caffeine.newBuilder()
+						.expireAfterWrite(this.cacheValidityInSeconds)
+						.maximumSize(this.cacheSize)
+						.build().asMap(), false);
 		JwkSetUriJwtDecoderBuilder jwkSetUriJwtDecoderBuilder = NimbusJwtDecoder
 				.withJwkSetUri(jku)
 				.cache(jwkSetCache);
@@ -6,6 +6,7 @@
 package com.sap.cloud.security.xsuaa.token.authentication;
 
 import com.sap.cloud.security.xsuaa.XsuaaServiceConfiguration;
+import com.sap.cloud.security.xsuaa.client.TokenKeyStore;
 import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
 import org.springframework.security.oauth2.core.OAuth2TokenValidator;
 import org.springframework.security.oauth2.jwt.Jwt;
@@ -24,6 +25,7 @@ public class XsuaaJwtDecoderBuilder {
 	Collection<PostValidationAction> postValidationActions;
 	private final XsuaaServiceConfiguration configuration;
 	private RestOperations restOperations;
+	private TokenKeyStore tokenKeyStore;
 	private List<OAuth2TokenValidator<Jwt>> xsuaaTokenValidators;
 
 	/**
@@ -49,6 +51,7 @@ public class XsuaaJwtDecoderBuilder {
 		XsuaaJwtDecoder jwtDecoder = new XsuaaJwtDecoder(configuration, decoderCacheValidity, decoderCacheSize,
 				getValidators(), postValidationActions);
 		Optional.ofNullable(restOperations).ifPresent(jwtDecoder::setRestOperations);
+		Optional.ofNullable(tokenKeyStore).ifPresent(jwtDecoder::setTokenKeyStore);
 		return jwtDecoder;
 	}
 
@@ -128,6 +131,21 @@ public class XsuaaJwtDecoderBuilder {
 		return this;
 	}
 
+	/**
+	 * Shares the JWK sets with all decoders and validators of this process that are configured with the same
+	 * {@link TokenKeyStore}, e.g. {@link TokenKeyStore#getInstance()}. The cache configuration of the store applies
+	 * to the JWK sets instead of {@link #withDecoderCacheTime(int)}. This does not effect the
+	 * {@link ReactiveJwtDecoder} that is constructed with {@link #buildAsReactive()}
+	 *
+	 * @param tokenKeyStore
+	 * 		the token key store.
+	 * @return the builder itself.
+	 */
+	public XsuaaJwtDecoderBuilder withTokenKeyStore(TokenKeyStore tokenKeyStore) {
+		this.tokenKeyStore = tokenKeyStore;
+		return this;
+	}
+
 	/**
 	 * Disables the JWT {@link XsuaaAudienceValidator} which is enabled by default.
 	 *
@@ -9,6 +9,7 @@ import com.sap.cloud.security.xsuaa.XsuaaCredentials;
 import com.sap.cloud.security.xsuaa.XsuaaServiceConfiguration;
 import com.sap.cloud.security.xsuaa.XsuaaServiceConfigurationCustom;
 import com.sap.cloud.security.xsuaa.XsuaaServiceConfigurationDefault;
+import com.sap.cloud.security.xsuaa.client.TokenKeyStore;
 import com.sap.cloud.security.xsuaa.token.TokenClaims;
 import org.apache.commons.io.IOUtils;
 import org.junit.Before;
@@ -85,6 +86,34 @@ public class XsuaaJwtDecoderTest {
 		Mockito.verify(restTemplate, times(1)).exchange(any(), eq(String.class));
 	}
 
+	@Test
+	public void decode_withJwks_sharedTokenKeyStore() {
+		RestOperations restTemplate = Mockito.mock(RestOperations.class);
+		Mockito.when(restTemplate.exchange(any(), eq(String.class))).thenReturn(ResponseEntity.ok().body(jwks));
+		TokenKeyStore tokenKeyStore = TokenKeyStore.getInstance();
+		tokenKeyStore.clearCache();
+
+		try {
+			final JwtDecoder cut = new XsuaaJwtDecoderBuilder(configurationWithVerificationKey)
+					.withRestOperations(restTemplate)
+					.withTokenKeyStore(tokenKeyStore)
+					.build();
+			final JwtDecoder otherDecoder = new XsuaaJwtDecoderBuilder(configurationWithVerificationKey)
+					.withRestOperations(restTemplate)
+					.withTokenKeyStore(tokenKeyStore)
+					.build();
+
+			assertThat(cut.decode(rsaToken).getClaimAsString(TokenClaims.CLAIM_CLIENT_ID))
+					.isEqualTo("sb-clientId!t0815");
+			assertThat(otherDecoder.decode(rsaToken).getClaimAsString(TokenClaims.CLAIM_CLIENT_ID))
+					.isEqualTo("sb-clientId!t0815");
+
+			Mockito.verify(restTemplate, times(1)).exchange(any(), eq(String.class));
+		} finally {
+			tokenKeyStore.clearCache();
+		}
+	}
+
 	@Test
 	public void decode_withFallbackVerificationKey() {
 		final JwtDecoder cut = new XsuaaJwtDecoderBuilder(configurationWithVerificationKey).build();
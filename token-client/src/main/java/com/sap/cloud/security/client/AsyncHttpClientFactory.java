@@ -0,0 +1,78 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.client;
+
+import com.sap.cloud.security.config.ClientCertificate;
+import com.sap.cloud.security.config.ClientIdentity;
+import com.sap.cloud.security.token.ProviderNotFoundException;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.slf4j.LoggerFactory;
+
+import java.security.ProviderException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * Represents a {@link CloseableHttpAsyncClient} (Apache HttpClient 5) creation interface, the asynchronous
+ * counterpart of {@link HttpClientFactory}. Requires {@code org.apache.httpcomponents.client5:httpclient5} on the
+ * classpath.
+ */
+public interface AsyncHttpClientFactory {
+
+	@SuppressWarnings("unchecked")
+	List<AsyncHttpClientFactory> services = new ArrayList() {
+		{
+			ServiceLoader.load(AsyncHttpClientFactory.class).forEach(this::add);
+			LoggerFactory.getLogger(AsyncHttpClientFactory.class)
+					.info("loaded AsyncHttpClientFactory service providers: {}", this);
+		}
+	};
+
+	String DEFAULT_ASYNC_HTTP_CLIENT_FACTORY = "com.sap.cloud.security.client.DefaultAsyncHttpClientFactory";
+
+	/**
+	 * Provides a started CloseableHttpAsyncClient based on ClientIdentity details. For ClientIdentity that is
+	 * certificate based it will resolve https client using the provided ClientIdentity, if the ClientIdentity wasn't
+	 * provided it will return default HttpAsyncClient.
+	 *
+	 * @param clientIdentity
+	 * 		for X.509 certificate based communication {@link ClientCertificate} implementation of ClientIdentity interface
+	 * 		should be provided
+	 * @return HTTP or HTTPS client
+	 * @throws HttpClientException
+	 * 		in case HTTPS Client could not be setup
+	 */
+	CloseableHttpAsyncClient createAsyncClient(ClientIdentity clientIdentity) throws HttpClientException;
+
+	/**
+	 * Don't close the HttpAsyncClient when you've provided it to a service, the clients of the default factory are
+	 * shared.
+	 *
+	 * @param clientIdentity
+	 * 		to identify the identity provider client.
+	 * @return HTTP or HTTPS client
+	 * @throws HttpClientException
+	 * 		in case HTTPS Client could not be setup
+	 */
+	static CloseableHttpAsyncClient create(ClientIdentity clientIdentity) throws HttpClientException {
+		if (services.isEmpty()) {
+			throw new ProviderNotFoundException("No AsyncHttpClientFactory service could be found in the classpath");
+		}
+		if (services.size() > 2) {
+			throw new ProviderException(
+					"More than 1 Custom AsyncHttpClientFactory service provider found. There should be only one");
+		}
+		if (services.size() == 2) {
+			return services.stream()
+					.filter(httpClientFactory -> !httpClientFactory.getClass().getName()
+							.equals(DEFAULT_ASYNC_HTTP_CLIENT_FACTORY))
+					.findFirst().get().createAsyncClient(clientIdentity);
+		}
+		return services.get(0).createAsyncClient(clientIdentity);
+	}
+
+}
@@ -0,0 +1,228 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.client;
+
+import com.sap.cloud.security.config.ClientIdentity;
+import com.sap.cloud.security.mtls.SSLContextFactory;
+import com.sap.cloud.security.xsuaa.Assertions;
+import org.apache.hc.client5.http.ConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.DefaultConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.net.ssl.SSLContext;
+import java.io.Closeable;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+import static com.sap.cloud.security.client.DefaultHttpClientFactory.*;
+
+/**
+ * Constructs a {@link CloseableHttpAsyncClient} (Apache HttpClient 5) object, with the same configuration as the
+ * clients of {@link DefaultHttpClientFactory}: connection and connection request timeout - 5 s - response timeout -
+ * 30 s - max connections - 200 - max connections per route - 20 - keep-alive - 30 s, unless the server requests less
+ * - idle connections are closed after 30 s - connections are validated after 2 s of inactivity. The SSL context is
+ * created by {@link SSLContextFactory}.
+ * <p>
+ * As every async client runs its own I/O threads, the clients are started once per identity and shared: a certificate
+ * based identity gets a client of its own, which is replaced when the certificate or key changes; all other identities
+ * share one client. Don't close the shared clients, {@link #close()} the factory instead.
+ * <p>
+ * A replaced client keeps working with the previous certificate for the services it has been handed out to, only its
+ * idle connections are closed. It is closed together with the factory. Services need to be created with a new client
+ * of {@link #createAsyncClient(ClientIdentity)} to use the renewed certificate.
+ */
+public class DefaultAsyncHttpClientFactory implements AsyncHttpClientFactory, Closeable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(DefaultAsyncHttpClientFactory.class);
+	private static final ConnectionKeepAliveStrategy KEEP_ALIVE_STRATEGY = (response, context) -> {
+		TimeValue keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+		return TimeValue.isPositive(keepAlive) && keepAlive.toMilliseconds() < KEEP_ALIVE
+				? keepAlive
+				: TimeValue.ofMilliseconds(KEEP_ALIVE);
+	};
+
+	private final ConcurrentHashMap<String, AsyncClient> certificateClients = new ConcurrentHashMap<>();
+	private final Queue<AsyncClient> replacedClients = new ConcurrentLinkedQueue<>();
+	private final Set<String> registeredPools = ConcurrentHashMap.newKeySet();
+	private final HttpClientMetrics metrics;
+	private AsyncClient defaultClient;
+
+	public DefaultAsyncHttpClientFactory() {
+		this(HttpClientMetrics.getInstance());
+	}
+
+	/**
+	 * Creates a factory whose connection pools are registered at the given metrics. The pool of the client shared by
+	 * identities without certificate is registered as {@code "async:default"}, the pool of a certificate based
+	 * identity as {@code "async:"} followed by its client id.
+	 *
+	 * @param metrics
+	 * 		the metrics
+	 */
+	public DefaultAsyncHttpClientFactory(@Nonnull HttpClientMetrics metrics) {
+		Assertions.assertNotNull(metrics, "metrics must not be null");
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Returns the started client of the identity. The client is shared and must not be closed.
+	 *
+	 * @param clientIdentity
+	 * 		the client identity, can be null
+	 * @return the http client
+	 * @throws HttpClientException
+	 * 		in case the SSL context of the certificate based identity can not be created
+	 */
+	@Override
+	public CloseableHttpAsyncClient createAsyncClient(@Nullable ClientIdentity clientIdentity)
+			throws HttpClientException {
+		String clientId = clientIdentity != null ? clientIdentity.getId() : null;
+		if (clientId != null && clientIdentity.isCertificateBased()) {
+			String fingerprint = fingerprint(clientIdentity);
+			AsyncClient current = certificateClients.compute(clientId, (id, asyncClient) -> {
+				if (asyncClient != null && asyncClient.fingerprint.equals(fingerprint)) {
+					return asyncClient;
+				}
+				AsyncClient newAsyncClient = new AsyncClient(createSslContext(clientIdentity), fingerprint);
+				if (asyncClient != null) {
+					LOGGER.info("Certificate of client {} has changed, replacing its async http client", id);
+					asyncClient.connectionManager.closeIdle(TimeValue.ZERO_MILLISECONDS);
+					replacedClients.add(asyncClient);
+				}
+				return newAsyncClient;
+			});
+			if (registeredPools.add(clientId)) {
+				metrics.registerConnectionPool("async:" + clientId, () -> {
+					// the client is removed when the factory is closed
+					AsyncClient asyncClient = certificateClients.get(clientId);
+					return asyncClient != null
+							? statistics(asyncClient.connectionManager.getTotalStats())
+							: new HttpClientMetrics.ConnectionPoolStatistics(0, 0, 0, 0);
+				});
+			}
+			return current.httpClient;
+		}
+		return getDefaultClient().httpClient;
+	}
+
+	/**
+	 * Returns the statistics of the connection pool of the client shared by identities without certificate.
+	 *
+	 * @return the statistics of the pool
+	 */
+	public PoolStats getPoolStatistics() {
+		return getDefaultClient().connectionManager.getTotalStats();
+	}
+
+	/**
+	 * Returns the statistics of the connection pools of the certificate based identities.
+	 *
+	 * @return the statistics of the pools, by client id
+	 */
+	public Map<String, PoolStats> getCertificatePoolStatistics() {
+		return certificateClients.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey,
+				entry -> entry.getValue().connectionManager.getTotalStats()));
+	}
+
+	/**
+	 * Closes all clients created by this factory, including the replaced ones.
+	 */
+	@Override
+	public synchronized void close() {
+		certificateClients.values().forEach(asyncClient -> asyncClient.httpClient.close(CloseMode.GRACEFUL));
+		certificateClients.clear();
+		AsyncClient replacedClient;
+		while ((replacedClient = replacedClients.poll()) != null) {
+			replacedClient.httpClient.close(CloseMode.GRACEFUL);
+		}
+		if (defaultClient != null) {
+			defaultClient.httpClient.close(CloseMode.GRACEFUL);
+			defaultClient = null;
+		}
+	}
+
+	private synchronized AsyncClient getDefaultClient() {
+		if (defaultClient == null) {
+			try {
+				defaultClient = new AsyncClient(SSLContextFactory.getInstance().createDefault(), null);
+				PoolingAsyncClientConnectionManager connectionManager = defaultClient.connectionManager;
+				metrics.registerConnectionPool("async:default", () -> statistics(connectionManager.getTotalStats()));
+			} catch (GeneralSecurityException e) {
+				throw new HttpClientException("Couldn't set up https client. " + e.getLocalizedMessage());
+			}
+		}
+		return defaultClient;
+	}
+
+	private static HttpClientMetrics.ConnectionPoolStatistics statistics(PoolStats poolStats) {
+		return new HttpClientMetrics.ConnectionPoolStatistics(poolStats.getLeased(), poolStats.getAvailable(),
+				poolStats.getPending(), poolStats.getMax());
+	}
+
+	private static SSLContext createSslContext(ClientIdentity clientIdentity) {
+		try {
+			return SSLContextFactory.getInstance().create(clientIdentity);
+		} catch (IOException | GeneralSecurityException e) {
+			throw new HttpClientException(
+					String.format("Couldn't set up https client for service provider %s. %s.",
+							clientIdentity.getId(), e.getLocalizedMessage()));
+		}
+	}
+
+	private static class AsyncClient {
+		final String fingerprint;
+		final PoolingAsyncClientConnectionManager connectionManager;
+		final CloseableHttpAsyncClient httpClient;
+
+		AsyncClient(SSLContext context, @Nullable String fingerprint) {
+			this.fingerprint = fingerprint;
+			this.connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+					.setTlsStrategy(ClientTlsStrategyBuilder.create().setSslContext(context).build())
+					.setMaxConnPerRoute(MAX_CONNECTIONS_PER_ROUTE)
+					.setMaxConnTotal(MAX_CONNECTIONS)
+					.setDefaultConnectionConfig(ConnectionConfig.custom()
+							.setConnectTimeout(Timeout.ofMilliseconds(DEFAULT_TIMEOUT))
+							.setSocketTimeout(Timeout.ofMilliseconds(DEFAULT_SOCKET_TIMEOUT))
+							.setValidateAfterInactivity(TimeValue.ofMilliseconds(VALIDATE_AFTER_INACTIVITY))
+							.build())
+					.build();
+			this.httpClient = HttpAsyncClients.custom()
+					.setConnectionManager(connectionManager)
+					.setDefaultRequestConfig(RequestConfig.custom()
+							.setConnectionRequestTimeout(Timeout.ofMilliseconds(DEFAULT_TIMEOUT))
+							.setResponseTimeout(Timeout.ofMilliseconds(DEFAULT_SOCKET_TIMEOUT))
+							.setRedirectsEnabled(false)
+							.build())
+					.setKeepAliveStrategy(KEEP_ALIVE_STRATEGY)
+					.disableRedirectHandling()
+					.evictExpiredConnections()
+					.evictIdleConnections(TimeValue.ofMilliseconds(MAX_IDLE_TIME))
+					.build();
+			this.httpClient.start();
+		}
+	}
+
+}
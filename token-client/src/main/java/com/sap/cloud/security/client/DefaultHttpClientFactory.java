@@ -7,41 +7,120 @@ package com.sap.cloud.security.client;
 
 import com.sap.cloud.security.config.ClientIdentity;
 import com.sap.cloud.security.mtls.SSLContextFactory;
+import com.sap.cloud.security.xsuaa.Assertions;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.URIUtils;
 import org.apache.http.config.Registry;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
 import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
 import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.DefaultSchemePortResolver;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
 import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 /**
  * Constructs a {@link CloseableHttpClient} object. Facilitates certificate and client credentials-based communication
  * based on the identity service configuration from the binding.
  * <p>
  * HttpClient is configured with the following default values: - connection and connection request timeout - 5 s -
- * socket timeout - 30 s - max connections - 200 - max connections per route - 20
+ * socket timeout - 30 s - max connections - 200 - max connections per route - 20 - keep-alive - 30 s, unless the
+ * server requests less - idle connections are closed after 30 s - connections are validated after 2 s of inactivity
  * <p>
  * If these values do not meet your requirements, please provide your own implementation of {@link HttpClientFactory}.
+ * The utilization of the connection pools can be monitored with {@link HttpClientMetrics}.
  */
 public class DefaultHttpClientFactory implements HttpClientFactory {
 
-	private static final int DEFAULT_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(5);
-	private static final int DEFAULT_SOCKET_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(30);
-	private static final int MAX_CONNECTIONS_PER_ROUTE = 20; // default is 2
-	private static final int MAX_CONNECTIONS = 200;
+	private static final Logger LOGGER = LoggerFactory.getLogger(DefaultHttpClientFactory.class);
+
+	static final int DEFAULT_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(5);
+	static final int DEFAULT_SOCKET_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(30);
+	static final int MAX_CONNECTIONS_PER_ROUTE = 20; // default is 2
+	static final int MAX_CONNECTIONS = 200;
+	static final long KEEP_ALIVE = TimeUnit.SECONDS.toMillis(30);
+	static final long MAX_IDLE_TIME = TimeUnit.SECONDS.toMillis(30);
+	private static final long EVICTION_INTERVAL = TimeUnit.SECONDS.toMillis(10);
+	static final int VALIDATE_AFTER_INACTIVITY = (int) TimeUnit.SECONDS.toMillis(2);
+	private static final ConnectionKeepAliveStrategy KEEP_ALIVE_STRATEGY = (response, context) -> {
+		long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+		return keepAlive > 0 && keepAlive < KEEP_ALIVE ? keepAlive : KEEP_ALIVE;
+	};
 	private final ConcurrentHashMap<String, SslConnection> sslConnectionPool = new ConcurrentHashMap<>();
+	private final HandshakeCounter handshakeCounter = new HandshakeCounter();
+	private final Set<String> registeredPools = ConcurrentHashMap.newKeySet();
 	private final org.apache.http.client.config.RequestConfig requestConfig;
+	private final HttpClientMetrics metrics;
+	@Nullable
+	private final SSLContext defaultSslContext;
+	private ConnectionPool defaultConnectionPool;
 
 	public DefaultHttpClientFactory() {
+		this(HttpClientMetrics.getInstance());
+	}
+
+	/**
+	 * Creates a factory whose connection pools are registered at the given metrics. The pool shared by identities
+	 * without certificate is registered as {@code "default"}, the pool of a certificate based identity with its client
+	 * id.
+	 *
+	 * @param metrics
+	 * 		the metrics
+	 */
+	public DefaultHttpClientFactory(@Nonnull HttpClientMetrics metrics) {
+		this(metrics, null);
+	}
+
+	/**
+	 * Used for testing purposes only.
+	 *
+	 * @param defaultSslContext
+	 * 		the SSL context of the connection pool shared by identities without certificate, e.g. with a test trust
+	 * 		store, null to use {@link SSLContextFactory#createDefault()}
+	 */
+	DefaultHttpClientFactory(HttpClientMetrics metrics, @Nullable SSLContext defaultSslContext) {
+		Assertions.assertNotNull(metrics, "metrics must not be null");
+		this.metrics = metrics;
+		this.defaultSslContext = defaultSslContext;
 		requestConfig = org.apache.http.client.config.RequestConfig.custom()
 				.setConnectTimeout(DEFAULT_TIMEOUT)
 				.setConnectionRequestTimeout(DEFAULT_TIMEOUT)
@@ -50,30 +129,227 @@ public class DefaultHttpClientFactory implements HttpClientFactory {
 				.build();
 	}
 
+	/**
+	 * Creates an http client. The clients of a certificate based identity share the SSL context and the connection
+	 * pool of the identity, which are created once and recreated only when the certificate or key of the identity
+	 * changes. The clients of all other identities share one connection pool. Closing a client does not close the
+	 * shared connection pool.
+	 *
+	 * @param clientIdentity
+	 * 		the client identity, can be null
+	 * @return the http client
+	 * @throws HttpClientException
+	 * 		in case the SSL context of the certificate based identity can not be created
+	 */
 	@Override
 	public CloseableHttpClient createClient(ClientIdentity clientIdentity) throws HttpClientException {
 		String clientId = clientIdentity != null ? clientIdentity.getId() : null;
-		HttpClientBuilder httpClientBuilder = HttpClients.custom().setDefaultRequestConfig(requestConfig);
+		HttpClientBuilder httpClientBuilder = HttpClients.custom()
+				.setDefaultRequestConfig(requestConfig)
+				.setKeepAliveStrategy(KEEP_ALIVE_STRATEGY)
+				.setConnectionManagerShared(true)
+				// the pools are per identity already, otherwise mTLS connections are bound to the client principal
+				// and are not reused by subsequent requests
+				.disableConnectionState();
 
 		if (clientId != null && clientIdentity.isCertificateBased()) {
-			SslConnection connectionPool = sslConnectionPool.compute(clientId,
-					(s, c) -> new SslConnection(clientIdentity));
+			SslConnection identitySslConnection = getSslConnection(clientIdentity);
 			return httpClientBuilder
-					.setConnectionManager(connectionPool.poolingConnectionManager)
-					.setSSLContext(connectionPool.context)
-					.setSSLSocketFactory(connectionPool.sslSocketFactory)
+					.setConnectionManager(identitySslConnection.connectionPool.connectionManager)
+					.setSSLContext(identitySslConnection.context)
+					.setSSLSocketFactory(identitySslConnection.sslSocketFactory)
 					.build();
 		}
 		return httpClientBuilder
+				.setConnectionManager(getDefaultConnectionPool().connectionManager)
 				.build();
 	}
 
+	/**
+	 * Opens connections to the given endpoints in advance, e.g. to the token endpoint and the jwks_uri at
+	 * application start, so that the first requests do not have to wait for the TLS handshakes. The connections are
+	 * added to the connection pool used by the clients of the identity and are closed when they have been idle for
+	 * 30 seconds. Connections that can not be established are logged and skipped.
+	 * <p>
+	 * Only the TLS handshake is performed, no request is sent. With TLS 1.2 the session is cached by the handshake, so
+	 * that further connections resume it. With TLS 1.3 the server sends the session ticket after the handshake, which
+	 * is only read together with the first response on the connection. Hence, connections opened by a warm-up perform
+	 * full handshakes until a request has been made on one of the connections to the host.
+	 *
+	 * @param clientIdentity
+	 * 		the client identity whose clients use the connections, can be null
+	 * @param connectionsPerEndpoint
+	 * 		the number of connections per endpoint, at most 20
+	 * @param endpoints
+	 * 		the endpoints
+	 * @return the number of connections that have been opened
+	 */
+	public int warmUp(@Nullable ClientIdentity clientIdentity, int connectionsPerEndpoint, URI... endpoints) {
+		PoolingHttpClientConnectionManager connectionManager = clientIdentity != null
+				&& clientIdentity.getId() != null && clientIdentity.isCertificateBased()
+						? getSslConnection(clientIdentity).connectionPool.connectionManager
+						: getDefaultConnectionPool().connectionManager;
+		int opened = 0;
+		for (URI endpoint : endpoints) {
+			List<HttpClientConnection> connections = new ArrayList<>();
+			try {
+				HttpHost target = URIUtils.extractHost(endpoint);
+				target = new HttpHost(target.getHostName(), DefaultSchemePortResolver.INSTANCE.resolve(target),
+						target.getSchemeName());
+				HttpRoute route = new HttpRoute(target, null, "https".equalsIgnoreCase(target.getSchemeName()));
+				for (int i = 0; i < Math.min(connectionsPerEndpoint, MAX_CONNECTIONS_PER_ROUTE); i++) {
+					HttpClientConnection connection = connectionManager.requestConnection(route, null)
+							.get(DEFAULT_TIMEOUT, TimeUnit.MILLISECONDS);
+					connections.add(connection);
+					if (!connection.isOpen()) {
+						HttpClientContext context = HttpClientContext.create();
+						connectionManager.connect(connection, route, DEFAULT_TIMEOUT, context);
+						connectionManager.routeComplete(connection, route, context);
+						opened++;
+					}
+				}
+			} catch (IOException | ExecutionException e) {
+				LOGGER.warn("Couldn't open connections to {}: {}", endpoint, e.getMessage());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				for (HttpClientConnection connection : connections) {
+					connectionManager.releaseConnection(connection, null, KEEP_ALIVE, TimeUnit.MILLISECONDS);
+				}
+			}
+		}
+		LOGGER.debug("Opened {} connections in advance", opened);
+		return opened;
+	}
+
+	/**
+	 * Returns the number of TLS handshakes of the clients created by this factory and how many of them resumed a
+	 * cached TLS session. The session cache can be configured with
+	 * {@link SSLContextFactory#withSessionCache(int, java.time.Duration)}.
+	 *
+	 * @return the handshake statistics
+	 */
+	public HandshakeStatistics getHandshakeStatistics() {
+		return new HandshakeStatistics(handshakeCounter.handshakes.get(), handshakeCounter.resumedHandshakes.get());
+	}
+
+	/**
+	 * Returns the statistics of the connection pool shared by the clients of identities without certificate.
+	 *
+	 * @return the statistics of the pool
+	 */
+	public PoolStats getPoolStatistics() {
+		return getDefaultConnectionPool().connectionManager.getTotalStats();
+	}
+
+	/**
+	 * Returns the statistics of the connection pools of the certificate based identities.
+	 *
+	 * @return the statistics of the pools, by client id
+	 */
+	public Map<String, PoolStats> getCertificatePoolStatistics() {
+		return sslConnectionPool.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey,
+				entry -> entry.getValue().connectionPool.connectionManager.getTotalStats()));
+	}
+
+	/**
+	 * Used for testing purposes only.
+	 */
+	PoolingHttpClientConnectionManager getConnectionManager(@Nullable String clientId) {
+		if (clientId == null) {
+			return getDefaultConnectionPool().connectionManager;
+		}
+		SslConnection sslConnection = sslConnectionPool.get(clientId);
+		return sslConnection != null ? sslConnection.connectionPool.connectionManager : null;
+	}
+
+	private SslConnection getSslConnection(ClientIdentity clientIdentity) {
+		String fingerprint = fingerprint(clientIdentity);
+		String clientId = clientIdentity.getId();
+		SslConnection current = sslConnectionPool.compute(clientId, (id, sslConnection) -> {
+			if (sslConnection != null && sslConnection.fingerprint.equals(fingerprint)) {
+				return sslConnection;
+			}
+			SslConnection newSslConnection = new SslConnection(clientIdentity, fingerprint, handshakeCounter);
+			if (sslConnection != null) {
+				LOGGER.info("Certificate of client {} has changed, replacing its connection pool", id);
+				sslConnection.closeIdleConnections();
+			}
+			return newSslConnection;
+		});
+		if (registeredPools.add(clientId)) {
+			metrics.registerConnectionPool(clientId, () -> statistics(
+					sslConnectionPool.get(clientId).connectionPool.connectionManager.getTotalStats()));
+		}
+		return current;
+	}
+
+	private synchronized ConnectionPool getDefaultConnectionPool() {
+		if (defaultConnectionPool == null) {
+			SSLContext context = defaultSslContext;
+			if (context == null) {
+				try {
+					context = SSLContextFactory.getInstance().createDefault();
+				} catch (GeneralSecurityException e) {
+					throw new HttpClientException("Couldn't set up https client. " + e.getLocalizedMessage());
+				}
+			}
+			defaultConnectionPool = new ConnectionPool(new PoolingHttpClientConnectionManager(
+					socketFactoryRegistry(new HandshakeCountingSocketFactory(context, handshakeCounter))));
+			PoolingHttpClientConnectionManager connectionManager = defaultConnectionPool.connectionManager;
+			metrics.registerConnectionPool("default", () -> statistics(connectionManager.getTotalStats()));
+		}
+		return defaultConnectionPool;
+	}
+
+	private static Registry<ConnectionSocketFactory> socketFactoryRegistry(SSLConnectionSocketFactory sslSocketFactory) {
+		return RegistryBuilder.<ConnectionSocketFactory> create()
+				.register("http", PlainConnectionSocketFactory.getSocketFactory())
+				.register("https", sslSocketFactory).build();
+	}
+
+	private static HttpClientMetrics.ConnectionPoolStatistics statistics(PoolStats poolStats) {
+		return new HttpClientMetrics.ConnectionPoolStatistics(poolStats.getLeased(), poolStats.getAvailable(),
+				poolStats.getPending(), poolStats.getMax());
+	}
+
+	static String fingerprint(ClientIdentity clientIdentity) {
+		try {
+			MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+			if (hasValue(clientIdentity.getCertificate()) && hasValue(clientIdentity.getKey())) {
+				messageDigest.update(clientIdentity.getCertificate().getBytes(StandardCharsets.UTF_8));
+				messageDigest.update((byte) 0);
+				messageDigest.update(clientIdentity.getKey().getBytes(StandardCharsets.UTF_8));
+			} else {
+				for (Certificate certificate : clientIdentity.getCertificateChain()) {
+					messageDigest.update(certificate.getEncoded());
+				}
+				messageDigest.update((byte) 0);
+				byte[] encodedKey = clientIdentity.getPrivateKey().getEncoded();
+				if (encodedKey != null) {
+					messageDigest.update(encodedKey);
+				}
+			}
+			return HexFormat.of().formatHex(messageDigest.digest());
+		} catch (GeneralSecurityException e) {
+			throw new HttpClientException(
+					String.format("Couldn't determine certificate fingerprint for service provider %s. %s.",
+							clientIdentity.getId(), e.getLocalizedMessage()));
+		}
+	}
+
+	private static boolean hasValue(String value) {
+		return value != null && !value.isEmpty();
+	}
+
 	private static class SslConnection {
+		final String fingerprint;
 		SSLContext context;
 		SSLConnectionSocketFactory sslSocketFactory;
-		PoolingHttpClientConnectionManager poolingConnectionManager;
+		ConnectionPool connectionPool;
 
-		public SslConnection(ClientIdentity clientIdentity) {
+		public SslConnection(ClientIdentity clientIdentity, String fingerprint, HandshakeCounter handshakeCounter) {
+			this.fingerprint = fingerprint;
 			try {
 				this.context = SSLContextFactory.getInstance().create(clientIdentity);
 			} catch (IOException | GeneralSecurityException e) {
@@ -81,14 +357,118 @@ public class DefaultHttpClientFactory implements HttpClientFactory {
 						String.format("Couldn't set up https client for service provider %s. %s.",
 								clientIdentity.getId(), e.getLocalizedMessage()));
 			}
-			this.sslSocketFactory = new SSLConnectionSocketFactory(context);
-			Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory> create()
-					.register("http", PlainConnectionSocketFactory.getSocketFactory())
-					.register("https", sslSocketFactory).build();
-			this.poolingConnectionManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry);
-			this.poolingConnectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
-			this.poolingConnectionManager.setMaxTotal(MAX_CONNECTIONS);
+			this.sslSocketFactory = new HandshakeCountingSocketFactory(context, handshakeCounter);
+			this.connectionPool = new ConnectionPool(
+					new PoolingHttpClientConnectionManager(socketFactoryRegistry(sslSocketFactory)));
+		}
+
+		void closeIdleConnections() {
+			connectionPool.closeIdleConnections();
+		}
+	}
+
+	/**
+	 * Connection pool whose expired and idle connections are closed periodically. Unlike
+	 * {@link HttpClientBuilder#evictIdleConnections(long, TimeUnit)} this does not start a thread per client.
+	 */
+	private static class ConnectionPool {
+		final PoolingHttpClientConnectionManager connectionManager;
+
+		ConnectionPool(PoolingHttpClientConnectionManager connectionManager) {
+			this.connectionManager = connectionManager;
+			connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+			connectionManager.setMaxTotal(MAX_CONNECTIONS);
+			connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY);
+			// the pool is not kept alive by its eviction task, it is shut down when it is garbage collected
+			WeakReference<PoolingHttpClientConnectionManager> pool = new WeakReference<>(connectionManager);
+			AtomicReference<ScheduledFuture<?>> self = new AtomicReference<>();
+			ScheduledFuture<?> eviction = PoolMaintenanceExecutor.INSTANCE.scheduleWithFixedDelay(() -> {
+				PoolingHttpClientConnectionManager manager = pool.get();
+				if (manager == null) {
+					self.get().cancel(false);
+					return;
+				}
+				manager.closeExpiredConnections();
+				manager.closeIdleConnections(MAX_IDLE_TIME, TimeUnit.MILLISECONDS);
+			}, EVICTION_INTERVAL, EVICTION_INTERVAL, TimeUnit.MILLISECONDS);
+			self.set(eviction);
+		}
+
+		/**
+		 * Closes the idle connections of a replaced pool immediately. The pool is not shut down, as the clients that
+		 * have been created before may still use it; it is shut down when they and the pool are garbage collected.
+		 */
+		void closeIdleConnections() {
+			connectionManager.closeIdleConnections(0, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Counts the TLS handshakes. Sessions are marked with a session value after their handshake, a handshake resumed a
+	 * cached session if its session is marked already. The values of a session are kept when it is resumed, also when
+	 * it is resumed with a TLS 1.3 session ticket.
+	 */
+	private static class HandshakeCounter {
+		private static final String HANDSHAKE_COUNTED = HandshakeCounter.class.getName();
+		final AtomicLong handshakes = new AtomicLong();
+		final AtomicLong resumedHandshakes = new AtomicLong();
+
+		void record(SSLSession session) {
+			handshakes.incrementAndGet();
+			if (session.getValue(HANDSHAKE_COUNTED) != null) {
+				resumedHandshakes.incrementAndGet();
+			} else {
+				session.putValue(HANDSHAKE_COUNTED, Boolean.TRUE);
+			}
+		}
+	}
+
+	private static class HandshakeCountingSocketFactory extends SSLConnectionSocketFactory {
+		private final HandshakeCounter handshakeCounter;
+
+		HandshakeCountingSocketFactory(SSLContext sslContext, HandshakeCounter handshakeCounter) {
+			super(sslContext);
+			this.handshakeCounter = handshakeCounter;
+		}
+
+		@Override
+		public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context)
+				throws IOException {
+			Socket sslSocket = super.createLayeredSocket(socket, target, port, context);
+			if (sslSocket instanceof SSLSocket handshakedSocket) {
+				handshakeCounter.record(handshakedSocket.getSession());
+			}
+			return sslSocket;
+		}
+	}
+
+	/**
+	 * Statistics of the TLS handshakes of the clients created by a {@link DefaultHttpClientFactory}.
+	 *
+	 * @param handshakes
+	 * 		the total number of TLS handshakes
+	 * @param resumedHandshakes
+	 * 		the number of abbreviated handshakes that resumed a cached TLS session
+	 */
+	public record HandshakeStatistics(long handshakes, long resumedHandshakes) {
+
+		/**
+		 * Returns the ratio of resumed handshakes.
+		 *
+		 * @return the ratio between 0 and 1, 0 if there was no handshake yet
+		 */
+		public double resumptionRate() {
+			return handshakes == 0 ? 0 : (double) resumedHandshakes / handshakes;
 		}
 	}
 
+	private static class PoolMaintenanceExecutor {
+		private static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(
+				runnable -> {
+					Thread thread = new Thread(runnable, "http-client-pool-maintenance");
+					thread.setDaemon(true);
+					return thread;
+				});
+	}
+
 }
@@ -0,0 +1,118 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.client;
+
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.function.Supplier;
+
+/**
+ * Receives metrics of the http requests to the identity service and of the connection pools they use, e.g. to report
+ * them to a monitoring system such as Micrometer. All methods do nothing by default, implementations only override
+ * what they are interested in. They are called on the request threads and must not block.
+ * <p>
+ * The instance returned by {@link #getInstance()} is loaded with the {@link ServiceLoader}, so that an implementation
+ * is picked up by registering it in {@code META-INF/services/com.sap.cloud.security.client.HttpClientMetrics}. If none
+ * is registered, metrics are not recorded.
+ */
+public interface HttpClientMetrics {
+
+	/**
+	 * Metrics implementation that does not record anything.
+	 */
+	HttpClientMetrics NO_OP = new HttpClientMetrics() {
+		@Override
+		public String toString() {
+			return "HttpClientMetrics.NO_OP";
+		}
+	};
+
+	@SuppressWarnings("unchecked")
+	List<HttpClientMetrics> services = new ArrayList() {
+		{
+			ServiceLoader.load(HttpClientMetrics.class).forEach(this::add);
+			LoggerFactory.getLogger(HttpClientMetrics.class).info("loaded HttpClientMetrics service providers: {}",
+					this);
+		}
+	};
+
+	/**
+	 * Returns the metrics implementation registered as service provider, or {@link #NO_OP} if there is none.
+	 *
+	 * @return the metrics implementation
+	 */
+	static HttpClientMetrics getInstance() {
+		return services.isEmpty() ? NO_OP : services.get(0);
+	}
+
+	/**
+	 * Records a request that received a response, including error responses.
+	 *
+	 * @param endpoint
+	 * 		the requested endpoint, without query
+	 * @param statusCode
+	 * 		the status code of the response
+	 * @param duration
+	 * 		the time from sending the request until the response body has been read
+	 * @param requestBytes
+	 * 		the size of the request body
+	 * @param responseBytes
+	 * 		the number of bytes read from the response body
+	 */
+	default void recordRequest(@Nonnull URI endpoint, int statusCode, @Nonnull Duration duration, long requestBytes,
+			long responseBytes) {
+	}
+
+	/**
+	 * Records a request that did not receive a response, e.g. because the connection could not be established or
+	 * timed out.
+	 *
+	 * @param endpoint
+	 * 		the requested endpoint, without query
+	 * @param duration
+	 * 		the time from sending the request until it failed
+	 * @param exception
+	 * 		the cause of the failure
+	 */
+	default void recordFailure(@Nonnull URI endpoint, @Nonnull Duration duration, @Nonnull Exception exception) {
+	}
+
+	/**
+	 * Registers a connection pool when it is created. The statistics are meant to be polled, e.g. by gauges. A pool
+	 * that is recreated, e.g. because the certificate of the identity has changed, is not registered again, the
+	 * supplier returns the statistics of the current pool.
+	 *
+	 * @param poolName
+	 * 		the name of the pool, e.g. {@code "default"} or the client id of the identity, a pool registered with the
+	 * 		name of a former pool replaces it
+	 * @param statistics
+	 * 		supplies the current statistics of the pool
+	 */
+	default void registerConnectionPool(@Nonnull String poolName,
+			@Nonnull Supplier<ConnectionPoolStatistics> statistics) {
+	}
+
+	/**
+	 * Statistics of a connection pool.
+	 *
+	 * @param leased
+	 * 		the number of connections in use
+	 * @param available
+	 * 		the number of idle connections
+	 * @param pending
+	 * 		the number of requests waiting for a connection
+	 * @param max
+	 * 		the maximum number of connections
+	 */
+	record ConnectionPoolStatistics(int leased, int available, int pending, int max) {
+	}
+}
@@ -0,0 +1,295 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.mtls;
+
+import com.sap.cloud.security.config.ClientCertificate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.X509ExtendedKeyManager;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.Principal;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static com.sap.cloud.security.xsuaa.Assertions.assertNotNull;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+/**
+ * Key manager that provides the client certificate and private key of PEM files and reloads them when the files
+ * change, e.g. when the certificate of a service binding mounted into a Kubernetes pod is rotated. New TLS handshakes
+ * use the new certificate, established connections are not affected and are kept until they are closed.
+ * <p>
+ * The files are watched with a {@link WatchService} on their directories, which also detects the replacement of the
+ * symbolic links Kubernetes uses to update mounted secrets. A certificate and key that do not match, e.g. because
+ * only one of the files has been updated yet, are not applied.
+ *
+ * <pre>{@code
+ * ReloadingKeyManager keyManager = ReloadingKeyManager.watch(certificateFile, keyFile);
+ * SSLContext sslContext = SSLContextFactory.getInstance().createWithKeyManager(keyManager);
+ * }</pre>
+ */
+public class ReloadingKeyManager extends X509ExtendedKeyManager implements Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ReloadingKeyManager.class);
+	private static final char[] NO_PASSWORD = new char[0];
+	private static final String ALIAS_PREFIX = "client-certificate-";
+	private static final long DEBOUNCE_MILLIS = 100;
+
+	private final Path certificateFile;
+	private final Path keyFile;
+	private volatile KeyMaterial current;
+	private volatile KeyMaterial previous;
+	private int generation;
+	private WatchService watchService;
+
+	/**
+	 * Creates a key manager with the certificate and key of the files, that does not watch the files. Use
+	 * {@link #watch(Path, Path)} to reload them automatically.
+	 *
+	 * @param certificateFile
+	 * 		PEM encoded X.509 certificate chain
+	 * @param keyFile
+	 * 		PEM encoded private key, PKCS#1 (RSA) and PKCS#8 (ECC) are supported
+	 * @throws IOException
+	 * 		in case the files can not be read
+	 * @throws GeneralSecurityException
+	 * 		in case the certificate or key can not be parsed or do not match
+	 */
+	public ReloadingKeyManager(@Nonnull Path certificateFile, @Nonnull Path keyFile)
+			throws IOException, GeneralSecurityException {
+		assertNotNull(certificateFile, "certificateFile must not be null");
+		assertNotNull(keyFile, "keyFile must not be null");
+		this.certificateFile = certificateFile.toAbsolutePath();
+		this.keyFile = keyFile.toAbsolutePath();
+		reload();
+	}
+
+	/**
+	 * Creates a key manager with the certificate and key of the files and reloads them on a daemon thread whenever
+	 * the files change, until the key manager is {@link #close() closed}.
+	 *
+	 * @param certificateFile
+	 * 		PEM encoded X.509 certificate chain
+	 * @param keyFile
+	 * 		PEM encoded private key, PKCS#1 (RSA) and PKCS#8 (ECC) are supported
+	 * @return the key manager
+	 * @throws IOException
+	 * 		in case the files can not be read or watched
+	 * @throws GeneralSecurityException
+	 * 		in case the certificate or key can not be parsed or do not match
+	 */
+	public static ReloadingKeyManager watch(@Nonnull Path certificateFile, @Nonnull Path keyFile)
+			throws IOException, GeneralSecurityException {
+		ReloadingKeyManager keyManager = new ReloadingKeyManager(certificateFile, keyFile);
+		keyManager.startWatching();
+		return keyManager;
+	}
+
+	/**
+	 * Reloads the certificate and key from the files, if they have changed.
+	 *
+	 * @return true if new key material has been loaded
+	 * @throws IOException
+	 * 		in case the files can not be read
+	 * @throws GeneralSecurityException
+	 * 		in case the certificate or key can not be parsed or do not match, the current ones are kept
+	 */
+	public synchronized boolean reload() throws IOException, GeneralSecurityException {
+		String certificate = Files.readString(certificateFile, StandardCharsets.UTF_8);
+		String key = Files.readString(keyFile, StandardCharsets.UTF_8);
+		byte[] fingerprint = MessageDigest.getInstance("SHA-256")
+				.digest((certificate + '\0' + key).getBytes(StandardCharsets.UTF_8));
+		if (current != null && Arrays.equals(current.fingerprint, fingerprint)) {
+			return false;
+		}
+		KeyStore keyStore = SSLContextFactory.getInstance()
+				.createKeyStore(new ClientCertificate(certificate, key, null));
+		String keyAlias = Collections.list(keyStore.aliases()).stream()
+				.filter(alias -> isKeyEntry(keyStore, alias))
+				.findFirst()
+				.orElseThrow(() -> new GeneralSecurityException("No private key found in " + keyFile));
+		PrivateKey privateKey = (PrivateKey) keyStore.getKey(keyAlias, NO_PASSWORD);
+		Certificate[] certificateChain = keyStore.getCertificateChain(keyAlias);
+		verifyKeyPair(privateKey, certificateChain[0]);
+
+		// a new alias per generation, so that a handshake in progress still finds the key of the chosen alias
+		String alias = ALIAS_PREFIX + ++generation;
+		KeyStore generationKeyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+		generationKeyStore.load(null);
+		generationKeyStore.setKeyEntry(alias, privateKey, NO_PASSWORD, certificateChain);
+		KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance("SunX509");
+		keyManagerFactory.init(generationKeyStore, NO_PASSWORD);
+		X509ExtendedKeyManager keyManager = null;
+		for (KeyManager km : keyManagerFactory.getKeyManagers()) {
+			if (km instanceof X509ExtendedKeyManager x509KeyManager) {
+				keyManager = x509KeyManager;
+			}
+		}
+		if (keyManager == null) {
+			throw new GeneralSecurityException("No X509ExtendedKeyManager available");
+		}
+		previous = current;
+		current = new KeyMaterial(alias, keyManager, fingerprint);
+		if (certificateChain[0] instanceof X509Certificate x509Certificate) {
+			LOGGER.info("Loaded client certificate {} valid until {} from {}", x509Certificate.getSubjectX500Principal(),
+					x509Certificate.getNotAfter().toInstant(), certificateFile);
+		}
+		return true;
+	}
+
+	/**
+	 * Stops watching the files. The current certificate and key are still provided.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (watchService != null) {
+			watchService.close();
+			watchService = null;
+		}
+	}
+
+	private synchronized void startWatching() throws IOException {
+		watchService = FileSystems.getDefault().newWatchService();
+		Set<Path> directories = new HashSet<>(Arrays.asList(certificateFile.getParent(), keyFile.getParent()));
+		for (Path directory : directories) {
+			directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+		}
+		WatchService service = watchService;
+		Thread watcher = new Thread(() -> watch(service), "client-certificate-watcher");
+		watcher.setDaemon(true);
+		watcher.start();
+		LOGGER.debug("Watching {} and {} for changes", certificateFile, keyFile);
+	}
+
+	private void watch(WatchService service) {
+		try {
+			while (true) {
+				WatchKey watchKey = service.take();
+				// coalesces the events of a single update, e.g. of the certificate and key file
+				while (watchKey != null) {
+					watchKey.pollEvents();
+					watchKey.reset();
+					watchKey = service.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+				}
+				reloadQuietly();
+			}
+		} catch (ClosedWatchServiceException e) {
+			LOGGER.debug("Stopped watching {} and {}", certificateFile, keyFile);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void reloadQuietly() {
+		try {
+			reload();
+		} catch (IOException | GeneralSecurityException | RuntimeException e) {
+			LOGGER.warn("Client certificate is not reloaded, keeping the current one: {}", e.getMessage());
+		}
+	}
+
+	private static boolean isKeyEntry(KeyStore keyStore, String alias) {
+		try {
+			return keyStore.isKeyEntry(alias);
+		} catch (GeneralSecurityException e) {
+			return false;
+		}
+	}
+
+	private static void verifyKeyPair(PrivateKey privateKey, Certificate certificate)
+			throws GeneralSecurityException {
+		String algorithm = "EC".equals(privateKey.getAlgorithm()) ? "SHA256withECDSA" : "SHA256withRSA";
+		byte[] challenge = "client-certificate".getBytes(StandardCharsets.UTF_8);
+		Signature signature = Signature.getInstance(algorithm);
+		signature.initSign(privateKey);
+		signature.update(challenge);
+		byte[] signed = signature.sign();
+		signature.initVerify(certificate.getPublicKey());
+		signature.update(challenge);
+		if (!signature.verify(signed)) {
+			throw new GeneralSecurityException("Private key does not match the client certificate");
+		}
+	}
+
+	private KeyMaterial materialOf(String alias) {
+		KeyMaterial material = current;
+		if (material.alias.equals(alias)) {
+			return material;
+		}
+		material = previous;
+		return material != null && material.alias.equals(alias) ? material : null;
+	}
+
+	@Override
+	public String[] getClientAliases(String keyType, Principal[] issuers) {
+		return current.keyManager.getClientAliases(keyType, issuers);
+	}
+
+	@Override
+	public String chooseClientAlias(String[] keyType, Principal[] issuers, Socket socket) {
+		return current.keyManager.chooseClientAlias(keyType, issuers, socket);
+	}
+
+	@Override
+	public String chooseEngineClientAlias(String[] keyType, Principal[] issuers, SSLEngine engine) {
+		return current.keyManager.chooseEngineClientAlias(keyType, issuers, engine);
+	}
+
+	@Override
+	public String[] getServerAliases(String keyType, Principal[] issuers) {
+		return current.keyManager.getServerAliases(keyType, issuers);
+	}
+
+	@Override
+	public String chooseServerAlias(String keyType, Principal[] issuers, Socket socket) {
+		return current.keyManager.chooseServerAlias(keyType, issuers, socket);
+	}
+
+	@Override
+	public String chooseEngineServerAlias(String keyType, Principal[] issuers, SSLEngine engine) {
+		return current.keyManager.chooseEngineServerAlias(keyType, issuers, engine);
+	}
+
+	@Override
+	public X509Certificate[] getCertificateChain(String alias) {
+		KeyMaterial material = materialOf(alias);
+		return material != null ? material.keyManager.getCertificateChain(alias) : null;
+	}
+
+	@Override
+	public PrivateKey getPrivateKey(String alias) {
+		KeyMaterial material = materialOf(alias);
+		return material != null ? material.keyManager.getPrivateKey(alias) : null;
+	}
+
+	private record KeyMaterial(String alias, X509ExtendedKeyManager keyManager, byte[] fingerprint) {
+	}
+}
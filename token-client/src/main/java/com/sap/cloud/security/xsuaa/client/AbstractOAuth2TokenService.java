@@ -7,9 +7,12 @@ package com.sap.cloud.security.xsuaa.client;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 import com.github.benmanes.caffeine.cache.Ticker;
 import com.sap.cloud.security.config.ClientIdentity;
 import com.sap.cloud.security.xsuaa.Assertions;
+import com.sap.cloud.security.xsuaa.http.HttpHeader;
 import com.sap.cloud.security.xsuaa.http.HttpHeaders;
 import com.sap.cloud.security.xsuaa.http.HttpHeadersFactory;
 import com.sap.cloud.security.xsuaa.jwt.DecodedJwt;
@@ -25,9 +28,33 @@ import java.net.URI;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleSupplier;
 import java.util.stream.Collectors;
 
 import static com.sap.cloud.security.xsuaa.Assertions.assertNotNull;
@@ -37,8 +64,17 @@ import static com.sap.cloud.security.xsuaa.client.OAuth2TokenServiceConstants.*;
 public abstract class AbstractOAuth2TokenService implements OAuth2TokenService, Cacheable {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(AbstractOAuth2TokenService.class);
+	private static final Duration IN_FLIGHT_REQUEST_TIMEOUT = Duration.ofSeconds(60);
+	private static final double REFRESH_AHEAD_JITTER = 0.1;
+	private static final Duration SHARED_TOKEN_CACHE_POLL_INTERVAL = Duration.ofMillis(100);
 	private final Cache<CacheKey, OAuth2TokenResponse> responseCache;
 	private final TokenCacheConfiguration tokenCacheConfiguration;
+	private final Map<CacheKey, CompletableFuture<OAuth2TokenResponse>> inFlightRequests = new ConcurrentHashMap<>();
+	private final Map<CacheKey, ScheduledRefresh> scheduledRefreshes = new ConcurrentHashMap<>();
+	private volatile ScheduledExecutorService refreshScheduler;
+	private volatile Executor refreshExecutor;
+	private volatile SharedTokenCacheClient sharedTokenCache;
+	private DoubleSupplier random = () -> ThreadLocalRandom.current().nextDouble();
 
 	public AbstractOAuth2TokenService() {
 		this(TokenCacheConfiguration.defaultConfiguration(), Ticker.systemTicker(), false);
@@ -78,9 +114,100 @@ public abstract class AbstractOAuth2TokenService implements OAuth2TokenService,
 		}
 	}
 
+	/**
+	 * Enables background refresh of cached tokens, see {@link #enableRefreshAhead(ScheduledExecutorService)}. The
+	 * refreshes are triggered by a shared daemon thread and performed by a shared pool of at most 4 daemon threads,
+	 * so that a slow token endpoint does not delay the refreshes of other tokens.
+	 */
+	public void enableRefreshAhead() {
+		enableRefreshAhead(RefreshAheadExecutor.SCHEDULER, RefreshAheadExecutor.WORKERS);
+	}
+
+	/**
+	 * Enables background refresh of cached tokens. A cached token of the client credentials flow that has been used
+	 * since it was requested is refreshed on the given executor before it needs to be refreshed on the request thread,
+	 * i.e. before its {@link TokenCacheConfiguration#getTokenExpirationDelta()} window starts or before it is evicted
+	 * from the cache after {@link TokenCacheConfiguration#getCacheDuration()}. The cached token is served until the new
+	 * token has been retrieved. The refresh time is randomly brought forward by up to 10% to spread the refreshes of
+	 * many tokens and application instances. If the refresh fails, the token is requested on the request thread as
+	 * before. Tokens of other grant types are not refreshed, as their requests contain user credentials, single-use
+	 * refresh tokens or assertions that must not be sent again.
+	 *
+	 * @param executor
+	 * 		the executor used to schedule and perform the token requests
+	 */
+	public void enableRefreshAhead(@Nonnull ScheduledExecutorService executor) {
+		enableRefreshAhead(executor, executor);
+	}
+
+	/**
+	 * Enables background refresh of cached tokens, see {@link #enableRefreshAhead(ScheduledExecutorService)}. The
+	 * scheduler only triggers the refreshes, the blocking token requests are performed by the executor.
+	 *
+	 * @param scheduler
+	 * 		the executor used to schedule the refreshes
+	 * @param executor
+	 * 		the executor used to perform the token requests
+	 */
+	public void enableRefreshAhead(@Nonnull ScheduledExecutorService scheduler, @Nonnull Executor executor) {
+		assertNotNull(scheduler, "scheduler must not be null");
+		assertNotNull(executor, "executor must not be null");
+		if (isCacheDisabled()) {
+			LOGGER.warn("Refresh ahead is ignored as the token cache is disabled");
+			return;
+		}
+		this.refreshExecutor = executor;
+		this.refreshScheduler = scheduler;
+	}
+
+	/**
+	 * Used for testing purposes only: the refreshes are performed by the thread that triggers them.
+	 */
+	void enableRefreshAhead(ScheduledExecutorService scheduler, DoubleSupplier random) {
+		this.random = random;
+		enableRefreshAhead(scheduler, Runnable::run);
+	}
+
+	/**
+	 * Enables a second level token cache that is shared with other application instances, see
+	 * {@link #enableSharedTokenCache(SharedTokenCache, TokenCacheCipher)}. The tokens are stored unencrypted.
+	 *
+	 * @param sharedTokenCache
+	 * 		the shared token cache
+	 */
+	public void enableSharedTokenCache(@Nonnull SharedTokenCache sharedTokenCache) {
+		enableSharedTokenCache(sharedTokenCache, null);
+	}
+
+	/**
+	 * Enables a second level token cache that is shared with other application instances. A token of the client
+	 * credentials flow that is not found in the cache of this token service is looked up in the shared cache before it
+	 * is requested, and requested tokens are stored in both caches. While one instance requests a token, the others
+	 * wait for it to be stored in the shared cache, if the shared cache supports
+	 * {@link SharedTokenCache#tryLock(String, Duration) locking}. If the request of the lock owner fails, the next
+	 * instance that acquires the lock requests the token. Tokens of other grant types are not shared, as they are
+	 * issued for users or contain refresh tokens. The shared cache is not cleared by {@link #clearCache()}.
+	 *
+	 * @param sharedTokenCache
+	 * 		the shared token cache
+	 * @param cipher
+	 * 		encrypts the tokens before they are stored in the shared cache, can be null
+	 */
+	public void enableSharedTokenCache(@Nonnull SharedTokenCache sharedTokenCache,
+			@Nullable TokenCacheCipher cipher) {
+		assertNotNull(sharedTokenCache, "sharedTokenCache must not be null");
+		if (isCacheDisabled()) {
+			LOGGER.warn("Shared token cache is ignored as the token cache is disabled");
+			return;
+		}
+		this.sharedTokenCache = new SharedTokenCacheClient(sharedTokenCache, cipher);
+	}
+
 	@Override
 	public void clearCache() {
 		responseCache.invalidateAll();
+		scheduledRefreshes.values().forEach(ScheduledRefresh::cancel);
+		scheduledRefreshes.clear();
 	}
 
 	@Override
@@ -205,6 +332,87 @@ public abstract class AbstractOAuth2TokenService implements OAuth2TokenService,
 		return getOrRequestAccessToken(tokenEndpoint, headers, parameters);
 	}
 
+	/**
+	 * Asynchronous variant of
+	 * {@link #retrieveAccessTokenViaClientCredentialsGrant(URI, ClientIdentity, String, String, Map, boolean)}. Cached
+	 * tokens are returned as completed future. The future completes exceptionally with an
+	 * {@link OAuth2ServiceException} in case the token request fails.
+	 *
+	 * @param tokenEndpointUri
+	 * 		the token endpoint URI.
+	 * @param clientIdentity
+	 * 		the client identity of the OAuth client, the recipient of the token.
+	 * @param zoneId
+	 * 		Zone identifier - tenant discriminator
+	 * @param subdomain
+	 * 		optionally indicates what Identity Zone this request goes to by supplying a subdomain (tenant).
+	 * @param optionalParameters
+	 * 		optional request parameters, can be null.
+	 * @param disableCacheForRequest
+	 * 		set to true disables the token cache for this request.
+	 * @return the future of the token response
+	 */
+	public CompletableFuture<OAuth2TokenResponse> retrieveAccessTokenViaClientCredentialsGrantAsync(
+			@Nonnull URI tokenEndpointUri, @Nonnull ClientIdentity clientIdentity, @Nullable String zoneId,
+			@Nullable String subdomain, @Nullable Map<String, String> optionalParameters,
+			boolean disableCacheForRequest) {
+		assertNotNull(tokenEndpointUri, "tokenEndpointUri is required");
+		assertNotNull(clientIdentity, "clientIdentity is required");
+
+		Map<String, String> parameters = new RequestParameterBuilder()
+				.withGrantType(GRANT_TYPE_CLIENT_CREDENTIALS)
+				.withClientIdentity(clientIdentity)
+				.withOptionalParameters(optionalParameters)
+				.buildAsMap();
+
+		HttpHeaders headers = HttpHeadersFactory.createWithoutAuthorizationHeader();
+		if (zoneId != null) {
+			headers.withHeader(HttpHeaders.X_ZID, zoneId);
+		}
+
+		return getOAuth2TokenResponseAsync(tokenEndpointUri, headers, parameters, subdomain, disableCacheForRequest);
+	}
+
+	/**
+	 * Asynchronous variant of
+	 * {@link #retrieveAccessTokenViaJwtBearerTokenGrant(URI, ClientIdentity, String, String, Map, boolean)}. Cached
+	 * tokens are returned as completed future. The future completes exceptionally with an
+	 * {@link OAuth2ServiceException} in case the token request fails.
+	 *
+	 * @param tokenEndpoint
+	 * 		the token endpoint URI.
+	 * @param clientIdentity
+	 * 		the client identity of the OAuth client, the recipient of the token.
+	 * @param token
+	 * 		the JWT token identifying representing the user to be authenticated
+	 * @param subdomain
+	 * 		optionally indicates what Identity Zone this request goes to by supplying a subdomain (tenant).
+	 * @param optionalParameters
+	 * 		optional request parameters, can be null.
+	 * @param disableCacheForRequest
+	 * 		set to true disables the token cache for this request.
+	 * @return the future of the token response
+	 */
+	public CompletableFuture<OAuth2TokenResponse> retrieveAccessTokenViaJwtBearerTokenGrantAsync(
+			@Nonnull URI tokenEndpoint, @Nonnull ClientIdentity clientIdentity, @Nonnull String token,
+			@Nullable String subdomain, @Nullable Map<String, String> optionalParameters,
+			boolean disableCacheForRequest) {
+		assertNotNull(tokenEndpoint, "tokenEndpoint is required");
+		assertNotNull(clientIdentity, "clientIdentity is required");
+		assertNotNull(token, "token is required");
+
+		Map<String, String> parameters = new RequestParameterBuilder()
+				.withGrantType(GRANT_TYPE_JWT_BEARER)
+				.withClientIdentity(clientIdentity)
+				.withToken(token)
+				.withOptionalParameters(optionalParameters)
+				.buildAsMap();
+
+		HttpHeaders headers = HttpHeadersFactory.createWithoutAuthorizationHeader();
+
+		return getOAuth2TokenResponseAsync(tokenEndpoint, headers, parameters, subdomain, disableCacheForRequest);
+	}
+
 	/**
 	 * Implements the HTTP client specific logic to perform an HTTP request and handle the response.
 	 *
@@ -221,6 +429,30 @@ public abstract class AbstractOAuth2TokenService implements OAuth2TokenService,
 	protected abstract OAuth2TokenResponse requestAccessToken(URI tokenEndpointUri, HttpHeaders headers,
 			Map<String, String> parameters) throws OAuth2ServiceException;
 
+	/**
+	 * Implements the HTTP client specific logic to perform an asynchronous HTTP request and handle the response. By
+	 * default, the request is performed synchronously on the calling thread with
+	 * {@link #requestAccessToken(URI, HttpHeaders, Map)}, implementations with a non-blocking HTTP client should
+	 * override it.
+	 *
+	 * @param tokenEndpointUri
+	 * 		the URI of the token endpoint the request must be sent to.
+	 * @param headers
+	 * 		the HTTP headers that must be sent with the request.
+	 * @param parameters
+	 * 		a map of request parameters that must be sent with the request.
+	 * @return the future of the token response, that completes exceptionally with an {@link OAuth2ServiceException}
+	 * when the request to the token endpoint fails or returns an error code.
+	 */
+	protected CompletableFuture<OAuth2TokenResponse> requestAccessTokenAsync(URI tokenEndpointUri,
+			HttpHeaders headers, Map<String, String> parameters) {
+		try {
+			return CompletableFuture.completedFuture(requestAccessToken(tokenEndpointUri, headers, parameters));
+		} catch (OAuth2ServiceException | RuntimeException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+
 	private OAuth2TokenResponse getOAuth2TokenResponse(@Nonnull URI tokenEndpointUri, HttpHeaders headers,
 			Map<String, String> additionalParameters,
 			@Nullable String subdomain, boolean disableCacheForRequest) throws OAuth2ServiceException {
@@ -231,6 +463,64 @@ public abstract class AbstractOAuth2TokenService implements OAuth2TokenService,
 		return getOrRequestAccessToken(tokenEndpointUriWithSubdomainReplaced, headers, additionalParameters);
 	}
 
+	private CompletableFuture<OAuth2TokenResponse> getOAuth2TokenResponseAsync(@Nonnull URI tokenEndpointUri,
+			HttpHeaders headers, Map<String, String> additionalParameters, @Nullable String subdomain,
+			boolean disableCacheForRequest) {
+		URI tokenEndpointUriWithSubdomainReplaced = UriUtil.replaceSubdomain(tokenEndpointUri, subdomain);
+		if (isCacheDisabled() || disableCacheForRequest) {
+			return requestAccessTokenAsync(tokenEndpointUriWithSubdomainReplaced, headers, additionalParameters);
+		}
+		TokenRequest tokenRequest = new TokenRequest(tokenEndpointUriWithSubdomainReplaced, headers,
+				additionalParameters);
+		CacheKey cacheKey = tokenRequest.cacheKey;
+		OAuth2TokenResponse response = responseCache.getIfPresent(cacheKey);
+		if (response != null && !needsRefresh(response)) {
+			LOGGER.debug("The token was found in cache");
+			markUsed(cacheKey);
+			return CompletableFuture.completedFuture(response);
+		}
+		CompletableFuture<OAuth2TokenResponse> request = new CompletableFuture<>();
+		CompletableFuture<OAuth2TokenResponse> inFlightRequest = inFlightRequests.putIfAbsent(cacheKey, request);
+		if (inFlightRequest != null) {
+			LOGGER.debug("Identical token request is in progress, using its response");
+			return inFlightRequest.copy();
+		}
+		OAuth2TokenResponse cachedResponse = getCachedTokenReplacing(cacheKey, response);
+		if (cachedResponse != null) {
+			inFlightRequests.remove(cacheKey, request);
+			request.complete(cachedResponse);
+			return request.copy();
+		}
+		CompletableFuture<OAuth2TokenResponse> pendingResponse;
+		try {
+			OAuth2TokenResponse sharedResponse = getSharedToken(tokenRequest);
+			if (sharedResponse != null) {
+				pendingResponse = CompletableFuture.completedFuture(sharedResponse);
+			} else {
+				LOGGER.debug("Requesting token asynchronously");
+				pendingResponse = requestAccessTokenAsync(tokenRequest.tokenEndpointUri, tokenRequest.headers,
+						tokenRequest.parameters).thenApply(tokenResponse -> {
+							putSharedToken(tokenRequest, tokenResponse);
+							return tokenResponse;
+						});
+			}
+		} catch (RuntimeException | Error e) {
+			pendingResponse = CompletableFuture.failedFuture(e);
+		}
+		pendingResponse.whenComplete((tokenResponse, error) -> {
+			inFlightRequests.remove(cacheKey, request);
+			if (error != null) {
+				request.completeExceptionally(
+						error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+			} else {
+				responseCache.put(cacheKey, tokenResponse);
+				scheduleRefresh(tokenRequest, tokenResponse);
+				request.complete(tokenResponse);
+			}
+		});
+		return request.copy();
+	}
+
 	private OAuth2TokenResponse getOrRequestAccessToken(URI tokenEndpoint, HttpHeaders headers,
 			Map<String, String> parameters) throws OAuth2ServiceException {
 		LOGGER.debug("Token was requested for endpoint uri={} with headers={} and parameters={}", tokenEndpoint,
@@ -241,27 +531,37 @@ public abstract class AbstractOAuth2TokenService implements OAuth2TokenService,
 					}
 					return e;
 				}).collect(Collectors.toList()));
-		CacheKey cacheKey = new CacheKey(tokenEndpoint, headers, parameters);
-		OAuth2TokenResponse oAuth2TokenResponse = responseCache.getIfPresent(cacheKey);
-		if (oAuth2TokenResponse == null) {
+		TokenRequest tokenRequest = new TokenRequest(tokenEndpoint, headers, parameters);
+		OAuth2TokenResponse response = responseCache.getIfPresent(tokenRequest.cacheKey);
+		if (response == null) {
 			LOGGER.debug("Token not found in cache, requesting a new one");
-			getAndCacheToken(cacheKey);
+			response = getAndCacheToken(tokenRequest, null);
 		} else {
 			LOGGER.debug("The token was found in cache");
-			// check if token in cache should be refreshed
-			Duration delta = getCacheConfiguration().getTokenExpirationDelta();
-			Instant expiration = oAuth2TokenResponse.getExpiredAt().minus(delta);
-			if (expiration.isBefore(Instant.now(getClock()))) {
+			markUsed(tokenRequest.cacheKey);
+			if (needsRefresh(response)) {
 				// refresh (soon) expired token
 				LOGGER.debug("The cached token needs to be refreshed, requesting a new one");
-				getAndCacheToken(cacheKey);
+				response = getAndCacheToken(tokenRequest, response);
 			}
 		}
-		OAuth2TokenResponse response = responseCache.getIfPresent(cacheKey);
 		logDebug(response);
 		return response;
 	}
 
+	private boolean needsRefresh(OAuth2TokenResponse cachedResponse) {
+		Duration delta = getCacheConfiguration().getTokenExpirationDelta();
+		Instant expiration = cachedResponse.getExpiredAt().minus(delta);
+		return expiration.isBefore(Instant.now(getClock()));
+	}
+
+	private void markUsed(CacheKey cacheKey) {
+		ScheduledRefresh scheduledRefresh = scheduledRefreshes.get(cacheKey);
+		if (scheduledRefresh != null) {
+			scheduledRefresh.used = true;
+		}
+	}
+
 	private void logDebug(OAuth2TokenResponse response) {
 		if (!LOGGER.isDebugEnabled()) {
 			return;
@@ -284,9 +584,225 @@ public abstract class AbstractOAuth2TokenService implements OAuth2TokenService,
 		return Clock.systemUTC();
 	}
 
-	private void getAndCacheToken(CacheKey cacheKey) throws OAuth2ServiceException {
-		responseCache.put(cacheKey,
-				requestAccessToken(cacheKey.tokenEndpointUri, cacheKey.headers, cacheKey.parameters));
+	/**
+	 * Time a request waits for the result of an identical token request that is already in progress. This method can
+	 * be overridden for testing purposes.
+	 *
+	 * @return the timeout
+	 */
+	protected Duration getInFlightRequestTimeout() {
+		return IN_FLIGHT_REQUEST_TIMEOUT;
+	}
+
+	/**
+	 * Requests the token and caches it. Concurrent requests for the same cache key are coalesced: only the first one
+	 * requests the token, the others wait for its result. A failed request is not cached, its error is propagated to
+	 * all waiting requests.
+	 *
+	 * @param replacedResponse
+	 * 		the cached token that is replaced, null if there is none
+	 */
+	private OAuth2TokenResponse getAndCacheToken(TokenRequest tokenRequest,
+			@Nullable OAuth2TokenResponse replacedResponse) throws OAuth2ServiceException {
+		CacheKey cacheKey = tokenRequest.cacheKey;
+		CompletableFuture<OAuth2TokenResponse> request = new CompletableFuture<>();
+		CompletableFuture<OAuth2TokenResponse> inFlightRequest = inFlightRequests.putIfAbsent(cacheKey, request);
+		if (inFlightRequest != null) {
+			LOGGER.debug("Identical token request is in progress, waiting for its response");
+			return awaitInFlightRequest(inFlightRequest);
+		}
+		try {
+			OAuth2TokenResponse response = getCachedTokenReplacing(cacheKey, replacedResponse);
+			if (response == null) {
+				response = getSharedTokenOrRequestAccessToken(tokenRequest);
+				responseCache.put(cacheKey, response);
+				scheduleRefresh(tokenRequest, response);
+			}
+			request.complete(response);
+			return response;
+		} catch (Throwable e) {
+			request.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlightRequests.remove(cacheKey, request);
+		}
+	}
+
+	/**
+	 * Returns the token that an identical request has cached after the given token was looked up, i.e. between the
+	 * cache lookup of this request and the start of its coalesced token request.
+	 */
+	@Nullable
+	private OAuth2TokenResponse getCachedTokenReplacing(CacheKey cacheKey,
+			@Nullable OAuth2TokenResponse replacedResponse) {
+		OAuth2TokenResponse response = responseCache.getIfPresent(cacheKey);
+		if (response == null || response == replacedResponse || needsRefresh(response)) {
+			return null;
+		}
+		LOGGER.debug("The token has been cached by an identical request in the meantime");
+		return response;
+	}
+
+	/**
+	 * Looks up the token in the shared cache before it is requested. Only the instance that holds the lock of the
+	 * shared cache requests the token. The other instances poll the shared cache and try to acquire the lock until the
+	 * token has been stored or the lock has been acquired, i.e. the lock owner has failed, but at most for the lease
+	 * time. The lease time is half the {@link #getInFlightRequestTimeout()}, so that the requests waiting for this
+	 * request in progress are not timed out while it waits.
+	 */
+	private OAuth2TokenResponse getSharedTokenOrRequestAccessToken(TokenRequest tokenRequest)
+			throws OAuth2ServiceException {
+		SharedTokenCacheClient sharedCache = getSharedTokenCache(tokenRequest);
+		if (sharedCache == null) {
+			return requestAccessToken(tokenRequest.tokenEndpointUri, tokenRequest.headers, tokenRequest.parameters);
+		}
+		OAuth2TokenResponse response = getSharedToken(tokenRequest);
+		if (response != null) {
+			return response;
+		}
+		String key = tokenRequest.cacheKey.toHex();
+		Duration leaseTime = getInFlightRequestTimeout().dividedBy(2);
+		boolean locked = sharedCache.tryLock(key, leaseTime);
+		try {
+			if (!locked) {
+				LOGGER.debug("Token is requested by another instance, waiting for it in shared token cache");
+				long deadline = System.nanoTime() + leaseTime.toNanos();
+				while (!locked && System.nanoTime() < deadline) {
+					pauseSharedTokenCachePolling(leaseTime);
+					response = getSharedToken(tokenRequest);
+					if (response != null) {
+						return response;
+					}
+					locked = sharedCache.tryLock(key, leaseTime);
+				}
+				if (!locked) {
+					LOGGER.debug("Token has not been stored in shared token cache within {} ms, requesting it",
+							leaseTime.toMillis());
+				}
+			}
+			response = getSharedToken(tokenRequest);
+			if (response != null) {
+				return response;
+			}
+			response = requestAccessToken(tokenRequest.tokenEndpointUri, tokenRequest.headers,
+					tokenRequest.parameters);
+			putSharedToken(tokenRequest, response);
+			return response;
+		} finally {
+			if (locked) {
+				sharedCache.unlock(key);
+			}
+		}
+	}
+
+	private static void pauseSharedTokenCachePolling(Duration leaseTime) throws OAuth2ServiceException {
+		try {
+			Thread.sleep(Math.min(SHARED_TOKEN_CACHE_POLL_INTERVAL.toMillis(), leaseTime.toMillis()));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OAuth2ServiceException("Interrupted while waiting for token in shared token cache");
+		}
+	}
+
+	/**
+	 * Returns the shared token cache, if the token of the request is shared, i.e. if it is a token of the client
+	 * credentials flow.
+	 */
+	@Nullable
+	private SharedTokenCacheClient getSharedTokenCache(TokenRequest tokenRequest) {
+		return tokenRequest.isClientCredentialsGrant() ? sharedTokenCache : null;
+	}
+
+	@Nullable
+	private OAuth2TokenResponse getSharedToken(TokenRequest tokenRequest) {
+		SharedTokenCacheClient sharedCache = getSharedTokenCache(tokenRequest);
+		if (sharedCache == null) {
+			return null;
+		}
+		OAuth2TokenResponse response = sharedCache.get(tokenRequest.cacheKey.toHex());
+		if (response == null || needsRefresh(response)) {
+			return null;
+		}
+		LOGGER.debug("The token was found in shared token cache");
+		return response;
+	}
+
+	private void putSharedToken(TokenRequest tokenRequest, OAuth2TokenResponse response) {
+		SharedTokenCacheClient sharedCache = getSharedTokenCache(tokenRequest);
+		Duration timeToLive = timeToLive(response);
+		if (sharedCache != null && !timeToLive.isZero()) {
+			sharedCache.put(tokenRequest.cacheKey.toHex(), response, timeToLive);
+		}
+	}
+
+	/**
+	 * The scheduled refresh keeps the token request, including its client credentials, until the refresh is performed
+	 * or the token is removed from the cache, as it can not be restored from the cache key.
+	 */
+	private void scheduleRefresh(TokenRequest tokenRequest, OAuth2TokenResponse response) {
+		ScheduledExecutorService scheduler = refreshScheduler;
+		Executor executor = refreshExecutor;
+		if (scheduler == null || response.getExpiredAt() == null || !tokenRequest.isClientCredentialsGrant()) {
+			return;
+		}
+		Instant now = Instant.now(getClock());
+		Instant refreshAt = response.getExpiredAt().minus(getCacheConfiguration().getTokenExpirationDelta());
+		Instant evictedAt = now.plus(getCacheConfiguration().getCacheDuration());
+		if (evictedAt.isBefore(refreshAt)) {
+			refreshAt = evictedAt;
+		}
+		long lead = Duration.between(now, refreshAt).toMillis();
+		if (lead <= 0) {
+			return;
+		}
+		long delay = lead - (long) (lead * REFRESH_AHEAD_JITTER * random.getAsDouble());
+		ScheduledRefresh scheduledRefresh = new ScheduledRefresh(response);
+		ScheduledRefresh previous = scheduledRefreshes.put(tokenRequest.cacheKey, scheduledRefresh);
+		if (previous != null) {
+			previous.cancel();
+		}
+		LOGGER.debug("Scheduled refresh of cached token in {} ms", delay);
+		scheduledRefresh.future = scheduler.schedule(
+				() -> executor.execute(() -> refresh(tokenRequest, scheduledRefresh)), delay, TimeUnit.MILLISECONDS);
+	}
+
+	private void refresh(TokenRequest tokenRequest, ScheduledRefresh scheduledRefresh) {
+		if (!scheduledRefreshes.remove(tokenRequest.cacheKey, scheduledRefresh)) {
+			return; // replaced by a newer token or removed from cache
+		}
+		if (!scheduledRefresh.used) {
+			LOGGER.debug("Cached token has not been used since it was requested, it is not refreshed");
+			return;
+		}
+		try {
+			LOGGER.debug("Refreshing cached token in background");
+			getAndCacheToken(tokenRequest, responseCache.getIfPresent(tokenRequest.cacheKey));
+		} catch (OAuth2ServiceException | RuntimeException e) {
+			LOGGER.warn("Background refresh of cached token failed, it will be requested when needed: {}",
+					e.getMessage());
+		}
+	}
+
+	private OAuth2TokenResponse awaitInFlightRequest(CompletableFuture<OAuth2TokenResponse> inFlightRequest)
+			throws OAuth2ServiceException {
+		Duration timeout = getInFlightRequestTimeout();
+		try {
+			return inFlightRequest.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof OAuth2ServiceException oAuth2Exception) {
+				throw oAuth2Exception;
+			}
+			if (e.getCause() instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			throw new OAuth2ServiceException("Error retrieving JWT token: " + e.getCause());
+		} catch (TimeoutException e) {
+			throw new OAuth2ServiceException(
+					"Timed out after " + timeout.toMillis() + " ms waiting for identical token request in progress");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OAuth2ServiceException("Interrupted while waiting for identical token request in progress");
+		}
 	}
 
 	private boolean isCacheDisabled() {
@@ -294,10 +810,11 @@ public abstract class AbstractOAuth2TokenService implements OAuth2TokenService,
 	}
 
 	private Cache<CacheKey, OAuth2TokenResponse> createResponseCache(Ticker cacheTicker, boolean sameThreadCache) {
-		Caffeine<Object, Object> cacheBuilder = Caffeine.newBuilder()
+		Caffeine<CacheKey, OAuth2TokenResponse> cacheBuilder = Caffeine.newBuilder()
 				.maximumSize(getCacheConfiguration().getCacheSize())
 				.ticker(cacheTicker)
-				.expireAfterWrite(getCacheConfiguration().getCacheDuration());
+				.expireAfter(new TokenExpiry())
+				.removalListener(this::cancelRefresh);
 		if (sameThreadCache) {
 			cacheBuilder.executor(Runnable::run);
 		}
@@ -307,21 +824,168 @@ public abstract class AbstractOAuth2TokenService implements OAuth2TokenService,
 		return cacheBuilder.build();
 	}
 
+	/**
+	 * Cancels the scheduled refresh of a token that has been removed from the cache, e.g. as the cache is full. The
+	 * refresh of a token that replaced the removed one is kept.
+	 */
+	private void cancelRefresh(CacheKey cacheKey, OAuth2TokenResponse response, RemovalCause cause) {
+		scheduledRefreshes.computeIfPresent(cacheKey, (key, scheduledRefresh) -> {
+			if (scheduledRefresh.response != response) {
+				return scheduledRefresh;
+			}
+			scheduledRefresh.cancel();
+			return null;
+		});
+	}
+
+	/**
+	 * Cached tokens expire when they need to be refreshed, i.e. {@link TokenCacheConfiguration#getTokenExpirationDelta()}
+	 * before their expiration time, but after {@link TokenCacheConfiguration#getCacheDuration()} at the latest.
+	 */
+	private class TokenExpiry implements Expiry<CacheKey, OAuth2TokenResponse> {
+
+		@Override
+		public long expireAfterCreate(CacheKey key, OAuth2TokenResponse response, long currentTime) {
+			return timeToLive(response).toNanos();
+		}
+
+		@Override
+		public long expireAfterUpdate(CacheKey key, OAuth2TokenResponse response, long currentTime,
+				long currentDuration) {
+			return timeToLive(response).toNanos();
+		}
+
+		@Override
+		public long expireAfterRead(CacheKey key, OAuth2TokenResponse response, long currentTime,
+				long currentDuration) {
+			return currentDuration;
+		}
+	}
+
+	private Duration timeToLive(OAuth2TokenResponse response) {
+		Duration cacheDuration = getCacheConfiguration().getCacheDuration();
+		if (response.getExpiredAt() == null) {
+			return cacheDuration;
+		}
+		Instant refreshAt = response.getExpiredAt().minus(getCacheConfiguration().getTokenExpirationDelta());
+		Duration untilRefresh = Duration.between(Instant.now(getClock()), refreshAt);
+		if (untilRefresh.isNegative()) {
+			return Duration.ZERO;
+		}
+		return untilRefresh.compareTo(cacheDuration) < 0 ? untilRefresh : cacheDuration;
+	}
+
 	@Override
 	public Object getCacheStatistics() {
 		return getCacheConfiguration().isCacheStatisticsEnabled() ? responseCache.stats() : null;
 	}
 
-	private static class CacheKey {
+	private static class ScheduledRefresh {
+		private final OAuth2TokenResponse response;
+		private volatile boolean used;
+		private volatile Future<?> future;
+
+		ScheduledRefresh(OAuth2TokenResponse response) {
+			this.response = response;
+		}
+
+		void cancel() {
+			Future<?> scheduled = future;
+			if (scheduled != null) {
+				scheduled.cancel(false);
+			}
+		}
+	}
+
+	private static class RefreshAheadExecutor {
+		private static final int MAX_THREADS = 4;
+		private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+				runnable -> {
+					Thread thread = new Thread(runnable, "token-refresh-ahead-scheduler");
+					thread.setDaemon(true);
+					return thread;
+				});
+		private static final ThreadPoolExecutor WORKERS = createWorkers();
+
+		private static ThreadPoolExecutor createWorkers() {
+			AtomicInteger threadNumber = new AtomicInteger();
+			ThreadPoolExecutor workers = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<>(), runnable -> {
+						Thread thread = new Thread(runnable, "token-refresh-ahead-" + threadNumber.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					});
+			workers.allowCoreThreadTimeOut(true);
+			return workers;
+		}
+	}
 
+	private static class TokenRequest {
 		private final URI tokenEndpointUri;
 		private final HttpHeaders headers;
 		private final Map<String, String> parameters;
+		private final CacheKey cacheKey;
 
-		public CacheKey(URI tokenEndpointUri, HttpHeaders headers, Map<String, String> parameters) {
+		TokenRequest(URI tokenEndpointUri, HttpHeaders headers, Map<String, String> parameters) {
 			this.tokenEndpointUri = tokenEndpointUri;
 			this.headers = headers;
 			this.parameters = parameters;
+			this.cacheKey = CacheKey.of(tokenEndpointUri, headers, parameters);
+		}
+
+		boolean isClientCredentialsGrant() {
+			return GRANT_TYPE_CLIENT_CREDENTIALS.equals(parameters.get(GRANT_TYPE));
+		}
+	}
+
+	/**
+	 * Identifies a token request by the SHA-256 digest of its token endpoint, headers and parameters. The key neither
+	 * keeps the client secret, password or assertion of the request in memory nor needs to hash them on every lookup.
+	 */
+	static final class CacheKey {
+		private final byte[] digest;
+		private final int hashCode;
+
+		private CacheKey(byte[] digest) {
+			this.digest = digest;
+			this.hashCode = Arrays.hashCode(digest);
+		}
+
+		static CacheKey of(URI tokenEndpointUri, HttpHeaders headers, Map<String, String> parameters) {
+			MessageDigest messageDigest;
+			try {
+				messageDigest = MessageDigest.getInstance("SHA-256");
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException("SHA-256 is not supported", e);
+			}
+			update(messageDigest, String.valueOf(tokenEndpointUri));
+			List<HttpHeader> sortedHeaders = new ArrayList<>(headers.getHeaders());
+			sortedHeaders.sort(Comparator.comparing(HttpHeader::getName, Comparator.nullsFirst(String::compareTo))
+					.thenComparing(HttpHeader::getValue, Comparator.nullsFirst(String::compareTo)));
+			update(messageDigest, String.valueOf(sortedHeaders.size()));
+			for (HttpHeader header : sortedHeaders) {
+				update(messageDigest, header.getName());
+				update(messageDigest, header.getValue());
+			}
+			Map<String, String> sortedParameters = new TreeMap<>(Comparator.nullsFirst(String::compareTo));
+			sortedParameters.putAll(parameters);
+			update(messageDigest, String.valueOf(sortedParameters.size()));
+			for (Map.Entry<String, String> parameter : sortedParameters.entrySet()) {
+				update(messageDigest, parameter.getKey());
+				update(messageDigest, parameter.getValue());
+			}
+			return new CacheKey(messageDigest.digest());
+		}
+
+		private static void update(MessageDigest messageDigest, String value) {
+			// length prefix makes the encoding unambiguous, null is distinguished from all strings
+			if (value == null) {
+				messageDigest.update(ByteBuffer.allocate(Integer.BYTES).putInt(-1).array());
+				return;
+			}
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			messageDigest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+			messageDigest.update(bytes);
 		}
 
 		@Override
@@ -330,24 +994,24 @@ public abstract class AbstractOAuth2TokenService implements OAuth2TokenService,
 				return true;
 			if (o == null || getClass() != o.getClass())
 				return false;
-			CacheKey cacheKey = (CacheKey) o;
-			return Objects.equals(tokenEndpointUri, cacheKey.tokenEndpointUri) &&
-					Objects.equals(headers, cacheKey.headers) &&
-					Objects.equals(parameters, cacheKey.parameters);
+			return Arrays.equals(digest, ((CacheKey) o).digest);
 		}
 
 		@Override
 		public int hashCode() {
-			return Objects.hash(tokenEndpointUri, headers, parameters);
+			return hashCode;
+		}
+
+		/**
+		 * @return the hex encoded digest, used as key of the {@link SharedTokenCache}
+		 */
+		String toHex() {
+			return HexFormat.of().formatHex(digest);
 		}
 
 		@Override
 		public String toString() {
-			return "CacheKey{" +
-					"tokenEndpointUri=" + tokenEndpointUri +
-					", headers=" + headers + // only list of references
-					", parameters=" + parameters +
-					'}';
+			return "CacheKey{" + HexFormat.of().formatHex(digest, 0, 8) + '}';
 		}
 	}
 
@@ -0,0 +1,109 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.xsuaa.client;
+
+import com.sap.cloud.security.client.AsyncHttpClientFactory;
+import com.sap.cloud.security.token.SecurityContext;
+import com.sap.cloud.security.xsuaa.Assertions;
+import com.sap.cloud.security.xsuaa.util.HttpClientUtil;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static com.sap.cloud.security.xsuaa.http.HttpHeaders.X_OSB_PLAN;
+
+/**
+ * {@link OAuth2TokenKeyService} based on the async client of Apache HttpClient 5, see
+ * {@link AsyncHttpClientFactory}. {@link #retrieveTokenKeysAsync(URI, Map)} retrieves the token keys without blocking
+ * a thread.
+ */
+public class AsyncHttpClientOAuth2TokenKeyService implements OAuth2TokenKeyService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(AsyncHttpClientOAuth2TokenKeyService.class);
+
+	private final CloseableHttpAsyncClient httpClient;
+
+	public AsyncHttpClientOAuth2TokenKeyService() {
+		this(AsyncHttpClientFactory.create(null));
+	}
+
+	public AsyncHttpClientOAuth2TokenKeyService(@Nonnull CloseableHttpAsyncClient httpClient) {
+		Assertions.assertNotNull(httpClient, "httpClient is required");
+		this.httpClient = httpClient;
+		this.httpClient.start();
+	}
+
+	@Override
+	public String retrieveTokenKeys(@Nonnull URI tokenKeysEndpointUri, Map<String, String> params)
+			throws OAuth2ServiceException {
+		SimpleHttpResponse response = AsyncHttpClientRequests.await(requestTokenKeys(tokenKeysEndpointUri, params));
+		setServicePlans(response);
+		return response.getBodyText();
+	}
+
+	/**
+	 * Asynchronous variant of {@link #retrieveTokenKeys(URI, Map)}. As the response is received on another thread,
+	 * the service plans of the response are not set on the {@link SecurityContext}.
+	 *
+	 * @param tokenKeysEndpointUri
+	 * 		the JWKS endpoint URI.
+	 * @param params
+	 * 		additional header parameters that are sent along with the request.
+	 * @return the future JWKS in JSON format, completed exceptionally with an {@link OAuth2ServiceException} in case
+	 * 		of an error during the http request.
+	 */
+	public CompletableFuture<String> retrieveTokenKeysAsync(@Nonnull URI tokenKeysEndpointUri,
+			Map<String, String> params) {
+		return requestTokenKeys(tokenKeysEndpointUri, params).thenApply(SimpleHttpResponse::getBodyText);
+	}
+
+	private CompletableFuture<SimpleHttpResponse> requestTokenKeys(URI tokenKeysEndpointUri,
+			Map<String, String> params) {
+		Assertions.assertNotNull(tokenKeysEndpointUri, "Token key endpoint must not be null!");
+		SimpleRequestBuilder requestBuilder = SimpleRequestBuilder.get(tokenKeysEndpointUri);
+		for (Map.Entry<String, String> p : params.entrySet()) {
+			requestBuilder.addHeader(p.getKey(), p.getValue());
+		}
+		requestBuilder.addHeader(HttpHeaders.USER_AGENT, HttpClientUtil.getUserAgent());
+		LOGGER.debug("Executing token key retrieval GET request to {} with headers: {} ", tokenKeysEndpointUri,
+				params);
+		return AsyncHttpClientRequests.execute(httpClient, tokenKeysEndpointUri, requestBuilder.build(),
+				"Error retrieving token keys", response -> {
+					int statusCode = response.getCode();
+					LOGGER.debug("Received statusCode {}", statusCode);
+					if (statusCode != HttpStatus.SC_OK) {
+						throw OAuth2ServiceException.builder("Error retrieving token keys. Request headers " + params)
+								.withUri(tokenKeysEndpointUri)
+								.withHeaders(AsyncHttpClientRequests.headers(response))
+								.withStatusCode(statusCode)
+								.withResponseBody(response.getBodyText())
+								.build();
+					}
+					LOGGER.debug("Successfully retrieved token keys from {} with params {}.", tokenKeysEndpointUri,
+							params);
+					return response;
+				});
+	}
+
+	private static void setServicePlans(SimpleHttpResponse response) {
+		// required for Identity Service App2Service communication, see DefaultOAuth2TokenKeyService
+		Header xOsbPlan = response.getFirstHeader(X_OSB_PLAN);
+		if (xOsbPlan != null && xOsbPlan.getValue() != null) {
+			SecurityContext.setServicePlans(xOsbPlan.getValue());
+		}
+	}
+
+}
@@ -0,0 +1,96 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.xsuaa.client;
+
+import com.sap.cloud.security.client.AsyncHttpClientFactory;
+import com.sap.cloud.security.servlet.MDCHelper;
+import com.sap.cloud.security.xsuaa.Assertions;
+import com.sap.cloud.security.xsuaa.http.HttpHeaders;
+import com.sap.cloud.security.xsuaa.tokenflows.TokenCacheConfiguration;
+import com.sap.cloud.security.xsuaa.util.HttpClientUtil;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.http.ContentType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link OAuth2TokenService} based on the async client of Apache HttpClient 5, see
+ * {@link AsyncHttpClientFactory}. The asynchronous token requests, e.g.
+ * {@link #retrieveAccessTokenViaClientCredentialsGrantAsync}, are performed without blocking a thread.
+ */
+public class AsyncHttpClientOAuth2TokenService extends AbstractOAuth2TokenService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(AsyncHttpClientOAuth2TokenService.class);
+	private static final String ERROR_MESSAGE = "Unexpected error retrieving JWT token";
+
+	private final CloseableHttpAsyncClient httpClient;
+
+	/**
+	 * Creates the token service with the async client for client credentials based identities, see
+	 * {@link AsyncHttpClientFactory#create}.
+	 */
+	public AsyncHttpClientOAuth2TokenService() {
+		this(AsyncHttpClientFactory.create(null));
+	}
+
+	public AsyncHttpClientOAuth2TokenService(@Nonnull CloseableHttpAsyncClient httpClient) {
+		this(httpClient, TokenCacheConfiguration.defaultConfiguration());
+	}
+
+	public AsyncHttpClientOAuth2TokenService(@Nonnull CloseableHttpAsyncClient httpClient,
+			@Nonnull TokenCacheConfiguration tokenCacheConfiguration) {
+		super(tokenCacheConfiguration);
+		Assertions.assertNotNull(httpClient, "http client is required");
+		this.httpClient = httpClient;
+		this.httpClient.start();
+	}
+
+	@Override
+	protected OAuth2TokenResponse requestAccessToken(URI tokenEndpointUri, HttpHeaders headers,
+			Map<String, String> parameters) throws OAuth2ServiceException {
+		return AsyncHttpClientRequests.await(requestAccessTokenAsync(tokenEndpointUri, headers, parameters));
+	}
+
+	@Override
+	protected CompletableFuture<OAuth2TokenResponse> requestAccessTokenAsync(URI tokenEndpointUri,
+			HttpHeaders headers, Map<String, String> parameters) {
+		String body = FormUrlEncoding.encode(parameters);
+		SimpleRequestBuilder requestBuilder = SimpleRequestBuilder.post(tokenEndpointUri)
+				.setBody(body, ContentType.APPLICATION_FORM_URLENCODED);
+		headers.getHeaders().forEach(h -> requestBuilder.setHeader(h.getName(), h.getValue()));
+		requestBuilder.setHeader(MDCHelper.CORRELATION_HEADER, MDCHelper.getOrCreateCorrelationId());
+		requestBuilder.setHeader("User-Agent", HttpClientUtil.getUserAgent());
+		SimpleHttpRequest request = requestBuilder.build();
+		LOGGER.debug("Requesting access token from url {} with headers {}", tokenEndpointUri, headers);
+		return AsyncHttpClientRequests.execute(httpClient, tokenEndpointUri, request, ERROR_MESSAGE,
+				response -> convertResponse(tokenEndpointUri, response));
+	}
+
+	private static OAuth2TokenResponse convertResponse(URI tokenEndpointUri, SimpleHttpResponse response)
+			throws OAuth2ServiceException {
+		int statusCode = response.getCode();
+		LOGGER.debug("Received statusCode {} via {}", statusCode, response.getVersion());
+		if (statusCode != 200) {
+			LOGGER.debug("Received response body: {}", response.getBodyText());
+			throw OAuth2ServiceException.builder("Error retrieving JWT token")
+					.withStatusCode(statusCode)
+					.withUri(tokenEndpointUri)
+					.withHeaders(AsyncHttpClientRequests.headers(response))
+					.withResponseBody(response.getBodyText())
+					.build();
+		}
+		return OAuth2TokenResponse.fromJson(response.getBodyText());
+	}
+
+}
@@ -0,0 +1,73 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.xsuaa.client;
+
+import com.sap.cloud.security.client.AsyncHttpClientFactory;
+import com.sap.cloud.security.xsuaa.Assertions;
+import com.sap.cloud.security.xsuaa.util.HttpClientUtil;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpStatus;
+
+import javax.annotation.Nonnull;
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link OidcConfigurationService} based on the async client of Apache HttpClient 5, see
+ * {@link AsyncHttpClientFactory}. {@link #retrieveEndpointsAsync(URI)} retrieves the configuration without blocking a
+ * thread.
+ */
+public class AsyncHttpClientOidcConfigurationService implements OidcConfigurationService {
+
+	private static final String ERROR_MESSAGE = "Error retrieving configured oidc endpoints";
+
+	private final CloseableHttpAsyncClient httpClient;
+
+	public AsyncHttpClientOidcConfigurationService() {
+		this(AsyncHttpClientFactory.create(null));
+	}
+
+	public AsyncHttpClientOidcConfigurationService(@Nonnull CloseableHttpAsyncClient httpClient) {
+		Assertions.assertNotNull(httpClient, "httpClient is required");
+		this.httpClient = httpClient;
+		this.httpClient.start();
+	}
+
+	@Override
+	public OAuth2ServiceEndpointsProvider retrieveEndpoints(@Nonnull URI discoveryEndpointUri)
+			throws OAuth2ServiceException {
+		return AsyncHttpClientRequests.await(retrieveEndpointsAsync(discoveryEndpointUri));
+	}
+
+	/**
+	 * Asynchronous variant of {@link #retrieveEndpoints(URI)}.
+	 *
+	 * @param discoveryEndpointUri
+	 * 		the discovery endpoint URI, see {@link DefaultOidcConfigurationService#getDiscoveryEndpointUri(String)}
+	 * @return the future endpoints, completed exceptionally with an {@link OAuth2ServiceException} in case of an error
+	 * 		during the http request.
+	 */
+	public CompletableFuture<OAuth2ServiceEndpointsProvider> retrieveEndpointsAsync(@Nonnull URI discoveryEndpointUri) {
+		Assertions.assertNotNull(discoveryEndpointUri, "discoveryEndpointUri must not be null!");
+		SimpleRequestBuilder requestBuilder = SimpleRequestBuilder.get(discoveryEndpointUri)
+				.addHeader(HttpHeaders.USER_AGENT, HttpClientUtil.getUserAgent());
+		return AsyncHttpClientRequests.execute(httpClient, discoveryEndpointUri, requestBuilder.build(),
+				ERROR_MESSAGE, response -> {
+					if (response.getCode() != HttpStatus.SC_OK) {
+						throw OAuth2ServiceException.builder(ERROR_MESSAGE)
+								.withUri(discoveryEndpointUri)
+								.withStatusCode(response.getCode())
+								.withHeaders(AsyncHttpClientRequests.headers(response))
+								.withResponseBody(response.getBodyText())
+								.build();
+					}
+					return new DefaultOidcConfigurationService.OidcEndpointsProvider(response.getBodyText());
+				});
+	}
+
+}
@@ -0,0 +1,95 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.xsuaa.client;
+
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.Header;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Executes requests with a {@link CloseableHttpAsyncClient} (Apache HttpClient 5) for the async services.
+ */
+final class AsyncHttpClientRequests {
+
+	private AsyncHttpClientRequests() {
+	}
+
+	/**
+	 * Converts the response of a request, e.g. to an {@link OAuth2ServiceException} in case of an error status.
+	 */
+	@FunctionalInterface
+	interface ResponseConverter<T> {
+		T convert(SimpleHttpResponse response) throws OAuth2ServiceException;
+	}
+
+	/**
+	 * Executes the request without blocking the calling thread.
+	 *
+	 * @return the future converted response, completed exceptionally with an {@link OAuth2ServiceException} in case
+	 * 		the request failed
+	 */
+	static <T> CompletableFuture<T> execute(CloseableHttpAsyncClient httpClient, URI uri, SimpleHttpRequest request,
+			String errorMessage, ResponseConverter<T> converter) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		httpClient.execute(request, new FutureCallback<>() {
+			@Override
+			public void completed(SimpleHttpResponse response) {
+				try {
+					result.complete(converter.convert(response));
+				} catch (OAuth2ServiceException | RuntimeException e) {
+					result.completeExceptionally(e);
+				}
+			}
+
+			@Override
+			public void failed(Exception e) {
+				result.completeExceptionally(
+						OAuth2ServiceException.builder(errorMessage + ": " + e).withUri(uri).build());
+			}
+
+			@Override
+			public void cancelled() {
+				result.completeExceptionally(
+						OAuth2ServiceException.builder(errorMessage + ": request cancelled").withUri(uri).build());
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Waits for the response of a request executed with {@link #execute}.
+	 */
+	static <T> T await(CompletableFuture<T> response) throws OAuth2ServiceException {
+		try {
+			return response.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof OAuth2ServiceException oAuth2ServiceException) {
+				throw oAuth2ServiceException;
+			}
+			if (e.getCause() instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			throw new OAuth2ServiceException(String.valueOf(e.getCause()));
+		} catch (CancellationException e) {
+			throw new OAuth2ServiceException("Request cancelled");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OAuth2ServiceException("Interrupted while waiting for the response");
+		}
+	}
+
+	static String[] headers(SimpleHttpResponse response) {
+		return Arrays.stream(response.getHeaders()).map(Header::toString).toArray(String[]::new);
+	}
+}
@@ -0,0 +1,298 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.xsuaa.client;
+
+import com.sap.cloud.security.xsuaa.Assertions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Remembers failed requests to identity service hosts, so that requests to a host that is known to be down fail
+ * immediately instead of waiting for the connect or socket timeout.
+ * <p>
+ * After {@link #withFailureThreshold(int) a number of consecutive failures} the circuit of the host opens and requests
+ * are rejected with an {@link OAuth2ServiceException}. Once the backoff has elapsed, the circuit is half-open and a
+ * single probe request is sent. If it succeeds the circuit closes, otherwise it opens again with twice the backoff, up
+ * to the maximum backoff. The backoff is jittered by &plusmn;20% so that several instances of an application do not
+ * probe the host at the same time.
+ * <p>
+ * Connection failures and server errors (5xx) are considered failures, client errors (4xx) are not.
+ */
+public class CircuitBreaker {
+	private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreaker.class);
+	private static final CircuitBreaker INSTANCE = new CircuitBreaker(Clock.systemUTC(),
+			() -> ThreadLocalRandom.current().nextDouble());
+	private static final double JITTER = 0.2;
+
+	private final Map<String, HostCircuit> circuits = new ConcurrentHashMap<>();
+	private final Clock clock;
+	private final DoubleSupplier random;
+	private volatile int failureThreshold = 5;
+	private volatile Duration initialBackoff = Duration.ofSeconds(1);
+	private volatile Duration maxBackoff = Duration.ofMinutes(1);
+
+	/**
+	 * Creates a new instance. This is used for testing.
+	 *
+	 * @param clock
+	 * 		clock to determine time
+	 * @param random
+	 * 		supplies random numbers between 0 (inclusive) and 1 (exclusive) to jitter the backoff
+	 */
+	CircuitBreaker(Clock clock, DoubleSupplier random) {
+		this.clock = clock;
+		this.random = random;
+	}
+
+	/**
+	 * Returns the process-wide instance, which is meant to be shared by all services that request the identity
+	 * service.
+	 *
+	 * @return the shared circuit breaker
+	 */
+	public static CircuitBreaker getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Overwrites the number of consecutive failures after which the circuit of a host opens (default: 5).
+	 *
+	 * @param failureThreshold
+	 * 		number of consecutive failures
+	 * @return this
+	 */
+	public CircuitBreaker withFailureThreshold(int failureThreshold) {
+		if (failureThreshold < 1) {
+			throw new IllegalArgumentException("failureThreshold must be 1 or more");
+		}
+		this.failureThreshold = failureThreshold;
+		return this;
+	}
+
+	/**
+	 * Overwrites the time a circuit stays open before a probe request is sent (default: 1 second) and the maximum
+	 * time it is doubled to in case the probe requests fail (default: 1 minute).
+	 *
+	 * @param initialBackoff
+	 * 		time the circuit stays open after it opened first
+	 * @param maxBackoff
+	 * 		maximum time the circuit stays open
+	 * @return this
+	 */
+	public CircuitBreaker withBackoff(@Nonnull Duration initialBackoff, @Nonnull Duration maxBackoff) {
+		Assertions.assertNotNull(initialBackoff, "initialBackoff must not be null");
+		Assertions.assertNotNull(maxBackoff, "maxBackoff must not be null");
+		if (initialBackoff.isNegative() || initialBackoff.isZero() || maxBackoff.compareTo(initialBackoff) < 0) {
+			throw new IllegalArgumentException("initialBackoff must be positive and must not exceed maxBackoff");
+		}
+		this.initialBackoff = initialBackoff;
+		this.maxBackoff = maxBackoff;
+		return this;
+	}
+
+	/**
+	 * Executes the request unless the circuit of the host is open.
+	 *
+	 * @param uri
+	 * 		the URI of the request, the circuit is determined by its scheme, host and port
+	 * @param request
+	 * 		the request
+	 * @param <T>
+	 * 		the type of the response
+	 * @param <E>
+	 * 		the type of the exception the request may throw
+	 * @return the response
+	 * @throws OAuth2ServiceException
+	 * 		in case the circuit is open
+	 * @throws E
+	 * 		in case the request failed
+	 */
+	public <T, E extends Exception> T execute(@Nonnull URI uri, @Nonnull Request<T, E> request)
+			throws OAuth2ServiceException, E {
+		Assertions.assertNotNull(uri, "uri must not be null");
+		HostCircuit circuit = circuits.computeIfAbsent(toHostKey(uri), HostCircuit::new);
+		if (!circuit.tryAcquire()) {
+			throw OAuth2ServiceException
+					.builder("Request was not sent, circuit breaker of " + circuit.host + " is "
+							+ circuit.getStatistics().state())
+					.withUri(uri)
+					.build();
+		}
+		boolean failed = true;
+		try {
+			T response = request.execute();
+			failed = false;
+			return response;
+		} catch (Exception e) {
+			failed = !(e instanceof OAuth2ServiceException oAuth2Exception) || isFailure(oAuth2Exception);
+			throw e;
+		} finally {
+			if (failed) {
+				circuit.onFailure();
+			} else {
+				circuit.onSuccess();
+			}
+		}
+	}
+
+	static <T, E extends Exception> T execute(@Nullable CircuitBreaker circuitBreaker, URI uri, Request<T, E> request)
+			throws OAuth2ServiceException, E {
+		return circuitBreaker != null ? circuitBreaker.execute(uri, request) : request.execute();
+	}
+
+	/**
+	 * Returns the state of the circuit of the host.
+	 *
+	 * @param uri
+	 * 		any URI of the host
+	 * @return the state
+	 */
+	public State getState(@Nonnull URI uri) {
+		HostCircuit circuit = circuits.get(toHostKey(uri));
+		return circuit != null ? circuit.getStatistics().state() : State.CLOSED;
+	}
+
+	/**
+	 * Returns the statistics of the circuits, by host.
+	 *
+	 * @return the statistics
+	 */
+	public Map<String, Statistics> getStatistics() {
+		return circuits.values().stream()
+				.collect(Collectors.toMap(circuit -> circuit.host, HostCircuit::getStatistics));
+	}
+
+	/**
+	 * Closes all circuits and discards their statistics.
+	 */
+	public void reset() {
+		circuits.clear();
+	}
+
+	private static boolean isFailure(OAuth2ServiceException e) {
+		Integer statusCode = e.getHttpStatusCode();
+		return statusCode == null || statusCode == 0 || statusCode >= 500;
+	}
+
+	private static String toHostKey(URI uri) {
+		return uri.getScheme() + "://" + uri.getAuthority();
+	}
+
+	/**
+	 * A request to the identity service.
+	 *
+	 * @param <T>
+	 * 		the type of the response
+	 * @param <E>
+	 * 		the type of the exception the request may throw
+	 */
+	@FunctionalInterface
+	public interface Request<T, E extends Exception> {
+		T execute() throws E;
+	}
+
+	public enum State {
+		/** Requests are sent. */
+		CLOSED,
+		/** Requests are rejected. */
+		OPEN,
+		/** A probe request is sent, other requests are rejected until it completes. */
+		HALF_OPEN
+	}
+
+	/**
+	 * Statistics of the circuit of a host.
+	 *
+	 * @param state
+	 * 		the current state
+	 * @param consecutiveFailures
+	 * 		the number of failures since the last successful request
+	 * @param failures
+	 * 		the total number of failed requests
+	 * @param rejections
+	 * 		the total number of rejected requests
+	 * @param openUntil
+	 * 		the time a probe request will be sent, in case the circuit is open
+	 */
+	public record Statistics(State state, int consecutiveFailures, long failures, long rejections,
+			@Nullable Instant openUntil) {
+	}
+
+	private class HostCircuit {
+		private final String host;
+		private State state = State.CLOSED;
+		private int consecutiveFailures;
+		private int openings;
+		private Instant openUntil;
+		private long failures;
+		private long rejections;
+
+		HostCircuit(String host) {
+			this.host = host;
+		}
+
+		synchronized boolean tryAcquire() {
+			if (state == State.OPEN && !clock.instant().isBefore(openUntil)) {
+				LOGGER.debug("Circuit of {} is half-open, sending probe request.", host);
+				state = State.HALF_OPEN;
+				return true;
+			}
+			if (state != State.CLOSED) {
+				rejections++;
+				return false;
+			}
+			return true;
+		}
+
+		synchronized void onSuccess() {
+			if (state != State.CLOSED) {
+				LOGGER.info("Circuit of {} is closed again.", host);
+			}
+			state = State.CLOSED;
+			consecutiveFailures = 0;
+			openings = 0;
+			openUntil = null;
+		}
+
+		synchronized void onFailure() {
+			failures++;
+			consecutiveFailures++;
+			if (state == State.HALF_OPEN || state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+				Duration backoff = getBackoff();
+				openUntil = clock.instant().plus(backoff);
+				openings++;
+				state = State.OPEN;
+				LOGGER.warn("Circuit of {} is open for {} ms after {} consecutive failures.", host, backoff.toMillis(),
+						consecutiveFailures);
+			}
+		}
+
+		private Duration getBackoff() {
+			Duration backoff = initialBackoff.multipliedBy(1L << Math.min(openings, 30));
+			if (backoff.compareTo(maxBackoff) > 0 || backoff.isNegative()) {
+				backoff = maxBackoff;
+			}
+			double jitter = 1 - JITTER + 2 * JITTER * random.getAsDouble();
+			return Duration.ofMillis(Math.round(backoff.toMillis() * jitter));
+		}
+
+		synchronized Statistics getStatistics() {
+			return new Statistics(state, consecutiveFailures, failures, rejections, openUntil);
+		}
+	}
+}
@@ -0,0 +1,234 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.xsuaa.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Interner;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpUriRequest;
+
+import javax.annotation.Nullable;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.sap.cloud.security.xsuaa.http.HttpHeaders.X_CLIENT_CERT;
+
+/**
+ * Remembers the {@code ETag}, {@code Last-Modified} and {@code Cache-Control: max-age} response headers together with
+ * the response body of GET requests, so that the next request for the same resource can be sent as conditional
+ * request. A {@code 304 Not Modified} response is then answered with the remembered body. A response with
+ * {@code Cache-Control: no-store} is not remembered, only its max-age of zero is; a response with
+ * {@code Cache-Control: no-cache} is remembered for revalidation.
+ * <p>
+ * Identical bodies are interned, e.g. the token keys of different tenants, so that they are kept in memory only once
+ * and callers can recognize an unchanged body by its identity.
+ */
+final class ConditionalRequestCache {
+	private static final Interner<String> BODY_INTERNER = Interner.newWeakInterner();
+	private static final String MAX_AGE = "max-age=";
+	private static final String NO_CACHE = "no-cache";
+	private static final String NO_STORE = "no-store";
+
+	private final Cache<String, CachedResponse> responses = Caffeine.newBuilder()
+			.maximumSize(10_000)
+			.expireAfterAccess(Duration.ofHours(1))
+			.build();
+
+	/**
+	 * Adds the {@code If-None-Match} and {@code If-Modified-Since} headers to the request, in case a response for the
+	 * request has been remembered.
+	 *
+	 * @param request
+	 * 		the GET request
+	 * @param requestKey
+	 * 		identifies the request, see {@link #toRequestKey(URI, Map)}
+	 * @return the remembered response or null
+	 */
+	@Nullable
+	CachedResponse addConditionalHeaders(HttpUriRequest request, String requestKey) {
+		CachedResponse cachedResponse = responses.getIfPresent(requestKey);
+		if (cachedResponse == null || cachedResponse.body() == null) {
+			return null;
+		}
+		if (cachedResponse.eTag() != null) {
+			request.addHeader(HttpHeaders.IF_NONE_MATCH, cachedResponse.eTag());
+		}
+		if (cachedResponse.lastModified() != null) {
+			request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, cachedResponse.lastModified());
+		}
+		return cachedResponse;
+	}
+
+	/**
+	 * Returns {@code true} if the response confirms that the remembered response is still valid.
+	 *
+	 * @param response
+	 * 		the response of the request
+	 * @param cachedResponse
+	 * 		the remembered response as returned by {@link #addConditionalHeaders(HttpUriRequest, String)}
+	 * @return {@code true} if the remembered body can be used
+	 */
+	static boolean isNotModified(HttpResponse response, @Nullable CachedResponse cachedResponse) {
+		return cachedResponse != null && response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED;
+	}
+
+	/**
+	 * Updates the remembered response with the headers of a {@code 304 Not Modified} response.
+	 *
+	 * @param requestKey
+	 * 		identifies the request
+	 * @param response
+	 * 		the {@code 304 Not Modified} response
+	 * @param cachedResponse
+	 * 		the remembered response
+	 * @return the remembered body
+	 */
+	String onNotModified(String requestKey, HttpResponse response, CachedResponse cachedResponse) {
+		if (hasCacheControlDirective(response, NO_STORE)) {
+			responses.put(requestKey, CachedResponse.NOT_STORED);
+			return cachedResponse.body();
+		}
+		Duration maxAge = parseMaxAge(response);
+		CachedResponse revalidated = new CachedResponse(
+				headerValue(response, HttpHeaders.ETAG, cachedResponse.eTag()),
+				headerValue(response, HttpHeaders.LAST_MODIFIED, cachedResponse.lastModified()),
+				maxAge != null ? maxAge : cachedResponse.maxAge(),
+				cachedResponse.body());
+		responses.put(requestKey, revalidated);
+		return cachedResponse.body();
+	}
+
+	/**
+	 * Remembers a {@code 200 OK} response, in case it provides an {@code ETag}, {@code Last-Modified} or
+	 * {@code Cache-Control: max-age} header and may be stored.
+	 *
+	 * @param requestKey
+	 * 		identifies the request
+	 * @param response
+	 * 		the {@code 200 OK} response
+	 * @param body
+	 * 		the response body
+	 * @return the interned body
+	 */
+	String onOk(String requestKey, HttpResponse response, @Nullable String body) {
+		if (body == null) {
+			responses.invalidate(requestKey);
+			return null;
+		}
+		String internedBody = BODY_INTERNER.intern(body);
+		if (hasCacheControlDirective(response, NO_STORE)) {
+			responses.put(requestKey, CachedResponse.NOT_STORED);
+			return internedBody;
+		}
+		String eTag = headerValue(response, HttpHeaders.ETAG, null);
+		String lastModified = headerValue(response, HttpHeaders.LAST_MODIFIED, null);
+		Duration maxAge = parseMaxAge(response);
+		if (eTag != null || lastModified != null || maxAge != null) {
+			responses.put(requestKey, new CachedResponse(eTag, lastModified, maxAge, internedBody));
+		} else {
+			responses.invalidate(requestKey);
+		}
+		return internedBody;
+	}
+
+	/**
+	 * Returns the {@code Cache-Control: max-age} of the last response for the request.
+	 *
+	 * @param requestKey
+	 * 		identifies the request
+	 * @return the max-age or null if it is not known
+	 */
+	@Nullable
+	Duration getMaxAge(String requestKey) {
+		CachedResponse cachedResponse = responses.getIfPresent(requestKey);
+		return cachedResponse != null ? cachedResponse.maxAge() : null;
+	}
+
+	/**
+	 * Identifies a request by its URI and headers. A forwarded client certificate is represented by its SHA-256
+	 * fingerprint, so that the certificate itself is not kept in memory as part of the key.
+	 */
+	static String toRequestKey(URI uri, @Nullable Map<String, String> headers) {
+		if (headers == null || headers.isEmpty()) {
+			return uri.toString();
+		}
+		return uri + "|" + headers.entrySet().stream()
+				.filter(e -> e.getValue() != null)
+				.sorted(Map.Entry.comparingByKey())
+				.map(e -> e.getKey() + ":" + (X_CLIENT_CERT.equalsIgnoreCase(e.getKey())
+						? fingerprint(e.getValue())
+						: e.getValue()))
+				.collect(Collectors.joining("|"));
+	}
+
+	private static String fingerprint(String certificate) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(certificate.getBytes(StandardCharsets.UTF_8));
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not supported", e);
+		}
+	}
+
+	@Nullable
+	static Duration parseMaxAge(HttpResponse response) {
+		String cacheControl = headerValue(response, HttpHeaders.CACHE_CONTROL, null);
+		if (cacheControl == null) {
+			return null;
+		}
+		for (String directive : cacheControl.split(",")) {
+			String value = directive.trim().toLowerCase(Locale.ROOT);
+			if (value.equals(NO_CACHE) || value.equals(NO_STORE)) {
+				return Duration.ZERO;
+			}
+			if (value.startsWith(MAX_AGE)) {
+				try {
+					return Duration.ofSeconds(Math.max(0, Long.parseLong(value.substring(MAX_AGE.length()))));
+				} catch (NumberFormatException e) {
+					return null;
+				}
+			}
+		}
+		return null;
+	}
+
+	private static boolean hasCacheControlDirective(HttpResponse response, String directive) {
+		String cacheControl = headerValue(response, HttpHeaders.CACHE_CONTROL, null);
+		if (cacheControl == null) {
+			return false;
+		}
+		for (String value : cacheControl.split(",")) {
+			if (value.trim().equalsIgnoreCase(directive)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String headerValue(HttpResponse response, String name, String defaultValue) {
+		Header header = response.getFirstHeader(name);
+		return header != null ? header.getValue() : defaultValue;
+	}
+
+	/**
+	 * The remembered response. The body of a {@code no-store} response is not remembered, see {@link #NOT_STORED}.
+	 */
+	record CachedResponse(@Nullable String eTag, @Nullable String lastModified, @Nullable Duration maxAge,
+			@Nullable String body) {
+		static final CachedResponse NOT_STORED = new CachedResponse(null, null, Duration.ZERO, null);
+	}
+}
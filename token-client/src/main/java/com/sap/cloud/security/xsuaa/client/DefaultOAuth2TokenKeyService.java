@@ -6,12 +6,15 @@
 package com.sap.cloud.security.xsuaa.client;
 
 import com.sap.cloud.security.client.HttpClientFactory;
+import com.sap.cloud.security.client.HttpClientMetrics;
 import com.sap.cloud.security.token.SecurityContext;
 import com.sap.cloud.security.xsuaa.Assertions;
 import com.sap.cloud.security.xsuaa.util.HttpClientUtil;
 import org.apache.http.Header;
 import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
+import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.impl.client.CloseableHttpClient;
@@ -20,9 +23,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Map;
 
@@ -33,6 +38,10 @@ public class DefaultOAuth2TokenKeyService implements OAuth2TokenKeyService {
 	private static final Logger LOGGER = LoggerFactory.getLogger(DefaultOAuth2TokenKeyService.class);
 
 	private final CloseableHttpClient httpClient;
+	private final ConditionalRequestCache conditionalRequestCache = new ConditionalRequestCache();
+	private CircuitBreaker circuitBreaker;
+	private RetryPolicy retryPolicy;
+	private HttpClientMetrics metrics = HttpClientMetrics.getInstance();
 
 	public DefaultOAuth2TokenKeyService() {
 		httpClient = HttpClientFactory.create(null);
@@ -43,6 +52,45 @@ public class DefaultOAuth2TokenKeyService implements OAuth2TokenKeyService {
 		this.httpClient = httpClient;
 	}
 
+	/**
+	 * Rejects requests to hosts that are known to be down, see {@link CircuitBreaker}.
+	 *
+	 * @param circuitBreaker
+	 * 		the circuit breaker, e.g. {@link CircuitBreaker#getInstance()}
+	 * @return this
+	 */
+	public DefaultOAuth2TokenKeyService withCircuitBreaker(@Nonnull CircuitBreaker circuitBreaker) {
+		Assertions.assertNotNull(circuitBreaker, "circuitBreaker must not be null");
+		this.circuitBreaker = circuitBreaker;
+		return this;
+	}
+
+	/**
+	 * Retries requests that failed transiently, see {@link RetryPolicy}.
+	 *
+	 * @param retryPolicy
+	 * 		the retry policy, e.g. {@link RetryPolicy#getInstance()}
+	 * @return this
+	 */
+	public DefaultOAuth2TokenKeyService withRetryPolicy(@Nonnull RetryPolicy retryPolicy) {
+		Assertions.assertNotNull(retryPolicy, "retryPolicy must not be null");
+		this.retryPolicy = retryPolicy;
+		return this;
+	}
+
+	/**
+	 * Overwrites the metrics the requests are reported to (default: {@link HttpClientMetrics#getInstance()}).
+	 *
+	 * @param metrics
+	 * 		the metrics
+	 * @return this
+	 */
+	public DefaultOAuth2TokenKeyService withMetrics(@Nonnull HttpClientMetrics metrics) {
+		Assertions.assertNotNull(metrics, "metrics must not be null");
+		this.metrics = metrics;
+		return this;
+	}
+
 	@Override
 	public String retrieveTokenKeys(@Nonnull URI tokenKeysEndpointUri, Map<String, String> params)
 			throws OAuth2ServiceException {
@@ -53,14 +101,25 @@ public class DefaultOAuth2TokenKeyService implements OAuth2TokenKeyService {
 			request.addHeader(p.getKey(), p.getValue());
 		}
 		request.addHeader(HttpHeaders.USER_AGENT, HttpClientUtil.getUserAgent());
+		String requestKey = ConditionalRequestCache.toRequestKey(tokenKeysEndpointUri, params);
+		ConditionalRequestCache.CachedResponse cachedResponse = conditionalRequestCache
+				.addConditionalHeaders(request, requestKey);
 
 		LOGGER.debug("Executing token key retrieval GET request to {} with headers: {} ", tokenKeysEndpointUri,
 				request.getAllHeaders());
 		try {
-			return httpClient.execute(request, response -> {
+			ResponseHandler<String> responseHandler = response -> {
 				int statusCode = response.getStatusLine().getStatusCode();
 				LOGGER.debug("Received statusCode {}", statusCode);
-				String body = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+				if (ConditionalRequestCache.isNotModified(response, cachedResponse)) {
+					LOGGER.debug("Token keys from {} with params {} are not modified.", tokenKeysEndpointUri, params);
+					EntityUtils.consumeQuietly(response.getEntity());
+					setServicePlans(response);
+					return conditionalRequestCache.onNotModified(requestKey, response, cachedResponse);
+				}
+				String body = response.getEntity() != null
+						? EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8)
+						: null;
 				if (statusCode != HttpStatus.SC_OK) {
 					throw OAuth2ServiceException
 							.builder("Error retrieving token keys. Request headers "
@@ -75,18 +134,13 @@ public class DefaultOAuth2TokenKeyService implements OAuth2TokenKeyService {
 
 				LOGGER.debug("Successfully retrieved token keys from {} with params {}.", tokenKeysEndpointUri, params);
 
-				/* This is required for Identity Service App2Service communication. When proof token validation is enabled,
-				 the response can contain an Identity Service broker plan header whose content needs to be accessible
-				 on the SecurityContext. */
-				if (response.containsHeader(X_OSB_PLAN)) {
-					String xOsbPlan = response.getFirstHeader(X_OSB_PLAN).getValue();
-					if (xOsbPlan != null) {
-						SecurityContext.setServicePlans(xOsbPlan);
-					}
-				}
+				setServicePlans(response);
 
-				return body;
-			});
+				return conditionalRequestCache.onOk(requestKey, response, body);
+			};
+			return RetryPolicy.execute(retryPolicy, tokenKeysEndpointUri, true,
+					() -> CircuitBreaker.execute(circuitBreaker, tokenKeysEndpointUri,
+							() -> HttpClientRequestMetrics.execute(metrics, httpClient, request, responseHandler)));
 		} catch (IOException e) {
 			if (e instanceof OAuth2ServiceException oAuth2Exception) {
 				throw oAuth2Exception;
@@ -96,4 +150,22 @@ public class DefaultOAuth2TokenKeyService implements OAuth2TokenKeyService {
 		}
 	}
 
+	@Nullable
+	@Override
+	public Duration getCacheControlMaxAge(@Nonnull URI tokenKeysEndpointUri, Map<String, String> params) {
+		return conditionalRequestCache.getMaxAge(ConditionalRequestCache.toRequestKey(tokenKeysEndpointUri, params));
+	}
+
+	private static void setServicePlans(HttpResponse response) {
+		/* This is required for Identity Service App2Service communication. When proof token validation is enabled,
+		 the response can contain an Identity Service broker plan header whose content needs to be accessible
+		 on the SecurityContext. */
+		if (response.containsHeader(X_OSB_PLAN)) {
+			String xOsbPlan = response.getFirstHeader(X_OSB_PLAN).getValue();
+			if (xOsbPlan != null) {
+				SecurityContext.setServicePlans(xOsbPlan);
+			}
+		}
+	}
+
 }
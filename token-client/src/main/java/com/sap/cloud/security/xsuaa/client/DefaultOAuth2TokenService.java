@@ -5,6 +5,7 @@
  */
 package com.sap.cloud.security.xsuaa.client;
 
+import com.sap.cloud.security.client.HttpClientMetrics;
 import com.sap.cloud.security.servlet.MDCHelper;
 import com.sap.cloud.security.xsuaa.Assertions;
 import com.sap.cloud.security.xsuaa.http.HttpHeaders;
@@ -12,17 +13,18 @@ import com.sap.cloud.security.xsuaa.tokenflows.TokenCacheConfiguration;
 import com.sap.cloud.security.xsuaa.util.HttpClientUtil;
 import org.apache.http.Header;
 import org.apache.http.HttpStatus;
+import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.util.EntityUtils;
-import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -40,6 +42,9 @@ public class DefaultOAuth2TokenService extends AbstractOAuth2TokenService {
 	private static final Logger LOGGER = LoggerFactory.getLogger(DefaultOAuth2TokenService.class);
 
 	private final CloseableHttpClient httpClient;
+	private CircuitBreaker circuitBreaker;
+	private RetryPolicy retryPolicy;
+	private HttpClientMetrics metrics = HttpClientMetrics.getInstance();
 
 	public DefaultOAuth2TokenService(@Nonnull CloseableHttpClient httpClient) {
 		this(httpClient, TokenCacheConfiguration.defaultConfiguration());
@@ -52,6 +57,45 @@ public class DefaultOAuth2TokenService extends AbstractOAuth2TokenService {
 		this.httpClient = httpClient;
 	}
 
+	/**
+	 * Rejects requests to hosts that are known to be down, see {@link CircuitBreaker}.
+	 *
+	 * @param circuitBreaker
+	 * 		the circuit breaker, e.g. {@link CircuitBreaker#getInstance()}
+	 * @return this
+	 */
+	public DefaultOAuth2TokenService withCircuitBreaker(@Nonnull CircuitBreaker circuitBreaker) {
+		Assertions.assertNotNull(circuitBreaker, "circuitBreaker must not be null");
+		this.circuitBreaker = circuitBreaker;
+		return this;
+	}
+
+	/**
+	 * Retries requests that failed transiently, see {@link RetryPolicy}.
+	 *
+	 * @param retryPolicy
+	 * 		the retry policy, e.g. {@link RetryPolicy#getInstance()}
+	 * @return this
+	 */
+	public DefaultOAuth2TokenService withRetryPolicy(@Nonnull RetryPolicy retryPolicy) {
+		Assertions.assertNotNull(retryPolicy, "retryPolicy must not be null");
+		this.retryPolicy = retryPolicy;
+		return this;
+	}
+
+	/**
+	 * Overwrites the metrics the requests are reported to (default: {@link HttpClientMetrics#getInstance()}).
+	 *
+	 * @param metrics
+	 * 		the metrics
+	 * @return this
+	 */
+	public DefaultOAuth2TokenService withMetrics(@Nonnull HttpClientMetrics metrics) {
+		Assertions.assertNotNull(metrics, "metrics must not be null");
+		this.metrics = metrics;
+		return this;
+	}
+
 	@Override
 	protected OAuth2TokenResponse requestAccessToken(URI tokenEndpointUri, HttpHeaders headers,
 			Map<String, String> parameters) throws OAuth2ServiceException {
@@ -86,12 +130,11 @@ public class DefaultOAuth2TokenService extends AbstractOAuth2TokenService {
 		LOGGER.debug("Requesting access token from url {} with headers {}", requestUri,
 				httpPost.getAllHeaders());
 
-		String responseBody = httpClient.execute(httpPost, response -> {
+		ResponseHandler<OAuth2TokenResponse> responseHandler = response -> {
 			int statusCode = response.getStatusLine().getStatusCode();
 			LOGGER.debug("Received statusCode {}", statusCode);
-			String body = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
-
 			if (statusCode != HttpStatus.SC_OK) {
+				String body = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
 				LOGGER.debug("Received response body: {}", body);
 				throw OAuth2ServiceException.builder("Error retrieving JWT token")
 						.withStatusCode(statusCode)
@@ -103,34 +146,13 @@ public class DefaultOAuth2TokenService extends AbstractOAuth2TokenService {
 						.build();
 			}
 
-			return body;
-		});
-
-		return convertToOAuth2TokenResponse(responseBody);
-	}
-
-	private OAuth2TokenResponse convertToOAuth2TokenResponse(String responseBody)
-			throws OAuth2ServiceException {
-		Map<String, Object> accessTokenMap = new JSONObject(responseBody).toMap();
-		String accessToken = getParameter(accessTokenMap, ACCESS_TOKEN);
-		String refreshToken = getParameter(accessTokenMap, REFRESH_TOKEN);
-		String expiresIn = getParameter(accessTokenMap, EXPIRES_IN);
-		String tokenType = getParameter(accessTokenMap, TOKEN_TYPE);
-		return new OAuth2TokenResponse(accessToken, convertExpiresInToLong(expiresIn),
-				refreshToken, tokenType);
-	}
-
-	private Long convertExpiresInToLong(String expiresIn) throws OAuth2ServiceException {
-		try {
-			return Long.parseLong(expiresIn);
-		} catch (NumberFormatException e) {
-			throw new OAuth2ServiceException(
-					String.format("Cannot convert expires_in from response (%s) to long", expiresIn));
-		}
-	}
-
-	private String getParameter(Map<String, Object> accessTokenMap, String key) {
-		return String.valueOf(accessTokenMap.get(key));
+			try (InputStream body = response.getEntity().getContent()) {
+				return OAuth2TokenResponse.fromJson(body);
+			}
+		};
+		return RetryPolicy.execute(retryPolicy, requestUri, false,
+				() -> CircuitBreaker.execute(circuitBreaker, requestUri,
+						() -> HttpClientRequestMetrics.execute(metrics, httpClient, httpPost, responseHandler)));
 	}
 
 	private HttpPost createHttpPost(URI uri, HttpHeaders headers, Map<String, String> parameters)
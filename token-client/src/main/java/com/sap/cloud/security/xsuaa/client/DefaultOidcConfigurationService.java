@@ -6,20 +6,26 @@
 package com.sap.cloud.security.xsuaa.client;
 
 import com.sap.cloud.security.client.HttpClientFactory;
+import com.sap.cloud.security.client.HttpClientMetrics;
 import com.sap.cloud.security.xsuaa.Assertions;
 import com.sap.cloud.security.xsuaa.util.HttpClientUtil;
 import com.sap.cloud.security.xsuaa.util.UriUtil;
+import org.apache.http.Header;
 import org.apache.http.HttpHeaders;
 import org.apache.http.HttpStatus;
+import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.util.EntityUtils;
 import org.json.JSONObject;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
 
 /**
  * <a href=
@@ -28,6 +34,10 @@ import java.nio.charset.StandardCharsets;
 public class DefaultOidcConfigurationService implements OidcConfigurationService {
 
 	private final CloseableHttpClient httpClient;
+	private final ConditionalRequestCache conditionalRequestCache = new ConditionalRequestCache();
+	private CircuitBreaker circuitBreaker;
+	private RetryPolicy retryPolicy;
+	private HttpClientMetrics metrics = HttpClientMetrics.getInstance();
 
 	public DefaultOidcConfigurationService() {
 		this.httpClient = HttpClientFactory.create(null);
@@ -38,6 +48,45 @@ public class DefaultOidcConfigurationService implements OidcConfigurationService
 		this.httpClient = httpClient;
 	}
 
+	/**
+	 * Rejects requests to hosts that are known to be down, see {@link CircuitBreaker}.
+	 *
+	 * @param circuitBreaker
+	 * 		the circuit breaker, e.g. {@link CircuitBreaker#getInstance()}
+	 * @return this
+	 */
+	public DefaultOidcConfigurationService withCircuitBreaker(@Nonnull CircuitBreaker circuitBreaker) {
+		Assertions.assertNotNull(circuitBreaker, "circuitBreaker must not be null");
+		this.circuitBreaker = circuitBreaker;
+		return this;
+	}
+
+	/**
+	 * Retries requests that failed transiently, see {@link RetryPolicy}.
+	 *
+	 * @param retryPolicy
+	 * 		the retry policy, e.g. {@link RetryPolicy#getInstance()}
+	 * @return this
+	 */
+	public DefaultOidcConfigurationService withRetryPolicy(@Nonnull RetryPolicy retryPolicy) {
+		Assertions.assertNotNull(retryPolicy, "retryPolicy must not be null");
+		this.retryPolicy = retryPolicy;
+		return this;
+	}
+
+	/**
+	 * Overwrites the metrics the requests are reported to (default: {@link HttpClientMetrics#getInstance()}).
+	 *
+	 * @param metrics
+	 * 		the metrics
+	 * @return this
+	 */
+	public DefaultOidcConfigurationService withMetrics(@Nonnull HttpClientMetrics metrics) {
+		Assertions.assertNotNull(metrics, "metrics must not be null");
+		this.metrics = metrics;
+		return this;
+	}
+
 	public static URI getDiscoveryEndpointUri(@Nonnull String issuerUri) {
 		// to support existing IAS applications
 		URI uri = URI.create(issuerUri.startsWith("http://localhost") || issuerUri.startsWith("https://") ? issuerUri
@@ -52,22 +101,34 @@ public class DefaultOidcConfigurationService implements OidcConfigurationService
 
 		HttpGet request = new HttpGet(discoveryEndpointUri);
 		request.addHeader(HttpHeaders.USER_AGENT, HttpClientUtil.getUserAgent());
+		String requestKey = ConditionalRequestCache.toRequestKey(discoveryEndpointUri, null);
+		ConditionalRequestCache.CachedResponse cachedResponse = conditionalRequestCache
+				.addConditionalHeaders(request, requestKey);
 
 		String endpointsJson;
 		try {
-			endpointsJson = httpClient.execute(request, response -> {
+			ResponseHandler<String> responseHandler = response -> {
+				if (ConditionalRequestCache.isNotModified(response, cachedResponse)) {
+					EntityUtils.consumeQuietly(response.getEntity());
+					return conditionalRequestCache.onNotModified(requestKey, response, cachedResponse);
+				}
 				String body = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
 				int statusCode = response.getStatusLine().getStatusCode();
 				if (statusCode != HttpStatus.SC_OK) {
 					throw OAuth2ServiceException.builder("Error retrieving configured oidc endpoints")
 							.withUri(discoveryEndpointUri)
 							.withStatusCode(statusCode)
+							.withHeaders(response.getAllHeaders() != null ? Arrays.stream(response.getAllHeaders())
+									.map(Header::toString).toArray(String[]::new) : new String[0])
 							.withResponseBody(body)
 							.build();
 				}
 
-				return body;
-			});
+				return conditionalRequestCache.onOk(requestKey, response, body);
+			};
+			endpointsJson = RetryPolicy.execute(retryPolicy, discoveryEndpointUri, true,
+					() -> CircuitBreaker.execute(circuitBreaker, discoveryEndpointUri,
+							() -> HttpClientRequestMetrics.execute(metrics, httpClient, request, responseHandler)));
 		} catch (IOException e) {
 			throw OAuth2ServiceException.builder("Error retrieving configured oidc endpoints: " + e.getMessage())
 					.withUri(discoveryEndpointUri)
@@ -77,6 +138,12 @@ public class DefaultOidcConfigurationService implements OidcConfigurationService
 		return new OidcEndpointsProvider(endpointsJson);
 	}
 
+	@Nullable
+	@Override
+	public Duration getCacheControlMaxAge(@Nonnull URI discoveryEndpointUri) {
+		return conditionalRequestCache.getMaxAge(ConditionalRequestCache.toRequestKey(discoveryEndpointUri, null));
+	}
+
 	static class OidcEndpointsProvider implements OAuth2ServiceEndpointsProvider {
 		static final String AUTHORIZATION_ENDPOINT = "authorization_endpoint";
 		static final String TOKEN_ENDPOINT = "token_endpoint";
@@ -0,0 +1,203 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.xsuaa.client;
+
+import com.sap.cloud.security.xsuaa.Assertions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * {@link SharedTokenCache} that stores every token in a file of the given directory, e.g. of a volume that is shared
+ * by several application instances or processes on the same host. Locks are lock files that expire after their lease
+ * time and contain a random owner token, so that a lock is only released by its owner. Expired locks are taken over
+ * while an OS file lock is held on a separate mutex file of the key. Intended for tests and local development; the
+ * tokens should be encrypted with a {@link TokenCacheCipher}.
+ */
+public class FileSharedTokenCache implements SharedTokenCache {
+
+	private static final Pattern VALID_KEY = Pattern.compile("[A-Za-z0-9_-]+");
+	private static final String TOKEN_FILE_SUFFIX = ".token";
+	private static final String LOCK_FILE_SUFFIX = ".lock";
+	private static final String MUTEX_FILE_SUFFIX = ".mutex";
+	private static final int OWNER_TOKEN_LENGTH = 16;
+	private static final int LOCK_LENGTH = Long.BYTES + OWNER_TOKEN_LENGTH;
+
+	private final Path directory;
+	private final Clock clock;
+	private final Map<String, byte[]> ownedLocks = new ConcurrentHashMap<>();
+
+	public FileSharedTokenCache(@Nonnull Path directory) {
+		this(directory, Clock.systemUTC());
+	}
+
+	FileSharedTokenCache(Path directory, Clock clock) {
+		Assertions.assertNotNull(directory, "directory must not be null");
+		try {
+			this.directory = Files.createDirectories(directory);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Token cache directory " + directory + " can not be created", e);
+		}
+		this.clock = clock;
+	}
+
+	@Nullable
+	@Override
+	public byte[] get(@Nonnull String key) {
+		Path file = resolve(key, TOKEN_FILE_SUFFIX);
+		try {
+			byte[] content = Files.readAllBytes(file);
+			if (content.length < Long.BYTES || isExpired(content)) {
+				Files.deleteIfExists(file);
+				return null;
+			}
+			return Arrays.copyOfRange(content, Long.BYTES, content.length);
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void put(@Nonnull String key, @Nonnull byte[] value, @Nonnull Duration timeToLive) {
+		long expiresAt = clock.instant().plus(timeToLive).toEpochMilli();
+		byte[] content = ByteBuffer.allocate(Long.BYTES + value.length).putLong(expiresAt).put(value).array();
+		try {
+			write(resolve(key, TOKEN_FILE_SUFFIX), content);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public boolean tryLock(@Nonnull String key, @Nonnull Duration leaseTime) {
+		Path lockFile = resolve(key, LOCK_FILE_SUFFIX);
+		byte[] lock = ByteBuffer.allocate(LOCK_LENGTH)
+				.putLong(clock.instant().plus(leaseTime).toEpochMilli())
+				.put(newOwnerToken())
+				.array();
+		try {
+			if (!createLock(lockFile, lock) && !takeOverExpiredLock(key, lockFile, lock)) {
+				return false;
+			}
+			ownedLocks.put(key, lock);
+			return true;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void unlock(@Nonnull String key) {
+		byte[] lock = ownedLocks.remove(key);
+		if (lock == null) {
+			return;
+		}
+		Path lockFile = resolve(key, LOCK_FILE_SUFFIX);
+		synchronized (FileSharedTokenCache.class) {
+			try (FileChannel mutex = openMutex(key)) {
+				mutex.lock();
+				// the lease may have expired and the lock may have been taken over by another process
+				if (Arrays.equals(readLock(lockFile), lock)) {
+					Files.delete(lockFile);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	private static boolean createLock(Path lockFile, byte[] lock) throws IOException {
+		try {
+			Files.write(lockFile, lock, StandardOpenOption.CREATE_NEW);
+			return true;
+		} catch (FileAlreadyExistsException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Replaces the lock whose lease has expired, e.g. as its owner has failed. The lock file is read and replaced while
+	 * the mutex file of the key is locked, so that only one of the processes that found the expired lock takes it over.
+	 * File locks are held on behalf of the whole Java process, hence threads additionally synchronize on this class.
+	 */
+	private boolean takeOverExpiredLock(String key, Path lockFile, byte[] lock) throws IOException {
+		synchronized (FileSharedTokenCache.class) {
+			try (FileChannel mutex = openMutex(key)) {
+				mutex.lock();
+				byte[] existingLock = readLock(lockFile);
+				if (existingLock == null) {
+					return createLock(lockFile, lock); // released in the meantime
+				}
+				if (existingLock.length == LOCK_LENGTH && !isExpired(existingLock)) {
+					return false;
+				}
+				write(lockFile, lock);
+				return true;
+			}
+		}
+	}
+
+	private FileChannel openMutex(String key) throws IOException {
+		return FileChannel.open(resolve(key, MUTEX_FILE_SUFFIX), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+	}
+
+	@Nullable
+	private static byte[] readLock(Path lockFile) throws IOException {
+		try {
+			return Files.readAllBytes(lockFile);
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Writes to a temporary file first, so that readers never see a partially written file.
+	 */
+	private void write(Path file, byte[] content) throws IOException {
+		Path temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+		Files.write(temporaryFile, content);
+		Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static byte[] newOwnerToken() {
+		UUID owner = UUID.randomUUID();
+		return ByteBuffer.allocate(OWNER_TOKEN_LENGTH)
+				.putLong(owner.getMostSignificantBits())
+				.putLong(owner.getLeastSignificantBits())
+				.array();
+	}
+
+	private boolean isExpired(byte[] content) {
+		return !Instant.ofEpochMilli(ByteBuffer.wrap(content, 0, Long.BYTES).getLong()).isAfter(clock.instant());
+	}
+
+	private Path resolve(String key, String suffix) {
+		if (!VALID_KEY.matcher(key).matches()) {
+			throw new IllegalArgumentException("Invalid token cache key " + key);
+		}
+		return directory.resolve(key + suffix);
+	}
+}
@@ -0,0 +1,35 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.xsuaa.client;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Encodes the parameters of token requests as {@code application/x-www-form-urlencoded} body for the services whose
+ * http client does not provide form entities.
+ */
+final class FormUrlEncoding {
+
+	private FormUrlEncoding() {
+	}
+
+	/**
+	 * Encodes the parameters with UTF-8, in the iteration order of the map.
+	 *
+	 * @param parameters
+	 * 		the request parameters
+	 * @return the request body, e.g. {@code grant_type=client_credentials&client_id=sb-client%21t1}
+	 */
+	static String encode(Map<String, String> parameters) {
+		return parameters.entrySet().stream()
+				.map(e -> URLEncoder.encode(e.getKey(), StandardCharsets.UTF_8) + "="
+						+ URLEncoder.encode(e.getValue(), StandardCharsets.UTF_8))
+				.collect(Collectors.joining("&"));
+	}
+}
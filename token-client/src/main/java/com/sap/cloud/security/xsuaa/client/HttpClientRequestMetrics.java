@@ -0,0 +1,124 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.xsuaa.client;
+
+import com.sap.cloud.security.client.HttpClientMetrics;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.client.CloseableHttpClient;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executes the requests of the HttpClient 4 based services and reports them to {@link HttpClientMetrics}.
+ */
+final class HttpClientRequestMetrics {
+
+	private HttpClientRequestMetrics() {
+	}
+
+	/**
+	 * Executes the request and records its status code, its duration until the response has been handled and the
+	 * bytes transferred, or the failure in case no response was received.
+	 */
+	static <T> T execute(HttpClientMetrics metrics, CloseableHttpClient httpClient, HttpUriRequest request,
+			ResponseHandler<T> responseHandler) throws IOException {
+		if (metrics == HttpClientMetrics.NO_OP) {
+			return httpClient.execute(request, responseHandler);
+		}
+		URI endpoint = withoutQuery(request.getURI());
+		long start = System.nanoTime();
+		boolean[] responseReceived = new boolean[1];
+		try {
+			return httpClient.execute(request, response -> {
+				responseReceived[0] = true;
+				CountingEntity entity = response.getEntity() != null ? new CountingEntity(response.getEntity()) : null;
+				response.setEntity(entity);
+				try {
+					return responseHandler.handleResponse(response);
+				} finally {
+					metrics.recordRequest(endpoint, response.getStatusLine().getStatusCode(),
+							Duration.ofNanos(System.nanoTime() - start), requestBytes(request),
+							entity != null ? entity.bytesRead.get() : 0);
+				}
+			});
+		} catch (IOException | RuntimeException e) {
+			if (!responseReceived[0]) {
+				metrics.recordFailure(endpoint, Duration.ofNanos(System.nanoTime() - start), e);
+			}
+			throw e;
+		}
+	}
+
+	static URI withoutQuery(URI uri) {
+		if (uri.getRawQuery() == null && uri.getRawFragment() == null) {
+			return uri;
+		}
+		try {
+			return new URI(uri.getScheme(), uri.getRawAuthority(), uri.getRawPath(), null, null);
+		} catch (URISyntaxException e) {
+			return uri;
+		}
+	}
+
+	private static long requestBytes(HttpUriRequest request) {
+		if (request instanceof HttpEntityEnclosingRequest entityRequest && entityRequest.getEntity() != null) {
+			return Math.max(entityRequest.getEntity().getContentLength(), 0);
+		}
+		return 0;
+	}
+
+	/**
+	 * Counts the bytes read from the response body, which is also known if the response has no Content-Length.
+	 */
+	private static class CountingEntity extends HttpEntityWrapper {
+		final AtomicLong bytesRead = new AtomicLong();
+
+		CountingEntity(HttpEntity entity) {
+			super(entity);
+		}
+
+		@Override
+		public InputStream getContent() throws IOException {
+			return new FilterInputStream(super.getContent()) {
+				@Override
+				public int read() throws IOException {
+					int b = super.read();
+					if (b >= 0) {
+						bytesRead.incrementAndGet();
+					}
+					return b;
+				}
+
+				@Override
+				public int read(byte[] buffer, int offset, int length) throws IOException {
+					int n = super.read(buffer, offset, length);
+					if (n > 0) {
+						bytesRead.addAndGet(n);
+					}
+					return n;
+				}
+			};
+		}
+
+		@Override
+		public void writeTo(OutputStream outStream) throws IOException {
+			try (InputStream content = getContent()) {
+				content.transferTo(outStream);
+			}
+		}
+	}
+}
@@ -0,0 +1,81 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.xsuaa.client;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link SharedTokenCache} that keeps the tokens in memory, i.e. that can be shared by the token services of a single
+ * application instance. Intended for tests and local development.
+ * <p>
+ * A lock is owned by the thread that acquired it and is only released by this thread, so that a token service whose
+ * lease has expired does not release the lock that another token service has acquired in the meantime.
+ */
+public class InMemorySharedTokenCache implements SharedTokenCache {
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+	private final Map<String, Lock> locks = new ConcurrentHashMap<>();
+	private final Clock clock;
+
+	public InMemorySharedTokenCache() {
+		this(Clock.systemUTC());
+	}
+
+	InMemorySharedTokenCache(Clock clock) {
+		this.clock = clock;
+	}
+
+	@Nullable
+	@Override
+	public byte[] get(@Nonnull String key) {
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			return null;
+		}
+		if (!entry.expiresAt().isAfter(clock.instant())) {
+			entries.remove(key, entry);
+			return null;
+		}
+		return entry.value().clone();
+	}
+
+	@Override
+	public void put(@Nonnull String key, @Nonnull byte[] value, @Nonnull Duration timeToLive) {
+		entries.put(key, new Entry(value.clone(), clock.instant().plus(timeToLive)));
+	}
+
+	@Override
+	public boolean tryLock(@Nonnull String key, @Nonnull Duration leaseTime) {
+		Instant now = clock.instant();
+		AtomicBoolean acquired = new AtomicBoolean();
+		locks.compute(key, (k, lock) -> {
+			if (lock != null && lock.leasedUntil().isAfter(now)) {
+				return lock;
+			}
+			acquired.set(true);
+			return new Lock(now.plus(leaseTime), Thread.currentThread());
+		});
+		return acquired.get();
+	}
+
+	@Override
+	public void unlock(@Nonnull String key) {
+		locks.computeIfPresent(key, (k, lock) -> lock.owner() == Thread.currentThread() ? null : lock);
+	}
+
+	private record Entry(byte[] value, Instant expiresAt) {
+	}
+
+	private record Lock(Instant leasedUntil, Thread owner) {
+	}
+}
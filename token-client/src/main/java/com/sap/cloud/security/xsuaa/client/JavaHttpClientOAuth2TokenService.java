@@ -0,0 +1,171 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.xsuaa.client;
+
+import com.sap.cloud.security.client.HttpClientException;
+import com.sap.cloud.security.config.ClientIdentity;
+import com.sap.cloud.security.mtls.SSLContextFactory;
+import com.sap.cloud.security.servlet.MDCHelper;
+import com.sap.cloud.security.xsuaa.Assertions;
+import com.sap.cloud.security.xsuaa.http.HttpHeaders;
+import com.sap.cloud.security.xsuaa.tokenflows.TokenCacheConfiguration;
+import com.sap.cloud.security.xsuaa.util.HttpClientUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static com.sap.cloud.security.xsuaa.client.OAuth2TokenServiceConstants.*;
+
+/**
+ * {@link OAuth2TokenService} based on the JDK {@link HttpClient}. In contrast to {@link DefaultOAuth2TokenService} it
+ * does not require Apache HttpClient, uses HTTP/2 if the token endpoint supports it and performs the asynchronous
+ * token requests, e.g. {@link #retrieveAccessTokenViaClientCredentialsGrantAsync}, without blocking a thread.
+ */
+public class JavaHttpClientOAuth2TokenService extends AbstractOAuth2TokenService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(JavaHttpClientOAuth2TokenService.class);
+	private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+	private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+	private final HttpClient httpClient;
+
+	/**
+	 * Creates the token service with an HTTP client for client credentials based identities, see
+	 * {@link #createHttpClient(ClientIdentity)}.
+	 */
+	public JavaHttpClientOAuth2TokenService() {
+		this(createHttpClient(null));
+	}
+
+	public JavaHttpClientOAuth2TokenService(@Nonnull HttpClient httpClient) {
+		this(httpClient, TokenCacheConfiguration.defaultConfiguration());
+	}
+
+	public JavaHttpClientOAuth2TokenService(@Nonnull HttpClient httpClient,
+			@Nonnull TokenCacheConfiguration tokenCacheConfiguration) {
+		super(tokenCacheConfiguration);
+		Assertions.assertNotNull(httpClient, "http client is required");
+		this.httpClient = httpClient;
+	}
+
+	/**
+	 * Creates an HTTP/2 client with a connect timeout of 5 seconds that does not follow redirects. For certificate
+	 * based identities it authenticates with the identity's certificate.
+	 *
+	 * @param clientIdentity
+	 * 		the client identity, can be null
+	 * @return the http client
+	 * @throws HttpClientException
+	 * 		in case the SSL context of the certificate based identity can not be created
+	 */
+	public static HttpClient createHttpClient(@Nullable ClientIdentity clientIdentity) {
+		HttpClient.Builder httpClientBuilder = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_2)
+				.connectTimeout(CONNECT_TIMEOUT)
+				.followRedirects(HttpClient.Redirect.NEVER);
+		if (clientIdentity != null && clientIdentity.isCertificateBased()) {
+			try {
+				httpClientBuilder.sslContext(SSLContextFactory.getInstance().create(clientIdentity));
+			} catch (IOException | GeneralSecurityException e) {
+				throw new HttpClientException(
+						String.format("Couldn't set up https client for service provider %s. %s.",
+								clientIdentity.getId(), e.getLocalizedMessage()));
+			}
+		}
+		return httpClientBuilder.build();
+	}
+
+	@Override
+	protected OAuth2TokenResponse requestAccessToken(URI tokenEndpointUri, HttpHeaders headers,
+			Map<String, String> parameters) throws OAuth2ServiceException {
+		HttpRequest request = createRequest(tokenEndpointUri, headers, parameters);
+		HttpResponse<String> response;
+		try {
+			response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+		} catch (IOException e) {
+			throw new OAuth2ServiceException("Unexpected error retrieving JWT token: " + e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OAuth2ServiceException("Interrupted while retrieving JWT token");
+		}
+		return convertResponse(request, response);
+	}
+
+	@Override
+	protected CompletableFuture<OAuth2TokenResponse> requestAccessTokenAsync(URI tokenEndpointUri,
+			HttpHeaders headers, Map<String, String> parameters) {
+		HttpRequest request = createRequest(tokenEndpointUri, headers, parameters);
+		CompletableFuture<OAuth2TokenResponse> tokenResponse = new CompletableFuture<>();
+		httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, error) -> {
+			try {
+				if (error != null) {
+					Throwable cause = error instanceof CompletionException && error.getCause() != null
+							? error.getCause()
+							: error;
+					throw new OAuth2ServiceException("Unexpected error retrieving JWT token: " + cause);
+				}
+				tokenResponse.complete(convertResponse(request, response));
+			} catch (OAuth2ServiceException | RuntimeException e) {
+				tokenResponse.completeExceptionally(e);
+			}
+		});
+		return tokenResponse;
+	}
+
+	private HttpRequest createRequest(URI tokenEndpointUri, HttpHeaders headers, Map<String, String> parameters) {
+		LOGGER.debug("access token request {} - {}", headers, parameters.entrySet().stream()
+				.map(e -> {
+					if (e.getKey().contains(PASSWORD) || e.getKey().contains(CLIENT_SECRET)
+							|| e.getKey().contains(ASSERTION)) {
+						return new AbstractMap.SimpleImmutableEntry<>(e.getKey(), "****");
+					}
+					return e;
+				})
+				.toList());
+		String body = FormUrlEncoding.encode(parameters);
+		HttpRequest.Builder requestBuilder = HttpRequest.newBuilder(tokenEndpointUri)
+				.timeout(REQUEST_TIMEOUT)
+				.POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8));
+		headers.getHeaders().forEach(h -> requestBuilder.setHeader(h.getName(), h.getValue()));
+		requestBuilder.setHeader(MDCHelper.CORRELATION_HEADER, MDCHelper.getOrCreateCorrelationId());
+		requestBuilder.setHeader("User-Agent", HttpClientUtil.getUserAgent());
+		LOGGER.debug("Requesting access token from url {}", tokenEndpointUri);
+		return requestBuilder.build();
+	}
+
+	private static OAuth2TokenResponse convertResponse(HttpRequest request, HttpResponse<String> response)
+			throws OAuth2ServiceException {
+		int statusCode = response.statusCode();
+		LOGGER.debug("Received statusCode {} via {}", statusCode, response.version());
+		if (statusCode != 200) {
+			LOGGER.debug("Received response body: {}", response.body());
+			throw OAuth2ServiceException.builder("Error retrieving JWT token")
+					.withStatusCode(statusCode)
+					.withUri(request.uri())
+					.withHeaders(response.headers().map().entrySet().stream()
+							.map(header -> header.getKey() + ": " + String.join(",", header.getValue()))
+							.toArray(String[]::new))
+					.withResponseBody(response.body())
+					.build();
+		}
+		return OAuth2TokenResponse.fromJson(response.body());
+	}
+
+}
@@ -10,6 +10,7 @@ import com.sap.cloud.security.xsuaa.http.HttpHeaders;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.net.URI;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -74,4 +75,19 @@ public interface OAuth2TokenKeyService {
 	 */
 	String retrieveTokenKeys(@Nonnull URI tokenKeysEndpointUri, Map<String, String> params)
 			throws OAuth2ServiceException;
+
+	/**
+	 * Returns the {@code Cache-Control: max-age} the OAuth2 Server announced with the last JWKS response for the given
+	 * request. Caches can use it to limit how long they keep the JWKS.
+	 *
+	 * @param tokenKeysEndpointUri
+	 * 		the JWKS endpoint URI.
+	 * @param params
+	 * 		the header parameters of the request.
+	 * @return the max-age or null if it is not known.
+	 */
+	@Nullable
+	default Duration getCacheControlMaxAge(@Nonnull URI tokenKeysEndpointUri, Map<String, String> params) {
+		return null;
+	}
 }
@@ -7,17 +7,23 @@ package com.sap.cloud.security.xsuaa.client;
 
 import com.sap.cloud.security.xsuaa.jwt.Base64JwtDecoder;
 import com.sap.cloud.security.xsuaa.jwt.DecodedJwt;
+import org.json.JSONObject;
+import org.json.JSONTokener;
 
 import javax.annotation.Nullable;
+import java.io.InputStream;
 import java.time.Instant;
 import java.util.concurrent.TimeUnit;
 
+import static com.sap.cloud.security.xsuaa.client.OAuth2TokenServiceConstants.*;
+
 public class OAuth2TokenResponse {
 	static final String TOKEN_TYPE_DEFAULT = "bearer";
 	private final String refreshToken;
 	private final String accessToken;
 	private final String tokenType;
 	private final long expiredTimeMillis;
+	private volatile DecodedJwt decodedAccessToken;
 
 	public OAuth2TokenResponse(@Nullable String accessToken, long expiredInSeconds, @Nullable String refreshToken) {
 		this(accessToken, expiredInSeconds, refreshToken, TOKEN_TYPE_DEFAULT);
@@ -31,6 +37,94 @@ public class OAuth2TokenResponse {
 		this.tokenType = tokenType;
 	}
 
+	OAuth2TokenResponse(@Nullable String accessToken, Instant expiredAt, @Nullable String refreshToken,
+			String tokenType) {
+		this.accessToken = accessToken;
+		this.expiredTimeMillis = expiredAt.toEpochMilli();
+		this.refreshToken = refreshToken;
+		this.tokenType = tokenType;
+	}
+
+	/**
+	 * Creates the token response from the JSON body of a token endpoint response.
+	 *
+	 * @param responseBody
+	 * 		the response body
+	 * @return the token response
+	 * @throws OAuth2ServiceException
+	 * 		in case expires_in is not a number
+	 */
+	static OAuth2TokenResponse fromJson(String responseBody) throws OAuth2ServiceException {
+		return fromJson(new JSONTokener(responseBody));
+	}
+
+	/**
+	 * Creates the token response from the UTF-8 encoded JSON body of a token endpoint response, see
+	 * {@link #fromJson(String)}.
+	 *
+	 * @param responseBody
+	 * 		the response body, is not closed
+	 * @return the token response
+	 * @throws OAuth2ServiceException
+	 * 		in case expires_in is not a number
+	 */
+	static OAuth2TokenResponse fromJson(InputStream responseBody) throws OAuth2ServiceException {
+		return fromJson(new JSONTokener(responseBody));
+	}
+
+	/**
+	 * Reads the members of the JSON object one after the other and keeps only the values of the token response,
+	 * instead of building a {@link JSONObject} of the whole response. Like {@link JSONObject}, it accepts unquoted keys
+	 * and values.
+	 */
+	private static OAuth2TokenResponse fromJson(JSONTokener tokener) throws OAuth2ServiceException {
+		String accessToken = null;
+		String refreshToken = null;
+		String expiresIn = null;
+		String tokenType = null;
+		if (tokener.nextClean() != '{') {
+			throw tokener.syntaxError("A JSONObject text must begin with '{'");
+		}
+		char next = tokener.nextClean();
+		while (next != '}') {
+			if (next == 0 || next == '{' || next == '[') {
+				throw tokener.syntaxError("A JSONObject text must contain keys");
+			}
+			tokener.back();
+			String key = tokener.nextValue().toString();
+			if (tokener.nextClean() != ':') {
+				throw tokener.syntaxError("Expected a ':' after a key");
+			}
+			String value = String.valueOf(tokener.nextValue());
+			switch (key) {
+			case ACCESS_TOKEN -> accessToken = value;
+			case REFRESH_TOKEN -> refreshToken = value;
+			case EXPIRES_IN -> expiresIn = value;
+			case TOKEN_TYPE -> tokenType = value;
+			default -> {
+				// not part of the token response
+			}
+			}
+			next = tokener.nextClean();
+			if (next == ',') {
+				next = tokener.nextClean();
+			} else if (next != '}') {
+				throw tokener.syntaxError("Expected a ',' or '}'");
+			}
+		}
+		return new OAuth2TokenResponse(String.valueOf(accessToken), convertExpiresInToLong(String.valueOf(expiresIn)),
+				String.valueOf(refreshToken), String.valueOf(tokenType));
+	}
+
+	private static long convertExpiresInToLong(String expiresIn) throws OAuth2ServiceException {
+		try {
+			return Long.parseLong(expiresIn);
+		} catch (NumberFormatException e) {
+			throw new OAuth2ServiceException(
+					String.format("Cannot convert expires_in from response (%s) to long", expiresIn));
+		}
+	}
+
 	/**
 	 * An OAuth2 access token. This token will be a JSON Web Token suitable for offline validation by OAuth2 Resource
 	 * Servers.
@@ -43,7 +137,7 @@ public class OAuth2TokenResponse {
 	}
 
 	/**
-	 * A decoded OAuth2 access token.
+	 * A decoded OAuth2 access token. The access token is decoded only once.
 	 *
 	 * @return the decoded access token
 	 */
@@ -52,7 +146,12 @@ public class OAuth2TokenResponse {
 		if (accessToken == null) {
 			return null;
 		}
-		return Base64JwtDecoder.getInstance().decode(accessToken);
+		DecodedJwt decodedJwt = decodedAccessToken;
+		if (decodedJwt == null) {
+			decodedJwt = Base64JwtDecoder.getInstance().decode(accessToken);
+			decodedAccessToken = decodedJwt;
+		}
+		return decodedJwt;
 	}
 
 	/**
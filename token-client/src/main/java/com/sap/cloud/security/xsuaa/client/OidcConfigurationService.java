@@ -6,7 +6,9 @@
 package com.sap.cloud.security.xsuaa.client;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.net.URI;
+import java.time.Duration;
 
 @SuppressWarnings("squid:S1214")
 public interface OidcConfigurationService {
@@ -23,4 +25,17 @@ public interface OidcConfigurationService {
 	 */
 	OAuth2ServiceEndpointsProvider retrieveEndpoints(@Nonnull URI discoveryEndpointUri) throws OAuth2ServiceException;
 
+	/**
+	 * Returns the {@code Cache-Control: max-age} the OAuth Server announced with the last configuration document
+	 * response for the given discovery endpoint. Caches can use it to limit how long they keep the endpoints.
+	 *
+	 * @param discoveryEndpointUri
+	 * 		the discovery endpoint URI.
+	 * @return the max-age or null if it is not known.
+	 */
+	@Nullable
+	default Duration getCacheControlMaxAge(@Nonnull URI discoveryEndpointUri) {
+		return null;
+	}
+
 }
@@ -0,0 +1,307 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.xsuaa.client;
+
+import com.sap.cloud.security.xsuaa.Assertions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Retries requests to the identity service that failed transiently, i.e. with a connection error or with one of the
+ * {@link #withRetryableStatusCodes(Set) retryable status codes} (default: 429, 502 and 503).
+ * <p>
+ * The delay before each retry grows exponentially from the initial backoff up to the maximum backoff and is jittered
+ * between 50% and 100%, so that several instances of an application do not retry at the same time. A
+ * {@code Retry-After} header of the response is honored; if it asks to wait longer than the maximum backoff the
+ * request is not retried.
+ * <p>
+ * Retries are governed by a retry budget that is shared by all requests of the policy: every request adds
+ * {@link #withBudget(double, int) a fraction of a retry} to the budget, every retry consumes one. This limits the
+ * additional load caused by retries in case the identity service is overloaded.
+ * <p>
+ * Only idempotent requests, e.g. the token keys and OIDC configuration requests, are retried after connection errors
+ * and server errors. Token requests are retried only when the identity service has not processed them, i.e. when the
+ * connection could not be established or the request was rejected with 429, as e.g. a refresh token can be used only
+ * once.
+ */
+public class RetryPolicy {
+	private static final Logger LOGGER = LoggerFactory.getLogger(RetryPolicy.class);
+	private static final RetryPolicy INSTANCE = new RetryPolicy(Clock.systemUTC(),
+			() -> ThreadLocalRandom.current().nextDouble(), duration -> Thread.sleep(duration.toMillis()));
+	private static final String RETRY_AFTER = "retry-after:";
+	private static final int TOO_MANY_REQUESTS = 429;
+
+	private final Clock clock;
+	private final DoubleSupplier random;
+	private final Sleeper sleeper;
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong retries = new AtomicLong();
+	private final AtomicLong budgetExhausted = new AtomicLong();
+	private volatile int maxAttempts = 3;
+	private volatile Duration initialBackoff = Duration.ofMillis(200);
+	private volatile Duration maxBackoff = Duration.ofSeconds(5);
+	private volatile Set<Integer> retryableStatusCodes = Set.of(TOO_MANY_REQUESTS, 502, 503);
+	private volatile double budgetRatio = 0.1;
+	private volatile int minBudget = 10;
+	private double budget = minBudget;
+
+	/**
+	 * Creates a new instance. This is used for testing.
+	 *
+	 * @param clock
+	 * 		clock to determine the delay of a {@code Retry-After} date
+	 * @param random
+	 * 		supplies random numbers between 0 (inclusive) and 1 (exclusive) to jitter the backoff
+	 * @param sleeper
+	 * 		waits for the backoff
+	 */
+	RetryPolicy(Clock clock, DoubleSupplier random, Sleeper sleeper) {
+		this.clock = clock;
+		this.random = random;
+		this.sleeper = sleeper;
+	}
+
+	/**
+	 * Returns the process-wide instance, which is meant to be shared by all services that request the identity
+	 * service, so that they share the retry budget.
+	 *
+	 * @return the shared retry policy
+	 */
+	public static RetryPolicy getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Overwrites the maximum number of attempts per request, including the first one (default: 3).
+	 *
+	 * @param maxAttempts
+	 * 		maximum number of attempts
+	 * @return this
+	 */
+	public RetryPolicy withMaxAttempts(int maxAttempts) {
+		if (maxAttempts < 1) {
+			throw new IllegalArgumentException("maxAttempts must be 1 or more");
+		}
+		this.maxAttempts = maxAttempts;
+		return this;
+	}
+
+	/**
+	 * Overwrites the delay before the first retry (default: 200 milliseconds) and the maximum delay it is doubled to
+	 * for further retries (default: 5 seconds).
+	 *
+	 * @param initialBackoff
+	 * 		delay before the first retry
+	 * @param maxBackoff
+	 * 		maximum delay before a retry
+	 * @return this
+	 */
+	public RetryPolicy withBackoff(@Nonnull Duration initialBackoff, @Nonnull Duration maxBackoff) {
+		Assertions.assertNotNull(initialBackoff, "initialBackoff must not be null");
+		Assertions.assertNotNull(maxBackoff, "maxBackoff must not be null");
+		if (initialBackoff.isNegative() || initialBackoff.isZero() || maxBackoff.compareTo(initialBackoff) < 0) {
+			throw new IllegalArgumentException("initialBackoff must be positive and must not exceed maxBackoff");
+		}
+		this.initialBackoff = initialBackoff;
+		this.maxBackoff = maxBackoff;
+		return this;
+	}
+
+	/**
+	 * Overwrites the status codes of idempotent requests that are retried (default: 429, 502 and 503).
+	 *
+	 * @param retryableStatusCodes
+	 * 		the status codes
+	 * @return this
+	 */
+	public RetryPolicy withRetryableStatusCodes(@Nonnull Set<Integer> retryableStatusCodes) {
+		Assertions.assertNotNull(retryableStatusCodes, "retryableStatusCodes must not be null");
+		this.retryableStatusCodes = Set.copyOf(retryableStatusCodes);
+		return this;
+	}
+
+	/**
+	 * Overwrites the retry budget. Every request adds the given ratio of a retry to the budget (default: 0.1, i.e. one
+	 * retry per 10 requests), every retry consumes one. The budget is capped at the minimum budget, which is also
+	 * available initially (default: 10 retries).
+	 *
+	 * @param ratio
+	 * 		retries per request
+	 * @param minBudget
+	 * 		retries that are available independent of the number of requests
+	 * @return this
+	 */
+	public synchronized RetryPolicy withBudget(double ratio, int minBudget) {
+		if (ratio < 0 || minBudget < 0) {
+			throw new IllegalArgumentException("ratio and minBudget must not be negative");
+		}
+		this.budgetRatio = ratio;
+		this.minBudget = minBudget;
+		this.budget = minBudget;
+		return this;
+	}
+
+	/**
+	 * Executes the request and retries it in case it failed transiently.
+	 *
+	 * @param uri
+	 * 		the URI of the request
+	 * @param idempotent
+	 * 		whether the request may be retried after it has been processed by the identity service
+	 * @param request
+	 * 		the request
+	 * @param <T>
+	 * 		the type of the response
+	 * @return the response
+	 * @throws IOException
+	 * 		the error of the last attempt
+	 */
+	public <T> T execute(@Nonnull URI uri, boolean idempotent, @Nonnull CircuitBreaker.Request<T, IOException> request)
+			throws IOException {
+		Assertions.assertNotNull(uri, "uri must not be null");
+		requests.incrementAndGet();
+		depositBudget();
+		for (int attempt = 1;; attempt++) {
+			try {
+				return request.execute();
+			} catch (IOException e) {
+				if (attempt >= maxAttempts || !isRetryable(e, idempotent)) {
+					throw e;
+				}
+				Duration delay = getDelay(e, attempt);
+				if (delay == null) {
+					LOGGER.debug("Request to {} is not retried, Retry-After exceeds maximum backoff", uri);
+					throw e;
+				}
+				if (!withdrawBudget()) {
+					budgetExhausted.incrementAndGet();
+					LOGGER.warn("Request to {} is not retried, retry budget is exhausted", uri);
+					throw e;
+				}
+				retries.incrementAndGet();
+				LOGGER.debug("Retrying request to {} in {} ms after attempt {} failed: {}", uri, delay.toMillis(),
+						attempt, e.getMessage());
+				try {
+					sleeper.sleep(delay);
+				} catch (InterruptedException interruptedException) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+			}
+		}
+	}
+
+	static <T> T execute(@Nullable RetryPolicy retryPolicy, URI uri, boolean idempotent,
+			CircuitBreaker.Request<T, IOException> request) throws IOException {
+		return retryPolicy != null ? retryPolicy.execute(uri, idempotent, request) : request.execute();
+	}
+
+	/**
+	 * Returns the statistics of the requests executed with this policy.
+	 *
+	 * @return the statistics
+	 */
+	public Statistics getStatistics() {
+		return new Statistics(requests.get(), retries.get(), budgetExhausted.get());
+	}
+
+	private boolean isRetryable(IOException e, boolean idempotent) {
+		if (e instanceof OAuth2ServiceException oAuth2Exception) {
+			Integer statusCode = oAuth2Exception.getHttpStatusCode();
+			if (statusCode == null || statusCode == 0) {
+				return false; // e.g. rejected by circuit breaker or invalid response
+			}
+			return idempotent ? retryableStatusCodes.contains(statusCode) : statusCode == TOO_MANY_REQUESTS;
+		}
+		return idempotent || e instanceof ConnectException;
+	}
+
+	@Nullable
+	private Duration getDelay(IOException e, int attempt) {
+		Duration backoff = initialBackoff.multipliedBy(1L << Math.min(attempt - 1, 30));
+		if (backoff.compareTo(maxBackoff) > 0 || backoff.isNegative()) {
+			backoff = maxBackoff;
+		}
+		Duration delay = Duration.ofMillis(Math.round(backoff.toMillis() * (0.5 + 0.5 * random.getAsDouble())));
+		Duration retryAfter = e instanceof OAuth2ServiceException oAuth2Exception
+				? getRetryAfter(oAuth2Exception)
+				: null;
+		if (retryAfter == null) {
+			return delay;
+		}
+		if (retryAfter.compareTo(maxBackoff) > 0) {
+			return null;
+		}
+		return retryAfter.compareTo(delay) > 0 ? retryAfter : delay;
+	}
+
+	@Nullable
+	private Duration getRetryAfter(OAuth2ServiceException e) {
+		for (String header : e.getHeaders()) {
+			if (header.regionMatches(true, 0, RETRY_AFTER, 0, RETRY_AFTER.length())) {
+				String value = header.substring(RETRY_AFTER.length()).trim();
+				try {
+					return Duration.ofSeconds(Math.max(0, Long.parseLong(value)));
+				} catch (NumberFormatException numberFormatException) {
+					try {
+						Duration untilDate = Duration.between(clock.instant(),
+								ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME));
+						return untilDate.isNegative() ? Duration.ZERO : untilDate;
+					} catch (DateTimeParseException dateTimeParseException) {
+						LOGGER.debug("Ignoring invalid Retry-After header {}", header);
+						return null;
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	private synchronized void depositBudget() {
+		budget = Math.min(budget + budgetRatio, Math.max(minBudget, 1));
+	}
+
+	private synchronized boolean withdrawBudget() {
+		if (budget < 1) {
+			return false;
+		}
+		budget--;
+		return true;
+	}
+
+	/**
+	 * Statistics of the requests executed with a retry policy.
+	 *
+	 * @param requests
+	 * 		the total number of requests, excluding retries
+	 * @param retries
+	 * 		the total number of retries
+	 * @param budgetExhausted
+	 * 		the number of retries that were not performed as the retry budget was exhausted
+	 */
+	public record Statistics(long requests, long retries, long budgetExhausted) {
+	}
+
+	@FunctionalInterface
+	interface Sleeper {
+		void sleep(Duration duration) throws InterruptedException;
+	}
+}
@@ -0,0 +1,71 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.xsuaa.client;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.time.Duration;
+
+/**
+ * Second level token cache that is shared by the token services of several application instances, e.g. backed by a
+ * distributed cache. It is consulted by {@link AbstractOAuth2TokenService} when a token is not found in its own cache,
+ * see {@link AbstractOAuth2TokenService#enableSharedTokenCache(SharedTokenCache, TokenCacheCipher)}.
+ * <p>
+ * The keys are SHA-256 digests of the token requests, they do not contain any credentials. The values are serialized
+ * token responses, encrypted with the {@link TokenCacheCipher} if one is configured. Implementations must be thread
+ * safe and should respond fast, errors are logged and treated as cache misses.
+ * <p>
+ * This library provides the reference implementations {@link InMemorySharedTokenCache} and
+ * {@link FileSharedTokenCache}.
+ */
+public interface SharedTokenCache {
+
+	/**
+	 * Returns the value stored for the key, unless it has expired.
+	 *
+	 * @param key
+	 * 		the key
+	 * @return the value or null
+	 */
+	@Nullable
+	byte[] get(@Nonnull String key);
+
+	/**
+	 * Stores the value for the given time.
+	 *
+	 * @param key
+	 * 		the key
+	 * @param value
+	 * 		the value
+	 * @param timeToLive
+	 * 		the time after which the value expires
+	 */
+	void put(@Nonnull String key, @Nonnull byte[] value, @Nonnull Duration timeToLive);
+
+	/**
+	 * Acquires the lock of the key, so that only one application instance requests the token while the others wait
+	 * for it to be stored. The lock must be released automatically after the lease time, in case its owner fails to
+	 * {@link #unlock(String)} it. By default, locking is not supported and the lock is always acquired.
+	 *
+	 * @param key
+	 * 		the key
+	 * @param leaseTime
+	 * 		the maximum time the lock is held
+	 * @return true if the lock has been acquired, false if it is held by someone else
+	 */
+	default boolean tryLock(@Nonnull String key, @Nonnull Duration leaseTime) {
+		return true;
+	}
+
+	/**
+	 * Releases the lock acquired with {@link #tryLock(String, Duration)}.
+	 *
+	 * @param key
+	 * 		the key
+	 */
+	default void unlock(@Nonnull String key) {
+	}
+}
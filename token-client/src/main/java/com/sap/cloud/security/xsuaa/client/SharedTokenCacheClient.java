@@ -0,0 +1,95 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.xsuaa.client;
+
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
+
+import static com.sap.cloud.security.xsuaa.client.OAuth2TokenServiceConstants.*;
+
+/**
+ * Serializes, encrypts and stores token responses in a {@link SharedTokenCache}. As the shared cache is an
+ * optimization, its errors are logged and treated as cache misses.
+ */
+class SharedTokenCacheClient {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SharedTokenCacheClient.class);
+	private static final String EXPIRED_AT = "expired_at";
+
+	private final SharedTokenCache cache;
+	@Nullable
+	private final TokenCacheCipher cipher;
+
+	SharedTokenCacheClient(SharedTokenCache cache, @Nullable TokenCacheCipher cipher) {
+		this.cache = cache;
+		this.cipher = cipher;
+	}
+
+	@Nullable
+	OAuth2TokenResponse get(String key) {
+		try {
+			byte[] value = cache.get(key);
+			if (value == null) {
+				return null;
+			}
+			JSONObject json = new JSONObject(new String(decrypt(key, value), StandardCharsets.UTF_8));
+			return new OAuth2TokenResponse(json.optString(ACCESS_TOKEN, null),
+					Instant.ofEpochMilli(json.getLong(EXPIRED_AT)), json.optString(REFRESH_TOKEN, null),
+					json.optString(TOKEN_TYPE, null));
+		} catch (GeneralSecurityException | RuntimeException e) {
+			LOGGER.warn("Token can not be read from shared token cache: {}", e.getMessage());
+			return null;
+		}
+	}
+
+	void put(String key, OAuth2TokenResponse response, Duration timeToLive) {
+		JSONObject json = new JSONObject()
+				.put(ACCESS_TOKEN, response.getAccessToken())
+				.put(REFRESH_TOKEN, response.getRefreshToken())
+				.put(TOKEN_TYPE, response.getTokenType())
+				.put(EXPIRED_AT, response.getExpiredAt().toEpochMilli());
+		try {
+			cache.put(key, encrypt(key, json.toString().getBytes(StandardCharsets.UTF_8)), timeToLive);
+		} catch (GeneralSecurityException | RuntimeException e) {
+			LOGGER.warn("Token can not be stored in shared token cache: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * @return true if the lock has been acquired or can not be acquired due to an error
+	 */
+	boolean tryLock(String key, Duration leaseTime) {
+		try {
+			return cache.tryLock(key, leaseTime);
+		} catch (RuntimeException e) {
+			LOGGER.warn("Shared token cache can not be locked: {}", e.getMessage());
+			return true;
+		}
+	}
+
+	void unlock(String key) {
+		try {
+			cache.unlock(key);
+		} catch (RuntimeException e) {
+			LOGGER.warn("Shared token cache can not be unlocked: {}", e.getMessage());
+		}
+	}
+
+	private byte[] encrypt(String key, byte[] value) throws GeneralSecurityException {
+		return cipher == null ? value : cipher.encrypt(key, value);
+	}
+
+	private byte[] decrypt(String key, byte[] value) throws GeneralSecurityException {
+		return cipher == null ? value : cipher.decrypt(key, value);
+	}
+}
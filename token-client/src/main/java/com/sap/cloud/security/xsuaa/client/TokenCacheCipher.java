@@ -0,0 +1,87 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.xsuaa.client;
+
+import com.sap.cloud.security.xsuaa.Assertions;
+
+import javax.annotation.Nonnull;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+/**
+ * Encrypts the token responses before they are stored in a {@link SharedTokenCache} and decrypts them when they are
+ * read. The ciphertext should be bound to the key it is stored under, so that a token that has been copied to the key
+ * of another token request is not accepted.
+ */
+public interface TokenCacheCipher {
+
+	/**
+	 * Encrypts the value stored under the given key.
+	 *
+	 * @param key
+	 * 		the key of the shared token cache
+	 * @param plaintext
+	 * 		the serialized token response
+	 * @return the ciphertext
+	 * @throws GeneralSecurityException
+	 * 		if the value can not be encrypted
+	 */
+	byte[] encrypt(String key, byte[] plaintext) throws GeneralSecurityException;
+
+	/**
+	 * Decrypts the value read from the given key.
+	 *
+	 * @param key
+	 * 		the key of the shared token cache
+	 * @param ciphertext
+	 * 		the value read from the shared token cache
+	 * @return the serialized token response
+	 * @throws GeneralSecurityException
+	 * 		if the value can not be decrypted, e.g. as it has been modified or encrypted for another key
+	 */
+	byte[] decrypt(String key, byte[] ciphertext) throws GeneralSecurityException;
+
+	/**
+	 * Creates a cipher that encrypts with AES in GCM mode, i.e. that also detects modified values. The key of the
+	 * shared token cache is authenticated as additional data.
+	 *
+	 * @param key
+	 * 		the AES key, shared by all application instances
+	 * @return the cipher
+	 */
+	static TokenCacheCipher aesGcm(@Nonnull SecretKey key) {
+		Assertions.assertNotNull(key, "key must not be null");
+		return new TokenCacheCipher() {
+			private static final int IV_LENGTH = 12;
+			private static final int TAG_LENGTH = 128;
+			private final SecureRandom secureRandom = new SecureRandom();
+
+			@Override
+			public byte[] encrypt(String cacheKey, byte[] plaintext) throws GeneralSecurityException {
+				byte[] iv = new byte[IV_LENGTH];
+				secureRandom.nextBytes(iv);
+				Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+				cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, iv));
+				cipher.updateAAD(cacheKey.getBytes(StandardCharsets.UTF_8));
+				byte[] ciphertext = cipher.doFinal(plaintext);
+				return ByteBuffer.allocate(IV_LENGTH + ciphertext.length).put(iv).put(ciphertext).array();
+			}
+
+			@Override
+			public byte[] decrypt(String cacheKey, byte[] ciphertext) throws GeneralSecurityException {
+				Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+				cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, ciphertext, 0, IV_LENGTH));
+				cipher.updateAAD(cacheKey.getBytes(StandardCharsets.UTF_8));
+				return cipher.doFinal(ciphertext, IV_LENGTH, ciphertext.length - IV_LENGTH);
+			}
+		};
+	}
+}
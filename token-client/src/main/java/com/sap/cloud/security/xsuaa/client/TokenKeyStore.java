@@ -0,0 +1,292 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.xsuaa.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sap.cloud.security.config.CacheConfiguration;
+import com.sap.cloud.security.xsuaa.Assertions;
+import com.sap.cloud.security.xsuaa.http.HttpHeaders;
+import com.sap.cloud.security.xsuaa.tokenflows.Cacheable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Process-wide store for JSON Web Key Sets (JWKS). Token validators and JWT decoders that are configured with the same
+ * store request every JWKS only once and share one cache, i.e. one expiry schedule and one set of cache statistics.
+ * <p>
+ * Entries are keyed by the JWKS URI and the request parameters (headers) the JWKS is requested with. The
+ * {@link HttpHeaders#X_ZID} parameter is not part of the key in case the JWKS URI carries the same {@code zid} query
+ * parameter, as it does not change the JWKS. This way the JWKS requested by spring-xsuaa, which only uses the query
+ * parameter, and java-security, which sends the header as well, share the same entry. Parsed representations of a
+ * JWKS can be attached to its entry via {@link Entry#getParsed(Class, Function)}, so that they are computed only once
+ * as well.
+ */
+public class TokenKeyStore implements Cacheable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(TokenKeyStore.class);
+	private static final TokenKeyStore INSTANCE = new TokenKeyStore();
+
+	private CacheConfiguration cacheConfiguration = new DefaultCacheConfiguration(Duration.ofMinutes(10), 1000);
+	private volatile Cache<String, Entry> cache;
+
+	TokenKeyStore() {
+		// use getInstance factory method
+	}
+
+	/**
+	 * Returns the process-wide instance.
+	 *
+	 * @return the shared token key store
+	 */
+	public static TokenKeyStore getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Configures the cache of the store. The cached token keys are discarded. The default cache duration is 10
+	 * minutes, the default cache size is 1000.
+	 *
+	 * @param cacheConfiguration
+	 * 		the cache configuration
+	 * @return this store
+	 */
+	public synchronized TokenKeyStore withCacheConfiguration(@Nonnull CacheConfiguration cacheConfiguration) {
+		Assertions.assertNotNull(cacheConfiguration, "cacheConfiguration must not be null");
+		this.cacheConfiguration = cacheConfiguration;
+		this.cache = null;
+		LOGGER.debug("Configured token key store with cacheDuration={} seconds, cacheSize={} and statisticsRecording={}",
+				cacheConfiguration.getCacheDuration().getSeconds(), cacheConfiguration.getCacheSize(),
+				cacheConfiguration.isCacheStatisticsEnabled());
+		return this;
+	}
+
+	/**
+	 * Returns the cached JWKS or requests it with the given token key service. Concurrent requests for the same JWKS
+	 * are served by a single request.
+	 *
+	 * @param tokenKeysEndpointUri
+	 * 		the JWKS endpoint URI
+	 * @param params
+	 * 		the header parameters the JWKS is requested with
+	 * @param tokenKeyService
+	 * 		the service that requests the JWKS in case it is not cached
+	 * @return the cache entry
+	 * @throws OAuth2ServiceException
+	 * 		in case the JWKS could not be requested
+	 */
+	@Nonnull
+	public Entry getOrRetrieve(@Nonnull URI tokenKeysEndpointUri, @Nullable Map<String, String> params,
+			@Nonnull OAuth2TokenKeyService tokenKeyService) throws OAuth2ServiceException {
+		Assertions.assertNotNull(tokenKeysEndpointUri, "tokenKeysEndpointUri must not be null");
+		Assertions.assertNotNull(tokenKeyService, "tokenKeyService must not be null");
+		Map<String, String> requestParams = params != null ? params : Collections.emptyMap();
+
+		// using an array to remember OAuth exceptions in lambda because variable needs to be effectively final
+		OAuth2ServiceException[] oAuthException = new OAuth2ServiceException[1];
+		Entry entry = getCache().get(toKey(tokenKeysEndpointUri, requestParams), k -> {
+			try {
+				String json = tokenKeyService.retrieveTokenKeys(tokenKeysEndpointUri, requestParams);
+				return json != null ? new Entry(json) : null;
+			} catch (OAuth2ServiceException e) {
+				oAuthException[0] = e;
+				return null;
+			}
+		});
+		if (oAuthException[0] != null) {
+			throw oAuthException[0];
+		}
+		if (entry == null) {
+			throw new OAuth2ServiceException("Retrieved no token keys from " + tokenKeysEndpointUri);
+		}
+		return entry;
+	}
+
+	/**
+	 * Returns the cached JWKS without requesting it.
+	 *
+	 * @param tokenKeysEndpointUri
+	 * 		the JWKS endpoint URI
+	 * @param params
+	 * 		the header parameters the JWKS is requested with
+	 * @return the cache entry or null if the JWKS is not cached
+	 */
+	@Nullable
+	public Entry getIfPresent(@Nonnull URI tokenKeysEndpointUri, @Nullable Map<String, String> params) {
+		return getCache().getIfPresent(toKey(tokenKeysEndpointUri, params));
+	}
+
+	/**
+	 * Caches a JWKS that has been requested elsewhere, e.g. by a JWT decoder with its own HTTP client.
+	 *
+	 * @param tokenKeysEndpointUri
+	 * 		the JWKS endpoint URI
+	 * @param params
+	 * 		the header parameters the JWKS has been requested with
+	 * @param json
+	 * 		the JWKS in JSON format
+	 */
+	public void put(@Nonnull URI tokenKeysEndpointUri, @Nullable Map<String, String> params, @Nonnull String json) {
+		Assertions.assertNotNull(json, "json must not be null");
+		getCache().put(toKey(tokenKeysEndpointUri, params), new Entry(json));
+	}
+
+	/**
+	 * Removes a JWKS from the store, e.g. when the cache of one of the validators or decoders sharing this store is
+	 * cleared.
+	 *
+	 * @param tokenKeysEndpointUri
+	 * 		the JWKS endpoint URI
+	 * @param params
+	 * 		the header parameters the JWKS has been requested with
+	 */
+	public void invalidate(@Nonnull URI tokenKeysEndpointUri, @Nullable Map<String, String> params) {
+		getCache().invalidate(toKey(tokenKeysEndpointUri, params));
+	}
+
+	/**
+	 * Decorates the given token key service with this store.
+	 *
+	 * @param tokenKeyService
+	 * 		the service that requests the JWKS in case it is not cached
+	 * @return a token key service that looks up this store first
+	 */
+	public OAuth2TokenKeyService asTokenKeyService(@Nonnull OAuth2TokenKeyService tokenKeyService) {
+		Assertions.assertNotNull(tokenKeyService, "tokenKeyService must not be null");
+		return (tokenKeysEndpointUri, params) -> getOrRetrieve(tokenKeysEndpointUri, params, tokenKeyService)
+				.getJson();
+	}
+
+	@Nonnull
+	@Override
+	public synchronized CacheConfiguration getCacheConfiguration() {
+		return cacheConfiguration;
+	}
+
+	@Override
+	public void clearCache() {
+		getCache().invalidateAll();
+	}
+
+	@Override
+	public Object getCacheStatistics() {
+		return getCacheConfiguration().isCacheStatisticsEnabled() ? getCache().stats() : null;
+	}
+
+	private Cache<String, Entry> getCache() {
+		Cache<String, Entry> currentCache = cache;
+		if (currentCache == null) {
+			synchronized (this) {
+				if (cache == null) {
+					Caffeine<Object, Object> cacheBuilder = Caffeine.newBuilder()
+							.expireAfterWrite(cacheConfiguration.getCacheDuration())
+							.maximumSize(cacheConfiguration.getCacheSize());
+					if (cacheConfiguration.isCacheStatisticsEnabled()) {
+						cacheBuilder.recordStats();
+					}
+					cache = cacheBuilder.build();
+				}
+				currentCache = cache;
+			}
+		}
+		return currentCache;
+	}
+
+	private static String toKey(URI tokenKeysEndpointUri, @Nullable Map<String, String> params) {
+		Assertions.assertNotNull(tokenKeysEndpointUri, "tokenKeysEndpointUri must not be null");
+		if (params == null || params.isEmpty()) {
+			return "url:" + tokenKeysEndpointUri;
+		}
+		String zidQueryParameter = getZidQueryParameter(tokenKeysEndpointUri);
+		String paramString = params.entrySet().stream()
+				.filter(e -> e.getValue() != null)
+				.filter(e -> !(HttpHeaders.X_ZID.equalsIgnoreCase(e.getKey()) && e.getValue().equals(zidQueryParameter)))
+				.sorted(Map.Entry.comparingByKey())
+				.map(e -> e.getKey() + ":" + e.getValue())
+				.collect(Collectors.joining("|"));
+		// e.g. url:<url>|x-app_tid:<app_tid>|x-client_id:<client_id>
+		return paramString.isEmpty() ? "url:" + tokenKeysEndpointUri : "url:" + tokenKeysEndpointUri + "|" + paramString;
+	}
+
+	@Nullable
+	private static String getZidQueryParameter(URI tokenKeysEndpointUri) {
+		String query = tokenKeysEndpointUri.getQuery();
+		if (query == null) {
+			return null;
+		}
+		for (String parameter : query.split("&")) {
+			if (parameter.startsWith("zid=")) {
+				return parameter.substring("zid=".length());
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * A cached JWKS.
+	 */
+	public static final class Entry {
+		private final String json;
+		private final Map<Class<?>, Object> parsed = new ConcurrentHashMap<>(2);
+
+		Entry(String json) {
+			this.json = json;
+		}
+
+		/**
+		 * Returns the JWKS.
+		 *
+		 * @return the JWKS in JSON format
+		 */
+		public String getJson() {
+			return json;
+		}
+
+		/**
+		 * Returns the parsed representation of the given type. The parser is only called once per entry and type.
+		 *
+		 * @param type
+		 * 		the type of the parsed representation
+		 * @param parser
+		 * 		creates the parsed representation from the JWKS in JSON format
+		 * @param <T>
+		 * 		the type of the parsed representation
+		 * @return the parsed representation
+		 */
+		public <T> T getParsed(Class<T> type, Function<String, T> parser) {
+			return type.cast(parsed.computeIfAbsent(type, t -> parser.apply(json)));
+		}
+	}
+
+	private static class DefaultCacheConfiguration implements CacheConfiguration {
+		private final Duration cacheDuration;
+		private final int cacheSize;
+
+		DefaultCacheConfiguration(Duration cacheDuration, int cacheSize) {
+			this.cacheDuration = cacheDuration;
+			this.cacheSize = cacheSize;
+		}
+
+		@Override
+		public Duration getCacheDuration() {
+			return cacheDuration;
+		}
+
+		@Override
+		public int getCacheSize() {
+			return cacheSize;
+		}
+	}
+}
@@ -15,6 +15,10 @@ import com.sap.cloud.security.xsuaa.client.OAuth2TokenService;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.sap.cloud.security.xsuaa.Assertions.assertNotNull;
 import static com.sap.cloud.security.xsuaa.client.OAuth2TokenServiceConstants.AUTHORITIES;
@@ -34,6 +38,7 @@ public class ClientCredentialsTokenFlow {
 	private String subdomain;
 	private String zoneId;
 	private Map<String, String> authzAttributes;
+	private int parallelism = 10;
 
 	/**
 	 * Creates a new instance.
@@ -131,6 +136,97 @@ public class ClientCredentialsTokenFlow {
 	 */
 	@Nullable
 	public OAuth2TokenResponse execute() throws IllegalArgumentException, TokenFlowException {
+		return execute(zoneId, subdomain, buildRequestParameters());
+	}
+
+	/**
+	 * Sets the maximum number of tokens that are requested in parallel by {@link #executeForSubdomains(Collection)}
+	 * and {@link #executeForZoneIds(Collection)}. Defaults to 10.
+	 *
+	 * @param parallelism
+	 * 		- the maximum number of parallel token requests.
+	 * @return this builder.
+	 */
+	public ClientCredentialsTokenFlow parallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be greater than 0");
+		}
+		this.parallelism = parallelism;
+		return this;
+	}
+
+	/**
+	 * Executes the token flow for each of the given subdomains (tenants), see {@link #subdomain(String)}. The tokens
+	 * are requested in parallel, see {@link #parallelism(int)}, tokens of the token cache are reused. The zone id set
+	 * with {@link #zoneId(String)} is ignored.
+	 *
+	 * @param subdomains
+	 * 		- the subdomains.
+	 * @return the token responses and errors by subdomain.
+	 * @throws TokenFlowException
+	 * 		- in case the calling thread is interrupted while waiting for the token responses.
+	 */
+	public TenantTokenResponses executeForSubdomains(@Nonnull Collection<String> subdomains)
+			throws TokenFlowException {
+		Assertions.assertNotNull(subdomains, "subdomains must not be null");
+		Map<String, String> requestParameter = buildRequestParameters();
+		return executeForTenants(subdomains, tenant -> execute(null, tenant, requestParameter));
+	}
+
+	/**
+	 * Executes the token flow for each of the given zone ids (tenants), see {@link #zoneId(String)}. The tokens are
+	 * requested in parallel, see {@link #parallelism(int)}, tokens of the token cache are reused. The subdomain set
+	 * with {@link #subdomain(String)} is ignored.
+	 *
+	 * @param zoneIds
+	 * 		- the zone ids.
+	 * @return the token responses and errors by zone id.
+	 * @throws TokenFlowException
+	 * 		- in case the calling thread is interrupted while waiting for the token responses.
+	 */
+	public TenantTokenResponses executeForZoneIds(@Nonnull Collection<String> zoneIds) throws TokenFlowException {
+		Assertions.assertNotNull(zoneIds, "zoneIds must not be null");
+		Map<String, String> requestParameter = buildRequestParameters();
+		return executeForTenants(zoneIds, tenant -> execute(tenant, null, requestParameter));
+	}
+
+	private TenantTokenResponses executeForTenants(Collection<String> tenants, TenantTokenRequest tokenRequest)
+			throws TokenFlowException {
+		Set<String> distinctTenants = new LinkedHashSet<>(tenants);
+		TenantTokenResponses responses = new TenantTokenResponses();
+		if (distinctTenants.isEmpty()) {
+			return responses;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, distinctTenants.size()),
+				runnable -> {
+					Thread thread = new Thread(runnable, "client-credentials-token-flow");
+					thread.setDaemon(true);
+					return thread;
+				});
+		try {
+			Map<String, Future<OAuth2TokenResponse>> futures = new LinkedHashMap<>();
+			for (String tenant : distinctTenants) {
+				futures.put(tenant, executor.submit(() -> tokenRequest.execute(tenant)));
+			}
+			for (Map.Entry<String, Future<OAuth2TokenResponse>> future : futures.entrySet()) {
+				try {
+					responses.add(future.getKey(), future.getValue().get());
+				} catch (ExecutionException e) {
+					responses.add(future.getKey(), e.getCause() instanceof TokenFlowException tokenFlowException
+							? tokenFlowException
+							: new TokenFlowException(e.getCause()));
+				}
+			}
+			return responses;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new TokenFlowException("Interrupted while requesting technical user tokens", e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private Map<String, String> buildRequestParameters() {
 		Map<String, String> requestParameter = new HashMap<>();
 		String authorities = buildAdditionalAuthoritiesJson(authzAttributes);
 
@@ -141,6 +237,11 @@ public class ClientCredentialsTokenFlow {
 		if (!scopesParameter.isEmpty()) {
 			requestParameter.put(SCOPE, scopesParameter);
 		}
+		return requestParameter;
+	}
+
+	private OAuth2TokenResponse execute(String zoneId, String subdomain, Map<String, String> requestParameter)
+			throws TokenFlowException {
 		try {
 			return tokenService
 					.retrieveAccessTokenViaClientCredentialsGrant(endpointsProvider.getTokenEndpoint(),
@@ -154,4 +255,9 @@ public class ClientCredentialsTokenFlow {
 		}
 	}
 
+	@FunctionalInterface
+	private interface TenantTokenRequest {
+		OAuth2TokenResponse execute(String tenant) throws TokenFlowException;
+	}
+
 }
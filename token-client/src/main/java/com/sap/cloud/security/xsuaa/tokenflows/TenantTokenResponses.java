@@ -0,0 +1,73 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.xsuaa.tokenflows;
+
+import com.sap.cloud.security.xsuaa.client.OAuth2TokenResponse;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Result of a token flow that is executed for many tenants, e.g.
+ * {@link ClientCredentialsTokenFlow#executeForSubdomains(java.util.Collection)}. Contains the token response or the
+ * error for each tenant.
+ */
+public class TenantTokenResponses {
+	private final Map<String, OAuth2TokenResponse> tokenResponses = new LinkedHashMap<>();
+	private final Map<String, TokenFlowException> errors = new LinkedHashMap<>();
+
+	TenantTokenResponses() {
+	}
+
+	void add(String tenant, OAuth2TokenResponse tokenResponse) {
+		tokenResponses.put(tenant, tokenResponse);
+	}
+
+	void add(String tenant, TokenFlowException error) {
+		errors.put(tenant, error);
+	}
+
+	/**
+	 * @return the token responses of the tenants whose token flow succeeded, by tenant.
+	 */
+	public Map<String, OAuth2TokenResponse> getTokenResponses() {
+		return Collections.unmodifiableMap(tokenResponses);
+	}
+
+	/**
+	 * @return the errors of the tenants whose token flow failed, by tenant.
+	 */
+	public Map<String, TokenFlowException> getErrors() {
+		return Collections.unmodifiableMap(errors);
+	}
+
+	/**
+	 * @param tenant
+	 * 		the subdomain or zone id
+	 * @return the token response of the tenant or null if its token flow failed.
+	 */
+	@Nullable
+	public OAuth2TokenResponse getTokenResponse(String tenant) {
+		return tokenResponses.get(tenant);
+	}
+
+	/**
+	 * @return true if the token flow failed for at least one tenant.
+	 */
+	public boolean hasErrors() {
+		return !errors.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "TenantTokenResponses{" +
+				"tenants=" + tokenResponses.keySet() +
+				", errors=" + errors +
+				'}';
+	}
+}
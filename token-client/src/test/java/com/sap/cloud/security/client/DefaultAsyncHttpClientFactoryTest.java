@@ -0,0 +1,82 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.client;
+
+import com.sap.cloud.security.config.ClientCredentials;
+import com.sap.cloud.security.config.ClientIdentity;
+import org.apache.commons.io.IOUtils;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.reactor.IOReactorStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.when;
+
+class DefaultAsyncHttpClientFactoryTest {
+
+	private final DefaultAsyncHttpClientFactory cut = new DefaultAsyncHttpClientFactory();
+
+	@AfterEach
+	void tearDown() {
+		cut.close();
+	}
+
+	@Test
+	void createAsyncClient_sharesStartedClientPerIdentity() throws IOException {
+		ClientIdentity certificateIdentity = certificateIdentity("theClientId", "");
+
+		CloseableHttpAsyncClient client = cut.createAsyncClient(certificateIdentity);
+
+		assertSame(client, cut.createAsyncClient(certificateIdentity));
+		assertSame(cut.createAsyncClient(null), cut.createAsyncClient(new ClientCredentials("client", "secret")));
+		assertNotSame(client, cut.createAsyncClient(null));
+		assertEquals(200, cut.getPoolStatistics().getMax());
+		assertEquals(Set.of("theClientId"), cut.getCertificatePoolStatistics().keySet());
+	}
+
+	@Test
+	void createAsyncClient_changedCertificate_replacesClient() throws IOException {
+		CloseableHttpAsyncClient client = cut.createAsyncClient(certificateIdentity("theClientId", ""));
+
+		assertNotSame(client, cut.createAsyncClient(certificateIdentity("theClientId", "\n")));
+		// the replaced client is still used by the services it has been handed out to
+		assertEquals(IOReactorStatus.ACTIVE, client.getStatus());
+
+		cut.close();
+
+		assertEquals(IOReactorStatus.SHUT_DOWN, client.getStatus());
+	}
+
+	@Test
+	void close_closesClients() {
+		CloseableHttpAsyncClient client = cut.createAsyncClient(null);
+
+		cut.close();
+
+		assertEquals(IOReactorStatus.SHUT_DOWN, client.getStatus());
+	}
+
+	private static ClientIdentity certificateIdentity(String clientId, String certificateSuffix) throws IOException {
+		ClientIdentity clientIdentity = Mockito.mock(ClientIdentity.class);
+		when(clientIdentity.getId()).thenReturn(clientId);
+		when(clientIdentity.getKey()).thenReturn(readFromFile("/privateRSAKey.txt"));
+		when(clientIdentity.getCertificate()).thenReturn(readFromFile("/certificates.txt") + certificateSuffix);
+		when(clientIdentity.isCertificateBased()).thenCallRealMethod();
+		return clientIdentity;
+	}
+
+	private static String readFromFile(String file) throws IOException {
+		return IOUtils.resourceToString(file, StandardCharsets.UTF_8);
+	}
+}
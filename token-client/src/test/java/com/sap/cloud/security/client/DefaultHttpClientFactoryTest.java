@@ -6,23 +6,40 @@
 package com.sap.cloud.security.client;
 
 import com.github.tomakehurst.wiremock.WireMockServer;
+import com.sap.cloud.security.config.ClientCertificate;
 import com.sap.cloud.security.config.ClientCredentials;
 import com.sap.cloud.security.config.ClientIdentity;
+import com.sap.cloud.security.mtls.SSLContextFactory;
 import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpHeaders;
+import org.apache.http.HttpHost;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.Socket;
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.util.Set;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.Mockito.when;
 
 class DefaultHttpClientFactoryTest {
@@ -50,6 +67,53 @@ class DefaultHttpClientFactoryTest {
 		return IOUtils.resourceToString(file, StandardCharsets.UTF_8);
 	}
 
+	@Test
+	void createClient_sameCertificate_reusesConnectionPool() throws IOException {
+		CloseableHttpClient client = cut.createClient(config);
+		PoolingHttpClientConnectionManager connectionManager = cut.getConnectionManager("theClientId");
+		client.close();
+
+		cut.createClient(config);
+
+		assertSame(connectionManager, cut.getConnectionManager("theClientId"));
+		assertNotSame(connectionManager, cut.getConnectionManager("theClientId-2"));
+		// not shut down by closing the client
+		assertDoesNotThrow(() -> connectionManager.requestConnection(new HttpRoute(new HttpHost("localhost")), null)
+				.cancel());
+	}
+
+	@Test
+	void createClient_changedCertificate_replacesConnectionPool() throws IOException {
+		ClientIdentity renewedConfig = Mockito.mock(ClientIdentity.class);
+		when(renewedConfig.getId()).thenReturn("theClientId");
+		when(renewedConfig.getKey()).thenReturn(readFromFile("/privateRSAKey.txt"));
+		when(renewedConfig.getCertificate()).thenReturn(readFromFile("/certificates.txt") + "\n");
+		when(renewedConfig.isCertificateBased()).thenCallRealMethod();
+		cut.createClient(config);
+		PoolingHttpClientConnectionManager connectionManager = cut.getConnectionManager("theClientId");
+
+		cut.createClient(renewedConfig);
+
+		assertNotSame(connectionManager, cut.getConnectionManager("theClientId"));
+		// not shut down, as it is used by the clients that have been created before
+		assertDoesNotThrow(() -> connectionManager.requestConnection(new HttpRoute(new HttpHost("localhost")), null)
+				.cancel());
+	}
+
+	@Test
+	void createClient_withoutCertificate_usesSharedConnectionPool() throws IOException {
+		cut.createClient(null).close();
+		cut.createClient(new ClientCredentials("client", "secret"));
+		cut.createClient(config);
+
+		PoolingHttpClientConnectionManager connectionManager = cut.getConnectionManager(null);
+		assertEquals(20, connectionManager.getDefaultMaxPerRoute());
+		assertEquals(2000, connectionManager.getValidateAfterInactivity());
+		assertEquals(200, cut.getPoolStatistics().getMax());
+		assertEquals(Set.of("theClientId"), cut.getCertificatePoolStatistics().keySet());
+		assertNotSame(connectionManager, cut.getConnectionManager("theClientId"));
+	}
+
 	@Test
 	void disableRedirects() throws IOException {
 		WireMockServer wireMockServer = new WireMockServer(8000);
@@ -71,4 +135,105 @@ class DefaultHttpClientFactoryTest {
 		}
 	}
 
-}
\ No newline at end of file
+	@Test
+	void warmUp_tls12_opensConnections_andCountsResumedHandshakes() throws Exception {
+		try (SSLServerSocket serverSocket = startHttpsServer("TLSv1.2")) {
+			DefaultHttpClientFactory cut = new DefaultHttpClientFactory(HttpClientMetrics.NO_OP, trustingServer());
+			URI endpoint = URI.create("https://localhost:" + serverSocket.getLocalPort() + "/token_keys");
+
+			assertEquals(1, cut.warmUp(null, 1, endpoint));
+			assertEquals(2, cut.warmUp(null, 3, endpoint));
+			assertEquals(3, cut.getPoolStatistics().getAvailable());
+
+			DefaultHttpClientFactory.HandshakeStatistics statistics = cut.getHandshakeStatistics();
+			assertEquals(3, statistics.handshakes());
+			assertEquals(2, statistics.resumedHandshakes());
+			assertEquals(2.0 / 3, statistics.resumptionRate(), 0.001);
+		}
+	}
+
+	@Test
+	void warmUp_tls13_resumesSessionsOnceResponseHasBeenRead() throws Exception {
+		try (SSLServerSocket serverSocket = startHttpsServer("TLSv1.3")) {
+			DefaultHttpClientFactory cut = new DefaultHttpClientFactory(HttpClientMetrics.NO_OP, trustingServer());
+			URI endpoint = URI.create("https://localhost:" + serverSocket.getLocalPort() + "/token_keys");
+
+			assertEquals(1, cut.warmUp(null, 1, endpoint));
+			assertEquals(1, cut.warmUp(null, 2, endpoint));
+			assertEquals(0, cut.getHandshakeStatistics().resumedHandshakes()); // session ticket has not been read
+
+			int statusCode = cut.createClient(null).execute(new HttpGet(endpoint), STATUS_CODE_EXTRACTOR);
+			assertEquals(HttpStatus.SC_OK, statusCode);
+			assertEquals(1, cut.warmUp(null, 3, endpoint));
+
+			DefaultHttpClientFactory.HandshakeStatistics statistics = cut.getHandshakeStatistics();
+			assertEquals(3, statistics.handshakes());
+			assertEquals(1, statistics.resumedHandshakes());
+		}
+	}
+
+	@Test
+	void warmUp_unavailableEndpoint_isSkipped() {
+		assertEquals(0, cut.warmUp(config, 2, URI.create("https://localhost:1/oauth/token")));
+		assertEquals(0, cut.getHandshakeStatistics().handshakes());
+	}
+
+	/**
+	 * Starts a server that answers every request with an empty response.
+	 */
+	private static SSLServerSocket startHttpsServer(String protocol) throws Exception {
+		SSLServerSocket serverSocket = (SSLServerSocket) SSLContextFactory.getInstance().create(serverIdentity())
+				.getServerSocketFactory().createServerSocket(0);
+		serverSocket.setEnabledProtocols(new String[] { protocol });
+		Thread server = new Thread(() -> {
+			try {
+				while (true) {
+					Socket socket = serverSocket.accept();
+					Thread connection = new Thread(() -> respond(socket));
+					connection.setDaemon(true);
+					connection.start();
+				}
+			} catch (IOException e) {
+				// closed
+			}
+		});
+		server.setDaemon(true);
+		server.start();
+		return serverSocket;
+	}
+
+	private static void respond(Socket socket) {
+		try (socket) {
+			BufferedReader reader = new BufferedReader(
+					new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isEmpty()) { // end of request headers
+					socket.getOutputStream()
+							.write("HTTP/1.1 200 OK\r\nContent-Length: 0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+					socket.getOutputStream().flush();
+				}
+			}
+		} catch (IOException e) {
+			// closed by client
+		}
+	}
+
+	private static SSLContext trustingServer() throws Exception {
+		KeyStore trustStore = KeyStore.getInstance("jks");
+		trustStore.load(null);
+		trustStore.setCertificateEntry("localhost", SSLContextFactory.getInstance().createKeyStore(serverIdentity())
+				.getCertificate("cert-alias-0"));
+		TrustManagerFactory trustManagerFactory = TrustManagerFactory
+				.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+		trustManagerFactory.init(trustStore);
+		SSLContext context = SSLContext.getInstance("TLS");
+		context.init(null, trustManagerFactory.getTrustManagers(), null);
+		return context;
+	}
+
+	private static ClientCertificate serverIdentity() throws IOException {
+		return new ClientCertificate(readFromFile("/server-certificate-localhost.pem"),
+				readFromFile("/server-key-localhost.pem"), null);
+	}
+}
@@ -0,0 +1,99 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.mtls;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ReloadingKeyManagerTest {
+	private static final String[] RSA = { "RSA" };
+	private static final String[] EC = { "EC" };
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private Path certificateFile;
+	private Path keyFile;
+
+	@Before
+	public void setup() throws IOException {
+		certificateFile = temporaryFolder.getRoot().toPath().resolve("certificate.pem");
+		keyFile = temporaryFolder.getRoot().toPath().resolve("key.pem");
+		write(certificateFile, "/client-certificate-rsa.pem");
+		write(keyFile, "/client-key-rsa.pem");
+	}
+
+	@Test
+	public void reload_providesNewCertificate_andKeepsPreviousForHandshakesInProgress() throws Exception {
+		ReloadingKeyManager cut = new ReloadingKeyManager(certificateFile, keyFile);
+		String rsaAlias = cut.chooseClientAlias(RSA, null, null);
+		assertThat(rsaAlias).isNotNull();
+		assertThat(cut.chooseClientAlias(EC, null, null)).isNull();
+		assertThat(cut.reload()).isFalse();
+
+		write(certificateFile, "/client-certificate-ec.pem");
+		write(keyFile, "/client-key-ec.pem");
+		assertThat(cut.reload()).isTrue();
+
+		String ecAlias = cut.chooseClientAlias(EC, null, null);
+		assertThat(ecAlias).isNotNull().isNotEqualTo(rsaAlias);
+		assertThat(cut.getPrivateKey(ecAlias).getAlgorithm()).isEqualTo("EC");
+		assertThat(cut.getCertificateChain(ecAlias)).isNotEmpty();
+		assertThat(cut.chooseClientAlias(RSA, null, null)).isNull();
+		assertThat(cut.getPrivateKey(rsaAlias).getAlgorithm()).isEqualTo("RSA");
+	}
+
+	@Test
+	public void reload_keepsCurrentCertificate_ifKeyDoesNotMatch() throws Exception {
+		ReloadingKeyManager cut = new ReloadingKeyManager(certificateFile, keyFile);
+		write(keyFile, "/client-key-ec.pem");
+
+		assertThatThrownBy(cut::reload).isInstanceOf(GeneralSecurityException.class);
+
+		String alias = cut.chooseClientAlias(RSA, null, null);
+		assertThat(cut.getPrivateKey(alias).getAlgorithm()).isEqualTo("RSA");
+	}
+
+	@Test
+	public void watch_reloadsChangedFiles() throws Exception {
+		try (ReloadingKeyManager cut = ReloadingKeyManager.watch(certificateFile, keyFile)) {
+			write(keyFile, "/client-key-ec.pem");
+			write(certificateFile, "/client-certificate-ec.pem");
+
+			long deadline = System.currentTimeMillis() + 10_000;
+			while (cut.chooseClientAlias(EC, null, null) == null && System.currentTimeMillis() < deadline) {
+				Thread.sleep(50);
+			}
+			assertThat(cut.chooseClientAlias(EC, null, null)).isNotNull();
+		}
+	}
+
+	@Test
+	public void sslContext_canBeCreated() throws Exception {
+		ReloadingKeyManager keyManager = new ReloadingKeyManager(certificateFile, keyFile);
+
+		assertThat(SSLContextFactory.getInstance().createWithKeyManager(keyManager).getProtocol()).isEqualTo("TLS");
+	}
+
+	private void write(Path file, String resource) throws IOException {
+		Path temporaryFile = Files.createTempFile(temporaryFolder.getRoot().toPath(), "tmp", ".pem");
+		Files.writeString(temporaryFile, IOUtils.resourceToString(resource, StandardCharsets.UTF_8));
+		Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+	}
+}
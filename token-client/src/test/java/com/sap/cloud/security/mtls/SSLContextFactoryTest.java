@@ -11,9 +11,11 @@ import org.apache.commons.io.IOUtils;
 import org.junit.Before;
 import org.junit.Test;
 
+import javax.net.ssl.SSLSessionContext;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
+import java.time.Duration;
 
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.hamcrest.CoreMatchers.is;
@@ -87,6 +89,20 @@ public class SSLContextFactoryTest {
 				IllegalArgumentException.class).hasMessageStartingWith("clientIdentity.getKey()");
 	}
 
+	@Test
+	public void withSessionCache() throws GeneralSecurityException {
+		try {
+			cut.withSessionCache(100, Duration.ofHours(1));
+
+			SSLSessionContext sessionContext = cut.createDefault().getClientSessionContext();
+			assertThat(sessionContext.getSessionCacheSize(), is(100));
+			assertThat(sessionContext.getSessionTimeout(), is(3600));
+		} finally {
+			cut.withSessionCache(20480, Duration.ofHours(24)); // JDK defaults
+		}
+		assertThatThrownBy(() -> cut.withSessionCache(-1, Duration.ZERO)).isInstanceOf(IllegalArgumentException.class);
+	}
+
 	private String readFromFile(String file) throws IOException {
 		return IOUtils.resourceToString(file, StandardCharsets.UTF_8);
 	}
@@ -0,0 +1,19 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.servlet;
+
+/**
+ * Gives tests of other packages access to the test hooks of {@link MDCHelper}.
+ */
+public final class MDCHelperTestUtil {
+
+	private MDCHelperTestUtil() {
+	}
+
+	public static void resetGenerationLogged() {
+		MDCHelper.resetGenerationLogged();
+	}
+}
@@ -14,18 +14,43 @@ import com.sap.cloud.security.xsuaa.tokenflows.TokenCacheConfiguration;
 import org.assertj.core.util.Maps;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import static java.time.ZoneOffset.UTC;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 public class AbstractOAuth2TokenServiceTest {
 
@@ -186,6 +211,36 @@ public class AbstractOAuth2TokenServiceTest {
 		assertThat(firstResponse).isNotSameAs(secondResponse);
 	}
 
+	@Test
+	public void requestAccessToken_shortLivedToken_expiresFromCacheBeforeExpirationDelta()
+			throws OAuth2ServiceException {
+		cut = new TestOAuth2TokenService(cacheConfigurationWithDelta(Duration.ofSeconds(30)));
+		cut.setExpiredAt(NOW.plus(Duration.ofMinutes(2)));
+		retrieveAccessTokenViaClientCredentials();
+
+		cut.advanceTime(Duration.ofSeconds(89));
+		retrieveAccessTokenViaClientCredentials();
+		assertThat(cut.tokenRequestCallCount).isOne();
+
+		cut.advanceTime(Duration.ofSeconds(1));
+		retrieveAccessTokenViaClientCredentials();
+		assertThat(cut.tokenRequestCallCount).isEqualTo(2);
+	}
+
+	@Test
+	public void requestAccessToken_longLivedToken_isCachedForCacheDuration() throws OAuth2ServiceException {
+		cut.setExpiredAt(NOW.plus(Duration.ofHours(12)));
+		retrieveAccessTokenViaClientCredentials();
+
+		cut.advanceTime(TEST_CACHE_CONFIGURATION.getCacheDuration().minusSeconds(1));
+		retrieveAccessTokenViaClientCredentials();
+		assertThat(cut.tokenRequestCallCount).isOne();
+
+		cut.advanceTime(Duration.ofSeconds(1));
+		retrieveAccessTokenViaClientCredentials();
+		assertThat(cut.tokenRequestCallCount).isEqualTo(2);
+	}
+
 	@Test
 	public void requestAccessToken_cacheIsFull_requestsFreshToken() throws OAuth2ServiceException {
 		cut = new TestOAuth2TokenService(cacheConfigurationWithSize(1));
@@ -257,6 +312,380 @@ public class AbstractOAuth2TokenServiceTest {
 		assertThat(cut.getCacheStatistics()).isInstanceOf(CacheStats.class);
 	}
 
+	@Test
+	public void requestAccessToken_concurrentRequests_onlyOneRequestCall() throws Exception {
+		cut.blockRequests();
+		cut.expectJoiningRequests(7);
+		Callable<OAuth2TokenResponse> tokenRequest = this::retrieveAccessTokenViaClientCredentials;
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<OAuth2TokenResponse>> responses = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				responses.add(executor.submit(tokenRequest));
+			}
+			cut.awaitRequestStarted();
+			cut.awaitRequestsJoined();
+			cut.releaseRequests();
+
+			OAuth2TokenResponse response = responses.get(0).get(5, TimeUnit.SECONDS);
+			for (Future<OAuth2TokenResponse> other : responses) {
+				assertThat(other.get(5, TimeUnit.SECONDS)).isSameAs(response);
+			}
+			assertThat(cut.tokenRequestCallCount).isOne();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void requestAccessToken_concurrentRequestsFail_errorIsPropagatedAndNotCached() throws Exception {
+		cut.requestError = new OAuth2ServiceException("Service unavailable", 503);
+		cut.blockRequests();
+		cut.expectJoiningRequests(3);
+		Callable<OAuth2TokenResponse> tokenRequest = this::retrieveAccessTokenViaClientCredentials;
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<OAuth2TokenResponse>> responses = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				responses.add(executor.submit(tokenRequest));
+			}
+			cut.awaitRequestStarted();
+			cut.awaitRequestsJoined();
+			cut.releaseRequests();
+
+			for (Future<OAuth2TokenResponse> response : responses) {
+				assertThatThrownBy(() -> response.get(5, TimeUnit.SECONDS))
+						.isInstanceOf(ExecutionException.class)
+						.hasCauseInstanceOf(OAuth2ServiceException.class)
+						.hasMessageContaining("Service unavailable");
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		cut.requestError = null;
+		int callCount = cut.tokenRequestCallCount;
+		assertThat(retrieveAccessTokenViaClientCredentials()).isNotNull();
+		assertThat(cut.tokenRequestCallCount).isEqualTo(callCount + 1);
+	}
+
+	@Test
+	public void requestAccessToken_requestFailsWithError_errorIsPropagatedToWaitingRequests() throws Exception {
+		cut.requestError = new StackOverflowError();
+		cut.blockRequests();
+		cut.expectJoiningRequests(1);
+		Callable<OAuth2TokenResponse> tokenRequest = this::retrieveAccessTokenViaClientCredentials;
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			List<Future<OAuth2TokenResponse>> responses = List.of(executor.submit(tokenRequest),
+					executor.submit(tokenRequest));
+			cut.awaitRequestStarted();
+			cut.awaitRequestsJoined();
+			cut.releaseRequests();
+
+			for (Future<OAuth2TokenResponse> response : responses) {
+				assertThatThrownBy(() -> response.get(5, TimeUnit.SECONDS))
+						.isInstanceOf(ExecutionException.class)
+						.hasMessageContaining("StackOverflowError");
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void requestAccessToken_tokenRefreshedByIdenticalRequestInTheMeantime_isNotRequestedAgain()
+			throws OAuth2ServiceException {
+		cut = new TestOAuth2TokenService(cacheConfigurationWithDelta(Duration.ofSeconds(10)));
+		cut.setExpiredAt(NOW.plus(Duration.ofSeconds(30)));
+		OAuth2TokenResponse expiringResponse = retrieveAccessTokenViaClientCredentials();
+		cut.clock = Clock.offset(cut.clock, Duration.ofSeconds(25)); // cached, but needs to be refreshed
+		cut.setExpiredAt(NOW.plus(Duration.ofHours(1)));
+		List<OAuth2TokenResponse> identicalResponse = new ArrayList<>();
+		// the identical request refreshes the token after this request has found the expiring token in the cache
+		cut.onClockAccess = () -> identicalResponse.add(retrieveAccessTokenViaClientCredentials());
+
+		OAuth2TokenResponse response = retrieveAccessTokenViaClientCredentials();
+
+		assertThat(response).isNotSameAs(expiringResponse).isSameAs(identicalResponse.get(0));
+		assertThat(cut.tokenRequestCallCount).isEqualTo(2);
+	}
+
+	@Test
+	public void requestAccessToken_requestInProgressTakesTooLong_throwsException() throws Exception {
+		cut.inFlightRequestTimeout = Duration.ofMillis(50);
+		cut.blockRequests();
+		Callable<OAuth2TokenResponse> tokenRequest = this::retrieveAccessTokenViaClientCredentials;
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<OAuth2TokenResponse> response = executor.submit(tokenRequest);
+			cut.awaitRequestStarted();
+
+			assertThatThrownBy(this::retrieveAccessTokenViaClientCredentials)
+					.isInstanceOf(OAuth2ServiceException.class)
+					.hasMessageContaining("Timed out after 50 ms");
+
+			cut.releaseRequests();
+			assertThat(response.get(5, TimeUnit.SECONDS)).isNotNull();
+			assertThat(cut.tokenRequestCallCount).isOne();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void refreshAhead_usedToken_isRefreshedInBackgroundBeforeExpirationDelta() throws OAuth2ServiceException {
+		cut = new TestOAuth2TokenService(TokenCacheConfiguration.getInstance(Duration.ofDays(1), 100,
+				Duration.ofSeconds(30)));
+		cut.setExpiredAt(NOW.plus(Duration.ofHours(1)));
+		ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+		cut.enableRefreshAhead(executor, () -> 0.0);
+
+		OAuth2TokenResponse response = retrieveAccessTokenViaClientCredentials();
+		retrieveAccessTokenViaClientCredentials();
+
+		ArgumentCaptor<Runnable> refresh = ArgumentCaptor.forClass(Runnable.class);
+		verify(executor).schedule(refresh.capture(), eq(Duration.ofMinutes(59).plusSeconds(30).toMillis()),
+				eq(TimeUnit.MILLISECONDS));
+		cut.advanceTime(Duration.ofMinutes(59).plusSeconds(30));
+		cut.setExpiredAt(NOW.plus(Duration.ofHours(2)));
+		refresh.getValue().run();
+
+		assertThat(cut.tokenRequestCallCount).isEqualTo(2);
+		assertThat(retrieveAccessTokenViaClientCredentials()).isNotSameAs(response);
+		assertThat(cut.tokenRequestCallCount).isEqualTo(2);
+	}
+
+	@Test
+	public void refreshAhead_withExecutor_schedulerOnlyTriggersRefresh() throws OAuth2ServiceException {
+		ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+		Executor executor = mock(Executor.class);
+		cut.enableRefreshAhead(scheduler, executor);
+
+		retrieveAccessTokenViaClientCredentials();
+		retrieveAccessTokenViaClientCredentials();
+
+		ArgumentCaptor<Runnable> trigger = ArgumentCaptor.forClass(Runnable.class);
+		verify(scheduler).schedule(trigger.capture(), anyLong(), eq(TimeUnit.MILLISECONDS));
+		trigger.getValue().run();
+		assertThat(cut.tokenRequestCallCount).isOne();
+
+		ArgumentCaptor<Runnable> refresh = ArgumentCaptor.forClass(Runnable.class);
+		verify(executor).execute(refresh.capture());
+		cut.advanceTime(TEST_CACHE_CONFIGURATION.getCacheDuration());
+		refresh.getValue().run();
+		assertThat(cut.tokenRequestCallCount).isEqualTo(2);
+	}
+
+	@Test
+	public void refreshAhead_unusedToken_isNotRefreshed() throws OAuth2ServiceException {
+		ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+		cut.enableRefreshAhead(executor, () -> 0.0);
+
+		retrieveAccessTokenViaClientCredentials();
+
+		ArgumentCaptor<Runnable> refresh = ArgumentCaptor.forClass(Runnable.class);
+		verify(executor).schedule(refresh.capture(), anyLong(), eq(TimeUnit.MILLISECONDS));
+		refresh.getValue().run();
+
+		assertThat(cut.tokenRequestCallCount).isOne();
+		verify(executor, times(1)).schedule(any(Runnable.class), anyLong(), any());
+	}
+
+	@Test
+	public void refreshAhead_isScheduledBeforeCacheEvictionWithJitter() throws OAuth2ServiceException {
+		ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+		cut.enableRefreshAhead(executor, () -> 1.0);
+
+		retrieveAccessTokenViaClientCredentials();
+
+		long cacheDuration = TEST_CACHE_CONFIGURATION.getCacheDuration().toMillis();
+		verify(executor).schedule(any(Runnable.class), eq(cacheDuration - cacheDuration / 10),
+				eq(TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void refreshAhead_otherGrantTypes_areNotRefreshed() throws OAuth2ServiceException {
+		ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+		cut.enableRefreshAhead(executor, () -> 0.0);
+
+		retrieveAccessTokenViaPasswordGrant("user1");
+		retrieveAccessTokenViaRefreshToken("refresh-token");
+		retrieveAccessTokenViaJwtBearerTokenGrant("token");
+
+		verifyNoInteractions(executor);
+	}
+
+	@Test
+	public void refreshAhead_tokenEvictedFromCache_refreshIsCancelled() throws OAuth2ServiceException {
+		cut = new TestOAuth2TokenService(cacheConfigurationWithSize(1));
+		ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+		ScheduledFuture<?> scheduledRefresh = mock(ScheduledFuture.class);
+		doReturn(scheduledRefresh).when(executor).schedule(any(Runnable.class), anyLong(), any());
+		cut.enableRefreshAhead(executor, () -> 0.0);
+
+		retrieveAccessTokenViaClientCredentials(new ClientCredentials("client1", "secret"), false);
+		retrieveAccessTokenViaClientCredentials(new ClientCredentials("client2", "secret"), false);
+
+		verify(executor, times(2)).schedule(any(Runnable.class), anyLong(), any());
+		verify(scheduledRefresh, times(1)).cancel(false);
+	}
+
+	@Test
+	public void refreshAhead_cacheDisabled_isIgnored() throws OAuth2ServiceException {
+		cut = new TestOAuth2TokenService(TokenCacheConfiguration.cacheDisabled());
+		ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+		cut.enableRefreshAhead(executor);
+
+		retrieveAccessTokenViaClientCredentials();
+
+		verifyNoInteractions(executor);
+	}
+
+	@Test
+	public void cacheKey_isIndependentOfOrderOfHeadersAndParameters() {
+		Map<String, String> parameters = new LinkedHashMap<>();
+		parameters.put("grant_type", "client_credentials");
+		parameters.put("client_secret", "secret");
+		Map<String, String> reorderedParameters = new LinkedHashMap<>();
+		reorderedParameters.put("client_secret", "secret");
+		reorderedParameters.put("grant_type", "client_credentials");
+
+		AbstractOAuth2TokenService.CacheKey cacheKey = AbstractOAuth2TokenService.CacheKey.of(TOKEN_ENDPOINT_URI,
+				new HttpHeaders().withHeader("Accept", "application/json").withHeader(HttpHeaders.X_ZID, ZONE_ID),
+				parameters);
+		AbstractOAuth2TokenService.CacheKey sameCacheKey = AbstractOAuth2TokenService.CacheKey.of(TOKEN_ENDPOINT_URI,
+				new HttpHeaders().withHeader(HttpHeaders.X_ZID, ZONE_ID).withHeader("Accept", "application/json"),
+				reorderedParameters);
+
+		assertThat(cacheKey).isEqualTo(sameCacheKey).hasSameHashCodeAs(sameCacheKey);
+	}
+
+	@Test
+	public void cacheKey_distinguishesRequestsAndHidesSecrets() {
+		AbstractOAuth2TokenService.CacheKey cacheKey = AbstractOAuth2TokenService.CacheKey.of(TOKEN_ENDPOINT_URI,
+				new HttpHeaders(), Map.of("client_secret", "secret"));
+
+		assertThat(cacheKey)
+				.isNotEqualTo(AbstractOAuth2TokenService.CacheKey.of(TOKEN_ENDPOINT_URI, new HttpHeaders(),
+						Map.of("client_secret", "other secret")))
+				.isNotEqualTo(AbstractOAuth2TokenService.CacheKey.of(TOKEN_ENDPOINT_URI, new HttpHeaders(),
+						Map.of("client_secretsecret", "")))
+				.isNotEqualTo(AbstractOAuth2TokenService.CacheKey.of(URI.create("http://other.endpoint/oauth/token"),
+						new HttpHeaders(), Map.of("client_secret", "secret")));
+		assertThat(cacheKey.toString()).doesNotContain("secret");
+	}
+
+	@Test
+	public void sharedTokenCache_tokenOfOtherInstance_isNotRequestedAgain() throws OAuth2ServiceException {
+		SharedTokenCache sharedTokenCache = new InMemorySharedTokenCache();
+		TestOAuth2TokenService otherInstance = new TestOAuth2TokenService(TEST_CACHE_CONFIGURATION);
+		cut.enableSharedTokenCache(sharedTokenCache);
+		otherInstance.enableSharedTokenCache(sharedTokenCache);
+
+		retrieveAccessTokenViaClientCredentials();
+		OAuth2TokenResponse response = otherInstance.retrieveAccessTokenViaClientCredentialsGrant(TOKEN_ENDPOINT_URI,
+				clientIdentity(), ZONE_ID, SUBDOMAIN, null, false);
+
+		assertThat(response.getAccessToken()).isEqualTo("token");
+		assertThat(response.getExpiredAt()).isEqualTo(NOW.plus(Duration.ofDays(1)));
+		assertThat(cut.tokenRequestCallCount).isOne();
+		assertThat(otherInstance.tokenRequestCallCount).isZero();
+	}
+
+	@Test
+	public void sharedTokenCache_tokenIsRequestedByOtherInstance_waitsForIt() throws Exception {
+		SharedTokenCache sharedTokenCache = new InMemorySharedTokenCache();
+		TestOAuth2TokenService otherInstance = new TestOAuth2TokenService(TEST_CACHE_CONFIGURATION);
+		cut.enableSharedTokenCache(sharedTokenCache);
+		otherInstance.enableSharedTokenCache(sharedTokenCache);
+		cut.blockRequests();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Callable<OAuth2TokenResponse> request = this::retrieveAccessTokenViaClientCredentials;
+			Future<OAuth2TokenResponse> response = executor.submit(request);
+			cut.awaitRequestStarted();
+			Future<OAuth2TokenResponse> otherResponse = executor.submit(
+					() -> otherInstance.retrieveAccessTokenViaClientCredentialsGrant(TOKEN_ENDPOINT_URI,
+							clientIdentity(), ZONE_ID, SUBDOMAIN, null, false));
+			cut.releaseRequests();
+
+			assertThat(otherResponse.get(5, TimeUnit.SECONDS).getAccessToken()).isEqualTo("token");
+			assertThat(response.get(5, TimeUnit.SECONDS).getAccessToken()).isEqualTo("token");
+			assertThat(otherInstance.tokenRequestCallCount).isZero();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void sharedTokenCache_requestOfOtherInstanceFails_requestsTokenOnceLockIsReleased() throws Exception {
+		SharedTokenCache sharedTokenCache = new InMemorySharedTokenCache();
+		TestOAuth2TokenService otherInstance = new TestOAuth2TokenService(TEST_CACHE_CONFIGURATION);
+		cut.enableSharedTokenCache(sharedTokenCache);
+		otherInstance.enableSharedTokenCache(sharedTokenCache);
+		// the lease of the lock does not expire within the test
+		cut.inFlightRequestTimeout = Duration.ofMinutes(10);
+		otherInstance.inFlightRequestTimeout = Duration.ofMinutes(10);
+		cut.requestError = new OAuth2ServiceException("Unauthorized");
+		cut.blockRequests();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Callable<OAuth2TokenResponse> request = this::retrieveAccessTokenViaClientCredentials;
+			Future<OAuth2TokenResponse> response = executor.submit(request);
+			cut.awaitRequestStarted();
+			Future<OAuth2TokenResponse> otherResponse = executor.submit(
+					() -> otherInstance.retrieveAccessTokenViaClientCredentialsGrant(TOKEN_ENDPOINT_URI,
+							clientIdentity(), ZONE_ID, SUBDOMAIN, null, false));
+			cut.releaseRequests();
+
+			assertThatThrownBy(() -> response.get(5, TimeUnit.SECONDS))
+					.hasCauseInstanceOf(OAuth2ServiceException.class);
+			assertThat(otherResponse.get(5, TimeUnit.SECONDS).getAccessToken()).isEqualTo("token");
+			assertThat(otherInstance.tokenRequestCallCount).isOne();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void sharedTokenCache_tokensOfUsers_areNotShared() throws OAuth2ServiceException {
+		SharedTokenCache sharedTokenCache = spy(new InMemorySharedTokenCache());
+		cut.enableSharedTokenCache(sharedTokenCache);
+
+		retrieveAccessTokenViaJwtBearerTokenGrant("jwt");
+		retrieveAccessTokenViaPasswordGrant("username");
+		retrieveAccessTokenViaRefreshToken("refreshToken");
+
+		assertThat(cut.tokenRequestCallCount).isEqualTo(3);
+		verifyNoInteractions(sharedTokenCache);
+	}
+
+	@Test
+	public void sharedTokenCache_withCipher_storesEncryptedToken() throws Exception {
+		SharedTokenCache sharedTokenCache = spy(new InMemorySharedTokenCache());
+		KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+		SecretKey key = keyGenerator.generateKey();
+		cut.enableSharedTokenCache(sharedTokenCache, TokenCacheCipher.aesGcm(key));
+		TestOAuth2TokenService otherInstance = new TestOAuth2TokenService(TEST_CACHE_CONFIGURATION);
+		otherInstance.enableSharedTokenCache(sharedTokenCache, TokenCacheCipher.aesGcm(key));
+		TestOAuth2TokenService instanceWithOtherKey = new TestOAuth2TokenService(TEST_CACHE_CONFIGURATION);
+		instanceWithOtherKey.enableSharedTokenCache(sharedTokenCache,
+				TokenCacheCipher.aesGcm(keyGenerator.generateKey()));
+
+		retrieveAccessTokenViaClientCredentials();
+		otherInstance.retrieveAccessTokenViaClientCredentialsGrant(TOKEN_ENDPOINT_URI, clientIdentity(), ZONE_ID,
+				SUBDOMAIN, null, false);
+		instanceWithOtherKey.retrieveAccessTokenViaClientCredentialsGrant(TOKEN_ENDPOINT_URI, clientIdentity(),
+				ZONE_ID, SUBDOMAIN, null, false);
+
+		ArgumentCaptor<byte[]> value = ArgumentCaptor.forClass(byte[].class);
+		verify(sharedTokenCache, times(2)).put(any(), value.capture(), any());
+		assertThat(new String(value.getValue(), StandardCharsets.UTF_8)).doesNotContain("access_token", "token");
+		assertThat(otherInstance.tokenRequestCallCount).isZero();
+		assertThat(instanceWithOtherKey.tokenRequestCallCount).isOne();
+	}
+
 	private OAuth2TokenResponse retrieveAccessTokenViaJwtBearerTokenGrant(String token) throws OAuth2ServiceException {
 		return retrieveAccessTokenViaJwtBearerTokenGrant(token, null);
 	}
@@ -323,9 +752,15 @@ public class AbstractOAuth2TokenServiceTest {
 	private static class TestOAuth2TokenService extends AbstractOAuth2TokenService {
 
 		private final static TestCacheTicker testCacheTicker = new TestCacheTicker();
-		private int tokenRequestCallCount = 0;
+		private volatile int tokenRequestCallCount = 0;
 		private Instant expiredAt = NOW.plus(Duration.ofDays(1));
 		private Clock clock = Clock.fixed(NOW, UTC);
+		private Duration inFlightRequestTimeout = Duration.ofSeconds(5);
+		private volatile Throwable requestError;
+		private volatile Callable<?> onClockAccess;
+		private final CountDownLatch requestStarted = new CountDownLatch(1);
+		private volatile CountDownLatch requestsJoined = new CountDownLatch(0);
+		private volatile CountDownLatch requestReleased = new CountDownLatch(0);
 
 		public TestOAuth2TokenService(TokenCacheConfiguration tokenCacheConfiguration) {
 			super(tokenCacheConfiguration, testCacheTicker, true);
@@ -341,19 +776,63 @@ public class AbstractOAuth2TokenServiceTest {
 			testCacheTicker.advance(duration);
 		}
 
+		public void blockRequests() {
+			requestReleased = new CountDownLatch(1);
+		}
+
+		public void awaitRequestStarted() throws InterruptedException {
+			assertThat(requestStarted.await(5, TimeUnit.SECONDS)).isTrue();
+		}
+
+		public void expectJoiningRequests(int count) {
+			requestsJoined = new CountDownLatch(count);
+		}
+
+		public void awaitRequestsJoined() throws InterruptedException {
+			assertThat(requestsJoined.await(5, TimeUnit.SECONDS)).isTrue();
+		}
+
+		public void releaseRequests() {
+			requestReleased.countDown();
+		}
+
 		@Override
 		protected Clock getClock() {
+			Callable<?> callback = onClockAccess;
+			if (callback != null) {
+				onClockAccess = null;
+				try {
+					callback.call();
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			}
 			return clock;
 		}
 
 		@Override
-		protected OAuth2TokenResponse requestAccessToken(URI tokenEndpointUri, HttpHeaders headers,
-				Map<String, String> parameters) {
+		protected Duration getInFlightRequestTimeout() {
+			requestsJoined.countDown(); // called by requests before they wait for the request in progress
+			return inFlightRequestTimeout;
+		}
+
+		@Override
+		protected synchronized OAuth2TokenResponse requestAccessToken(URI tokenEndpointUri, HttpHeaders headers,
+				Map<String, String> parameters) throws OAuth2ServiceException {
 			tokenRequestCallCount++;
-			OAuth2TokenResponse responseMock = mock(OAuth2TokenResponse.class);
-			when(responseMock.getAccessToken()).thenReturn("token");
-			when(responseMock.getExpiredAt()).thenReturn(expiredAt);
-			return responseMock;
+			requestStarted.countDown();
+			try {
+				requestReleased.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (requestError instanceof OAuth2ServiceException oAuth2Exception) {
+				throw oAuth2Exception;
+			}
+			if (requestError instanceof Error error) {
+				throw error;
+			}
+			return new OAuth2TokenResponse("token", expiredAt, null, "bearer");
 		}
 	}
 
@@ -0,0 +1,84 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.xsuaa.client;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.sap.cloud.security.client.DefaultAsyncHttpClientFactory;
+import com.sap.cloud.security.token.SecurityContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static com.sap.cloud.security.xsuaa.http.HttpHeaders.X_APP_TID;
+import static com.sap.cloud.security.xsuaa.http.HttpHeaders.X_OSB_PLAN;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AsyncHttpClientOAuth2TokenKeyServiceTest {
+
+	private static final String JWKS = "{\"keys\": []}";
+
+	private WireMockServer wireMockServer;
+	private URI tokenKeysEndpointUri;
+	private DefaultAsyncHttpClientFactory httpClientFactory;
+	private AsyncHttpClientOAuth2TokenKeyService cut;
+
+	@Before
+	public void setUp() {
+		wireMockServer = new WireMockServer(options().dynamicPort());
+		wireMockServer.start();
+		tokenKeysEndpointUri = URI.create(wireMockServer.baseUrl() + "/token_keys");
+		httpClientFactory = new DefaultAsyncHttpClientFactory();
+		cut = new AsyncHttpClientOAuth2TokenKeyService(httpClientFactory.createAsyncClient(null));
+	}
+
+	@After
+	public void tearDown() {
+		SecurityContext.clear();
+		httpClientFactory.close();
+		wireMockServer.stop();
+	}
+
+	@Test
+	public void retrieveTokenKeys_setsServicePlans() throws OAuth2ServiceException {
+		wireMockServer.stubFor(get(urlEqualTo("/token_keys"))
+				.willReturn(okJson(JWKS).withHeader(X_OSB_PLAN, "\"plan1\"")));
+
+		assertThat(cut.retrieveTokenKeys(tokenKeysEndpointUri, Map.of(X_APP_TID, "tenant"))).isEqualTo(JWKS);
+
+		assertThat(SecurityContext.getServicePlans()).containsExactly("plan1");
+		wireMockServer.verify(getRequestedFor(urlEqualTo("/token_keys"))
+				.withHeader(X_APP_TID, equalTo("tenant"))
+				.withHeader("User-Agent", matching("token-client/.*")));
+	}
+
+	@Test
+	public void retrieveTokenKeysAsync() throws Exception {
+		wireMockServer.stubFor(get(urlEqualTo("/token_keys")).willReturn(okJson(JWKS)));
+
+		assertThat(cut.retrieveTokenKeysAsync(tokenKeysEndpointUri, Map.of()).get(5, TimeUnit.SECONDS))
+				.isEqualTo(JWKS);
+	}
+
+	@Test
+	public void retrieveTokenKeysAsync_errorResponse_completesExceptionally() {
+		wireMockServer.stubFor(get(urlEqualTo("/token_keys")).willReturn(aResponse().withStatus(400)));
+
+		assertThatThrownBy(() -> cut.retrieveTokenKeysAsync(tokenKeysEndpointUri, Map.of()).get(5, TimeUnit.SECONDS))
+				.isInstanceOf(ExecutionException.class)
+				.hasCauseInstanceOf(OAuth2ServiceException.class);
+		assertThatThrownBy(() -> cut.retrieveTokenKeys(tokenKeysEndpointUri, Map.of()))
+				.isInstanceOf(OAuth2ServiceException.class)
+				.extracting(e -> ((OAuth2ServiceException) e).getHttpStatusCode()).isEqualTo(400);
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.xsuaa.client;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.sap.cloud.security.client.DefaultAsyncHttpClientFactory;
+import com.sap.cloud.security.config.ClientCredentials;
+import com.sap.cloud.security.config.ClientIdentity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AsyncHttpClientOAuth2TokenServiceTest {
+
+	private static final String TOKEN_RESPONSE = "{\"access_token\": \"abc123\", \"expires_in\": 43199, \"token_type\": \"bearer\"}";
+	private static final ClientIdentity CLIENT_IDENTITY = new ClientCredentials("clientId", "clientSecret");
+
+	private WireMockServer wireMockServer;
+	private URI tokenEndpointUri;
+	private DefaultAsyncHttpClientFactory httpClientFactory;
+	private AsyncHttpClientOAuth2TokenService cut;
+
+	@Before
+	public void setUp() {
+		wireMockServer = new WireMockServer(options().dynamicPort());
+		wireMockServer.start();
+		tokenEndpointUri = URI.create(wireMockServer.baseUrl() + "/oauth/token");
+		httpClientFactory = new DefaultAsyncHttpClientFactory();
+		cut = new AsyncHttpClientOAuth2TokenService(httpClientFactory.createAsyncClient(CLIENT_IDENTITY));
+	}
+
+	@After
+	public void tearDown() {
+		httpClientFactory.close();
+		wireMockServer.stop();
+	}
+
+	@Test
+	public void retrieveAccessTokenViaClientCredentialsGrant() throws OAuth2ServiceException {
+		wireMockServer.stubFor(post(urlEqualTo("/oauth/token")).willReturn(okJson(TOKEN_RESPONSE)));
+
+		OAuth2TokenResponse response = cut.retrieveAccessTokenViaClientCredentialsGrant(tokenEndpointUri,
+				CLIENT_IDENTITY, "zone", null, null, false);
+
+		assertThat(response.getAccessToken()).isEqualTo("abc123");
+		wireMockServer.verify(postRequestedFor(urlEqualTo("/oauth/token"))
+				.withHeader("Content-Type", equalTo("application/x-www-form-urlencoded"))
+				.withHeader("X-zid", equalTo("zone"))
+				.withHeader("User-Agent", matching("token-client/.*"))
+				.withRequestBody(containing("grant_type=client_credentials"))
+				.withRequestBody(containing("client_secret=clientSecret")));
+	}
+
+	@Test
+	public void retrieveAccessToken_errorResponse_throwsException() {
+		wireMockServer.stubFor(post(urlEqualTo("/oauth/token"))
+				.willReturn(aResponse().withStatus(401).withBody("unauthorized")));
+
+		assertThatThrownBy(() -> cut.retrieveAccessTokenViaClientCredentialsGrant(tokenEndpointUri, CLIENT_IDENTITY,
+				null, null, null, false))
+				.isInstanceOf(OAuth2ServiceException.class)
+				.hasMessageContaining("Error retrieving JWT token")
+				.hasMessageContaining("unauthorized")
+				.extracting(e -> ((OAuth2ServiceException) e).getHttpStatusCode()).isEqualTo(401);
+	}
+
+	@Test
+	public void retrieveAccessTokenAsync_concurrentRequests_areSentOnce() throws Exception {
+		wireMockServer.stubFor(post(urlEqualTo("/oauth/token"))
+				.willReturn(okJson(TOKEN_RESPONSE).withFixedDelay(200)));
+
+		CompletableFuture<OAuth2TokenResponse> response = cut.retrieveAccessTokenViaClientCredentialsGrantAsync(
+				tokenEndpointUri, CLIENT_IDENTITY, null, null, null, false);
+		CompletableFuture<OAuth2TokenResponse> otherResponse = cut
+				.retrieveAccessTokenViaClientCredentialsGrantAsync(tokenEndpointUri, CLIENT_IDENTITY, null, null,
+						null, false);
+
+		assertThat(response.get(5, TimeUnit.SECONDS).getAccessToken()).isEqualTo("abc123");
+		assertThat(otherResponse.get(5, TimeUnit.SECONDS)).isSameAs(response.get());
+		wireMockServer.verify(1, postRequestedFor(urlEqualTo("/oauth/token")));
+	}
+
+	@Test
+	public void retrieveAccessTokenAsync_unavailableEndpoint_completesExceptionally() {
+		CompletableFuture<OAuth2TokenResponse> response = cut.retrieveAccessTokenViaJwtBearerTokenGrantAsync(
+				URI.create("http://localhost:1/oauth/token"), CLIENT_IDENTITY, "jwt", null, null, false);
+
+		assertThatThrownBy(() -> response.get(10, TimeUnit.SECONDS))
+				.isInstanceOf(ExecutionException.class)
+				.hasCauseInstanceOf(OAuth2ServiceException.class)
+				.hasMessageContaining("Unexpected error retrieving JWT token");
+	}
+}
@@ -0,0 +1,69 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.xsuaa.client;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.sap.cloud.security.client.DefaultAsyncHttpClientFactory;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AsyncHttpClientOidcConfigurationServiceTest {
+
+	private WireMockServer wireMockServer;
+	private URI discoveryEndpointUri;
+	private DefaultAsyncHttpClientFactory httpClientFactory;
+	private AsyncHttpClientOidcConfigurationService cut;
+
+	@Before
+	public void setUp() {
+		wireMockServer = new WireMockServer(options().dynamicPort());
+		wireMockServer.start();
+		discoveryEndpointUri = URI.create(wireMockServer.baseUrl() + "/.well-known/openid-configuration");
+		httpClientFactory = new DefaultAsyncHttpClientFactory();
+		cut = new AsyncHttpClientOidcConfigurationService(httpClientFactory.createAsyncClient(null));
+	}
+
+	@After
+	public void tearDown() {
+		httpClientFactory.close();
+		wireMockServer.stop();
+	}
+
+	@Test
+	public void retrieveEndpointsAsync() throws Exception {
+		wireMockServer.stubFor(get(urlEqualTo("/.well-known/openid-configuration"))
+				.willReturn(okJson(IOUtils.resourceToString("/oidcConfiguration.json", StandardCharsets.UTF_8))));
+
+		OAuth2ServiceEndpointsProvider endpoints = cut.retrieveEndpointsAsync(discoveryEndpointUri)
+				.get(5, TimeUnit.SECONDS);
+
+		assertThat(endpoints.getTokenEndpoint()).isNotNull();
+		assertThat(endpoints.getJwksUri()).isNotNull();
+	}
+
+	@Test
+	public void retrieveEndpoints_errorResponse_throwsException() {
+		wireMockServer.stubFor(get(urlEqualTo("/.well-known/openid-configuration"))
+				.willReturn(aResponse().withStatus(404).withBody("not found")));
+
+		assertThatThrownBy(() -> cut.retrieveEndpoints(discoveryEndpointUri))
+				.isInstanceOf(OAuth2ServiceException.class)
+				.hasMessageContaining("Error retrieving configured oidc endpoints")
+				.extracting(e -> ((OAuth2ServiceException) e).getHttpStatusCode()).isEqualTo(404);
+	}
+}
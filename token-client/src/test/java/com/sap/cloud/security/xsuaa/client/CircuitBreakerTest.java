@@ -0,0 +1,199 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.xsuaa.client;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.sap.cloud.security.client.DefaultHttpClientFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CircuitBreakerTest {
+	private static final URI TOKEN_KEYS_URI = URI.create("https://auth.com/token_keys");
+	private static final URI TOKEN_URI = URI.create("https://auth.com/oauth/token");
+	private static final URI OTHER_HOST_URI = URI.create("https://other.auth.com/token_keys");
+
+	private TestClock clock;
+	private CircuitBreaker cut;
+	private AtomicInteger requestCount;
+
+	@Before
+	public void setUp() {
+		clock = new TestClock();
+		cut = new CircuitBreaker(clock, () -> 0.5) // no jitter
+				.withFailureThreshold(2)
+				.withBackoff(Duration.ofSeconds(1), Duration.ofSeconds(3));
+		requestCount = new AtomicInteger();
+	}
+
+	@Test
+	public void opensAfterConsecutiveFailures() {
+		fail(TOKEN_KEYS_URI);
+		assertThat(cut.getState(TOKEN_KEYS_URI)).isEqualTo(CircuitBreaker.State.CLOSED);
+		fail(TOKEN_KEYS_URI);
+		assertThat(cut.getState(TOKEN_KEYS_URI)).isEqualTo(CircuitBreaker.State.OPEN);
+
+		assertThatThrownBy(() -> cut.execute(TOKEN_URI, this::succeedingRequest))
+				.isInstanceOf(OAuth2ServiceException.class)
+				.hasMessageContaining("circuit breaker of https://auth.com is OPEN");
+		assertThat(requestCount).hasValue(2);
+		assertThat(cut.getStatistics().get("https://auth.com"))
+				.isEqualTo(new CircuitBreaker.Statistics(CircuitBreaker.State.OPEN, 2, 2, 1,
+						clock.instant().plusSeconds(1)));
+	}
+
+	@Test
+	public void successResetsConsecutiveFailures() throws OAuth2ServiceException {
+		fail(TOKEN_KEYS_URI);
+		cut.execute(TOKEN_KEYS_URI, this::succeedingRequest);
+		fail(TOKEN_KEYS_URI);
+
+		assertThat(cut.getState(TOKEN_KEYS_URI)).isEqualTo(CircuitBreaker.State.CLOSED);
+	}
+
+	@Test
+	public void clientErrorsAreNoFailures() {
+		for (int i = 0; i < 3; i++) {
+			assertThatThrownBy(() -> cut.execute(TOKEN_KEYS_URI, () -> {
+				throw new OAuth2ServiceException("Bad request", 400);
+			})).isInstanceOf(OAuth2ServiceException.class);
+		}
+
+		assertThat(cut.getState(TOKEN_KEYS_URI)).isEqualTo(CircuitBreaker.State.CLOSED);
+	}
+
+	@Test
+	public void circuitsArePerHost() throws OAuth2ServiceException {
+		fail(TOKEN_KEYS_URI);
+		fail(TOKEN_KEYS_URI);
+
+		assertThat(cut.execute(OTHER_HOST_URI, this::succeedingRequest)).isEqualTo("ok");
+		assertThat(cut.getState(OTHER_HOST_URI)).isEqualTo(CircuitBreaker.State.CLOSED);
+	}
+
+	@Test
+	public void halfOpen_successfulProbeClosesCircuit() throws OAuth2ServiceException {
+		fail(TOKEN_KEYS_URI);
+		fail(TOKEN_KEYS_URI);
+		clock.advance(Duration.ofSeconds(1));
+
+		assertThat(cut.execute(TOKEN_KEYS_URI, this::succeedingRequest)).isEqualTo("ok");
+		assertThat(cut.getState(TOKEN_KEYS_URI)).isEqualTo(CircuitBreaker.State.CLOSED);
+	}
+
+	@Test
+	public void halfOpen_rejectsRequestsWhileProbing() throws OAuth2ServiceException {
+		fail(TOKEN_KEYS_URI);
+		fail(TOKEN_KEYS_URI);
+		clock.advance(Duration.ofSeconds(1));
+
+		String response = cut.execute(TOKEN_KEYS_URI, () -> {
+			assertThat(cut.getState(TOKEN_KEYS_URI)).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+			assertThatThrownBy(() -> cut.execute(TOKEN_KEYS_URI, this::succeedingRequest))
+					.isInstanceOf(OAuth2ServiceException.class)
+					.hasMessageContaining("HALF_OPEN");
+			return "probe";
+		});
+
+		assertThat(response).isEqualTo("probe");
+		assertThat(requestCount).hasValue(2);
+	}
+
+	@Test
+	public void halfOpen_failedProbeDoublesBackoffUpToMaximum() {
+		fail(TOKEN_KEYS_URI);
+		fail(TOKEN_KEYS_URI);
+		clock.advance(Duration.ofSeconds(1));
+		fail(TOKEN_KEYS_URI);
+		assertThat(cut.getStatistics().get("https://auth.com").openUntil())
+				.isEqualTo(clock.instant().plusSeconds(2));
+
+		clock.advance(Duration.ofSeconds(2));
+		fail(TOKEN_KEYS_URI);
+		assertThat(cut.getStatistics().get("https://auth.com").openUntil())
+				.isEqualTo(clock.instant().plusSeconds(3));
+	}
+
+	@Test
+	public void backoffIsJittered() {
+		cut = new CircuitBreaker(clock, () -> 0.0).withFailureThreshold(1);
+
+		fail(TOKEN_KEYS_URI);
+
+		assertThat(cut.getStatistics().get("https://auth.com").openUntil())
+				.isEqualTo(clock.instant().plusMillis(800));
+	}
+
+	@Test
+	public void tokenKeyService_unavailableIdentityService_isNotRequestedWhileCircuitIsOpen() {
+		WireMockServer wireMockServer = new WireMockServer(options().dynamicPort());
+		wireMockServer.stubFor(get(urlEqualTo("/token_keys")).willReturn(aResponse().withStatus(503)));
+		wireMockServer.start();
+		try {
+			URI tokenKeysUri = URI.create(wireMockServer.baseUrl() + "/token_keys");
+			DefaultOAuth2TokenKeyService tokenKeyService = new DefaultOAuth2TokenKeyService(
+					new DefaultHttpClientFactory().createClient(null)).withCircuitBreaker(cut);
+
+			for (int i = 0; i < 5; i++) {
+				assertThatThrownBy(() -> tokenKeyService.retrieveTokenKeys(tokenKeysUri, Collections.emptyMap()))
+						.isInstanceOf(OAuth2ServiceException.class);
+			}
+
+			wireMockServer.verify(2, getRequestedFor(urlEqualTo("/token_keys")));
+			assertThat(cut.getState(tokenKeysUri)).isEqualTo(CircuitBreaker.State.OPEN);
+		} finally {
+			wireMockServer.stop();
+		}
+	}
+
+	private void fail(URI uri) {
+		assertThatThrownBy(() -> cut.execute(uri, () -> {
+			requestCount.incrementAndGet();
+			throw new OAuth2ServiceException("Connect timed out");
+		})).isInstanceOf(OAuth2ServiceException.class);
+	}
+
+	private String succeedingRequest() {
+		requestCount.incrementAndGet();
+		return "ok";
+	}
+
+	private static class TestClock extends Clock {
+		private Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+		void advance(Duration duration) {
+			now = now.plus(duration);
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+	}
+}
@@ -24,6 +24,7 @@ import org.springframework.http.HttpMethod;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -172,6 +173,99 @@ public class DefaultOAuth2TokenKeyServiceTest {
 				any(ResponseHandler.class));
 	}
 
+	@Test
+	public void retrieveTokenKeys_notModified_returnsPreviousBody() throws IOException {
+		CloseableHttpResponse okResponse = HttpClientTestFactory.createHttpResponseWithHeaders(jsonWebKeysAsString,
+				new BasicHeader[] { new BasicHeader("ETag", "\"v1\""),
+						new BasicHeader("Cache-Control", "public, max-age=300") });
+		CloseableHttpResponse notModifiedResponse = HttpClientTestFactory.createHttpResponse("",
+				HttpStatus.SC_NOT_MODIFIED, new BasicHeader[] { new BasicHeader("ETag", "\"v1\"") });
+		when(httpClient.execute(any(), any(ResponseHandler.class)))
+				.thenAnswer(invocation -> ((ResponseHandler) invocation.getArgument(1)).handleResponse(okResponse))
+				.thenAnswer(invocation -> ((ResponseHandler) invocation.getArgument(1))
+						.handleResponse(notModifiedResponse));
+
+		String firstBody = cut.retrieveTokenKeys(TOKEN_KEYS_ENDPOINT_URI, PARAMS);
+		String secondBody = cut.retrieveTokenKeys(TOKEN_KEYS_ENDPOINT_URI, PARAMS);
+
+		assertThat(secondBody).isSameAs(firstBody).isEqualTo(jsonWebKeysAsString);
+		assertThat(cut.getCacheControlMaxAge(TOKEN_KEYS_ENDPOINT_URI, PARAMS)).isEqualTo(Duration.ofSeconds(300));
+		Mockito.verify(httpClient, times(1)).execute(
+				argThat(request -> request.getFirstHeader("If-None-Match") != null
+						&& request.getFirstHeader("If-None-Match").getValue().equals("\"v1\"")),
+				any(ResponseHandler.class));
+	}
+
+	@Test
+	public void retrieveTokenKeys_withoutValidators_sendsUnconditionalRequest() throws IOException {
+		CloseableHttpResponse response = HttpClientTestFactory.createHttpResponse(jsonWebKeysAsString);
+		when(httpClient.execute(any(), any(ResponseHandler.class))).thenAnswer(invocation -> {
+			ResponseHandler responseHandler = invocation.getArgument(1);
+			return responseHandler.handleResponse(response);
+		});
+
+		cut.retrieveTokenKeys(TOKEN_KEYS_ENDPOINT_URI, PARAMS);
+		cut.retrieveTokenKeys(TOKEN_KEYS_ENDPOINT_URI, PARAMS);
+
+		assertThat(cut.getCacheControlMaxAge(TOKEN_KEYS_ENDPOINT_URI, PARAMS)).isNull();
+		Mockito.verify(httpClient, times(2)).execute(argThat(request -> request.getFirstHeader("If-None-Match") == null),
+				any(ResponseHandler.class));
+	}
+
+	@Test
+	public void retrieveTokenKeys_noStore_isNotRevalidated() throws IOException {
+		CloseableHttpResponse response = HttpClientTestFactory.createHttpResponseWithHeaders(jsonWebKeysAsString,
+				new BasicHeader[] { new BasicHeader("ETag", "\"v1\""), new BasicHeader("Cache-Control", "no-store") });
+		when(httpClient.execute(any(), any(ResponseHandler.class))).thenAnswer(invocation -> {
+			ResponseHandler responseHandler = invocation.getArgument(1);
+			return responseHandler.handleResponse(response);
+		});
+
+		cut.retrieveTokenKeys(TOKEN_KEYS_ENDPOINT_URI, PARAMS);
+		cut.retrieveTokenKeys(TOKEN_KEYS_ENDPOINT_URI, PARAMS);
+
+		assertThat(cut.getCacheControlMaxAge(TOKEN_KEYS_ENDPOINT_URI, PARAMS)).isZero();
+		Mockito.verify(httpClient, times(2)).execute(
+				argThat(request -> request.getFirstHeader("If-None-Match") == null),
+				any(ResponseHandler.class));
+	}
+
+	@Test
+	public void retrieveTokenKeys_noCache_isRevalidated() throws IOException {
+		CloseableHttpResponse okResponse = HttpClientTestFactory.createHttpResponseWithHeaders(jsonWebKeysAsString,
+				new BasicHeader[] { new BasicHeader("ETag", "\"v1\""), new BasicHeader("Cache-Control", "no-cache") });
+		CloseableHttpResponse notModifiedResponse = HttpClientTestFactory.createHttpResponse("",
+				HttpStatus.SC_NOT_MODIFIED, new BasicHeader[] { new BasicHeader("ETag", "\"v1\"") });
+		when(httpClient.execute(any(), any(ResponseHandler.class)))
+				.thenAnswer(invocation -> ((ResponseHandler) invocation.getArgument(1)).handleResponse(okResponse))
+				.thenAnswer(invocation -> ((ResponseHandler) invocation.getArgument(1))
+						.handleResponse(notModifiedResponse));
+
+		String firstBody = cut.retrieveTokenKeys(TOKEN_KEYS_ENDPOINT_URI, PARAMS);
+		String secondBody = cut.retrieveTokenKeys(TOKEN_KEYS_ENDPOINT_URI, PARAMS);
+
+		assertThat(secondBody).isSameAs(firstBody);
+		assertThat(cut.getCacheControlMaxAge(TOKEN_KEYS_ENDPOINT_URI, PARAMS)).isZero();
+		Mockito.verify(httpClient, times(1)).execute(
+				argThat(request -> request.getFirstHeader("If-None-Match") != null),
+				any(ResponseHandler.class));
+	}
+
+	@Test
+	public void conditionalRequestKey_containsFingerprintOfClientCertificate() {
+		String certificate = "-----BEGIN CERTIFICATE-----MIIFkjCCA3qgAwIBAgIQ-----END CERTIFICATE-----";
+		Map<String, String> params = Map.of(HttpHeaders.X_APP_TID, APP_TID, HttpHeaders.X_CLIENT_CERT, certificate);
+
+		String requestKey = ConditionalRequestCache.toRequestKey(TOKEN_KEYS_ENDPOINT_URI, params);
+
+		assertThat(requestKey).doesNotContain(certificate).contains(HttpHeaders.X_APP_TID + ":" + APP_TID);
+		assertThat(ConditionalRequestCache.toRequestKey(TOKEN_KEYS_ENDPOINT_URI, new HashMap<>(params)))
+				.isEqualTo(requestKey);
+		assertThat(ConditionalRequestCache.toRequestKey(TOKEN_KEYS_ENDPOINT_URI,
+				Map.of(HttpHeaders.X_APP_TID, APP_TID, HttpHeaders.X_CLIENT_CERT, certificate + "\n")))
+				.isNotEqualTo(requestKey);
+	}
+
 	private ArgumentMatcher<HttpUriRequest> isCorrectHttpGetRequest() {
 		return (httpGet) -> {
 			boolean hasCorrectURI = httpGet.getURI().equals(TOKEN_KEYS_ENDPOINT_URI);
@@ -11,6 +11,7 @@ import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.read.ListAppender;
 import com.sap.cloud.security.config.ClientCredentials;
 import com.sap.cloud.security.servlet.MDCHelper;
+import com.sap.cloud.security.servlet.MDCHelperTestUtil;
 import com.sap.cloud.security.xsuaa.http.HttpHeaders;
 import com.sap.cloud.security.xsuaa.http.HttpHeadersFactory;
 import com.sap.cloud.security.xsuaa.util.HttpClientTestFactory;
@@ -61,6 +62,7 @@ public class DefaultOAuth2TokenServiceTest {
 
 	@Before
 	public void setup() {
+		MDCHelperTestUtil.resetGenerationLogged();
 		mockHttpClient = Mockito.mock(CloseableHttpClient.class);
 		cut = new DefaultOAuth2TokenService(mockHttpClient);
 	}
@@ -118,6 +120,26 @@ public class DefaultOAuth2TokenServiceTest {
 		MDC.clear();
 	}
 
+	@Test
+	public void correlationIdProvisioning_generatedIdsAreLoggedOnInfoLevelOnce() throws IOException {
+		CloseableHttpResponse response = HttpClientTestFactory.createHttpResponse(VALID_JSON_RESPONSE);
+		when(mockHttpClient.execute(any(HttpPost.class), any(ResponseHandler.class))).thenAnswer(invocation -> {
+			ResponseHandler responseHandler = invocation.getArgument(1);
+			return responseHandler.handleResponse(response);
+		});
+
+		ListAppender<ILoggingEvent> listAppender = new ListAppender<>();
+		Logger logger = (Logger) LoggerFactory.getLogger(MDCHelper.class);
+		listAppender.start();
+		logger.addAppender(listAppender);
+
+		requestAccessToken(emptyMap());
+		requestAccessToken(emptyMap());
+		assertThat(listAppender.list.get(0).getLevel()).isEqualTo(Level.INFO);
+		assertThat(listAppender.list.get(1).getLevel()).isEqualTo(Level.DEBUG);
+		assertThat(listAppender.list.get(1).getMessage()).contains("was not found in the MDC");
+	}
+
 	@Test
 	public void executeWithAdditionalParameters_putsParametersIntoPostBody() throws IOException {
 		ArgumentCaptor<HttpPost> httpPostCaptor = ArgumentCaptor.forClass(HttpPost.class);
@@ -7,11 +7,13 @@ package com.sap.cloud.security.xsuaa.client;
 
 import com.sap.cloud.security.xsuaa.util.HttpClientTestFactory;
 import org.apache.commons.io.IOUtils;
+import org.apache.http.Header;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicHeader;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentMatcher;
@@ -21,6 +23,7 @@ import org.springframework.http.HttpMethod;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 
 import static com.sap.cloud.security.xsuaa.client.OidcConfigurationService.DISCOVERY_ENDPOINT_DEFAULT;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -128,6 +131,28 @@ public class DefaultOidcConfigurationServiceTest {
 		assertThat(result.getAuthorizeEndpoint()).hasToString("http://localhost/oauth/authorize");
 	}
 
+	@Test
+	public void retrieveEndpoints_notModified_returnsPreviousConfiguration() throws IOException {
+		CloseableHttpResponse okResponse = HttpClientTestFactory.createHttpResponse(jsonOidcConfiguration,
+				HttpStatus.SC_OK, new Header[] { new BasicHeader("Last-Modified", "Wed, 21 Oct 2026 07:28:00 GMT"),
+						new BasicHeader("Cache-Control", "max-age=120") });
+		CloseableHttpResponse notModifiedResponse = HttpClientTestFactory.createHttpResponse("",
+				HttpStatus.SC_NOT_MODIFIED, new Header[0]);
+		when(httpClientMock.execute(any(), any(ResponseHandler.class)))
+				.thenAnswer(invocation -> ((ResponseHandler) invocation.getArgument(1)).handleResponse(okResponse))
+				.thenAnswer(invocation -> ((ResponseHandler) invocation.getArgument(1))
+						.handleResponse(notModifiedResponse));
+
+		retrieveEndpoints();
+		OAuth2ServiceEndpointsProvider result = retrieveEndpoints();
+
+		assertThat(result.getJwksUri()).hasToString("http://localhost/token_keys");
+		assertThat(cut.getCacheControlMaxAge(CONFIG_ENDPOINT_URI)).isEqualTo(Duration.ofSeconds(120));
+		Mockito.verify(httpClientMock, times(1)).execute(
+				argThat(request -> request.getFirstHeader("If-Modified-Since") != null),
+				any(ResponseHandler.class));
+	}
+
 	private void mockResponse() throws IOException {
 		CloseableHttpResponse response = HttpClientTestFactory.createHttpResponse(jsonOidcConfiguration);
 		when(httpClientMock.execute(any(), any(ResponseHandler.class))).thenAnswer(invocation -> {
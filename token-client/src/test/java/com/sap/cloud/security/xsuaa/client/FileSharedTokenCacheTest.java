@@ -0,0 +1,133 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.xsuaa.client;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FileSharedTokenCacheTest {
+
+	private static final byte[] VALUE = { 1, 2, 3 };
+	private static final Instant NOW = Instant.parse("2020-01-01T00:00:00Z");
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private Clock clock;
+	private Path directory;
+	private FileSharedTokenCache cut;
+
+	@Before
+	public void setUp() throws IOException {
+		clock = mock(Clock.class);
+		when(clock.instant()).thenReturn(NOW);
+		directory = temporaryFolder.newFolder().toPath();
+		cut = new FileSharedTokenCache(directory, clock);
+	}
+
+	@Test
+	public void get_storedValue_isReturnedUntilItExpires() {
+		cut.put("key", VALUE, Duration.ofMinutes(1));
+
+		assertThat(cut.get("key")).isEqualTo(VALUE);
+		assertThat(cut.get("other")).isNull();
+
+		when(clock.instant()).thenReturn(NOW.plus(Duration.ofMinutes(1)));
+		assertThat(cut.get("key")).isNull();
+	}
+
+	@Test
+	public void put_replacesStoredValue() {
+		cut.put("key", VALUE, Duration.ofMinutes(1));
+		cut.put("key", new byte[] { 4 }, Duration.ofMinutes(1));
+
+		assertThat(cut.get("key")).containsExactly(4);
+	}
+
+	@Test
+	public void tryLock_isExclusiveUntilUnlockedOrLeaseExpired() {
+		assertThat(cut.tryLock("key", Duration.ofSeconds(10))).isTrue();
+		assertThat(cut.tryLock("key", Duration.ofSeconds(10))).isFalse();
+		assertThat(cut.tryLock("other", Duration.ofSeconds(10))).isTrue();
+
+		cut.unlock("key");
+		assertThat(cut.tryLock("key", Duration.ofSeconds(10))).isTrue();
+
+		when(clock.instant()).thenReturn(NOW.plus(Duration.ofSeconds(10)));
+		assertThat(cut.tryLock("key", Duration.ofSeconds(10))).isTrue();
+	}
+
+	@Test
+	public void unlock_lockTakenOverAfterLeaseExpired_keepsLockOfNewOwner() {
+		FileSharedTokenCache otherProcess = new FileSharedTokenCache(directory, clock);
+		assertThat(cut.tryLock("key", Duration.ofSeconds(10))).isTrue();
+		when(clock.instant()).thenReturn(NOW.plus(Duration.ofSeconds(10)));
+		assertThat(otherProcess.tryLock("key", Duration.ofSeconds(10))).isTrue();
+
+		cut.unlock("key");
+
+		assertThat(cut.tryLock("key", Duration.ofSeconds(10))).isFalse();
+		otherProcess.unlock("key");
+		assertThat(cut.tryLock("key", Duration.ofSeconds(10))).isTrue();
+	}
+
+	@Test
+	public void tryLock_expiredLock_isTakenOverByOneProcessOnly() throws Exception {
+		int processes = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(processes);
+		try {
+			for (int i = 0; i < 20; i++) {
+				String key = "key" + i;
+				when(clock.instant()).thenReturn(NOW);
+				assertThat(cut.tryLock(key, Duration.ofSeconds(10))).isTrue();
+				when(clock.instant()).thenReturn(NOW.plus(Duration.ofSeconds(10)));
+				CountDownLatch start = new CountDownLatch(1);
+				List<Future<Boolean>> locked = new ArrayList<>();
+				for (int j = 0; j < processes; j++) {
+					FileSharedTokenCache otherProcess = new FileSharedTokenCache(directory, clock);
+					locked.add(executor.submit(() -> {
+						start.await();
+						return otherProcess.tryLock(key, Duration.ofSeconds(10));
+					}));
+				}
+				start.countDown();
+
+				int owners = 0;
+				for (Future<Boolean> lock : locked) {
+					owners += lock.get(5, TimeUnit.SECONDS) ? 1 : 0;
+				}
+				assertThat(owners).isOne();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void invalidKey_throwsException() {
+		assertThatThrownBy(() -> cut.get("../key")).isInstanceOf(IllegalArgumentException.class);
+	}
+}
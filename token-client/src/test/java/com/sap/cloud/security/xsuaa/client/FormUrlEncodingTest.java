@@ -0,0 +1,33 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.xsuaa.client;
+
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FormUrlEncodingTest {
+
+	@Test
+	public void encode_encodesKeysAndValuesInOrder() {
+		Map<String, String> parameters = new LinkedHashMap<>();
+		parameters.put("grant_type", "client_credentials");
+		parameters.put("client_id", "sb-client!t1");
+		parameters.put("scope", "openid uaa.user");
+		parameters.put("a&b", "c=d");
+
+		assertThat(FormUrlEncoding.encode(parameters))
+				.isEqualTo("grant_type=client_credentials&client_id=sb-client%21t1&scope=openid+uaa.user&a%26b=c%3Dd");
+	}
+
+	@Test
+	public void encode_noParameters_returnsEmptyBody() {
+		assertThat(FormUrlEncoding.encode(Map.of())).isEmpty();
+	}
+}
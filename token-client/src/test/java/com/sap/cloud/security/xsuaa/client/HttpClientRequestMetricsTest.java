@@ -0,0 +1,134 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.xsuaa.client;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.sap.cloud.security.client.DefaultHttpClientFactory;
+import com.sap.cloud.security.client.HttpClientMetrics;
+import com.sap.cloud.security.config.ClientCredentials;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class HttpClientRequestMetricsTest {
+
+	private static final String JWKS = "{\"keys\": []}";
+
+	private final RecordingMetrics metrics = new RecordingMetrics();
+	private WireMockServer wireMockServer;
+	private DefaultHttpClientFactory httpClientFactory;
+
+	@Before
+	public void setUp() {
+		wireMockServer = new WireMockServer(options().dynamicPort());
+		wireMockServer.start();
+		httpClientFactory = new DefaultHttpClientFactory(metrics);
+	}
+
+	@After
+	public void tearDown() {
+		wireMockServer.stop();
+	}
+
+	@Test
+	public void tokenKeyService_recordsStatusCodeAndBytes() throws OAuth2ServiceException {
+		wireMockServer.stubFor(get(urlPathEqualTo("/token_keys")).willReturn(okJson(JWKS)));
+		DefaultOAuth2TokenKeyService cut = new DefaultOAuth2TokenKeyService(httpClientFactory.createClient(null))
+				.withMetrics(metrics);
+
+		cut.retrieveTokenKeys(URI.create(wireMockServer.baseUrl() + "/token_keys?kid=key-1"), Map.of());
+
+		assertThat(metrics.requests).hasSize(1);
+		RecordedRequest request = metrics.requests.get(0);
+		assertThat(request.endpoint()).isEqualTo(URI.create(wireMockServer.baseUrl() + "/token_keys"));
+		assertThat(request.statusCode()).isEqualTo(200);
+		assertThat(request.duration()).isPositive();
+		assertThat(request.requestBytes()).isZero();
+		assertThat(request.responseBytes()).isEqualTo(JWKS.length());
+	}
+
+	@Test
+	public void tokenService_recordsErrorResponsesAndRequestBytes() {
+		wireMockServer.stubFor(post(urlEqualTo("/oauth/token"))
+				.willReturn(aResponse().withStatus(401).withBody("unauthorized")));
+		DefaultOAuth2TokenService cut = new DefaultOAuth2TokenService(httpClientFactory.createClient(null))
+				.withMetrics(metrics);
+
+		assertThatThrownBy(() -> cut.retrieveAccessTokenViaClientCredentialsGrant(
+				URI.create(wireMockServer.baseUrl() + "/oauth/token"), new ClientCredentials("client", "secret"),
+				null, null, null, true)).isInstanceOf(OAuth2ServiceException.class);
+
+		assertThat(metrics.requests).hasSize(1);
+		assertThat(metrics.requests.get(0).statusCode()).isEqualTo(401);
+		assertThat(metrics.requests.get(0).requestBytes())
+				.isEqualTo(wireMockServer.getAllServeEvents().get(0).getRequest().getBody().length);
+		assertThat(metrics.requests.get(0).responseBytes()).isEqualTo("unauthorized".length());
+	}
+
+	@Test
+	public void oidcConfigurationService_unavailableEndpoint_recordsFailure() {
+		DefaultOidcConfigurationService cut = new DefaultOidcConfigurationService(httpClientFactory.createClient(null))
+				.withMetrics(metrics);
+
+		assertThatThrownBy(() -> cut.retrieveEndpoints(URI.create("http://localhost:1/.well-known/openid-configuration")))
+				.isInstanceOf(OAuth2ServiceException.class);
+
+		assertThat(metrics.requests).isEmpty();
+		assertThat(metrics.failures).containsExactly(URI.create("http://localhost:1/.well-known/openid-configuration"));
+	}
+
+	@Test
+	public void httpClientFactory_registersConnectionPools() throws OAuth2ServiceException {
+		wireMockServer.stubFor(get(urlEqualTo("/token_keys")).willReturn(okJson(JWKS)));
+		new DefaultOAuth2TokenKeyService(httpClientFactory.createClient(null))
+				.retrieveTokenKeys(URI.create(wireMockServer.baseUrl() + "/token_keys"), Map.of());
+
+		assertThat(metrics.connectionPools).containsOnlyKeys("default");
+		assertThat(metrics.connectionPools.get("default").get())
+				.isEqualTo(new HttpClientMetrics.ConnectionPoolStatistics(0, 1, 0, 200));
+	}
+
+	private record RecordedRequest(URI endpoint, int statusCode, Duration duration, long requestBytes,
+			long responseBytes) {
+	}
+
+	private static class RecordingMetrics implements HttpClientMetrics {
+		final List<RecordedRequest> requests = new CopyOnWriteArrayList<>();
+		final List<URI> failures = new CopyOnWriteArrayList<>();
+		final Map<String, Supplier<ConnectionPoolStatistics>> connectionPools = new ConcurrentHashMap<>();
+
+		@Override
+		public void recordRequest(@Nonnull URI endpoint, int statusCode, @Nonnull Duration duration,
+				long requestBytes, long responseBytes) {
+			requests.add(new RecordedRequest(endpoint, statusCode, duration, requestBytes, responseBytes));
+		}
+
+		@Override
+		public void recordFailure(@Nonnull URI endpoint, @Nonnull Duration duration, @Nonnull Exception exception) {
+			failures.add(endpoint);
+		}
+
+		@Override
+		public void registerConnectionPool(@Nonnull String poolName,
+				@Nonnull Supplier<ConnectionPoolStatistics> statistics) {
+			connectionPools.put(poolName, statistics);
+		}
+	}
+}
@@ -0,0 +1,73 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.xsuaa.client;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class InMemorySharedTokenCacheTest {
+
+	private static final byte[] VALUE = { 1, 2, 3 };
+	private static final Instant NOW = Instant.parse("2020-01-01T00:00:00Z");
+
+	private Clock clock;
+	private InMemorySharedTokenCache cut;
+
+	@Before
+	public void setUp() {
+		clock = mock(Clock.class);
+		when(clock.instant()).thenReturn(NOW);
+		cut = new InMemorySharedTokenCache(clock);
+	}
+
+	@Test
+	public void get_storedValue_isReturnedUntilItExpires() {
+		cut.put("key", VALUE, Duration.ofMinutes(1));
+
+		assertThat(cut.get("key")).isEqualTo(VALUE);
+		assertThat(cut.get("other")).isNull();
+
+		when(clock.instant()).thenReturn(NOW.plus(Duration.ofMinutes(1)));
+		assertThat(cut.get("key")).isNull();
+	}
+
+	@Test
+	public void tryLock_isExclusiveUntilUnlockedOrLeaseExpired() {
+		assertThat(cut.tryLock("key", Duration.ofSeconds(10))).isTrue();
+		assertThat(cut.tryLock("key", Duration.ofSeconds(10))).isFalse();
+		assertThat(cut.tryLock("other", Duration.ofSeconds(10))).isTrue();
+
+		cut.unlock("key");
+		assertThat(cut.tryLock("key", Duration.ofSeconds(10))).isTrue();
+
+		when(clock.instant()).thenReturn(NOW.plus(Duration.ofSeconds(10)));
+		assertThat(cut.tryLock("key", Duration.ofSeconds(10))).isTrue();
+	}
+
+	@Test
+	public void unlock_lockTakenOverAfterLeaseExpired_keepsLockOfNewOwner() throws Exception {
+		assertThat(cut.tryLock("key", Duration.ofSeconds(10))).isTrue();
+		when(clock.instant()).thenReturn(NOW.plus(Duration.ofSeconds(10)));
+		AtomicBoolean takenOver = new AtomicBoolean();
+		Thread otherOwner = new Thread(() -> takenOver.set(cut.tryLock("key", Duration.ofSeconds(10))));
+		otherOwner.start();
+		otherOwner.join();
+		assertThat(takenOver).isTrue();
+
+		cut.unlock("key");
+
+		assertThat(cut.tryLock("key", Duration.ofSeconds(10))).isFalse();
+	}
+}
@@ -5,15 +5,22 @@
  */
 package com.sap.cloud.security.xsuaa.client;
 
+import com.sap.cloud.security.xsuaa.jwt.DecodedJwt;
 import org.hamcrest.number.OrderingComparison;
+import org.json.JSONException;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.Base64;
 import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.CoreMatchers.allOf;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
 
 public class OAuth2TokenResponseTest {
 
@@ -51,6 +58,42 @@ public class OAuth2TokenResponseTest {
 		assertEquals("accessToken", tokenResponse.getAccessToken());
 	}
 
+	@Test
+	public void fromJson_readsTokenResponseAndSkipsOtherMembers() throws OAuth2ServiceException {
+		String json = "{\"scope\": [\"uaa.resource\", \"openid\"], \"access_token\": \"abc123\", "
+				+ "\"ext\": {\"nested\": {\"access_token\": \"other\"}}, \"expires_in\": 43199, "
+				+ "\"token_type\": \"bearer\", \"jti\": \"id\"}";
+		Instant minExpireDate = getCurrentInstant().plusSeconds(43199);
+
+		OAuth2TokenResponse tokenResponse = OAuth2TokenResponse
+				.fromJson(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+		assertEquals("abc123", tokenResponse.getAccessToken());
+		assertEquals("bearer", tokenResponse.getTokenType());
+		assertEquals("null", tokenResponse.getRefreshToken());
+		assertThat(tokenResponse.getExpiredAt(), OrderingComparison.greaterThanOrEqualTo(minExpireDate));
+	}
+
+	@Test
+	public void fromJson_invalidJson_throwsException() {
+		assertThrows(JSONException.class, () -> OAuth2TokenResponse.fromJson("[\"access_token\"]"));
+		assertThrows(JSONException.class, () -> OAuth2TokenResponse.fromJson("{\"access_token\" \"abc\"}"));
+		assertThrows(JSONException.class, () -> OAuth2TokenResponse.fromJson("{\"access_token\": \"abc\""));
+	}
+
+	@Test
+	public void getDecodedAccessToken_isDecodedOnce() {
+		Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+		String accessToken = encoder.encodeToString("{\"alg\":\"RS256\"}".getBytes(StandardCharsets.UTF_8)) + "."
+				+ encoder.encodeToString("{\"sub\":\"client\"}".getBytes(StandardCharsets.UTF_8)) + ".signature";
+		OAuth2TokenResponse tokenResponse = new OAuth2TokenResponse(accessToken, 47299, null);
+
+		DecodedJwt decodedJwt = tokenResponse.getDecodedAccessToken();
+
+		assertEquals("{\"sub\":\"client\"}", decodedJwt.getPayload());
+		assertSame(decodedJwt, tokenResponse.getDecodedAccessToken());
+	}
+
 	private Instant getCurrentInstant() {
 		return Instant.ofEpochMilli(System.currentTimeMillis());
 	}
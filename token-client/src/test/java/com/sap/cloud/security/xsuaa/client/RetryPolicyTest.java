@@ -0,0 +1,159 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.xsuaa.client;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.sap.cloud.security.client.DefaultHttpClientFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RetryPolicyTest {
+	private static final URI TOKEN_KEYS_URI = URI.create("https://auth.com/token_keys");
+	private static final Instant NOW = Instant.parse("2026-01-01T00:00:00Z");
+
+	private List<Duration> delays;
+	private AtomicInteger attempts;
+	private RetryPolicy cut;
+
+	@Before
+	public void setUp() {
+		delays = new ArrayList<>();
+		attempts = new AtomicInteger();
+		cut = new RetryPolicy(Clock.fixed(NOW, ZoneOffset.UTC), () -> 1.0, delays::add) // no jitter
+				.withMaxAttempts(4)
+				.withBackoff(Duration.ofMillis(100), Duration.ofMillis(300));
+	}
+
+	@Test
+	public void transientErrors_areRetriedWithExponentialBackoff() throws IOException {
+		String response = cut.execute(TOKEN_KEYS_URI, true, () -> {
+			if (attempts.incrementAndGet() < 4) {
+				throw new OAuth2ServiceException("Service unavailable", 503);
+			}
+			return "ok";
+		});
+
+		assertThat(response).isEqualTo("ok");
+		assertThat(delays).containsExactly(Duration.ofMillis(100), Duration.ofMillis(200), Duration.ofMillis(300));
+		assertThat(cut.getStatistics()).isEqualTo(new RetryPolicy.Statistics(1, 3, 0));
+	}
+
+	@Test
+	public void backoffIsJittered() {
+		cut = new RetryPolicy(Clock.systemUTC(), () -> 0.0, delays::add).withBackoff(Duration.ofMillis(100),
+				Duration.ofSeconds(1));
+
+		assertThatThrownBy(() -> cut.execute(TOKEN_KEYS_URI, true, this::connectionReset))
+				.isInstanceOf(SocketException.class);
+
+		assertThat(delays).containsExactly(Duration.ofMillis(50), Duration.ofMillis(100));
+		assertThat(attempts).hasValue(3);
+	}
+
+	@Test
+	public void clientErrors_areNotRetried() {
+		assertThatThrownBy(() -> cut.execute(TOKEN_KEYS_URI, true, () -> {
+			attempts.incrementAndGet();
+			throw new OAuth2ServiceException("Unauthorized", 401);
+		})).isInstanceOf(OAuth2ServiceException.class);
+
+		assertThat(attempts).hasValue(1);
+	}
+
+	@Test
+	public void nonIdempotentRequest_isOnlyRetriedIfNotProcessed() {
+		assertThatThrownBy(() -> cut.execute(TOKEN_KEYS_URI, false, this::connectionReset))
+				.isInstanceOf(SocketException.class);
+		assertThatThrownBy(() -> cut.execute(TOKEN_KEYS_URI, false, () -> {
+			attempts.incrementAndGet();
+			throw new OAuth2ServiceException("Service unavailable", 503);
+		})).isInstanceOf(OAuth2ServiceException.class);
+		assertThat(attempts).hasValue(2);
+
+		assertThatThrownBy(() -> cut.execute(TOKEN_KEYS_URI, false, () -> {
+			attempts.incrementAndGet();
+			throw new ConnectException("Connection refused");
+		})).isInstanceOf(ConnectException.class);
+		assertThat(attempts).hasValue(6);
+	}
+
+	@Test
+	public void retryAfter_isHonoredUpToMaximumBackoff() {
+		assertThatThrownBy(() -> cut.execute(TOKEN_KEYS_URI, true, () -> {
+			int attempt = attempts.incrementAndGet();
+			throw OAuth2ServiceException.builder("Too many requests")
+					.withStatusCode(429)
+					.withHeaders(attempt == 1 ? "Retry-After: Thu, 01 Jan 2026 00:00:00 GMT" : "Retry-After: 1")
+					.build();
+		})).isInstanceOf(OAuth2ServiceException.class);
+
+		assertThat(delays).containsExactly(Duration.ofMillis(100));
+		assertThat(attempts).hasValue(2);
+	}
+
+	@Test
+	public void exhaustedBudget_preventsRetries() {
+		cut.withBudget(0.5, 2);
+
+		assertThatThrownBy(() -> cut.execute(TOKEN_KEYS_URI, true, this::connectionReset))
+				.isInstanceOf(SocketException.class);
+		assertThat(attempts).hasValue(3);
+
+		assertThatThrownBy(() -> cut.execute(TOKEN_KEYS_URI, true, this::connectionReset))
+				.isInstanceOf(SocketException.class);
+		assertThat(attempts).hasValue(4);
+		assertThat(cut.getStatistics()).isEqualTo(new RetryPolicy.Statistics(2, 2, 2));
+	}
+
+	@Test
+	public void tokenKeyService_unavailableIdentityService_isRetried() throws OAuth2ServiceException {
+		WireMockServer wireMockServer = new WireMockServer(options().dynamicPort());
+		wireMockServer.stubFor(get(urlEqualTo("/token_keys")).inScenario("retry")
+				.whenScenarioStateIs(Scenario.STARTED)
+				.willReturn(aResponse().withStatus(503))
+				.willSetStateTo("available"));
+		wireMockServer.stubFor(get(urlEqualTo("/token_keys")).inScenario("retry")
+				.whenScenarioStateIs("available")
+				.willReturn(okJson("{\"keys\": []}")));
+		wireMockServer.start();
+		try {
+			URI tokenKeysUri = URI.create(wireMockServer.baseUrl() + "/token_keys");
+			DefaultOAuth2TokenKeyService tokenKeyService = new DefaultOAuth2TokenKeyService(
+					new DefaultHttpClientFactory().createClient(null)).withRetryPolicy(cut);
+
+			assertThat(tokenKeyService.retrieveTokenKeys(tokenKeysUri, Collections.emptyMap()))
+					.isEqualTo("{\"keys\": []}");
+
+			wireMockServer.verify(2, getRequestedFor(urlEqualTo("/token_keys")));
+		} finally {
+			wireMockServer.stop();
+		}
+	}
+
+	private String connectionReset() throws SocketException {
+		attempts.incrementAndGet();
+		throw new SocketException("Connection reset");
+	}
+}
@@ -0,0 +1,44 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.xsuaa.client;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.KeyGenerator;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TokenCacheCipherTest {
+
+	private static final byte[] TOKEN = "{\"access_token\":\"token\"}".getBytes(StandardCharsets.UTF_8);
+
+	private TokenCacheCipher cut;
+
+	@Before
+	public void setUp() throws GeneralSecurityException {
+		cut = TokenCacheCipher.aesGcm(KeyGenerator.getInstance("AES").generateKey());
+	}
+
+	@Test
+	public void aesGcm_decryptsEncryptedValue() throws GeneralSecurityException {
+		byte[] ciphertext = cut.encrypt("key", TOKEN);
+
+		assertThat(ciphertext).isNotEqualTo(TOKEN).isNotEqualTo(cut.encrypt("key", TOKEN));
+		assertThat(cut.decrypt("key", ciphertext)).isEqualTo(TOKEN);
+	}
+
+	@Test
+	public void aesGcm_valueCopiedToOtherKey_isRejected() throws GeneralSecurityException {
+		byte[] ciphertext = cut.encrypt("key", TOKEN);
+
+		assertThatThrownBy(() -> cut.decrypt("other-key", ciphertext)).isInstanceOf(AEADBadTagException.class);
+	}
+}
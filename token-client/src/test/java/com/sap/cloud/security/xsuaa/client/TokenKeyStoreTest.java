@@ -0,0 +1,145 @@
+/**
+ * SPDX-FileCopyrightText: 2018-2023 SAP SE or an SAP affiliate company and Cloud Security Client Java contributors
+ * <p>
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.sap.cloud.security.xsuaa.client;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.sap.cloud.security.xsuaa.http.HttpHeaders;
+import com.sap.cloud.security.xsuaa.tokenflows.TokenCacheConfiguration;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+public class TokenKeyStoreTest {
+
+	private static final URI TOKEN_KEYS_URI = URI.create("https://tokenKeys.io/token_keys");
+	private static final String JWKS = "{\"keys\":[]}";
+	private static final Map<String, String> PARAMS = Map.of(HttpHeaders.X_ZID, "zone-id");
+
+	private TokenKeyStore cut;
+	private OAuth2TokenKeyService tokenKeyServiceMock;
+
+	@Before
+	public void setUp() throws OAuth2ServiceException {
+		cut = new TokenKeyStore();
+		tokenKeyServiceMock = mock(OAuth2TokenKeyService.class);
+		when(tokenKeyServiceMock.retrieveTokenKeys(any(), anyMap())).thenReturn(JWKS);
+	}
+
+	@Test
+	public void getInstance_returnsProcessWideInstance() {
+		assertThat(TokenKeyStore.getInstance()).isSameAs(TokenKeyStore.getInstance()).isNotSameAs(cut);
+	}
+
+	@Test
+	public void getOrRetrieve_requestsTokenKeysOnlyOnce() throws OAuth2ServiceException {
+		TokenKeyStore.Entry entry = cut.getOrRetrieve(TOKEN_KEYS_URI, PARAMS, tokenKeyServiceMock);
+
+		assertThat(entry.getJson()).isEqualTo(JWKS);
+		assertThat(cut.getOrRetrieve(TOKEN_KEYS_URI, PARAMS, mock(OAuth2TokenKeyService.class))).isSameAs(entry);
+		verify(tokenKeyServiceMock, times(1)).retrieveTokenKeys(TOKEN_KEYS_URI, PARAMS);
+	}
+
+	@Test
+	public void getOrRetrieve_differentParameters_requestsTokenKeysAgain() throws OAuth2ServiceException {
+		cut.getOrRetrieve(TOKEN_KEYS_URI, PARAMS, tokenKeyServiceMock);
+		cut.getOrRetrieve(TOKEN_KEYS_URI, Map.of(HttpHeaders.X_ZID, "other-zone-id"), tokenKeyServiceMock);
+
+		verify(tokenKeyServiceMock, times(2)).retrieveTokenKeys(eq(TOKEN_KEYS_URI), anyMap());
+	}
+
+	@Test
+	public void getOrRetrieve_zidHeaderMatchingQueryParameter_sharesEntryWithoutHeader() throws OAuth2ServiceException {
+		URI tokenKeysUriWithZid = URI.create("https://tokenKeys.io/token_keys?zid=zone-id");
+		TokenKeyStore.Entry entry = cut.getOrRetrieve(tokenKeysUriWithZid, null, tokenKeyServiceMock);
+
+		assertThat(cut.getOrRetrieve(tokenKeysUriWithZid, PARAMS, tokenKeyServiceMock)).isSameAs(entry);
+		assertThat(cut.getIfPresent(tokenKeysUriWithZid, Map.of(HttpHeaders.X_ZID, "other-zone-id"))).isNull();
+		verify(tokenKeyServiceMock, times(1)).retrieveTokenKeys(eq(tokenKeysUriWithZid), anyMap());
+	}
+
+	@Test
+	public void getOrRetrieve_doesNotCacheErrors() throws OAuth2ServiceException {
+		OAuth2TokenKeyService failingService = mock(OAuth2TokenKeyService.class);
+		when(failingService.retrieveTokenKeys(any(), anyMap())).thenThrow(new OAuth2ServiceException("unavailable"));
+
+		assertThatThrownBy(() -> cut.getOrRetrieve(TOKEN_KEYS_URI, PARAMS, failingService))
+				.isInstanceOf(OAuth2ServiceException.class)
+				.hasMessage("unavailable");
+		assertThat(cut.getIfPresent(TOKEN_KEYS_URI, PARAMS)).isNull();
+	}
+
+	@Test
+	public void put_isReturnedByGetIfPresent() {
+		cut.put(TOKEN_KEYS_URI, null, JWKS);
+
+		assertThat(cut.getIfPresent(TOKEN_KEYS_URI, Map.of()).getJson()).isEqualTo(JWKS);
+		assertThat(cut.getIfPresent(TOKEN_KEYS_URI, PARAMS)).isNull();
+	}
+
+	@Test
+	public void getParsed_parsesOnlyOnce() throws OAuth2ServiceException {
+		AtomicInteger parseCount = new AtomicInteger();
+		TokenKeyStore.Entry entry = cut.getOrRetrieve(TOKEN_KEYS_URI, PARAMS, tokenKeyServiceMock);
+
+		entry.getParsed(Integer.class, json -> parseCount.incrementAndGet());
+		Integer parsed = entry.getParsed(Integer.class, json -> parseCount.incrementAndGet());
+
+		assertThat(parsed).isEqualTo(1);
+		assertThat(parseCount).hasValue(1);
+	}
+
+	@Test
+	public void asTokenKeyService_looksUpStoreFirst() throws OAuth2ServiceException {
+		OAuth2TokenKeyService tokenKeyService = cut.asTokenKeyService(tokenKeyServiceMock);
+
+		assertThat(tokenKeyService.retrieveTokenKeys(TOKEN_KEYS_URI, PARAMS)).isEqualTo(JWKS);
+		assertThat(tokenKeyService.retrieveTokenKeys(TOKEN_KEYS_URI, PARAMS)).isEqualTo(JWKS);
+		verify(tokenKeyServiceMock, times(1)).retrieveTokenKeys(TOKEN_KEYS_URI, PARAMS);
+	}
+
+	@Test
+	public void cacheStatistics() throws OAuth2ServiceException {
+		assertThat(cut.getCacheStatistics()).isNull();
+
+		cut.withCacheConfiguration(TokenCacheConfiguration.getInstance(Duration.ofMinutes(5), 100, Duration.ZERO, true));
+		cut.getOrRetrieve(TOKEN_KEYS_URI, PARAMS, tokenKeyServiceMock);
+		cut.getOrRetrieve(TOKEN_KEYS_URI, PARAMS, tokenKeyServiceMock);
+
+		CacheStats stats = (CacheStats) cut.getCacheStatistics();
+		assertThat(stats.hitCount()).isEqualTo(1);
+		assertThat(stats.missCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void clearCache() throws OAuth2ServiceException {
+		cut.getOrRetrieve(TOKEN_KEYS_URI, PARAMS, tokenKeyServiceMock);
+
+		cut.clearCache();
+
+		assertThat(cut.getIfPresent(TOKEN_KEYS_URI, PARAMS)).isNull();
+	}
+
+	@Test
+	public void invalidate_removesOnlyGivenEntry() throws OAuth2ServiceException {
+		cut.getOrRetrieve(TOKEN_KEYS_URI, PARAMS, tokenKeyServiceMock);
+		cut.put(TOKEN_KEYS_URI, null, JWKS);
+
+		cut.invalidate(TOKEN_KEYS_URI, PARAMS);
+
+		assertThat(cut.getIfPresent(TOKEN_KEYS_URI, PARAMS)).isNull();
+		assertThat(cut.getIfPresent(TOKEN_KEYS_URI, null)).isNotNull();
+	}
+}
@@ -12,6 +12,7 @@ import ch.qos.logback.core.read.ListAppender;
 import com.sap.cloud.security.config.ClientCredentials;
 import com.sap.cloud.security.config.ClientIdentity;
 import com.sap.cloud.security.servlet.MDCHelper;
+import com.sap.cloud.security.servlet.MDCHelperTestUtil;
 import org.assertj.core.api.Assertions;
 import org.junit.Before;
 import org.junit.Test;
@@ -56,6 +57,7 @@ public class XsuaaOAuth2TokenServiceClientCredentialsTest {
 
 	@Before
 	public void setup() {
+		MDCHelperTestUtil.resetGenerationLogged();
 		cut = new XsuaaOAuth2TokenService(mockRestOperations);
 		clientIdentity = new ClientCredentials("clientid", "mysecretpassword");
 		tokenEndpoint = URI.create("https://subdomain.myauth.server.com/oauth/token");
@@ -18,6 +18,7 @@ import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static com.sap.cloud.security.xsuaa.client.OAuth2TokenServiceConstants.AUTHORITIES;
@@ -165,6 +166,47 @@ public class ClientCredentialsTokenFlowTest {
 
 	}
 
+	@Test
+	public void executeForSubdomains_requestsTokenPerSubdomainAndCollectsErrors()
+			throws TokenFlowException, OAuth2ServiceException {
+		OAuth2TokenResponse accessToken = mockRetrieveAccessToken();
+		when(mockTokenService
+				.retrieveAccessTokenViaClientCredentialsGrant(eq(TOKEN_ENDPOINT_URI), eq(clientIdentity),
+						any(), eq("failing"), any(), anyBoolean()))
+				.thenThrow(new OAuth2ServiceException("Unknown subdomain", 401));
+
+		TenantTokenResponses responses = cut.parallelism(2).zoneId("ignored")
+				.executeForSubdomains(List.of("tenant1", "tenant2", "failing", "tenant1"));
+
+		assertThat(responses.getTokenResponses()).containsOnlyKeys("tenant1", "tenant2");
+		assertThat(responses.getTokenResponse("tenant1")).isSameAs(accessToken);
+		assertThat(responses.hasErrors()).isTrue();
+		assertThat(responses.getErrors()).containsOnlyKeys("failing");
+		assertThat(responses.getErrors().get("failing")).hasMessageContaining("Unknown subdomain");
+		verify(mockTokenService, times(1))
+				.retrieveAccessTokenViaClientCredentialsGrant(TOKEN_ENDPOINT_URI, clientIdentity, null, "tenant1",
+						emptyMap(), false);
+	}
+
+	@Test
+	public void executeForZoneIds_requestsTokenPerZoneId() throws TokenFlowException, OAuth2ServiceException {
+		mockRetrieveAccessToken();
+
+		TenantTokenResponses responses = cut.subdomain("ignored").executeForZoneIds(List.of("zone1", "zone2"));
+
+		assertThat(responses.getTokenResponses()).containsOnlyKeys("zone1", "zone2");
+		assertThat(responses.hasErrors()).isFalse();
+		verify(mockTokenService, times(1))
+				.retrieveAccessTokenViaClientCredentialsGrant(TOKEN_ENDPOINT_URI, clientIdentity, "zone2", null,
+						emptyMap(), false);
+	}
+
+	@Test
+	public void executeForSubdomains_noSubdomains_returnsEmptyResponses() throws TokenFlowException {
+		assertThat(cut.executeForSubdomains(List.of()).getTokenResponses()).isEmpty();
+		assertThatThrownBy(() -> cut.parallelism(0)).isInstanceOf(IllegalArgumentException.class);
+	}
+
 	private void verifyThatDisableCacheAttributeIs(boolean disableCache) throws OAuth2ServiceException {
 		verify(mockTokenService, times(1))
 				.retrieveAccessTokenViaClientCredentialsGrant(eq(TOKEN_ENDPOINT_URI), eq(clientIdentity),